@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial implementation
+ ******************************************************************************/
+package org.eclipse.californium.benchmarks.coap;
+
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.coap.BlockOption;
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.network.Exchange;
+import org.eclipse.californium.core.network.Exchange.Origin;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.core.network.stack.AbstractLayer;
+import org.eclipse.californium.core.network.stack.BlockwiseLayer;
+import org.eclipse.californium.elements.AddressEndpointContext;
+import org.eclipse.californium.elements.util.DaemonThreadFactory;
+import org.eclipse.californium.elements.util.ExecutorsUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for serving parallel Block2 downloads with the
+ * {@link BlockwiseLayer}.
+ *
+ * The setup starts a Block2 transfer of a {@code bodySize} bytes body for each
+ * of the {@code transfers} peers. The {@link #nextBlock(DeduplicatorBenchmark.Cursor)}
+ * benchmark passes a request for an intermediary block of one of these
+ * transfers to the layer, which looks up the transfer and creates the
+ * response block. The last block is never requested, so the transfers are
+ * kept. Use {@code -t} to show the scaling with the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockwiseLayerBenchmark {
+
+	private static final String PATH = "firmware";
+	private static final int BLOCK_SIZE = 64;
+	private static final int BLOCK_SZX = BlockOption.size2Szx(BLOCK_SIZE);
+
+	/**
+	 * Number of parallel transfers, each with its own peer.
+	 */
+	@Param({ "100", "10000" })
+	public int transfers;
+
+	/**
+	 * Size of the body in bytes.
+	 */
+	@Param({ "4096" })
+	public int bodySize;
+
+	private ScheduledExecutorService executor;
+	private BlockwiseLayer layer;
+	private InetSocketAddress[] peers;
+	private int blocks;
+
+	@Setup
+	public void setup() throws UnknownHostException {
+		NetworkConfig config = NetworkConfig.createStandardWithoutFile();
+		config.setInt(NetworkConfig.Keys.MAX_MESSAGE_SIZE, BLOCK_SIZE);
+		config.setInt(NetworkConfig.Keys.PREFERRED_BLOCK_SIZE, BLOCK_SIZE);
+		config.setInt(NetworkConfig.Keys.MAX_RESOURCE_BODY_SIZE, bodySize);
+		config.setInt(NetworkConfig.Keys.MAX_ACTIVE_PEERS, transfers);
+		// keep the transfers during the benchmark
+		config.setInt(NetworkConfig.Keys.BLOCKWISE_STATUS_LIFETIME, (int) TimeUnit.MINUTES.toMillis(10));
+		executor = ExecutorsUtil.newScheduledThreadPool(1, new DaemonThreadFactory("Blockwise#"));
+		layer = new BlockwiseLayer(config);
+		layer.setExecutors(executor, executor);
+		layer.setLowerLayer(new AbstractLayer() {
+
+			@Override
+			public void sendResponse(Exchange exchange, Response response) {
+				// drop
+			}
+		});
+		blocks = (bodySize + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		byte[] body = new byte[bodySize];
+		Arrays.fill(body, (byte) 'b');
+		peers = new InetSocketAddress[transfers];
+		for (int index = 0; index < transfers; ++index) {
+			// one peer per address
+			peers[index] = DeduplicatorBenchmark.peer(index << 8);
+			Request request = newRequest(peers[index]);
+			Exchange exchange = new Exchange(request, Origin.REMOTE, null);
+			Response response = Response.createResponse(request, ResponseCode.CONTENT);
+			response.setPayload(body);
+			layer.sendResponse(exchange, response);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Benchmark
+	public Exchange nextBlock(DeduplicatorBenchmark.Cursor cursor) {
+		// intermediary blocks 1 to blocks - 2
+		int index = cursor.next(transfers * (blocks - 2));
+		Request request = newRequest(peers[index % transfers]);
+		request.getOptions().setBlock2(BLOCK_SZX, false, 1 + index / transfers);
+		Exchange exchange = new Exchange(request, Origin.REMOTE, null);
+		layer.receiveRequest(exchange, request);
+		return exchange;
+	}
+
+	private static Request newRequest(InetSocketAddress peer) {
+		Request request = Request.newGet();
+		request.setMID(1);
+		request.getOptions().setUriPath(PATH);
+		request.setSourceContext(new AddressEndpointContext(peer));
+		return request;
+	}
+}
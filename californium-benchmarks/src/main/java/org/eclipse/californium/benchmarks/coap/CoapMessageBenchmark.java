@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    Bosch.IO GmbH - initial implementation
+ ******************************************************************************/
+package org.eclipse.californium.benchmarks.coap;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.CoAP.Type;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.coap.Message;
+import org.eclipse.californium.core.coap.Option;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.californium.core.network.serialization.DataParser;
+import org.eclipse.californium.core.network.serialization.DataSerializer;
+import org.eclipse.californium.core.network.serialization.UdpDataParser;
+import org.eclipse.californium.core.network.serialization.UdpDataSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the CoAP UDP message codec.
+ * 
+ * Covers {@link UdpDataParser}, {@link UdpDataSerializer} and the
+ * {@link org.eclipse.californium.core.coap.OptionSet} operations executed for
+ * every message.
+ * 
+ * The parser is used with eager and lazy options decoding. The
+ * {@link #parseRequestAndRoute()} benchmark accesses the options, which are
+ * used to deliver a request to a resource.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoapMessageBenchmark {
+
+	/**
+	 * Size of the payload in bytes.
+	 */
+	@Param({ "0", "64", "512" })
+	public int payloadSize;
+
+	/**
+	 * Keep options encoded and decode them on access.
+	 */
+	@Param({ "false", "true" })
+	public boolean lazyOptions;
+
+	private DataParser parser;
+	private DataSerializer serializer;
+	private Request request;
+	private Response response;
+	private byte[] requestBytes;
+	private byte[] responseBytes;
+
+	@Setup
+	public void setup() {
+		parser = new UdpDataParser(lazyOptions);
+		serializer = new UdpDataSerializer();
+		byte[] payload = new byte[payloadSize];
+		Arrays.fill(payload, (byte) 'p');
+
+		request = Request.newPost();
+		request.setType(Type.CON);
+		request.setMID(0x1234);
+		request.setToken(new Token(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }));
+		request.getOptions().setUriHost("sensor.example.com").setUriPath("/dashboard/floor/3/temperature")
+				.setUriQuery("unit=celsius&ep=node-4711").setContentFormat(MediaTypeRegistry.APPLICATION_CBOR)
+				.setAccept(MediaTypeRegistry.APPLICATION_CBOR).addETag(new byte[] { 0x10, 0x20, 0x30, 0x40 })
+				.addOption(new Option(65000, "custom"));
+		request.setPayload(payload);
+		requestBytes = serializer.getByteArray(request);
+
+		response = new Response(ResponseCode.CONTENT);
+		response.setType(Type.ACK);
+		response.setMID(0x1234);
+		response.setToken(request.getToken());
+		response.getOptions().setContentFormat(MediaTypeRegistry.APPLICATION_CBOR).setMaxAge(60).setObserve(4711)
+				.addETag(new byte[] { 0x10, 0x20, 0x30, 0x40 });
+		response.setPayload(payload);
+		responseBytes = serializer.getByteArray(response);
+	}
+
+	@Benchmark
+	public Message parseRequest() {
+		return parser.parseMessage(requestBytes);
+	}
+
+	@Benchmark
+	public String parseRequestAndRoute() {
+		Message message = parser.parseMessage(requestBytes);
+		if (message.getOptions().hasBlock1() || message.getOptions().hasObserve()) {
+			return null;
+		}
+		return message.getOptions().getUriPathString();
+	}
+
+	@Benchmark
+	public Message parseResponse() {
+		return parser.parseMessage(responseBytes);
+	}
+
+	@Benchmark
+	public byte[] serializeRequest() {
+		return serializer.getByteArray(request);
+	}
+
+	@Benchmark
+	public byte[] serializeResponse() {
+		return serializer.getByteArray(response);
+	}
+
+	@Benchmark
+	public List<Option> sortOptions() {
+		return request.getOptions().asSortedList();
+	}
+
+	@Benchmark
+	public String uriPathString() {
+		return request.getOptions().getUriPathString();
+	}
+}
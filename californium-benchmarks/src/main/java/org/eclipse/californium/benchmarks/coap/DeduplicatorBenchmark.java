@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    Bosch.IO GmbH - initial implementation
+ ******************************************************************************/
+package org.eclipse.californium.benchmarks.coap;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.network.Exchange;
+import org.eclipse.californium.core.network.Exchange.Origin;
+import org.eclipse.californium.core.network.KeyMID;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.core.network.deduplication.Deduplicator;
+import org.eclipse.californium.core.network.deduplication.DeduplicatorFactory;
+import org.eclipse.californium.elements.util.DaemonThreadFactory;
+import org.eclipse.californium.elements.util.ExecutorsUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the duplicate detection of incoming messages.
+ * 
+ * The deduplicator is filled with {@code entries} exchanges. The
+ * {@link #duplicate()} benchmark looks up an already known MID, the
+ * {@link #unknown()} benchmark looks up a MID, which is not contained.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeduplicatorBenchmark {
+
+	@Param({ NetworkConfig.Keys.DEDUPLICATOR_MARK_AND_SWEEP, NetworkConfig.Keys.DEDUPLICATOR_PEERS_MARK_AND_SWEEP,
+			NetworkConfig.Keys.DEDUPLICATOR_CROP_ROTATION, NetworkConfig.Keys.DEDUPLICATOR_GENERATIONS })
+	public String deduplicator;
+
+	/**
+	 * Number of entries in the deduplicator.
+	 */
+	@Param({ "10000", "100000" })
+	public int entries;
+
+	private ScheduledExecutorService executor;
+	private Deduplicator dedup;
+	private KeyMID[] known;
+	private KeyMID[] unknown;
+	private Exchange exchange;
+
+	@Setup
+	public void setup() throws UnknownHostException {
+		NetworkConfig config = NetworkConfig.createStandardWithoutFile();
+		config.setString(NetworkConfig.Keys.DEDUPLICATOR, deduplicator);
+		executor = ExecutorsUtil.newSingleThreadScheduledExecutor(new DaemonThreadFactory("Deduplicator#"));
+		dedup = DeduplicatorFactory.getDeduplicatorFactory().createDeduplicator(config);
+		dedup.setExecutor(executor);
+		dedup.start();
+		exchange = new Exchange(Request.newGet(), Origin.REMOTE, null);
+		known = new KeyMID[entries];
+		unknown = new KeyMID[entries];
+		for (int index = 0; index < entries; ++index) {
+			InetSocketAddress peer = peer(index);
+			known[index] = new KeyMID(index & 0xffff, peer);
+			unknown[index] = new KeyMID((index + 0x8000) & 0xffff, peer);
+			dedup.findPrevious(known[index], exchange);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		dedup.stop();
+		dedup.clear();
+		executor.shutdown();
+	}
+
+	@Benchmark
+	public Exchange duplicate(Cursor cursor) {
+		return dedup.findPrevious(known[cursor.next(entries)], exchange);
+	}
+
+	@Benchmark
+	public Exchange unknown(Cursor cursor) {
+		return dedup.find(unknown[cursor.next(entries)]);
+	}
+
+	/**
+	 * Create peer address for index.
+	 * 
+	 * 256 MIDs are used per peer.
+	 * 
+	 * @param index index of entry
+	 * @return peer address
+	 * @throws UnknownHostException never, address is created from bytes
+	 */
+	static InetSocketAddress peer(int index) throws UnknownHostException {
+		int host = index >> 8;
+		InetAddress address = InetAddress
+				.getByAddress(new byte[] { 10, (byte) (host >> 16), (byte) (host >> 8), (byte) host });
+		return new InetSocketAddress(address, 5683);
+	}
+
+	/**
+	 * Per thread cursor over the prepared keys.
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+
+		private int position;
+
+		public int next(int size) {
+			if (++position >= size) {
+				position = 0;
+			}
+			return position;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    Bosch.IO GmbH - initial implementation
+ ******************************************************************************/
+package org.eclipse.californium.benchmarks.coap;
+
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.network.Exchange;
+import org.eclipse.californium.core.network.Exchange.Origin;
+import org.eclipse.californium.core.network.InMemoryMessageExchangeStore;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.elements.AddressEndpointContext;
+import org.eclipse.californium.elements.util.DaemonThreadFactory;
+import org.eclipse.californium.elements.util.ExecutorsUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for registering and removing outgoing requests in the
+ * {@link InMemoryMessageExchangeStore}.
+ * 
+ * Each invocation registers a new outgoing request, which assigns a token,
+ * and removes it again afterwards. The MID is provided by the benchmark in
+ * order to not exhaust the MID tracker, which keeps MIDs in use for the
+ * exchange lifetime.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExchangeStoreBenchmark {
+
+	/**
+	 * Number of destination peers.
+	 */
+	@Param({ "1", "1000" })
+	public int peers;
+
+	private ScheduledExecutorService executor;
+	private InMemoryMessageExchangeStore store;
+	private InetSocketAddress[] destinations;
+
+	@Setup
+	public void setup() throws UnknownHostException {
+		NetworkConfig config = NetworkConfig.createStandardWithoutFile();
+		executor = ExecutorsUtil.newSingleThreadScheduledExecutor(new DaemonThreadFactory("ExchangeStore#"));
+		store = new InMemoryMessageExchangeStore(config);
+		store.setExecutor(executor);
+		store.start();
+		destinations = new InetSocketAddress[peers];
+		for (int index = 0; index < peers; ++index) {
+			destinations[index] = DeduplicatorBenchmark.peer(index << 8);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		store.stop();
+		executor.shutdown();
+	}
+
+	@Benchmark
+	public Exchange registerAndRemove(DeduplicatorBenchmark.Cursor cursor) {
+		int index = cursor.next(peers << 16);
+		Request request = Request.newGet();
+		request.setMID(index & 0xffff);
+		request.setDestinationContext(new AddressEndpointContext(destinations[index >> 16]));
+		Exchange exchange = new Exchange(request, Origin.LOCAL, null);
+		store.registerOutboundRequest(exchange);
+		store.remove(exchange.getKeyToken(), exchange);
+		return store.remove(exchange.getKeyMID(), exchange);
+	}
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial implementation
+ ******************************************************************************/
+package org.eclipse.californium.benchmarks.coap;
+
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.network.GroupedMessageIdTracker;
+import org.eclipse.californium.core.network.InMemoryMessageIdProvider;
+import org.eclipse.californium.core.network.InMemoryMessageIdProvider.TrackerMode;
+import org.eclipse.californium.core.network.MapBasedMessageIdTracker;
+import org.eclipse.californium.core.network.MessageIdTracker;
+import org.eclipse.californium.core.network.RingMessageIdTracker;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the MID assignment of outgoing messages.
+ *
+ * The {@link #nextMessageId(DeduplicatorBenchmark.Cursor)} benchmark assigns
+ * MIDs for {@code peers} destinations using the {@link InMemoryMessageIdProvider}
+ * with the tracker {@code mode}. Use {@code -t} to show the contention of the
+ * tracker lookup.
+ *
+ * The {@link #footprint()} benchmark creates a tracker and assigns
+ * {@code mids} MIDs. Run it with {@code -prof gc}, the
+ * {@code gc.alloc.rate.norm} is the memory used by a tracker of a single peer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageIdProviderBenchmark {
+
+	/**
+	 * Exchange lifetime in milliseconds. Short, that the peers don't run out
+	 * of MIDs during the benchmark.
+	 */
+	private static final int EXCHANGE_LIFETIME = 1000;
+
+	@Param({ "GROUPED", "MAPBASED", "RING" })
+	public TrackerMode mode;
+
+	/**
+	 * Number of peers.
+	 */
+	@Param({ "1000", "100000" })
+	public int peers;
+
+	/**
+	 * Number of MIDs assigned to the tracker for {@link #footprint()}.
+	 */
+	@Param({ "16" })
+	public int mids;
+
+	private NetworkConfig config;
+	private InMemoryMessageIdProvider provider;
+	private InetSocketAddress[] destinations;
+
+	@Setup
+	public void setup() throws UnknownHostException {
+		config = NetworkConfig.createStandardWithoutFile();
+		config.setString(NetworkConfig.Keys.MID_TRACKER, mode.name());
+		config.setInt(NetworkConfig.Keys.EXCHANGE_LIFETIME, EXCHANGE_LIFETIME);
+		config.setInt(NetworkConfig.Keys.MAX_ACTIVE_PEERS, peers);
+		provider = new InMemoryMessageIdProvider(config);
+		destinations = new InetSocketAddress[peers];
+		for (int index = 0; index < peers; ++index) {
+			// one peer per address
+			destinations[index] = DeduplicatorBenchmark.peer(index << 8);
+			provider.getNextMessageId(destinations[index]);
+		}
+	}
+
+	@Benchmark
+	public int nextMessageId(DeduplicatorBenchmark.Cursor cursor) {
+		return provider.getNextMessageId(destinations[cursor.next(peers)]);
+	}
+
+	@Benchmark
+	public MessageIdTracker footprint() {
+		MessageIdTracker tracker;
+		switch (mode) {
+		case MAPBASED:
+			tracker = new MapBasedMessageIdTracker(0, 0, MessageIdTracker.TOTAL_NO_OF_MIDS, config);
+			break;
+		case RING:
+			tracker = new RingMessageIdTracker(0, 0, MessageIdTracker.TOTAL_NO_OF_MIDS, config);
+			break;
+		case GROUPED:
+		default:
+			tracker = new GroupedMessageIdTracker(0, 0, MessageIdTracker.TOTAL_NO_OF_MIDS, config);
+			break;
+		}
+		for (int index = 0; index < mids; ++index) {
+			tracker.getNextMessageId();
+		}
+		return tracker;
+	}
+}
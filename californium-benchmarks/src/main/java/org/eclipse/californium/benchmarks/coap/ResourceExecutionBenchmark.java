@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial implementation
+ ******************************************************************************/
+package org.eclipse.californium.benchmarks.coap;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.californium.core.CoapClient;
+import org.eclipse.californium.core.CoapResource;
+import org.eclipse.californium.core.CoapResponseFuture;
+import org.eclipse.californium.core.CoapServer;
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.core.server.resources.CoapExchange;
+import org.eclipse.californium.elements.util.ExecutorsUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the throughput of resources with blocking handlers.
+ *
+ * The handler of the resource blocks for {@code blocking} milliseconds, e.g.
+ * to simulate a database lookup. {@link #PIPELINE} requests are pipelined by
+ * a client over the loopback interface. With
+ * {@link NetworkConfig.Keys#RESOURCE_VIRTUAL_THREADS} disabled, the handlers
+ * are executed by the protocol stage, otherwise by virtual threads. If the
+ * JVM doesn't support virtual threads, both modes use the protocol stage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResourceExecutionBenchmark {
+
+	/**
+	 * Number of pipelined requests per invocation.
+	 */
+	private static final int PIPELINE = 256;
+
+	@Param({ "false", "true" })
+	public boolean virtualThreads;
+
+	/**
+	 * Blocking time of the resource handler in milliseconds.
+	 */
+	@Param({ "1", "10" })
+	public int blocking;
+
+	private CoapServer server;
+	private CoapEndpoint clientEndpoint;
+	private CoapClient client;
+
+	@Setup
+	public void setup() throws IOException {
+		if (virtualThreads && !ExecutorsUtil.isVirtualThreadSupported()) {
+			System.err.println("virtual threads are not supported, fallback to protocol stage!");
+		}
+		NetworkConfig config = NetworkConfig.createStandardWithoutFile();
+		config.setBoolean(NetworkConfig.Keys.RESOURCE_VIRTUAL_THREADS, virtualThreads);
+		InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+
+		CoapEndpoint.Builder builder = new CoapEndpoint.Builder();
+		builder.setInetSocketAddress(loopback);
+		builder.setNetworkConfig(config);
+		CoapEndpoint serverEndpoint = builder.build();
+		server = new CoapServer(config);
+		server.addEndpoint(serverEndpoint);
+		server.add(new CoapResource("blocking") {
+
+			@Override
+			public void handleGET(CoapExchange exchange) {
+				try {
+					Thread.sleep(blocking);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				exchange.respond(ResponseCode.CONTENT);
+			}
+		});
+		server.start();
+
+		builder = new CoapEndpoint.Builder();
+		builder.setInetSocketAddress(loopback);
+		builder.setNetworkConfig(config);
+		clientEndpoint = builder.build();
+		clientEndpoint.start();
+		InetSocketAddress address = serverEndpoint.getAddress();
+		client = new CoapClient("coap", address.getHostString(), address.getPort(), "blocking");
+		client.setEndpoint(clientEndpoint);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		client.shutdown();
+		clientEndpoint.destroy();
+		server.destroy();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PIPELINE)
+	public int requests() throws InterruptedException, ExecutionException, TimeoutException {
+		List<Request> requests = new ArrayList<Request>(PIPELINE);
+		for (int index = 0; index < PIPELINE; ++index) {
+			requests.add(Request.newGet());
+		}
+		int succeeded = 0;
+		for (CoapResponseFuture future : client.pipeline(requests, PIPELINE)) {
+			if (future.get(30, TimeUnit.SECONDS).isSuccess()) {
+				++succeeded;
+			}
+		}
+		return succeeded;
+	}
+}
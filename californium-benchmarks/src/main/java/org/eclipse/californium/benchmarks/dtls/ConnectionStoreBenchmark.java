@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial implementation
+ ******************************************************************************/
+package org.eclipse.californium.benchmarks.dtls;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.californium.elements.util.SerialExecutor;
+import org.eclipse.californium.scandium.dtls.ConcurrentInMemoryConnectionStore;
+import org.eclipse.californium.scandium.dtls.Connection;
+import org.eclipse.californium.scandium.dtls.InMemoryConnectionStore;
+import org.eclipse.californium.scandium.dtls.ResumptionSupportingConnectionStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Contention benchmarks for the DTLS connection stores.
+ *
+ * The store is shared by all benchmark threads, which act as receiver
+ * threads. {@link #lookup(Peer)} looks up an existing connection by address
+ * and connection id, as done for each received record.
+ * {@link #handshake(Peer)} adds a new connection and removes it again, as
+ * done for a flood of new handshakes after a server restart. Run it with
+ * different thread counts ({@code -t}) to see the scaling of the stores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectionStoreBenchmark {
+
+	/**
+	 * Number of connections in the store.
+	 */
+	private static final int CONNECTIONS = 10000;
+
+	/**
+	 * Executes the jobs of the connections in the calling thread.
+	 */
+	private static final Executor DIRECT = new Executor() {
+
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	/**
+	 * Number of stripes. {@code 1} for the {@link InMemoryConnectionStore},
+	 * larger values for the {@link ConcurrentInMemoryConnectionStore}.
+	 */
+	@Param({ "1", "16" })
+	public int stripes;
+
+	private final AtomicInteger threads = new AtomicInteger();
+	private ResumptionSupportingConnectionStore store;
+	private Connection[] connections;
+
+	/**
+	 * Per thread state, the "receiver thread".
+	 */
+	@State(Scope.Thread)
+	public static class Peer {
+
+		private int thread;
+		private int position;
+		private int handshakes;
+
+		@Setup
+		public void setup(ConnectionStoreBenchmark benchmark) {
+			thread = benchmark.threads.incrementAndGet();
+			position = thread * 7919;
+		}
+	}
+
+	@Setup
+	public void setup() throws UnknownHostException {
+		// capacity for the handshakes of the benchmark threads
+		int capacity = CONNECTIONS * 2;
+		if (stripes > 1) {
+			store = new ConcurrentInMemoryConnectionStore(capacity, TimeUnit.DAYS.toSeconds(1), null, stripes);
+		} else {
+			store = new InMemoryConnectionStore(capacity, TimeUnit.DAYS.toSeconds(1));
+		}
+		store.attach(null);
+		connections = new Connection[CONNECTIONS];
+		for (int index = 0; index < CONNECTIONS; ++index) {
+			connections[index] = new Connection(newAddress(0, index), new SerialExecutor(DIRECT));
+			store.put(connections[index]);
+		}
+	}
+
+	@Benchmark
+	public Connection lookup(Peer peer) {
+		peer.position = (peer.position + 7) % CONNECTIONS;
+		Connection connection = connections[peer.position];
+		store.get(connection.getPeerAddress());
+		return store.get(connection.getConnectionId());
+	}
+
+	@Benchmark
+	public boolean handshake(Peer peer) throws UnknownHostException {
+		peer.handshakes = (peer.handshakes + 1) & 0xffff;
+		Connection connection = new Connection(newAddress(peer.thread, peer.handshakes),
+				new SerialExecutor(DIRECT));
+		if (store.put(connection)) {
+			store.get(connection.getPeerAddress());
+			return store.remove(connection, false);
+		}
+		return false;
+	}
+
+	/**
+	 * Create unique peer address.
+	 *
+	 * @param thread number of the benchmark thread. {@code 0} for the
+	 *            connections created by the setup.
+	 * @param index index of the connection
+	 * @return peer address
+	 * @throws UnknownHostException if the address could not be created
+	 */
+	private static InetSocketAddress newAddress(int thread, int index) throws UnknownHostException {
+		byte[] ip = { 10, (byte) thread, (byte) (index >> 8), (byte) index };
+		return new InetSocketAddress(InetAddress.getByAddress(ip), 5684);
+	}
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    Bosch.IO GmbH - initial implementation
+ ******************************************************************************/
+package org.eclipse.californium.benchmarks.dtls;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.scandium.dtls.CertificateType;
+import org.eclipse.californium.scandium.dtls.ClientHello;
+import org.eclipse.californium.scandium.dtls.HandshakeException;
+import org.eclipse.californium.scandium.dtls.HandshakeMessage;
+import org.eclipse.californium.scandium.dtls.ProtocolVersion;
+import org.eclipse.californium.scandium.dtls.SignatureAndHashAlgorithm;
+import org.eclipse.californium.scandium.dtls.cipher.CipherSuite;
+import org.eclipse.californium.scandium.dtls.cipher.XECDHECryptography.SupportedGroup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for encoding and decoding DTLS handshake messages.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandshakeMessageBenchmark {
+
+	private static final InetSocketAddress PEER = new InetSocketAddress(InetAddress.getLoopbackAddress(), 5684);
+
+	private ClientHello clientHello;
+	private byte[] clientHelloBytes;
+
+	@Setup
+	public void setup() {
+		List<CipherSuite> cipherSuites = Arrays.asList(CipherSuite.TLS_ECDHE_ECDSA_WITH_AES_128_CCM_8,
+				CipherSuite.TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256, CipherSuite.TLS_PSK_WITH_AES_128_CCM_8,
+				CipherSuite.TLS_ECDHE_PSK_WITH_AES_128_CBC_SHA256);
+		List<CertificateType> certificateTypes = Arrays.asList(CertificateType.RAW_PUBLIC_KEY,
+				CertificateType.X_509);
+		clientHello = new ClientHello(ProtocolVersion.VERSION_DTLS_1_2, cipherSuites, SignatureAndHashAlgorithm.DEFAULT,
+				certificateTypes, certificateTypes, SupportedGroup.getPreferredGroups(), PEER);
+		clientHelloBytes = clientHello.toByteArray();
+	}
+
+	/**
+	 * Encode the body of the client hello.
+	 * 
+	 * {@link ClientHello#toByteArray()} caches the encoded message, therefore
+	 * the uncached {@link ClientHello#fragmentToByteArray()} is used.
+	 * 
+	 * @return encoded client hello body
+	 */
+	@Benchmark
+	public byte[] encodeClientHello() {
+		return clientHello.fragmentToByteArray();
+	}
+
+	@Benchmark
+	public HandshakeMessage decodeClientHello() throws HandshakeException {
+		return HandshakeMessage.fromByteArray(clientHelloBytes, PEER);
+	}
+}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    Bosch.IO GmbH - initial implementation
+ ******************************************************************************/
+package org.eclipse.californium.benchmarks.dtls;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.GeneralSecurityException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.eclipse.californium.elements.util.ClockUtil;
+import org.eclipse.californium.scandium.dtls.ApplicationMessage;
+import org.eclipse.californium.scandium.dtls.CompressionMethod;
+import org.eclipse.californium.scandium.dtls.ContentType;
+import org.eclipse.californium.scandium.dtls.DTLSConnectionState;
+import org.eclipse.californium.scandium.dtls.ProtocolVersion;
+import org.eclipse.californium.scandium.dtls.Record;
+import org.eclipse.californium.scandium.dtls.cipher.CipherSuite;
+import org.eclipse.californium.scandium.dtls.cipher.RandomManager;
+import org.eclipse.californium.scandium.util.SecretIvParameterSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the DTLS record layer.
+ * 
+ * Encrypts and decrypts application data records for the cipher suites
+ * supported by the JVM and parses plain records with
+ * {@link Record#fromByteArray}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordBenchmark {
+
+	private static final long MAX_SEQUENCE_NO = 281474976710655L; // 2^48 - 1
+	private static final InetSocketAddress PEER = new InetSocketAddress(InetAddress.getLoopbackAddress(), 5684);
+
+	@Param({ "TLS_PSK_WITH_AES_128_CCM_8", "TLS_PSK_WITH_AES_128_CCM", "TLS_PSK_WITH_AES_128_GCM_SHA256",
+			"TLS_PSK_WITH_AES_128_CBC_SHA256" })
+	public String cipherSuite;
+
+	/**
+	 * Size of the application data in bytes.
+	 */
+	@Param({ "64", "1024" })
+	public int payloadSize;
+
+	private DTLSConnectionState state;
+	private ApplicationMessage message;
+	private Record record;
+	private long sequenceNumber;
+	private byte[] payload;
+	private byte[] encrypted;
+	private byte[] plainRecord;
+
+	@Setup
+	public void setup() throws GeneralSecurityException {
+		CipherSuite suite = CipherSuite.valueOf(cipherSuite);
+		if (!suite.isSupported()) {
+			throw new IllegalStateException(cipherSuite + " is not supported by the JVM!");
+		}
+		SecretKey encryptionKey = new SecretKeySpec(randomBytes(suite.getEncKeyLength()), "AES");
+		SecretIvParameterSpec iv = new SecretIvParameterSpec(randomBytes(suite.getFixedIvLength()));
+		SecretKey macKey = suite.getMacKeyLength() == 0 ? null
+				: new SecretKeySpec(randomBytes(suite.getMacKeyLength()), "Mac");
+		state = DTLSConnectionState.create(suite, CompressionMethod.NULL, encryptionKey, iv, macKey);
+
+		payload = randomBytes(payloadSize);
+		message = new ApplicationMessage(payload, PEER);
+		record = new Record(ContentType.APPLICATION_DATA, ProtocolVersion.VERSION_DTLS_1_2, 0, message, PEER);
+		encrypted = state.encrypt(record, payload);
+		plainRecord = record.toByteArray();
+	}
+
+	/**
+	 * Encrypt application data.
+	 * 
+	 * Uses a new record with the next sequence number for every invocation,
+	 * GCM rejects to reuse a nonce for encryption.
+	 * 
+	 * @return encrypted fragment
+	 * @throws GeneralSecurityException if encryption fails
+	 */
+	@Benchmark
+	public byte[] encrypt() throws GeneralSecurityException {
+		if (++sequenceNumber > MAX_SEQUENCE_NO) {
+			sequenceNumber = 0;
+		}
+		Record next = new Record(ContentType.APPLICATION_DATA, ProtocolVersion.VERSION_DTLS_1_2, sequenceNumber,
+				message, PEER);
+		return state.encrypt(next, payload);
+	}
+
+	@Benchmark
+	public byte[] decrypt() throws GeneralSecurityException {
+		return state.decrypt(record, encrypted);
+	}
+
+	@Benchmark
+	public List<Record> parseRecord() {
+		return Record.fromByteArray(plainRecord, PEER, null, ClockUtil.nanoRealtime());
+	}
+
+	private static byte[] randomBytes(int length) {
+		byte[] data = new byte[length];
+		RandomManager.currentSecureRandom().nextBytes(data);
+		return data;
+	}
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    Bosch.IO GmbH - initial implementation
+ ******************************************************************************/
+package org.eclipse.californium.benchmarks.elements;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.elements.util.LeastRecentlyUsedCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the {@link LeastRecentlyUsedCache}.
+ * 
+ * The cache is filled up to its capacity. {@link #get()} accesses an existing
+ * entry and moves it to the head of the LRU list, {@link #putEvict()} adds a
+ * new entry and evicts the eldest.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LeastRecentlyUsedCacheBenchmark {
+
+	/**
+	 * Capacity of the cache.
+	 */
+	@Param({ "10000", "1000000" })
+	public int capacity;
+
+	private LeastRecentlyUsedCache<Integer, Integer> cache;
+	private Integer[] keys;
+	private int getPosition;
+	private int putPosition;
+
+	@Setup
+	public void setup() {
+		cache = new LeastRecentlyUsedCache<>(capacity, capacity, TimeUnit.DAYS.toSeconds(1));
+		cache.setEvictingOnReadAccess(false);
+		keys = new Integer[capacity * 2];
+		for (int index = 0; index < keys.length; ++index) {
+			keys[index] = index;
+		}
+		for (int index = 0; index < capacity; ++index) {
+			cache.put(keys[index], keys[index]);
+		}
+		putPosition = capacity;
+	}
+
+	@Benchmark
+	public Integer get() {
+		getPosition = (getPosition + 7) % keys.length;
+		return cache.get(keys[getPosition]);
+	}
+
+	@Benchmark
+	public boolean putEvict() {
+		if (++putPosition >= keys.length) {
+			putPosition = 0;
+		}
+		return cache.put(keys[putPosition], keys[putPosition]);
+	}
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    Bosch.IO GmbH - initial implementation
+ ******************************************************************************/
+package org.eclipse.californium.benchmarks.oscore;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.californium.core.network.serialization.DataParser;
+import org.eclipse.californium.core.network.serialization.DataSerializer;
+import org.eclipse.californium.core.network.serialization.UdpDataParser;
+import org.eclipse.californium.core.network.serialization.UdpDataSerializer;
+import org.eclipse.californium.cose.AlgorithmID;
+import org.eclipse.californium.oscore.CoapOSException;
+import org.eclipse.californium.oscore.HashMapCtxDB;
+import org.eclipse.californium.oscore.OSCoreCtx;
+import org.eclipse.californium.oscore.OSCoreCtxDB;
+import org.eclipse.californium.oscore.OSException;
+import org.eclipse.californium.oscore.RequestDecryptor;
+import org.eclipse.californium.oscore.RequestEncryptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for OSCORE protection of requests.
+ * 
+ * A client and a server security context are derived from the same master
+ * secret. The client protects a request, the server unprotects it. The
+ * sender sequence number of the client advances with every invocation, so the
+ * replay detection of the server accepts all requests.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OscoreBenchmark {
+
+	private static final byte[] MASTER_SECRET = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B,
+			0x0C, 0x0D, 0x0E, 0x0F, 0x10 };
+	private static final byte[] MASTER_SALT = { (byte) 0x9e, 0x7c, (byte) 0xa9, 0x22, 0x23, 0x78, 0x63, 0x40 };
+	private static final byte[] CLIENT_ID = { 0x00 };
+	private static final byte[] SERVER_ID = { 0x01 };
+	private static final String URI = "coap://127.0.0.1/sensors/temperature";
+
+	@Param({ "AES_CCM_16_64_128", "AES_CCM_16_128_128" })
+	public String algorithm;
+
+	/**
+	 * Size of the payload in bytes.
+	 */
+	@Param({ "16", "256" })
+	public int payloadSize;
+
+	private DataParser parser;
+	private DataSerializer serializer;
+	private OSCoreCtxDB clientDb;
+	private OSCoreCtxDB serverDb;
+	private OSCoreCtx serverCtx;
+	private byte[] requestBytes;
+
+	@Setup
+	public void setup() throws OSException {
+		AlgorithmID alg = AlgorithmID.valueOf(algorithm);
+		OSCoreCtx clientCtx = new OSCoreCtx(MASTER_SECRET, true, alg, CLIENT_ID, SERVER_ID,
+				AlgorithmID.HKDF_HMAC_SHA_256, 32, MASTER_SALT, null);
+		serverCtx = new OSCoreCtx(MASTER_SECRET, false, alg, SERVER_ID, CLIENT_ID, AlgorithmID.HKDF_HMAC_SHA_256,
+				32, MASTER_SALT, null);
+		clientDb = new HashMapCtxDB();
+		clientDb.addContext(URI, clientCtx);
+		serverDb = new HashMapCtxDB();
+		serverDb.addContext(serverCtx);
+
+		parser = new UdpDataParser();
+		serializer = new UdpDataSerializer();
+		byte[] payload = new byte[payloadSize];
+		Arrays.fill(payload, (byte) 'p');
+		Request request = Request.newPost();
+		request.setURI(URI);
+		request.setMID(4711);
+		request.setToken(new Token(new byte[] { 1, 2, 3, 4 }));
+		request.setPayload(payload);
+		requestBytes = serializer.getByteArray(request);
+	}
+
+	@Benchmark
+	public Request protect() throws OSException {
+		return protect(newRequest());
+	}
+
+	@Benchmark
+	public Request protectAndUnprotect() throws OSException, CoapOSException {
+		Request protectedRequest = protect(newRequest());
+		Request received = (Request) parser.parseMessage(serializer.getByteArray(protectedRequest));
+		return RequestDecryptor.decrypt(serverDb, received, serverCtx);
+	}
+
+	private Request newRequest() {
+		Request request = (Request) parser.parseMessage(requestBytes);
+		request.setURI(URI);
+		return request;
+	}
+
+	private Request protect(Request request) throws OSException {
+		return RequestEncryptor.encrypt(clientDb, request);
+	}
+}
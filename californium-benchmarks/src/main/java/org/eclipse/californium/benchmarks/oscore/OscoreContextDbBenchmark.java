@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    Bosch.IO GmbH - initial implementation
+ ******************************************************************************/
+package org.eclipse.californium.benchmarks.oscore;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.californium.benchmarks.coap.DeduplicatorBenchmark;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.californium.core.network.serialization.DataParser;
+import org.eclipse.californium.core.network.serialization.UdpDataParser;
+import org.eclipse.californium.core.network.serialization.UdpDataSerializer;
+import org.eclipse.californium.cose.AlgorithmID;
+import org.eclipse.californium.oscore.CoapOSException;
+import org.eclipse.californium.oscore.ConcurrentHashMapCtxDB;
+import org.eclipse.californium.oscore.HashMapCtxDB;
+import org.eclipse.californium.oscore.OSCoreCtx;
+import org.eclipse.californium.oscore.OSCoreCtxDB;
+import org.eclipse.californium.oscore.OSException;
+import org.eclipse.californium.oscore.RequestEncryptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for OSCORE context databases shared by several threads.
+ * 
+ * The setup adds {@code contexts} client contexts to a client database and
+ * the matching server contexts to a server database of the type {@code db}.
+ * 
+ * The {@link #protect(DeduplicatorBenchmark.Cursor)} benchmark protects a
+ * request for one of the contexts, including the lookup of the context by
+ * uri and the allocation of the sender sequence number. The
+ * {@link #lookup(DeduplicatorBenchmark.Cursor)} benchmark executes the
+ * database accesses of a request and its response without crypto. The
+ * {@link #replayWindow(DeduplicatorBenchmark.Cursor)} benchmark passes
+ * increasing sequence numbers to the replay window of one of the server
+ * contexts.
+ * 
+ * Use {@code -t} to show the scaling with the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OscoreContextDbBenchmark {
+
+	public enum DbType {
+		HASHMAP, CONCURRENT
+	}
+
+	private static final byte[] MASTER_SECRET = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B,
+			0x0C, 0x0D, 0x0E, 0x0F, 0x10 };
+	private static final byte[] MASTER_SALT = { (byte) 0x9e, 0x7c, (byte) 0xa9, 0x22, 0x23, 0x78, 0x63, 0x40 };
+
+	@Param({ "HASHMAP", "CONCURRENT" })
+	public DbType db;
+
+	/**
+	 * Number of contexts.
+	 */
+	@Param({ "1", "1000" })
+	public int contexts;
+
+	private DataParser parser;
+	private OSCoreCtxDB clientDb;
+	private OSCoreCtxDB serverDb;
+	private OSCoreCtx[] clientCtx;
+	private OSCoreCtx[] serverCtx;
+	private byte[][] serverRids;
+	private String[] uris;
+	private Token[] tokens;
+	private AtomicInteger[] receivedSeqs;
+	private byte[] requestBytes;
+
+	@Setup
+	public void setup() throws OSException {
+		clientDb = newDb();
+		serverDb = newDb();
+		clientCtx = new OSCoreCtx[contexts];
+		serverCtx = new OSCoreCtx[contexts];
+		serverRids = new byte[contexts][];
+		uris = new String[contexts];
+		tokens = new Token[contexts];
+		receivedSeqs = new AtomicInteger[contexts];
+		for (int index = 0; index < contexts; ++index) {
+			byte[] clientId = { (byte) (index >> 8), (byte) index, 0 };
+			byte[] serverId = { (byte) (index >> 8), (byte) index, 1 };
+			clientCtx[index] = new OSCoreCtx(MASTER_SECRET, true, AlgorithmID.AES_CCM_16_64_128, clientId, serverId,
+					AlgorithmID.HKDF_HMAC_SHA_256, 32, MASTER_SALT, null);
+			serverCtx[index] = new OSCoreCtx(MASTER_SECRET, false, AlgorithmID.AES_CCM_16_64_128, serverId, clientId,
+					AlgorithmID.HKDF_HMAC_SHA_256, 32, MASTER_SALT, null);
+			serverRids[index] = clientId;
+			// one server per address
+			uris[index] = "coap://10.0." + ((index >> 8) & 0xff) + "." + (index & 0xff) + "/sensors/temperature";
+			tokens[index] = new Token(new byte[] { 1, 2, (byte) (index >> 8), (byte) index });
+			receivedSeqs[index] = new AtomicInteger();
+			clientDb.addContext(uris[index], clientCtx[index]);
+			serverDb.addContext(serverCtx[index]);
+		}
+		parser = new UdpDataParser();
+		byte[] payload = new byte[16];
+		Arrays.fill(payload, (byte) 'p');
+		Request request = Request.newPost();
+		request.setURI(uris[0]);
+		request.setMID(4711);
+		request.setToken(tokens[0]);
+		request.setPayload(payload);
+		requestBytes = new UdpDataSerializer().getByteArray(request);
+	}
+
+	@Benchmark
+	public Request protect(DeduplicatorBenchmark.Cursor cursor) throws OSException {
+		int index = cursor.next(contexts);
+		Request request = (Request) parser.parseMessage(requestBytes);
+		request.setURI(uris[index]);
+		return RequestEncryptor.encrypt(clientDb, request);
+	}
+
+	@Benchmark
+	public Integer lookup(DeduplicatorBenchmark.Cursor cursor) throws OSException, CoapOSException {
+		int index = cursor.next(contexts);
+		Token token = tokens[index];
+		// client sends request
+		OSCoreCtx ctx = clientDb.getContext(uris[index]);
+		clientDb.addContext(token, ctx);
+		clientDb.addSeqByToken(token, ctx.getSenderSeq());
+		// server receives request
+		serverDb.getContext(serverRids[index], null);
+		// client receives response
+		clientDb.getContextByToken(token);
+		Integer seq = clientDb.getSeqByToken(token);
+		clientDb.removeToken(token);
+		return seq;
+	}
+
+	@Benchmark
+	public boolean replayWindow(DeduplicatorBenchmark.Cursor cursor) {
+		int index = cursor.next(contexts);
+		try {
+			serverCtx[index].checkIncomingSeq(receivedSeqs[index].getAndIncrement());
+			return true;
+		} catch (OSException e) {
+			// reordered by other threads beyond the window
+			return false;
+		}
+	}
+
+	private OSCoreCtxDB newDb() {
+		switch (db) {
+		case CONCURRENT:
+			return new ConcurrentHashMapCtxDB();
+		case HASHMAP:
+		default:
+			return new HashMapCtxDB();
+		}
+	}
+}
@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    Bosch.IO GmbH - initial implementation
+ ******************************************************************************/
+package org.eclipse.californium.benchmarks.report;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.californium.elements.util.StandardCharsets;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Compares two JMH result files in JSON format ({@code -rf json}).
+ * 
+ * Usage:
+ * 
+ * <pre>
+ * java -cp benchmarks.jar org.eclipse.californium.benchmarks.report.BenchmarkComparison \
+ *     baseline.json current.json [threshold-percent]
+ * </pre>
+ * 
+ * Prints a report with the relative change of every benchmark contained in
+ * both files. A benchmark is considered to be a regression, if its score
+ * gets worse by more than the threshold (default {@value #DEFAULT_THRESHOLD}
+ * percent) and the difference exceeds the combined error of both scores. For
+ * throughput modes a lower score is worse, for all other modes (average time,
+ * sample time, single shot) a higher score is worse.
+ * 
+ * Exits with {@code 0}, if no regression is detected, with {@code 1} on
+ * regressions, and with {@code 2} on invalid arguments.
+ */
+public class BenchmarkComparison {
+
+	/**
+	 * Default threshold in percent.
+	 */
+	public static final double DEFAULT_THRESHOLD = 10.0;
+
+	/**
+	 * Score of a single benchmark.
+	 */
+	public static class Score {
+
+		/**
+		 * Benchmark name including the parameters.
+		 */
+		public final String name;
+		/**
+		 * JMH mode.
+		 */
+		public final String mode;
+		public final double score;
+		public final double error;
+		public final String unit;
+
+		public Score(String name, String mode, double score, double error, String unit) {
+			this.name = name;
+			this.mode = mode;
+			this.score = score;
+			this.error = error;
+			this.unit = unit;
+		}
+
+		/**
+		 * Check, if higher scores are better.
+		 * 
+		 * @return {@code true} for throughput, {@code false} for time based
+		 *         modes.
+		 */
+		public boolean isHigherBetter() {
+			return "thrpt".equals(mode);
+		}
+	}
+
+	/**
+	 * Comparison of a baseline and current score.
+	 */
+	public static class Comparison {
+
+		public final Score baseline;
+		public final Score current;
+		/**
+		 * Relative change in percent. Positive values are improvements,
+		 * negative values are degradations.
+		 */
+		public final double change;
+		public final boolean regression;
+
+		private Comparison(Score baseline, Score current, double threshold) {
+			this.baseline = baseline;
+			this.current = current;
+			double diff = current.score - baseline.score;
+			if (!baseline.isHigherBetter()) {
+				diff = -diff;
+			}
+			this.change = baseline.score == 0.0 ? 0.0 : diff * 100.0 / baseline.score;
+			double noise = safe(baseline.error) + safe(current.error);
+			this.regression = change < -threshold && Math.abs(diff) > noise;
+		}
+	}
+
+	/**
+	 * Read scores from JMH JSON result.
+	 * 
+	 * @param reader reader with JSON content
+	 * @return map of scores by name
+	 */
+	public static Map<String, Score> read(Reader reader) {
+		Map<String, Score> scores = new LinkedHashMap<>();
+		JsonArray results = new JsonParser().parse(reader).getAsJsonArray();
+		for (JsonElement element : results) {
+			JsonObject result = element.getAsJsonObject();
+			StringBuilder name = new StringBuilder(result.get("benchmark").getAsString());
+			JsonObject params = result.getAsJsonObject("params");
+			if (params != null) {
+				Map<String, String> sorted = new TreeMap<>();
+				for (Map.Entry<String, JsonElement> param : params.entrySet()) {
+					sorted.put(param.getKey(), param.getValue().getAsString());
+				}
+				name.append(sorted);
+			}
+			JsonObject metric = result.getAsJsonObject("primaryMetric");
+			double error = Double.NaN;
+			JsonElement scoreError = metric.get("scoreError");
+			if (scoreError != null && scoreError.getAsJsonPrimitive().isNumber()) {
+				error = scoreError.getAsDouble();
+			}
+			Score score = new Score(name.toString(), result.get("mode").getAsString(),
+					metric.get("score").getAsDouble(), error, metric.get("scoreUnit").getAsString());
+			scores.put(score.name + "@" + score.mode, score);
+		}
+		return scores;
+	}
+
+	/**
+	 * Compare baseline and current scores.
+	 * 
+	 * Benchmarks, which are only contained in one of the maps, are ignored.
+	 * 
+	 * @param baseline baseline scores
+	 * @param current current scores
+	 * @param threshold threshold in percent
+	 * @return list of comparisons
+	 */
+	public static List<Comparison> compare(Map<String, Score> baseline, Map<String, Score> current,
+			double threshold) {
+		List<Comparison> comparisons = new ArrayList<>();
+		for (Map.Entry<String, Score> entry : baseline.entrySet()) {
+			Score score = current.get(entry.getKey());
+			if (score != null) {
+				comparisons.add(new Comparison(entry.getValue(), score, threshold));
+			}
+		}
+		return comparisons;
+	}
+
+	/**
+	 * Print report.
+	 * 
+	 * @param out stream to print the report to
+	 * @param comparisons list of comparisons
+	 * @return number of regressions
+	 */
+	public static int report(PrintStream out, List<Comparison> comparisons) {
+		int regressions = 0;
+		for (Comparison comparison : comparisons) {
+			if (comparison.regression) {
+				++regressions;
+			}
+			out.format("%s %-90s %14.3f -> %14.3f %-8s %+7.2f%%%n", comparison.regression ? "!!" : "  ",
+					comparison.baseline.name, comparison.baseline.score, comparison.current.score,
+					comparison.current.unit, comparison.change);
+		}
+		out.format("%d benchmarks compared, %d regressions.%n", comparisons.size(), regressions);
+		return regressions;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2 || args.length > 3) {
+			System.err.println("usage: BenchmarkComparison <baseline.json> <current.json> [threshold-percent]");
+			System.exit(2);
+		}
+		double threshold = DEFAULT_THRESHOLD;
+		if (args.length == 3) {
+			try {
+				threshold = Double.parseDouble(args[2]);
+			} catch (NumberFormatException ex) {
+				System.err.println("threshold '" + args[2] + "' is no number!");
+				System.exit(2);
+			}
+		}
+		Map<String, Score> baseline = read(args[0]);
+		Map<String, Score> current = read(args[1]);
+		int regressions = report(System.out, compare(baseline, current, threshold));
+		System.exit(regressions > 0 ? 1 : 0);
+	}
+
+	private static Map<String, Score> read(String file) throws IOException {
+		try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+			return read(reader);
+		}
+	}
+
+	private static double safe(double value) {
+		return Double.isNaN(value) ? 0.0 : value;
+	}
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    Bosch.IO GmbH - initial implementation
+ ******************************************************************************/
+package org.eclipse.californium.benchmarks.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.californium.benchmarks.report.BenchmarkComparison.Comparison;
+import org.eclipse.californium.benchmarks.report.BenchmarkComparison.Score;
+import org.junit.Test;
+
+public class BenchmarkComparisonTest {
+
+	private static String result(String mode, double score, double error) {
+		return "[{\"benchmark\":\"a.B.c\",\"mode\":\"" + mode + "\",\"params\":{\"size\":\"64\"},"
+				+ "\"primaryMetric\":{\"score\":" + score + ",\"scoreError\":" + error
+				+ ",\"scoreUnit\":\"ops/us\"}}]";
+	}
+
+	private static Comparison compare(String mode, double baseline, double current, double error) {
+		Map<String, Score> base = BenchmarkComparison.read(new StringReader(result(mode, baseline, error)));
+		Map<String, Score> cur = BenchmarkComparison.read(new StringReader(result(mode, current, error)));
+		List<Comparison> comparisons = BenchmarkComparison.compare(base, cur, 10.0);
+		assertEquals(1, comparisons.size());
+		return comparisons.get(0);
+	}
+
+	@Test
+	public void testReadIncludesParameters() {
+		Map<String, Score> scores = BenchmarkComparison.read(new StringReader(result("thrpt", 2.0, 0.1)));
+		Score score = scores.values().iterator().next();
+		assertEquals("a.B.c{size=64}", score.name);
+		assertEquals(2.0, score.score, 0.0);
+	}
+
+	@Test
+	public void testThroughputRegression() {
+		Comparison comparison = compare("thrpt", 100.0, 80.0, 1.0);
+		assertTrue(comparison.regression);
+		assertEquals(-20.0, comparison.change, 0.001);
+	}
+
+	@Test
+	public void testThroughputImprovement() {
+		Comparison comparison = compare("thrpt", 100.0, 120.0, 1.0);
+		assertFalse(comparison.regression);
+		assertEquals(20.0, comparison.change, 0.001);
+	}
+
+	@Test
+	public void testAverageTimeRegression() {
+		Comparison comparison = compare("avgt", 100.0, 120.0, 1.0);
+		assertTrue(comparison.regression);
+	}
+
+	@Test
+	public void testRegressionWithinErrorIsIgnored() {
+		Comparison comparison = compare("thrpt", 100.0, 80.0, 15.0);
+		assertFalse(comparison.regression);
+	}
+}
@@ -41,16 +41,29 @@
  *    Achim Kraus (Bosch Software Innovations GmbH) - reset endpoint context on setURI(). 
  *                                                    Ignore endpoint context of multicast
  *                                                    responses.
+ *    Bosch.IO GmbH                                 - add response futures and
+ *                                                    pipelined requests
+ *    Bosch.IO GmbH                                 - add windowed blockwise
+ *                                                    download
  ******************************************************************************/
 package org.eclipse.californium.core;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.californium.elements.exception.ConnectorException;
@@ -58,11 +71,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.eclipse.californium.core.coap.BlockOption;
+import org.eclipse.californium.core.coap.CoAP.Code;
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
 import org.eclipse.californium.core.coap.CoAP.Type;
 import org.eclipse.californium.core.coap.LinkFormat;
 import org.eclipse.californium.core.coap.MediaTypeRegistry;
 import org.eclipse.californium.core.coap.MessageObserver;
 import org.eclipse.californium.core.coap.MessageObserverAdapter;
+import org.eclipse.californium.core.coap.OptionSet;
 import org.eclipse.californium.core.coap.Request;
 import org.eclipse.californium.core.coap.Response;
 import org.eclipse.californium.core.coap.Token;
@@ -104,6 +120,14 @@ public class CoapClient {
 
 	private int blockwise = 0;
 
+	/**
+	 * Maximum number of parallel Block2 requests of a blockwise download.
+	 * {@code 1}, to use the transparent blockwise transfer of the endpoint.
+	 * 
+	 * @since 2.5
+	 */
+	private int blockwiseWindow = 1;
+
 	/** The client-specific executor service. */
 	private ExecutorService executor;
 
@@ -418,6 +442,43 @@ public class CoapClient {
 		return this;
 	}
 
+	/**
+	 * Let the client download large bodies with a window of parallel Block2
+	 * requests.
+	 * 
+	 * Applies to GET requests sent with {@link #getAsync()},
+	 * {@link #getAsync(int)}, and {@link #advancedAsync(Request)}, but not to
+	 * observe requests. The first block is requested alone. If the body
+	 * requires more blocks, the following blocks are requested in parallel
+	 * using random access Block2 options (see
+	 * {@link Request#setRandomAccess(boolean)}) and are reassembled in order.
+	 * The block size is the one of {@link #useEarlyNegotiation(int)}, or the
+	 * {@link NetworkConfig.Keys#PREFERRED_BLOCK_SIZE} of the effective
+	 * endpoint.
+	 * 
+	 * The window starts with the provided size. It is halved, when a block
+	 * request is retransmitted, because its retransmission timeout (RTO)
+	 * expired, and is increased again by one for each block received without
+	 * retransmission. A block request, which fails, is retried once.
+	 * 
+	 * Uploads are not affected, the blocks of a request body are sent one
+	 * after the other, as RFC 7959 requires it.
+	 * 
+	 * @param window maximum number of parallel block requests. {@code 1},
+	 *            to use the transparent blockwise transfer of the endpoint
+	 *            (default).
+	 * @return the CoAP client
+	 * @throws IllegalArgumentException if window is less than 1
+	 * @since 2.5
+	 */
+	public CoapClient useBlockwiseWindow(int window) {
+		if (window < 1) {
+			throw new IllegalArgumentException("window " + window + " must be at least 1!");
+		}
+		this.blockwiseWindow = window;
+		return this;
+	}
+
 	/**
 	 * Performs a CoAP ping using the default timeout for requests.
 	 * 
@@ -976,6 +1037,153 @@ public class CoapClient {
 		asynchronous(request, handler);
 	}
 
+	// Asynchronous requests with response future
+
+	/**
+	 * Sends a GET request and returns a future for the response.
+	 *
+	 * @return future for the response
+	 * @see CoapResponseFuture
+	 * @since 2.5
+	 */
+	public CoapResponseFuture getAsync() {
+		return advancedAsync(newGet());
+	}
+
+	/**
+	 * Sends a GET request with the specified accept option and returns a
+	 * future for the response.
+	 *
+	 * @param accept the Accept option
+	 * @return future for the response
+	 * @see CoapResponseFuture
+	 * @since 2.5
+	 */
+	public CoapResponseFuture getAsync(int accept) {
+		return advancedAsync(accept(newGet(), accept));
+	}
+
+	/**
+	 * Sends a POST request with the specified payload and the specified content
+	 * format and returns a future for the response.
+	 *
+	 * @param payload the payload
+	 * @param format the Content-Format
+	 * @return future for the response
+	 * @see CoapResponseFuture
+	 * @since 2.5
+	 */
+	public CoapResponseFuture postAsync(byte[] payload, int format) {
+		Request request = newPost();
+		request.setPayload(payload);
+		request.getOptions().setContentFormat(format);
+		return advancedAsync(request);
+	}
+
+	/**
+	 * Sends a PUT request with the specified payload and the specified content
+	 * format and returns a future for the response.
+	 *
+	 * @param payload the payload
+	 * @param format the Content-Format
+	 * @return future for the response
+	 * @see CoapResponseFuture
+	 * @since 2.5
+	 */
+	public CoapResponseFuture putAsync(byte[] payload, int format) {
+		Request request = newPut();
+		request.setPayload(payload);
+		request.getOptions().setContentFormat(format);
+		return advancedAsync(request);
+	}
+
+	/**
+	 * Sends a DELETE request and returns a future for the response.
+	 *
+	 * @return future for the response
+	 * @see CoapResponseFuture
+	 * @since 2.5
+	 */
+	public CoapResponseFuture deleteAsync() {
+		return advancedAsync(newDelete());
+	}
+
+	/**
+	 * Sends an advanced request that has to be configured by the developer and
+	 * returns a future for the response.
+	 *
+	 * @param request the custom request
+	 * @return future for the response
+	 * @see CoapResponseFuture
+	 * @since 2.5
+	 */
+	public CoapResponseFuture advancedAsync(Request request) {
+		assignClientUriIfEmpty(request);
+		CoapResponseFuture future = new CoapResponseFuture(request);
+		int window = blockwiseWindow;
+		if (window > 1 && request.getCode() == Code.GET && !request.isObserve()) {
+			new BlockwiseDownload(future, window).start();
+		} else {
+			request.addMessageObserver(new FutureMessageObserver(future, null));
+			send(future);
+		}
+		return future;
+	}
+
+	/**
+	 * Sends the requests pipelined.
+	 *
+	 * The number of outstanding requests is limited by the
+	 * {@link NetworkConfig.Keys#NSTART} of the effective endpoint. A further
+	 * request is sent, when a previous request is completed, without
+	 * blocking a thread. If the endpoint uses congestion control, the
+	 * outstanding requests are additionally limited by its congestion window.
+	 *
+	 * @param requests requests to send
+	 * @return list of futures for the responses, in order of the requests
+	 * @see #pipeline(Collection, int)
+	 * @since 2.5
+	 */
+	public List<CoapResponseFuture> pipeline(Collection<Request> requests) {
+		if (requests.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Endpoint outEndpoint = getEffectiveEndpoint(requests.iterator().next());
+		return pipeline(requests, outEndpoint.getConfig().getInt(NetworkConfig.Keys.NSTART));
+	}
+
+	/**
+	 * Sends the requests pipelined.
+	 *
+	 * A further request is sent, when a previous request is completed,
+	 * without blocking a thread.
+	 *
+	 * @param requests requests to send
+	 * @param window maximum number of outstanding requests
+	 * @return list of futures for the responses, in order of the requests
+	 * @throws IllegalArgumentException if window is less than 1
+	 * @since 2.5
+	 */
+	public List<CoapResponseFuture> pipeline(Collection<Request> requests, int window) {
+		if (window < 1) {
+			throw new IllegalArgumentException("window " + window + " must be at least 1!");
+		}
+		List<CoapResponseFuture> futures = new ArrayList<CoapResponseFuture>(requests.size());
+		for (Request request : requests) {
+			assignClientUriIfEmpty(request);
+			futures.add(new CoapResponseFuture(request));
+		}
+		futures = Collections.unmodifiableList(futures);
+		Pipeline pipeline = new Pipeline();
+		for (CoapResponseFuture future : futures) {
+			FutureMessageObserver observer = new FutureMessageObserver(future, pipeline);
+			pipeline.add(observer);
+			future.getRequest().addMessageObserver(observer);
+		}
+		pipeline.start(window);
+		return futures;
+	}
+
 	// Synchronous observer
 
 	/**
@@ -1264,7 +1472,7 @@ public class CoapClient {
 	 * @return the request
 	 */
 	protected Request send(Request request, Endpoint outEndpoint) {
-		if (blockwise != 0) {
+		if (blockwise != 0 && !request.isRandomAccess()) {
 			request.getOptions().setBlock2(new BlockOption(BlockOption.size2Szx(this.blockwise), false, 0));
 		}
 
@@ -1272,6 +1480,19 @@ public class CoapClient {
 		return request;
 	}
 
+	/**
+	 * Sends the request of the future.
+	 *
+	 * @param future future with request to send
+	 */
+	private void send(CoapResponseFuture future) {
+		try {
+			send(future.getRequest());
+		} catch (RuntimeException ex) {
+			future.failed(ex);
+		}
+	}
+
 	/**
 	 * Returns the effective endpoint that the specified request is supposed to
 	 * be sent over. If an endpoint has explicitly been set to this CoapClient,
@@ -1360,6 +1581,23 @@ public class CoapClient {
 		return request;
 	}
 
+	/**
+	 * Check, if the options contain the same ETag.
+	 *
+	 * @param first options of first block
+	 * @param block options of further block
+	 * @return {@code true}, if the first block has no ETag, or the further
+	 *         block contains the ETag of the first block, {@code false},
+	 *         otherwise.
+	 * @since 2.5
+	 */
+	private static boolean sameETag(OptionSet first, OptionSet block) {
+		if (first.getETagCount() == 0) {
+			return true;
+		}
+		return block.containsETag(first.getETags().get(0));
+	}
+
 	/*
 	 * Assigns a CoapClient#uri if request has no uri.
 	 *
@@ -1545,6 +1783,555 @@ public class CoapClient {
 		}
 	}
 
+	/**
+	 * Pipeline of requests.
+	 *
+	 * Sends the next request, when a previous one is completed. Sending is
+	 * done in a loop by one thread at a time to prevent a deep recursion, if
+	 * requests fail synchronously. Only completed requests, which have been
+	 * sent, release their permit. Requests, which are completed before they
+	 * are sent, e.g. canceled, are removed from the pending requests.
+	 */
+	private class Pipeline {
+
+		/**
+		 * Observers of the requests to send.
+		 */
+		private final Deque<FutureMessageObserver> pending = new ArrayDeque<FutureMessageObserver>();
+		/**
+		 * Number of requests, which may be sent.
+		 */
+		private int permits;
+		/**
+		 * Indicates, that a thread is sending requests.
+		 */
+		private boolean sending;
+
+		/**
+		 * Add observer of request to send.
+		 *
+		 * @param observer observer of request
+		 */
+		private synchronized void add(FutureMessageObserver observer) {
+			pending.add(observer);
+		}
+
+		/**
+		 * Start pipeline.
+		 *
+		 * @param window maximum number of outstanding requests
+		 */
+		private void start(int window) {
+			synchronized (this) {
+				permits = window;
+				if (sending) {
+					return;
+				}
+				sending = true;
+			}
+			sendPending();
+		}
+
+		/**
+		 * Release permit of completed request and send next requests.
+		 *
+		 * @param observer observer of completed request
+		 */
+		private void completed(FutureMessageObserver observer) {
+			synchronized (this) {
+				if (!observer.sent) {
+					// completed before sent, e.g. canceled
+					pending.remove(observer);
+					return;
+				}
+				++permits;
+				if (sending) {
+					return;
+				}
+				sending = true;
+			}
+			sendPending();
+		}
+
+		/**
+		 * Send pending requests, while permits are available.
+		 *
+		 * Must only be called by the thread, which has set {@link #sending}.
+		 */
+		private void sendPending() {
+			while (true) {
+				FutureMessageObserver observer;
+				synchronized (this) {
+					if (permits == 0 || pending.isEmpty()) {
+						sending = false;
+						return;
+					}
+					observer = pending.poll();
+					observer.sent = true;
+					--permits;
+				}
+				try {
+					send(observer.future.getRequest());
+				} catch (RuntimeException ex) {
+					observer.failed(ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Message observer to complete a response future.
+	 *
+	 * The future is completed by the thread, which reports the response or
+	 * failure, not by the executor of the client.
+	 */
+	private class FutureMessageObserver extends MessageObserverAdapter {
+
+		/**
+		 * Future to complete.
+		 */
+		private final CoapResponseFuture future;
+		/**
+		 * Pipeline of the request. {@code null}, if not pipelined.
+		 */
+		private final Pipeline pipeline;
+		/**
+		 * Indicates, that the request is completed.
+		 */
+		private final AtomicBoolean completed = new AtomicBoolean();
+		/**
+		 * Indicates, that the request has been sent by the pipeline and holds
+		 * a permit. Guarded by the pipeline.
+		 */
+		private boolean sent;
+
+		private FutureMessageObserver(CoapResponseFuture future, Pipeline pipeline) {
+			this.future = future;
+			this.pipeline = pipeline;
+		}
+
+		@Override
+		public void onResponse(final Response response) {
+			if (!future.getRequest().isMulticast()) {
+				setDestinationContextFromResponse(response);
+			}
+			if (completed.compareAndSet(false, true)) {
+				future.succeeded(response != null ? new CoapResponse(response) : null);
+				next();
+			}
+		}
+
+		@Override
+		public void onCancel() {
+			failed();
+		}
+
+		@Override
+		protected void failed() {
+			failed(CoapResponseFuture.getFailure(future.getRequest()));
+		}
+
+		/**
+		 * Complete the future with a failure.
+		 *
+		 * @param failure cause of the failure
+		 */
+		private void failed(Throwable failure) {
+			if (completed.compareAndSet(false, true)) {
+				future.failed(failure);
+				next();
+			}
+		}
+
+		private void next() {
+			if (pipeline != null) {
+				pipeline.completed(this);
+			}
+		}
+	}
+
+	/**
+	 * Blockwise download with a window of parallel Block2 requests.
+	 *
+	 * The first block is requested by the request of the future. Further
+	 * blocks are requested by copies of that request with the block number
+	 * adjusted. All block requests are sent as random access requests, so the
+	 * {@code BlockwiseLayer} passes the responses without further processing.
+	 * The received blocks are kept until the body is complete and then
+	 * assembled in order.
+	 *
+	 * @since 2.5
+	 */
+	private class BlockwiseDownload {
+
+		/**
+		 * Future to complete.
+		 */
+		private final CoapResponseFuture future;
+		/**
+		 * Maximum number of outstanding block requests.
+		 */
+		private final int maxWindow;
+		/**
+		 * Received blocks by block number.
+		 */
+		private final Map<Integer, byte[]> blocks = new HashMap<Integer, byte[]>();
+		/**
+		 * Outstanding block requests by block number.
+		 */
+		private final Map<Integer, Request> outstanding = new HashMap<Integer, Request>();
+		/**
+		 * Block numbers to request again.
+		 */
+		private final Deque<Integer> retries = new ArrayDeque<Integer>();
+		/**
+		 * Block numbers, which are already retried.
+		 */
+		private final Set<Integer> retried = new HashSet<Integer>();
+		/**
+		 * Current maximum number of outstanding block requests.
+		 */
+		private int window;
+		/**
+		 * Block size exponent.
+		 */
+		private int szx;
+		/**
+		 * Number of the next block to request.
+		 */
+		private int nextNum;
+		/**
+		 * Number of blocks. {@code -1}, if not known.
+		 */
+		private int numberOfBlocks = -1;
+		/**
+		 * Lowest number of a block, which doesn't exist. Used, if the number of
+		 * blocks is not known.
+		 */
+		private int endNum = Integer.MAX_VALUE;
+		/**
+		 * Response of first block.
+		 */
+		private Response first;
+		/**
+		 * Indicates, that the download is completed.
+		 */
+		private boolean done;
+		/**
+		 * Indicates, that a thread is sending requests.
+		 */
+		private boolean sending;
+
+		private BlockwiseDownload(CoapResponseFuture future, int window) {
+			this.future = future;
+			this.maxWindow = window;
+			this.window = window;
+		}
+
+		/**
+		 * Start download with the request for the first block.
+		 */
+		private void start() {
+			Request request = future.getRequest();
+			int size = blockwise;
+			if (size == 0) {
+				size = getEffectiveEndpoint(request).getConfig().getInt(NetworkConfig.Keys.PREFERRED_BLOCK_SIZE);
+			}
+			synchronized (this) {
+				szx = BlockOption.size2Szx(size);
+				nextNum = 1;
+				outstanding.put(0, request);
+			}
+			request.setRandomAccess(true);
+			request.getOptions().setBlock2(szx, false, 0);
+			// ask for the size of the body
+			request.getOptions().setSize2(0);
+			request.addMessageObserver(new BlockObserver(0, request));
+			send(future);
+		}
+
+		/**
+		 * Process response of block request.
+		 *
+		 * @param num number of requested block
+		 * @param response response of block request
+		 */
+		private void onResponse(int num, Response response) {
+			Response result = null;
+			Throwable failure = null;
+			synchronized (this) {
+				if (done || outstanding.remove(num) == null) {
+					return;
+				}
+				BlockOption block2 = response.getOptions().getBlock2();
+				if (num == 0) {
+					first = response;
+					if (!ResponseCode.isSuccess(response.getCode()) || block2 == null || !block2.isM()) {
+						// body fits into a single block
+						response.getOptions().removeBlock2();
+						result = response;
+					} else {
+						// server may use smaller blocks
+						szx = block2.getSzx();
+						// a Size2 of 0 or less is considered as unknown size
+						if (response.getOptions().hasSize2() && response.getOptions().getSize2() > 0) {
+							int size = block2.getSize();
+							numberOfBlocks = (response.getOptions().getSize2() + size - 1) / size;
+						}
+						blocks.put(num, response.getPayload());
+					}
+				} else if (numberOfBlocks >= 0 && num >= numberOfBlocks) {
+					// block behind the last one, requested before the number
+					// of blocks was known
+				} else if (numberOfBlocks < 0 && response.getCode() == ResponseCode.BAD_OPTION) {
+					// block doesn't exist, the body has less blocks
+					endNum = Math.min(endNum, num);
+				} else if (!ResponseCode.isSuccess(response.getCode())) {
+					result = response;
+				} else if (block2 == null || block2.getNum() != num || block2.getSzx() != szx) {
+					failure = new IllegalStateException("unexpected " + block2 + " for block " + num + "!");
+				} else if (!sameETag(first.getOptions(), response.getOptions())) {
+					failure = new IllegalStateException("body changed during blockwise download!");
+				} else {
+					blocks.put(num, response.getPayload());
+					if (!block2.isM()) {
+						numberOfBlocks = num + 1;
+					}
+				}
+				if (result == null && failure == null) {
+					if (window < maxWindow) {
+						++window;
+					}
+					if (numberOfBlocks > 0 && blocks.size() >= numberOfBlocks) {
+						result = assemble();
+						if (result == null) {
+							failure = new IllegalStateException("blocks inconsistent!");
+						}
+					} else if (numberOfBlocks < 0 && blocks.size() >= endNum) {
+						failure = new IllegalStateException("last block missing!");
+					}
+				}
+			}
+			if (result != null) {
+				setDestinationContextFromResponse(result);
+				complete(new CoapResponse(result), null);
+			} else if (failure != null) {
+				complete(null, failure);
+			} else {
+				next();
+			}
+		}
+
+		/**
+		 * Process retransmission of block request.
+		 *
+		 * The RTO of the block request has expired, reduce the window.
+		 */
+		private void onRetransmission() {
+			synchronized (this) {
+				window = Math.max(1, window / 2);
+			}
+		}
+
+		/**
+		 * Process failure of block request.
+		 *
+		 * A failed block request is retried once.
+		 *
+		 * @param num number of requested block
+		 * @param request failed block request
+		 */
+		private void onFailure(int num, Request request) {
+			boolean retry = false;
+			synchronized (this) {
+				if (done || outstanding.remove(num) == null) {
+					return;
+				}
+				if (num > 0 && !future.isDone() && retried.add(num)) {
+					window = Math.max(1, window / 2);
+					retries.add(num);
+					retry = true;
+				}
+			}
+			if (retry) {
+				next();
+			} else {
+				complete(null, CoapResponseFuture.getFailure(request));
+			}
+		}
+
+		/**
+		 * Send next block requests.
+		 *
+		 * Sending is done in a loop by one thread at a time to prevent a deep
+		 * recursion, if requests fail synchronously.
+		 */
+		private void next() {
+			if (future.isDone()) {
+				// canceled
+				complete(null, null);
+				return;
+			}
+			synchronized (this) {
+				if (sending) {
+					return;
+				}
+				sending = true;
+			}
+			while (true) {
+				Request block;
+				synchronized (this) {
+					int limit = numberOfBlocks < 0 ? endNum : numberOfBlocks;
+					Integer num = null;
+					if (!done && outstanding.size() < window) {
+						while (!retries.isEmpty() && num == null) {
+							num = retries.poll();
+							if (num >= limit) {
+								num = null;
+							}
+						}
+						if (num == null && nextNum < limit) {
+							num = nextNum++;
+						}
+					}
+					if (num == null) {
+						sending = false;
+						return;
+					}
+					block = newBlockRequest(num);
+					outstanding.put(num, block);
+				}
+				try {
+					send(block);
+				} catch (RuntimeException ex) {
+					block.setSendError(ex);
+				}
+			}
+		}
+
+		/**
+		 * Create request for block.
+		 *
+		 * @param num number of block
+		 * @return request for block
+		 */
+		private Request newBlockRequest(int num) {
+			Request request = future.getRequest();
+			Request block = new Request(request.getCode());
+			block.setType(request.getType());
+			block.setScheme(request.getScheme());
+			block.setDestinationContext(request.getDestinationContext());
+			block.setOptions(new OptionSet(request.getOptions()));
+			block.getOptions().removeSize2();
+			block.getOptions().setBlock2(szx, false, num);
+			block.setRandomAccess(true);
+			block.addMessageObserver(new BlockObserver(num, block));
+			return block;
+		}
+
+		/**
+		 * Assemble response from received blocks.
+		 *
+		 * @return assembled response, or {@code null}, if blocks are missing.
+		 */
+		private Response assemble() {
+			int length = 0;
+			for (int num = 0; num < numberOfBlocks; ++num) {
+				byte[] payload = blocks.get(num);
+				if (payload == null) {
+					return null;
+				}
+				length += payload.length;
+			}
+			byte[] body = new byte[length];
+			int offset = 0;
+			for (int num = 0; num < numberOfBlocks; ++num) {
+				byte[] payload = blocks.get(num);
+				System.arraycopy(payload, 0, body, offset, payload.length);
+				offset += payload.length;
+			}
+			Response assembled = new Response(first.getCode());
+			assembled.setType(first.getType());
+			assembled.setMID(first.getMID());
+			assembled.setToken(first.getToken());
+			assembled.setSourceContext(first.getSourceContext());
+			assembled.setOptions(new OptionSet(first.getOptions()));
+			assembled.getOptions().removeBlock2();
+			assembled.setPayload(body);
+			return assembled;
+		}
+
+		/**
+		 * Complete download.
+		 *
+		 * Cancels the outstanding block requests.
+		 *
+		 * @param response response, {@code null}, if failed or canceled
+		 * @param failure cause of failure, {@code null}, if succeeded or
+		 *            canceled
+		 */
+		private void complete(CoapResponse response, Throwable failure) {
+			List<Request> pending;
+			synchronized (this) {
+				if (done) {
+					return;
+				}
+				done = true;
+				pending = new ArrayList<Request>(outstanding.values());
+				outstanding.clear();
+				blocks.clear();
+			}
+			for (Request request : pending) {
+				request.cancel();
+			}
+			if (response != null) {
+				future.succeeded(response);
+			} else if (failure != null) {
+				future.failed(failure);
+			}
+		}
+
+		/**
+		 * Message observer of block request.
+		 */
+		private class BlockObserver extends MessageObserverAdapter {
+
+			/**
+			 * Number of requested block.
+			 */
+			private final int num;
+			/**
+			 * Block request.
+			 */
+			private final Request request;
+
+			private BlockObserver(int num, Request request) {
+				this.num = num;
+				this.request = request;
+			}
+
+			@Override
+			public void onRetransmission() {
+				BlockwiseDownload.this.onRetransmission();
+			}
+
+			@Override
+			public void onResponse(final Response response) {
+				BlockwiseDownload.this.onResponse(num, response);
+			}
+
+			@Override
+			public void onCancel() {
+				failed();
+			}
+
+			@Override
+			protected void failed() {
+				onFailure(num, request);
+			}
+		}
+	}
+
 	/**
 	 * The Builder can be used to build a CoapClient if the URI's pieces are
 	 * available in separate strings. This is in particular useful to add
@@ -29,6 +29,7 @@
  *    Achim Kraus (Bosch Software Innovations GmbH) - add iPATCH
  *                                                    cleanup source according 
  *                                                    coding guidelines
+ *    Bosch.IO GmbH                                 - add notification broadcast
  ******************************************************************************/
 package org.eclipse.californium.core;
 
@@ -180,6 +181,9 @@ public  class CoapResource implements Resource {
 	/* The notification orderer. */
 	private ObserveNotificationOrderer notificationOrderer;
 
+	/* The notification broadcaster. null, if broadcast is not enabled. */
+	private volatile NotificationBroadcaster notificationBroadcaster;
+
 	/**
 	 * Constructs a new resource with the specified name.
 	 *
@@ -714,6 +718,47 @@ public  class CoapResource implements Resource {
 		this.visible = visible;
 	}
 
+	/**
+	 * Enable or disable the broadcast of notifications.
+	 * 
+	 * If enabled, a notification is rendered only once for all observers,
+	 * which have sent a GET request without ETags with the same accept option
+	 * and uri-query. The rendered notification is then sent to these
+	 * observers in batches, which are executed in parallel on the executor of
+	 * this resource, or, if no executor is defined, on the main executor of
+	 * the server. Intended for resources with a very large number of
+	 * observers.
+	 * 
+	 * Note: only enable the broadcast, if the representation doesn't depend
+	 * on the requesting peer, e.g. on its address or identity.
+	 * 
+	 * @param broadcast {@code true}, to broadcast notifications,
+	 *            {@code false}, to process the request of each observer.
+	 * @see #isNotificationBroadcast()
+	 * @since 2.5
+	 */
+	public void setNotificationBroadcast(boolean broadcast) {
+		if (broadcast) {
+			if (notificationBroadcaster == null) {
+				notificationBroadcaster = new NotificationBroadcaster(this);
+			}
+		} else {
+			notificationBroadcaster = null;
+		}
+	}
+
+	/**
+	 * Check, if notifications are broadcast.
+	 * 
+	 * @return {@code true}, if notifications are broadcast, {@code false},
+	 *         otherwise.
+	 * @see #setNotificationBroadcast(boolean)
+	 * @since 2.5
+	 */
+	public boolean isNotificationBroadcast() {
+		return notificationBroadcaster != null;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.eclipse.californium.core.server.resources.Resource#isObservable()
 	 */
@@ -851,13 +896,20 @@ public  class CoapResource implements Resource {
 	/**
 	 * Notifies all CoAP clients that have established an observe relation with
 	 * this resource that the state has changed by reprocessing their original
-	 * request that has established the relation.
+	 * request that has established the relation. If
+	 * {@link #setNotificationBroadcast(boolean)} is enabled, the request is
+	 * processed only once for each variant of the observe requests.
 	 * 
 	 * @param filter filter to select set of relations. 
 	 *               <code>null</code>, if all clients should be notified.
 	 */
 	protected void notifyObserverRelations(final ObserveRelationFilter filter) {
-		notificationOrderer.getNextObserveNumber();
+		int observe = notificationOrderer.getNextObserveNumber();
+		NotificationBroadcaster broadcaster = notificationBroadcaster;
+		if (broadcaster != null) {
+			broadcaster.broadcast(observeRelations, filter, observe);
+			return;
+		}
 		for (ObserveRelation relation : observeRelations) {
 			if (null == filter || filter.accept(relation)) {
 				relation.notifyObservers();
@@ -886,6 +938,23 @@ public  class CoapResource implements Resource {
 		return parent != null ? parent.getSecondaryExecutor() : null;
 	}
 
+	/**
+	 * Get executor for notification batches.
+	 * 
+	 * Used, if neither this resource nor a parent defines an executor. The
+	 * root resource of a {@link CoapServer} returns the main executor of the
+	 * server.
+	 * 
+	 * @return executor for notification batches, or {@code null}, if not
+	 *         available.
+	 * @see #setNotificationBroadcast(boolean)
+	 * @since 2.5
+	 */
+	Executor getNotificationExecutor() {
+		final Resource parent = getParent();
+		return parent instanceof CoapResource ? ((CoapResource) parent).getNotificationExecutor() : null;
+	}
+
 	/**
 	 * Execute an arbitrary task on the executor of this resource or the first
 	 * parent that defines its own executor. If no parent defines an executor,
@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.californium.core.coap.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Future for the response of an asynchronous request of a {@link CoapClient}.
+ *
+ * In difference to the {@link CoapHandler} passed to the asynchronous methods
+ * of the {@link CoapClient}, the handlers added to this future are not invoked
+ * by the executor of the client. They are invoked by the thread, which
+ * completes this future, or, if already completed, by the thread, which adds
+ * the handler. Therefore the handlers must not block. That allows to drive a
+ * large number of concurrent requests without a thread for each request.
+ *
+ * @since 2.5
+ */
+public class CoapResponseFuture implements Future<CoapResponse> {
+
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(CoapResponseFuture.class);
+
+	/**
+	 * Request of this future.
+	 */
+	private final Request request;
+	/**
+	 * Handlers to be called on completion. {@code null}, after completion.
+	 */
+	private List<CoapHandler> handlers = new ArrayList<CoapHandler>(2);
+	/**
+	 * Response. {@code null}, if not completed or failed.
+	 */
+	private CoapResponse response;
+	/**
+	 * Failure. {@code null}, if not completed or succeeded.
+	 */
+	private Throwable failure;
+	/**
+	 * Indicates, that the future is completed.
+	 */
+	private boolean done;
+
+	/**
+	 * Create future for request.
+	 *
+	 * @param request request of this future
+	 */
+	CoapResponseFuture(Request request) {
+		this.request = request;
+	}
+
+	/**
+	 * Get request of this future.
+	 *
+	 * @return request
+	 */
+	public Request getRequest() {
+		return request;
+	}
+
+	/**
+	 * Add handler to be called on completion.
+	 *
+	 * If the future is already completed, the handler is called immediately
+	 * by the current thread. For canceled or failed requests,
+	 * {@link CoapHandler#onError()} is called.
+	 *
+	 * @param handler handler to be called
+	 * @return this future to chain calls
+	 */
+	public CoapResponseFuture addHandler(CoapHandler handler) {
+		if (handler == null) {
+			throw new NullPointerException("handler must not be null!");
+		}
+		synchronized (this) {
+			if (!done) {
+				handlers.add(handler);
+				return this;
+			}
+		}
+		call(handler);
+		return this;
+	}
+
+	/**
+	 * Complete the future with the response.
+	 *
+	 * @param response received response
+	 */
+	void succeeded(CoapResponse response) {
+		complete(response, null);
+	}
+
+	/**
+	 * Complete the future with a failure.
+	 *
+	 * @param failure cause of the failure
+	 */
+	void failed(Throwable failure) {
+		complete(null, failure);
+	}
+
+	/**
+	 * Complete the future and call the handlers.
+	 *
+	 * @param response received response, {@code null}, if failed
+	 * @param failure cause of the failure, {@code null}, if succeeded
+	 */
+	private void complete(CoapResponse response, Throwable failure) {
+		List<CoapHandler> handlers;
+		synchronized (this) {
+			if (done) {
+				return;
+			}
+			this.response = response;
+			this.failure = failure;
+			this.done = true;
+			handlers = this.handlers;
+			this.handlers = null;
+			notifyAll();
+		}
+		for (CoapHandler handler : handlers) {
+			call(handler);
+		}
+	}
+
+	/**
+	 * Call handler according the result.
+	 *
+	 * @param handler handler to call
+	 */
+	private void call(CoapHandler handler) {
+		try {
+			if (failure == null) {
+				handler.onLoad(response);
+			} else {
+				handler.onError();
+			}
+		} catch (Throwable t) {
+			LOGGER.warn("exception while handling response", t);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Cancels the request.
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		synchronized (this) {
+			if (done) {
+				return false;
+			}
+		}
+		request.cancel();
+		failed(new CancellationException("request canceled!"));
+		return isCancelled();
+	}
+
+	@Override
+	public synchronized boolean isCancelled() {
+		return failure instanceof CancellationException;
+	}
+
+	@Override
+	public synchronized boolean isDone() {
+		return done;
+	}
+
+	@Override
+	public synchronized CoapResponse get() throws InterruptedException, ExecutionException {
+		while (!done) {
+			wait();
+		}
+		return result();
+	}
+
+	@Override
+	public synchronized CoapResponse get(long timeout, TimeUnit unit)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		long left = unit.toNanos(timeout);
+		long end = System.nanoTime() + left;
+		while (!done) {
+			if (left <= 0) {
+				throw new TimeoutException("response not received!");
+			}
+			TimeUnit.NANOSECONDS.timedWait(this, left);
+			left = end - System.nanoTime();
+		}
+		return result();
+	}
+
+	/**
+	 * Get result of completed future.
+	 *
+	 * @return response
+	 * @throws ExecutionException if request failed
+	 * @throws CancellationException if request was canceled
+	 */
+	private CoapResponse result() throws ExecutionException {
+		if (failure == null) {
+			return response;
+		} else if (failure instanceof CancellationException) {
+			throw (CancellationException) failure;
+		} else {
+			throw new ExecutionException(failure);
+		}
+	}
+
+	/**
+	 * Get cause of failure for the request.
+	 *
+	 * @param request failed request
+	 * @return cause of failure
+	 */
+	static Throwable getFailure(Request request) {
+		Throwable error = request.getSendError();
+		if (error != null) {
+			return error;
+		} else if (request.isCanceled()) {
+			return new CancellationException("request canceled!");
+		} else if (request.isTimedOut()) {
+			return new IOException("request timed out!");
+		} else if (request.isRejected()) {
+			return new IOException("request rejected!");
+		} else {
+			return new IOException("request failed!");
+		}
+	}
+}
@@ -23,6 +23,8 @@
  *    Bosch Software Innovations GmbH - migrate to SLF4J
  *    Achim Kraus (Bosch Software Innovations GmbH) - use executors util and
  *                                                    add a detached executor
+ *    Bosch.IO GmbH                                 - add virtual threads for
+ *                                                    resources
  ******************************************************************************/
 package org.eclipse.californium.core;
 
@@ -30,6 +32,8 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -124,6 +128,14 @@ public class CoapServer implements ServerInterface {
 	 */
 	private boolean detachExecutor;
 
+	/**
+	 * Executor with virtual threads for resources without own executor.
+	 * {@code null}, if not enabled by
+	 * {@link NetworkConfig.Keys#RESOURCE_VIRTUAL_THREADS} or not supported by
+	 * the JVM.
+	 */
+	private ExecutorService resourceExecutor;
+
 	private boolean running;
 
 	/**
@@ -238,6 +250,17 @@ public class CoapServer implements ServerInterface {
 					ExecutorsUtil.newDefaultSecondaryScheduler("CoapServer(secondary)#"), false);
 		}
 
+		if (resourceExecutor == null && config.getBoolean(NetworkConfig.Keys.RESOURCE_VIRTUAL_THREADS)) {
+			resourceExecutor = ExecutorsUtil.newVirtualThreadPerTaskExecutor("CoapServer(resource)#");
+			if (resourceExecutor == null) {
+				LOGGER.warn("virtual threads are not supported, resources are processed by the protocol stage");
+			} else if (deliverer instanceof ServerMessageDeliverer) {
+				((ServerMessageDeliverer) deliverer).setDefaultExecutor(resourceExecutor);
+			} else {
+				LOGGER.warn("virtual threads are not supported by custom message deliverer");
+			}
+		}
+
 		if (endpoints.isEmpty()) {
 			// servers should bind to the configured port (while clients should use an ephemeral port through the default endpoint)
 			int port = config.getInt(NetworkConfig.Keys.COAP_PORT);
@@ -311,6 +334,10 @@ public class CoapServer implements ServerInterface {
 					}
 				}
 		} finally {
+			if (resourceExecutor != null) {
+				resourceExecutor.shutdownNow();
+				resourceExecutor = null;
+			}
 			for (Endpoint ep : endpoints) {
 				ep.destroy();
 			}
@@ -492,5 +519,12 @@ public class CoapServer implements ServerInterface {
 		public List<Endpoint> getEndpoints() {
 			return CoapServer.this.getEndpoints();
 		}
+
+		@Override
+		Executor getNotificationExecutor() {
+			synchronized (CoapServer.this) {
+				return executor;
+			}
+		}
 	}
 }
@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.CoAP.Code;
+import org.eclipse.californium.core.coap.OptionSet;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.network.Exchange;
+import org.eclipse.californium.core.observe.ObserveRelation;
+import org.eclipse.californium.core.observe.ObserveRelationFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Broadcasts notifications of a {@link CoapResource} to all observers.
+ *
+ * The relations are grouped by the variant of their request, the
+ * {@link OptionSet#getAccept()} and the {@link OptionSet#getUriQueryString()}.
+ * The resource handles the request of one relation of each variant to render
+ * the notification only once. The rendered response is then copied for all
+ * relations of that variant and sent in batches, which are executed in
+ * parallel on the executor of the resource. If the resource doesn't define an
+ * executor, the main executor of the server is used. If
+ * {@link #MAX_PENDING_BATCHES}
+ * batches are pending, the next batch is sent by the calling thread. That
+ * slows down the caller and so limits the queued notifications.
+ *
+ * Relations with requests other than GET, with ETags, or notifications, which
+ * are not responded synchronously by the resource, are notified individually
+ * using {@link ObserveRelation#notifyObservers()}.
+ *
+ * @since 2.5
+ */
+class NotificationBroadcaster {
+
+	/** The logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(NotificationBroadcaster.class);
+
+	/**
+	 * Number of relations notified by a batch.
+	 */
+	static final int BATCH_SIZE = 256;
+	/**
+	 * Maximum number of pending batches of all broadcasts of a resource.
+	 */
+	static final int MAX_PENDING_BATCHES = 8;
+
+	/**
+	 * Broadcasting resource.
+	 */
+	private final CoapResource resource;
+	/**
+	 * Permits for pending batches.
+	 */
+	private final Semaphore pendingBatches = new Semaphore(MAX_PENDING_BATCHES);
+
+	/**
+	 * Create broadcaster for resource.
+	 *
+	 * @param resource resource to broadcast the notifications
+	 */
+	NotificationBroadcaster(CoapResource resource) {
+		this.resource = resource;
+	}
+
+	/**
+	 * Notify relations.
+	 *
+	 * @param relations relations of the resource
+	 * @param filter filter to select set of relations. {@code null}, if all
+	 *            relations should be notified.
+	 * @param observe observe number for the notifications
+	 */
+	void broadcast(Iterable<ObserveRelation> relations, ObserveRelationFilter filter, int observe) {
+		Map<String, List<ObserveRelation>> variants = new HashMap<String, List<ObserveRelation>>();
+		for (ObserveRelation relation : relations) {
+			if (null == filter || filter.accept(relation)) {
+				Request request = relation.getExchange().getRequest();
+				OptionSet options = request.getOptions();
+				if (request.getCode() != Code.GET || options.getETagCount() > 0) {
+					relation.notifyObservers();
+					continue;
+				}
+				String variant = options.getAccept() + "?" + options.getUriQueryString();
+				List<ObserveRelation> variantRelations = variants.get(variant);
+				if (variantRelations == null) {
+					variantRelations = new ArrayList<ObserveRelation>();
+					variants.put(variant, variantRelations);
+				}
+				variantRelations.add(relation);
+			}
+		}
+		Executor executor = resource.getExecutor();
+		if (executor == null) {
+			executor = resource.getNotificationExecutor();
+		}
+		for (List<ObserveRelation> variantRelations : variants.values()) {
+			Response notification = render(variantRelations.get(0));
+			if (notification == null) {
+				for (ObserveRelation relation : variantRelations) {
+					relation.notifyObservers();
+				}
+				continue;
+			}
+			int size = variantRelations.size();
+			for (int start = 0; start < size; start += BATCH_SIZE) {
+				int end = Math.min(start + BATCH_SIZE, size);
+				Batch batch = new Batch(variantRelations.subList(start, end), notification, observe);
+				if (executor != null && pendingBatches.tryAcquire()) {
+					try {
+						executor.execute(batch);
+						continue;
+					} catch (RejectedExecutionException ex) {
+						pendingBatches.release();
+						LOGGER.debug("notification batch rejected, notify by caller");
+					}
+				}
+				batch.notifyRelations();
+			}
+		}
+	}
+
+	/**
+	 * Render notification for the relation's request.
+	 *
+	 * @param relation relation with the request
+	 * @return rendered response, or {@code null}, if the resource doesn't
+	 *         respond synchronously.
+	 */
+	private Response render(ObserveRelation relation) {
+		Exchange exchange = relation.getExchange();
+		RenderExchange render = new RenderExchange(exchange.getRequest());
+		resource.handleRequest(render);
+		return render.response;
+	}
+
+	/**
+	 * Send copy of the rendered notification to a relation.
+	 *
+	 * @param relation relation to notify
+	 * @param notification rendered notification
+	 * @param observe observe number for the notification
+	 */
+	private void sendNotification(ObserveRelation relation, Response notification, int observe) {
+		if (relation.isCanceled()) {
+			return;
+		}
+		Exchange exchange = relation.getExchange();
+		Response response = new Response(notification.getCode());
+		response.setType(notification.getType());
+		response.setOptions(notification.getOptions());
+		response.setPayload(notification.getPayload());
+		resource.checkObserveRelation(exchange, response);
+		if (CoAP.ResponseCode.isSuccess(response.getCode())) {
+			response.getOptions().setObserve(observe);
+		}
+		response.setDestinationContext(exchange.getRequest().getSourceContext());
+		exchange.sendResponse(response);
+	}
+
+	/**
+	 * Batch of relations to notify.
+	 */
+	private class Batch implements Runnable {
+
+		private final List<ObserveRelation> relations;
+		private final Response notification;
+		private final int observe;
+
+		private Batch(List<ObserveRelation> relations, Response notification, int observe) {
+			this.relations = relations;
+			this.notification = notification;
+			this.observe = observe;
+		}
+
+		@Override
+		public void run() {
+			try {
+				notifyRelations();
+			} finally {
+				pendingBatches.release();
+			}
+		}
+
+		private void notifyRelations() {
+			for (ObserveRelation relation : relations) {
+				try {
+					sendNotification(relation, notification, observe);
+				} catch (RuntimeException ex) {
+					LOGGER.warn("notification for {} failed!", relation.getKey(), ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Exchange to render a notification.
+	 *
+	 * Keeps the response instead of sending it.
+	 */
+	private static class RenderExchange extends Exchange {
+
+		private Response response;
+
+		private RenderExchange(Request request) {
+			super(request, Origin.REMOTE, null);
+		}
+
+		@Override
+		public void sendAccept() {
+			// the request is already acknowledged
+		}
+
+		@Override
+		public void sendReject() {
+			// the request is already acknowledged
+		}
+
+		@Override
+		public void sendResponse(Response response) {
+			this.response = response;
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.core.coap;
+
+import java.io.IOException;
+
+import org.eclipse.californium.core.network.Exchange;
+
+/**
+ * Consumer for the body of a request, which is received using a blockwise
+ * transfer.
+ * <p>
+ * The {@code BlockwiseLayer} passes the blocks to the consumer as they arrive,
+ * instead of buffering the whole body in memory. The blocks are passed in
+ * order, without gaps or duplicates, the layer still checks the block numbers
+ * and the timeout of the transfer. When the last block has been consumed, the
+ * request is delivered to the resource without payload, but with the consumer
+ * available by {@link Request#getBodyConsumer()}. If the transfer fails before,
+ * {@link #onAbort()} is called instead.
+ * <p>
+ * The callbacks are executed by the protocol stage of the endpoint. Therefore
+ * implementations should not block, e.g. by waiting on other threads.
+ *
+ * @see Provider
+ * @since 2.5
+ */
+public interface BlockwiseBodyConsumer {
+
+	/**
+	 * Consume the next block of the body.
+	 *
+	 * @param block payload of the block. Not empty.
+	 * @throws IOException if the block could not be consumed. The transfer
+	 *             is aborted with a {@link CoAP.ResponseCode#INTERNAL_SERVER_ERROR}
+	 *             and {@link #onAbort()} is called.
+	 */
+	void onBlock(byte[] block) throws IOException;
+
+	/**
+	 * Transfer is aborted, either by a timeout, an error, or by a restart of
+	 * the transfer by the peer. Called at most once and never after the request
+	 * has been delivered.
+	 */
+	void onAbort();
+
+	/**
+	 * Provider for {@link BlockwiseBodyConsumer}.
+	 * <p>
+	 * Implemented by resources, which want to receive the body of blockwise
+	 * transfers block by block. The {@code ServerMessageDeliverer} implements
+	 * it as well and forwards the call to the resource of the request.
+	 *
+	 * @since 2.5
+	 */
+	interface Provider {
+
+		/**
+		 * Get consumer for the body of a blockwise transfer.
+		 *
+		 * Called for the first block of a transfer. The size of the body is
+		 * available from the {@link OptionSet#getSize1()}, if the peer provides
+		 * that option.
+		 *
+		 * @param exchange exchange of the first block. The request of the
+		 *            exchange contains the options and the payload of the
+		 *            first block.
+		 * @return consumer for the body, or {@code null}, if the body is to be
+		 *         buffered and delivered as payload of the request.
+		 */
+		BlockwiseBodyConsumer getBodyConsumer(Exchange exchange);
+	}
+}
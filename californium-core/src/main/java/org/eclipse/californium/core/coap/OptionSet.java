@@ -21,13 +21,15 @@
  *    Achim Kraus (Bosch Software Innovations GmbH) - Include size1 and size2
  *                                                    in clone and clear
  *                                                    issue #815
+ *    Bosch.IO GmbH                                 - add lazy decoding of
+ *                                                    encoded options
  ******************************************************************************/
 package org.eclipse.californium.core.coap;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 
 import org.eclipse.californium.core.Utils;
@@ -50,12 +52,36 @@ import org.eclipse.californium.core.Utils;
  * {@link MediaTypeRegistry#UNDEFINED} if option is not present. This generally means that
  * user may want to check if option actually exists before naively trying to use these values.
  * <p>
+ * Since 2.5 options could be added in their encoded form using
+ * {@link #addEncodedOption(byte[], int, int, int)}. These options keep only
+ * the option number and the offset and length of the value within the
+ * received message in a primitive array. They are decoded on the first access
+ * of that option number.
+ * <p>
  * Notice that this class is not entirely thread-safe: hasObserve =&gt; (int) getObserve()
  * @see Option
  */
 public final class OptionSet {
 
 	private static final int MAX_OBSERVE_NO = (1 << 24) - 1;
+	/**
+	 * Option number to decode all encoded options.
+	 * 
+	 * @since 2.5
+	 */
+	private static final int ALL = -1;
+	/**
+	 * Option number of already decoded options.
+	 * 
+	 * @since 2.5
+	 */
+	private static final int DECODED = -2;
+	/**
+	 * Initial number of encoded options.
+	 * 
+	 * @since 2.5
+	 */
+	private static final int INITIAL_ENCODED_OPTIONS = 8;
 	/*
 	 * Options defined by the CoAP protocol
 	 */
@@ -90,6 +116,28 @@ public final class OptionSet {
 	 */
 	private boolean      explicitUriOptions;
 
+	/**
+	 * Buffer with the encoded options. {@code null}, if all options are
+	 * decoded.
+	 * 
+	 * @since 2.5
+	 */
+	private volatile byte[] encoded;
+	/**
+	 * Encoded options. Each option uses three values, the option number, the
+	 * offset and the length of the value within {@link #encoded}. The number
+	 * is set to {@link #DECODED}, when the option is decoded.
+	 * 
+	 * @since 2.5
+	 */
+	private int[] encodedOptions;
+	/**
+	 * Number of values used in {@link #encodedOptions}.
+	 * 
+	 * @since 2.5
+	 */
+	private int encodedSize;
+
 	// TODO: When receiving, uri_host/port should be those from the sender 
 	/**
 	 * Creates an empty set of options.
@@ -98,18 +146,18 @@ public final class OptionSet {
 	 * Non-lists can be null though.
 	 */
 	public OptionSet() {
-		if_match_list       = null; // new LinkedList<byte[]>();
+		if_match_list       = null; // new ArrayList<byte[]>();
 		uri_host            = null; // from sender
-		etag_list           = null; // new LinkedList<byte[]>();
+		etag_list           = null; // new ArrayList<byte[]>();
 		if_none_match       = false;
 		uri_port            = null; // from sender
-		location_path_list  = null; // new LinkedList<String>();
-		uri_path_list       = null; // new LinkedList<String>();
+		location_path_list  = null; // new ArrayList<String>();
+		uri_path_list       = null; // new ArrayList<String>();
 		content_format      = null;
 		max_age             = null;
-		uri_query_list      = null; // new LinkedList<String>();
+		uri_query_list      = null; // new ArrayList<String>();
 		accept              = null;
-		location_query_list = null; // new LinkedList<String>();
+		location_query_list = null; // new ArrayList<String>();
 		proxy_uri           = null;
 		proxy_scheme        = null;
 		block1              = null;
@@ -119,7 +167,7 @@ public final class OptionSet {
 		observe             = null;
 		oscore              = null;
 
-		others              = null; // new LinkedList<>();
+		others              = null; // new ArrayList<>();
 	}
 
 	/**
@@ -131,6 +179,7 @@ public final class OptionSet {
 		if (origin == null) {
 			throw new NullPointerException("option set must not be null!");
 		}
+		origin.decode(ALL);
 		if_match_list       = copyList(origin.if_match_list);
 		uri_host            = origin.uri_host;
 		etag_list           = copyList(origin.etag_list);
@@ -164,6 +213,11 @@ public final class OptionSet {
 	 * Clears all options.
 	 */
 	public void clear() {
+		synchronized (this) {
+			encoded = null;
+			encodedOptions = null;
+			encodedSize = 0;
+		}
 		if (if_match_list != null)
 			if_match_list.clear();
 		uri_host = null;
@@ -203,7 +257,7 @@ public final class OptionSet {
 	 */
 	private <T> List<T> copyList(List<T> list) {
 		if (list == null) return null;
-		else return new LinkedList<T>(list);
+		else return new ArrayList<T>(list);
 	}
 
 	/////////////////////// Getter and Setter ///////////////////////
@@ -216,9 +270,10 @@ public final class OptionSet {
 	 * @return the list of If-Match ETags
 	 */
 	public List<byte[]> getIfMatch() {
+		decode(OptionNumberRegistry.IF_MATCH);
 		synchronized (this) {
 			if (if_match_list == null)
-				if_match_list = new LinkedList<byte[]>();
+				if_match_list = new ArrayList<byte[]>();
 		}
 		return if_match_list;
 	}
@@ -243,6 +298,7 @@ public final class OptionSet {
 	 * @return true if ETag matches or message contains an empty If-Match option
 	 */
 	public boolean isIfMatch(byte[] check) {
+		decode(OptionNumberRegistry.IF_MATCH);
 
 		// if no If-Match option is present, conditional update is allowed
 		if (if_match_list==null) return true;
@@ -301,6 +357,7 @@ public final class OptionSet {
 	 * @return the Uri-Host or null if the option is not present
 	 */
 	public String getUriHost() {
+		decode(OptionNumberRegistry.URI_HOST);
 		return uri_host;
 	}
 
@@ -310,6 +367,7 @@ public final class OptionSet {
 	 * @return true if present
 	 */
 	public boolean hasUriHost() {
+		decode(OptionNumberRegistry.URI_HOST);
 		return uri_host != null;
 	}
 
@@ -320,6 +378,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet setUriHost(String host) {
+		decode(OptionNumberRegistry.URI_HOST);
 		checkOptionValue(host, 1, 255, "URI-Host");
 		this.uri_host = host;
 		return this;
@@ -331,6 +390,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet removeUriHost() {
+		decode(OptionNumberRegistry.URI_HOST);
 		this.uri_host = null;
 		return this;
 	}
@@ -346,9 +406,10 @@ public final class OptionSet {
 	 * @return the list of ETags
 	 */
 	public List<byte[]> getETags() {
+		decode(OptionNumberRegistry.ETAG);
 		synchronized (this) {
 			if (etag_list == null)
-				etag_list = new LinkedList<byte[]>();
+				etag_list = new ArrayList<byte[]>();
 		}
 		return etag_list;
 	}
@@ -372,6 +433,7 @@ public final class OptionSet {
 	 * @return true if ETag is included
 	 */
 	public boolean containsETag(byte[] check) {
+		decode(OptionNumberRegistry.ETAG);
 		if (etag_list==null) return false;
 		for (byte[] etag:etag_list) {
 			if (Arrays.equals(etag, check)) return true;
@@ -422,6 +484,7 @@ public final class OptionSet {
 	 * @return true if present
 	 */
 	public boolean hasIfNoneMatch() {
+		decode(OptionNumberRegistry.IF_NONE_MATCH);
 		return if_none_match;
 	}
 
@@ -432,6 +495,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet setIfNoneMatch(boolean present) {
+		decode(OptionNumberRegistry.IF_NONE_MATCH);
 		if_none_match = present;
 		return this;
 	}
@@ -441,6 +505,7 @@ public final class OptionSet {
 	 * @return the Uri-Port value or null if the option is not present
 	 */
 	public Integer getUriPort() {
+		decode(OptionNumberRegistry.URI_PORT);
 		return uri_port;
 	}
 
@@ -450,6 +515,7 @@ public final class OptionSet {
 	 * @return true if present
 	 */
 	public boolean hasUriPort() {
+		decode(OptionNumberRegistry.URI_PORT);
 		return uri_port != null;
 	}
 
@@ -461,10 +527,8 @@ public final class OptionSet {
 	 * @throws IllegalArgumentException if port is not in valid range
 	 */
 	public OptionSet setUriPort(int port) {
-		if (port < 0 || (1 << 16) - 1 < port) {
-			throw new IllegalArgumentException("URI port option must be between 0 and " + ((1 << 16) - 1)
-					+ " (2 bytes) inclusive but was " + port);
-		}
+		decode(OptionNumberRegistry.URI_PORT);
+		checkUriPort(port);
 		this.uri_port = port;
 		return this;
 	}
@@ -475,6 +539,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet removeUriPort() {
+		decode(OptionNumberRegistry.URI_PORT);
 		uri_port = null;
 		return this;
 	}
@@ -487,9 +552,10 @@ public final class OptionSet {
 	 * @return the list of Location-Path segments
 	 */
 	public List<String> getLocationPath() {
+		decode(OptionNumberRegistry.LOCATION_PATH);
 		synchronized (this) {
 			if (location_path_list == null)
-				location_path_list = new LinkedList<String>();
+				location_path_list = new ArrayList<String>();
 		}
 		return location_path_list;
 	}
@@ -597,9 +663,10 @@ public final class OptionSet {
 	 * @return the list of Uri-Path segments
 	 */
 	public List<String> getUriPath() {
+		decode(OptionNumberRegistry.URI_PATH);
 		synchronized (this) {
 			if (uri_path_list == null)
-				uri_path_list = new LinkedList<String>();
+				uri_path_list = new ArrayList<String>();
 		}
 		return uri_path_list;
 	}
@@ -676,6 +743,7 @@ public final class OptionSet {
 	 * @return the ID as int or -1 if undefined
 	 */
 	public int getContentFormat() {
+		decode(OptionNumberRegistry.CONTENT_FORMAT);
 		return hasContentFormat() ? content_format : MediaTypeRegistry.UNDEFINED;
 	}
 
@@ -685,6 +753,7 @@ public final class OptionSet {
 	 * @return true if present
 	 */
 	public boolean hasContentFormat() {
+		decode(OptionNumberRegistry.CONTENT_FORMAT);
 		return content_format != null;
 	}
 
@@ -699,6 +768,7 @@ public final class OptionSet {
 	 * @see MediaTypeRegistry
 	 */
 	public boolean isContentFormat(int format) {
+		decode(OptionNumberRegistry.CONTENT_FORMAT);
 		return content_format != null && content_format == format;
 	}
 
@@ -716,6 +786,7 @@ public final class OptionSet {
 	 * @see MediaTypeRegistry
 	 */
 	public OptionSet setContentFormat(int format) {
+		decode(OptionNumberRegistry.CONTENT_FORMAT);
 		if (format > MediaTypeRegistry.UNDEFINED && format <= MediaTypeRegistry.MAX_TYPE) {
 			content_format = format;
 		} else {
@@ -730,6 +801,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet removeContentFormat() {
+		decode(OptionNumberRegistry.CONTENT_FORMAT);
 		content_format = null;
 		return this;
 	}
@@ -740,6 +812,7 @@ public final class OptionSet {
 	 * @return the Max-Age in seconds
 	 */
 	public Long getMaxAge() {
+		decode(OptionNumberRegistry.MAX_AGE);
 		Long m = max_age;
 		return m != null ? m : OptionNumberRegistry.Defaults.MAX_AGE;
 	}
@@ -752,6 +825,7 @@ public final class OptionSet {
 	 * @return true if present
 	 */
 	public boolean hasMaxAge() {
+		decode(OptionNumberRegistry.MAX_AGE);
 		return max_age != null;
 	}
 
@@ -762,8 +836,8 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet setMaxAge(long age) {
-		if (age < 0 || ((1L<<32)-1) < age)
-			throw new IllegalArgumentException("Max-Age option must be between 0 and "+((1L<<32)-1)+" (4 bytes) inclusive");
+		decode(OptionNumberRegistry.MAX_AGE);
+		checkMaxAge(age);
 		max_age = age;
 		return this;
 	}
@@ -774,6 +848,7 @@ public final class OptionSet {
 	 * @return this Optionset
 	 */
 	public OptionSet removeMaxAge() {
+		decode(OptionNumberRegistry.MAX_AGE);
 		max_age = null;
 		return this;
 	}
@@ -786,9 +861,10 @@ public final class OptionSet {
 	 * @return the list of query arguments
 	 */
 	public List<String> getUriQuery() {
+		decode(OptionNumberRegistry.URI_QUERY);
 		synchronized (this) {
 			if (uri_query_list == null)
-				uri_query_list = new LinkedList<String>();
+				uri_query_list = new ArrayList<String>();
 		}
 		return uri_query_list;
 	}
@@ -871,6 +947,7 @@ public final class OptionSet {
 	 * @return the ID as int or -1 if undefined
 	 */
 	public int getAccept() {
+		decode(OptionNumberRegistry.ACCEPT);
 		return hasAccept() ? accept : MediaTypeRegistry.UNDEFINED;
 	}
 
@@ -880,6 +957,7 @@ public final class OptionSet {
 	 * @return true if present
 	 */
 	public boolean hasAccept() {
+		decode(OptionNumberRegistry.ACCEPT);
 		return accept != null;
 	}
 
@@ -890,6 +968,7 @@ public final class OptionSet {
 	 * @return true if equal
 	 */
 	public boolean isAccept(int format) {
+		decode(OptionNumberRegistry.ACCEPT);
 		return accept != null && accept == format;
 	}
 
@@ -905,10 +984,8 @@ public final class OptionSet {
 	 * @see MediaTypeRegistry
 	 */
 	public OptionSet setAccept(int format) {
-		if (format < 0 || format > MediaTypeRegistry.MAX_TYPE) {
-			throw new IllegalArgumentException(
-					"Accept option must be between 0 and " + MediaTypeRegistry.MAX_TYPE + " (2 bytes) inclusive");
-		}
+		decode(OptionNumberRegistry.ACCEPT);
+		checkAccept(format);
 		accept = format;
 		return this;
 	}
@@ -919,6 +996,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet removeAccept() {
+		decode(OptionNumberRegistry.ACCEPT);
 		accept = null;
 		return this;
 	}
@@ -931,9 +1009,10 @@ public final class OptionSet {
 	 * @return the list of query arguments
 	 */
 	public List<String> getLocationQuery() {
+		decode(OptionNumberRegistry.LOCATION_QUERY);
 		synchronized (this) {
 			if (location_query_list == null)
-				location_query_list = new LinkedList<String>();
+				location_query_list = new ArrayList<String>();
 		}
 		return location_query_list;
 	}
@@ -1014,6 +1093,7 @@ public final class OptionSet {
 	 * @return the Proxy-Uri or null if the option is not present
 	 */
 	public String getProxyUri() {
+		decode(OptionNumberRegistry.PROXY_URI);
 		return proxy_uri;
 	}
 
@@ -1023,6 +1103,7 @@ public final class OptionSet {
 	 * @return true if present
 	 */
 	public boolean hasProxyUri() {
+		decode(OptionNumberRegistry.PROXY_URI);
 		return proxy_uri != null;
 	}
 
@@ -1033,6 +1114,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet setProxyUri(String uri) {
+		decode(OptionNumberRegistry.PROXY_URI);
 		checkOptionValue(uri, 1, 1034, "Proxy-Uri");
 		proxy_uri = uri;
 		return this;
@@ -1044,6 +1126,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet removeProxyUri() {
+		decode(OptionNumberRegistry.PROXY_URI);
 		proxy_uri = null;
 		return this;
 	}
@@ -1054,6 +1137,7 @@ public final class OptionSet {
 	 * @return the Proxy-Scheme or null if the option is not present
 	 */
 	public String getProxyScheme() {
+		decode(OptionNumberRegistry.PROXY_SCHEME);
 		return proxy_scheme;
 	}
 
@@ -1063,6 +1147,7 @@ public final class OptionSet {
 	 * @return true if present
 	 */
 	public boolean hasProxyScheme() {
+		decode(OptionNumberRegistry.PROXY_SCHEME);
 		return proxy_scheme != null;
 	}
 
@@ -1073,6 +1158,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet setProxyScheme(String scheme) {
+		decode(OptionNumberRegistry.PROXY_SCHEME);
 		checkOptionValue(scheme, 1, 255, "Proxy-Scheme");
 		proxy_scheme = scheme;
 		return this;
@@ -1084,6 +1170,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet removeProxyScheme() {
+		decode(OptionNumberRegistry.PROXY_SCHEME);
 		proxy_scheme = null;
 		return this;
 	}
@@ -1094,6 +1181,7 @@ public final class OptionSet {
 	 * @return the BlockOption
 	 */
 	public BlockOption getBlock1() {
+		decode(OptionNumberRegistry.BLOCK1);
 		return block1;
 	}
 
@@ -1103,6 +1191,7 @@ public final class OptionSet {
 	 * @return true if present
 	 */
 	public boolean hasBlock1() {
+		decode(OptionNumberRegistry.BLOCK1);
 		return block1 != null;
 	}
 
@@ -1115,6 +1204,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet setBlock1(int szx, boolean m, int num) {
+		decode(OptionNumberRegistry.BLOCK1);
 		this.block1 = new BlockOption(szx, m, num);
 		return this;
 	}
@@ -1126,6 +1216,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet setBlock1(byte[] value) {
+		decode(OptionNumberRegistry.BLOCK1);
 		this.block1 = new BlockOption(value);
 		return this;
 	}
@@ -1137,6 +1228,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet setBlock1(BlockOption block) {
+		decode(OptionNumberRegistry.BLOCK1);
 		this.block1 = block;
 		return this;
 	}
@@ -1147,6 +1239,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet removeBlock1() {
+		decode(OptionNumberRegistry.BLOCK1);
 		this.block1 = null;
 		return this;
 	}
@@ -1157,6 +1250,7 @@ public final class OptionSet {
 	 * @return the BlockOption
 	 */
 	public BlockOption getBlock2() {
+		decode(OptionNumberRegistry.BLOCK2);
 		return block2;
 	}
 
@@ -1166,6 +1260,7 @@ public final class OptionSet {
 	 * @return true if present
 	 */
 	public boolean hasBlock2() {
+		decode(OptionNumberRegistry.BLOCK2);
 		return block2 != null;
 	}
 
@@ -1178,6 +1273,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet setBlock2(int szx, boolean m, int num) {
+		decode(OptionNumberRegistry.BLOCK2);
 		this.block2 = new BlockOption(szx, m, num);
 		return this;
 	}
@@ -1189,6 +1285,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet setBlock2(byte[] value) {
+		decode(OptionNumberRegistry.BLOCK2);
 		this.block2 = new BlockOption(value);
 		return this;
 	}
@@ -1200,6 +1297,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet setBlock2(BlockOption block) {
+		decode(OptionNumberRegistry.BLOCK2);
 		this.block2 = block;
 		return this;
 	}
@@ -1210,6 +1308,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet removeBlock2() {
+		decode(OptionNumberRegistry.BLOCK2);
 		this.block2 = null;
 		return this;
 	}
@@ -1220,6 +1319,7 @@ public final class OptionSet {
 	 * @return the Size1 value or null if the option is not present
 	 */
 	public Integer getSize1() {
+		decode(OptionNumberRegistry.SIZE1);
 		return size1;
 	}
 
@@ -1229,6 +1329,7 @@ public final class OptionSet {
 	 * @return true if present
 	 */
 	public boolean hasSize1() {
+		decode(OptionNumberRegistry.SIZE1);
 		return size1 != null;
 	}
 
@@ -1239,6 +1340,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet setSize1(int size) {
+		decode(OptionNumberRegistry.SIZE1);
 		this.size1 = size;
 		return this;
 	}
@@ -1249,6 +1351,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet removeSize1() {
+		decode(OptionNumberRegistry.SIZE1);
 		this.size1 = null;
 		return this;
 	}
@@ -1259,6 +1362,7 @@ public final class OptionSet {
 	 * @return the Size2 value or null if the option is not present
 	 */
 	public Integer getSize2() {
+		decode(OptionNumberRegistry.SIZE2);
 		return size2;
 	}
 
@@ -1268,6 +1372,7 @@ public final class OptionSet {
 	 * @return true if present
 	 */
 	public boolean hasSize2() {
+		decode(OptionNumberRegistry.SIZE2);
 		return size2 != null;
 	}
 
@@ -1278,6 +1383,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet setSize2(int size) {
+		decode(OptionNumberRegistry.SIZE2);
 		this.size2 = size;
 		return this;
 	}
@@ -1288,6 +1394,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet removeSize2() {
+		decode(OptionNumberRegistry.SIZE2);
 		this.size2 = null;
 		return this;
 	}
@@ -1298,6 +1405,7 @@ public final class OptionSet {
 	 * @return the Observe value or null if the option is not present
 	 */
 	public Integer getObserve() {
+		decode(OptionNumberRegistry.OBSERVE);
 		return observe;
 	}
 
@@ -1307,6 +1415,7 @@ public final class OptionSet {
 	 * @return true if present
 	 */
 	public boolean hasObserve() {
+		decode(OptionNumberRegistry.OBSERVE);
 		return observe != null;
 	}
 
@@ -1318,13 +1427,10 @@ public final class OptionSet {
 	 * @throws IllegalArgumentException if the given number is &lt; 0 or &gt; 2^24 - 1
 	 */
 	public OptionSet setObserve(final int seqnum) {
-
-		if (!isValidObserveOption(seqnum)) {
-			throw new IllegalArgumentException("Observe option must be between 0 and " + MAX_OBSERVE_NO + " (3 bytes) inclusive");
-		} else {
-			this.observe = seqnum;
-			return this;
-		}
+		decode(OptionNumberRegistry.OBSERVE);
+		checkObserve(seqnum);
+		this.observe = seqnum;
+		return this;
 	}
 
 	/**
@@ -1333,6 +1439,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet removeObserve() {
+		decode(OptionNumberRegistry.OBSERVE);
 		observe = null;
 		return this;
 	}
@@ -1353,6 +1460,7 @@ public final class OptionSet {
 	 * @return the OSCore value or null if the option is not present
 	 */
 	public byte[] getOscore() {
+		decode(OptionNumberRegistry.OSCORE);
 		return oscore;
 	}
 
@@ -1362,6 +1470,7 @@ public final class OptionSet {
 	 * @return true if present
 	 */
 	public boolean hasOscore() {
+		decode(OptionNumberRegistry.OSCORE);
 		return oscore != null;
 	}
 
@@ -1373,6 +1482,7 @@ public final class OptionSet {
 	 * @throws NullPointerException if oscore is null
 	 */
 	public OptionSet setOscore(byte[] oscore){
+		decode(OptionNumberRegistry.OSCORE);
 		if(oscore != null){
 			this.oscore = oscore.clone();
 		}else{
@@ -1387,6 +1497,7 @@ public final class OptionSet {
 	 * @return this OptionSet for a fluent API.
 	 */
 	public OptionSet removeOscore(){
+		decode(OptionNumberRegistry.OSCORE);
 		oscore = null;
 		return this;
 	}
@@ -1404,7 +1515,7 @@ public final class OptionSet {
 	private List<Option> getOthersInternal() {
 		synchronized (this) {
 			if (others == null)
-				others = new LinkedList<Option>();
+				others = new ArrayList<Option>();
 		}
 		return others;
 	}
@@ -1415,6 +1526,7 @@ public final class OptionSet {
 	 * @return an unmodifiable and unsorted list of other options.
 	 */
 	public List<Option> getOthers() {
+		decode(ALL);
 		List<Option> others = this.others;
 		if (others == null) {
 			return Collections.emptyList();
@@ -1431,58 +1543,106 @@ public final class OptionSet {
 	 * @return the sorted list (a copy)
 	 */
 	public List<Option> asSortedList() {
-		ArrayList<Option> options = new ArrayList<Option>();
-
+		decode(ALL);
+		List<Option> others = this.others;
+		if (others != null && !others.isEmpty()) {
+			others = new ArrayList<Option>(others);
+			Collections.sort(others);
+		} else {
+			others = Collections.emptyList();
+		}
+		ArrayList<Option> options = new ArrayList<Option>(16 + others.size());
+		Iterator<Option> otherOptions = others.iterator();
+		// add the options according their number
+		// and merge the sorted other options
+		Option other = otherOptions.hasNext() ? otherOptions.next() : null;
+		other = addOthers(options, OptionNumberRegistry.IF_MATCH, other, otherOptions);
 		if (if_match_list != null) for (byte[] value:if_match_list)
 			options.add(new Option(OptionNumberRegistry.IF_MATCH, value));
+		other = addOthers(options, OptionNumberRegistry.URI_HOST, other, otherOptions);
 		if (hasUriHost())
 			options.add(new Option(OptionNumberRegistry.URI_HOST, getUriHost()));
+		other = addOthers(options, OptionNumberRegistry.ETAG, other, otherOptions);
 		if (etag_list != null) for (byte[] value:etag_list)
 			options.add(new Option(OptionNumberRegistry.ETAG, value));
+		other = addOthers(options, OptionNumberRegistry.IF_NONE_MATCH, other, otherOptions);
 		if (hasIfNoneMatch())
 			options.add(new Option(OptionNumberRegistry.IF_NONE_MATCH));
+		other = addOthers(options, OptionNumberRegistry.OBSERVE, other, otherOptions);
+		if (hasObserve())
+			options.add(new Option(OptionNumberRegistry.OBSERVE, getObserve()));
+		other = addOthers(options, OptionNumberRegistry.URI_PORT, other, otherOptions);
 		if (hasUriPort())
 			options.add(new Option(OptionNumberRegistry.URI_PORT, getUriPort()));
+		other = addOthers(options, OptionNumberRegistry.LOCATION_PATH, other, otherOptions);
 		if (location_path_list != null) for (String str:location_path_list)
 			options.add(new Option(OptionNumberRegistry.LOCATION_PATH, str));
+		other = addOthers(options, OptionNumberRegistry.OSCORE, other, otherOptions);
+		if (hasOscore())
+			options.add(new Option(OptionNumberRegistry.OSCORE, getOscore()));
+		other = addOthers(options, OptionNumberRegistry.URI_PATH, other, otherOptions);
 		if (uri_path_list != null) for (String str:uri_path_list)
 			options.add(new Option(OptionNumberRegistry.URI_PATH, str));
+		other = addOthers(options, OptionNumberRegistry.CONTENT_FORMAT, other, otherOptions);
 		if (hasContentFormat())
 			options.add(new Option(OptionNumberRegistry.CONTENT_FORMAT, getContentFormat()));
+		other = addOthers(options, OptionNumberRegistry.MAX_AGE, other, otherOptions);
 		if (hasMaxAge())
 			options.add(new Option(OptionNumberRegistry.MAX_AGE, getMaxAge()));
+		other = addOthers(options, OptionNumberRegistry.URI_QUERY, other, otherOptions);
 		if (uri_query_list != null) for (String str:uri_query_list)
 			options.add(new Option(OptionNumberRegistry.URI_QUERY, str));
+		other = addOthers(options, OptionNumberRegistry.ACCEPT, other, otherOptions);
 		if (hasAccept())
 			options.add(new Option(OptionNumberRegistry.ACCEPT, getAccept()));
+		other = addOthers(options, OptionNumberRegistry.LOCATION_QUERY, other, otherOptions);
 		if (location_query_list != null) for (String str:location_query_list)
 			options.add(new Option(OptionNumberRegistry.LOCATION_QUERY, str));
+		other = addOthers(options, OptionNumberRegistry.BLOCK2, other, otherOptions);
+		if (hasBlock2())
+			options.add(new Option(OptionNumberRegistry.BLOCK2, getBlock2().getValue()));
+		other = addOthers(options, OptionNumberRegistry.BLOCK1, other, otherOptions);
+		if (hasBlock1())
+			options.add(new Option(OptionNumberRegistry.BLOCK1, getBlock1().getValue()));
+		other = addOthers(options, OptionNumberRegistry.SIZE2, other, otherOptions);
+		if (hasSize2())
+			options.add(new Option(OptionNumberRegistry.SIZE2, getSize2()));
+		other = addOthers(options, OptionNumberRegistry.PROXY_URI, other, otherOptions);
 		if (hasProxyUri())
 			options.add(new Option(OptionNumberRegistry.PROXY_URI, getProxyUri()));
+		other = addOthers(options, OptionNumberRegistry.PROXY_SCHEME, other, otherOptions);
 		if (hasProxyScheme())
 			options.add(new Option(OptionNumberRegistry.PROXY_SCHEME, getProxyScheme()));
-
-		if (hasObserve())
-			options.add(new Option(OptionNumberRegistry.OBSERVE, getObserve()));
-
-		if (hasBlock1())
-			options.add(new Option(OptionNumberRegistry.BLOCK1, getBlock1().getValue()));
-		if (hasBlock2())
-			options.add(new Option(OptionNumberRegistry.BLOCK2, getBlock2().getValue()));
+		other = addOthers(options, OptionNumberRegistry.SIZE1, other, otherOptions);
 		if (hasSize1())
 			options.add(new Option(OptionNumberRegistry.SIZE1, getSize1()));
-		if (hasSize2())
-			options.add(new Option(OptionNumberRegistry.SIZE2, getSize2()));
-		if(hasOscore())
-			options.add(new Option(OptionNumberRegistry.OSCORE, getOscore()));
-
-		if (others != null)
-			options.addAll(others);
-
-		Collections.sort(options);
+		addOthers(options, Integer.MAX_VALUE, other, otherOptions);
 		return options;
 	}
 
+	/**
+	 * Add other options with smaller option numbers.
+	 * 
+	 * Add the provided other option and the following other options, as long
+	 * as their number is smaller than the provided number.
+	 * 
+	 * @param options list to add the other options
+	 * @param number option number of the next option
+	 * @param other next other option. May be {@code null}, if no other options
+	 *            are left.
+	 * @param otherOptions iterator of the sorted other options
+	 * @return next other option with a number of at least the provided
+	 *         number, or {@code null}, if no other options are left.
+	 * @since 2.5
+	 */
+	private static Option addOthers(List<Option> options, int number, Option other, Iterator<Option> otherOptions) {
+		while (other != null && other.getNumber() < number) {
+			options.add(other);
+			other = otherOptions.hasNext() ? otherOptions.next() : null;
+		}
+		return other;
+	}
+
 	boolean hasExplicitUriOptions() {
 		return explicitUriOptions;
 	}
@@ -1521,7 +1681,7 @@ public final class OptionSet {
 			case OptionNumberRegistry.SIZE2:          setSize2(option.getIntegerValue()); break;
 			case OptionNumberRegistry.OBSERVE:        setObserve(option.getIntegerValue()); break;
 			case OptionNumberRegistry.OSCORE:         setOscore(option.getValue()); break;
-			default: getOthersInternal().add(option);
+			default: decode(option.getNumber()); getOthersInternal().add(option);
 		}
 		return this;
 	}
@@ -1540,10 +1700,307 @@ public final class OptionSet {
 	 * @since 2.3
 	 */
 	public OptionSet addOtherOption(Option option) {
+		decode(option.getNumber());
 		getOthersInternal().add(option);
 		return this;
 	}
 
+	/**
+	 * Adds an encoded option.
+	 * <p>
+	 * The option value is validated, but only decoded on the first access of
+	 * options with that number. Therefore the buffer must not be modified
+	 * afterwards.
+	 * 
+	 * @param buffer buffer with the encoded option value. Usually the bytes
+	 *            of the received message.
+	 * @param number option number
+	 * @param offset offset of the option value within the buffer
+	 * @param length length of the option value
+	 * @return this OptionSet for a fluent API.
+	 * @throws NullPointerException if buffer is {@code null}
+	 * @throws IllegalArgumentException if the option value is not valid for
+	 *             that option number, or the option value exceeds the buffer.
+	 * @since 2.5
+	 */
+	public OptionSet addEncodedOption(byte[] buffer, int number, int offset, int length) {
+		if (buffer == null) {
+			throw new NullPointerException("buffer must not be null!");
+		}
+		if (number < 0) {
+			throw new IllegalArgumentException("Option number " + number + " must not be negative!");
+		}
+		if (offset < 0 || length < 0 || offset + length > buffer.length) {
+			throw new IllegalArgumentException("Option value [" + offset + "-" + (offset + length)
+					+ ") exceeds buffer of " + buffer.length + " bytes!");
+		}
+		checkEncodedOption(number, buffer, offset, length);
+		synchronized (this) {
+			if (encoded != null && encoded != buffer) {
+				// different buffer, decode the options of the previous one
+				decodeEncoded(ALL);
+			}
+			if (encodedOptions == null) {
+				encodedOptions = new int[INITIAL_ENCODED_OPTIONS * 3];
+			} else if (encodedSize == encodedOptions.length) {
+				encodedOptions = Arrays.copyOf(encodedOptions, encodedSize * 2);
+			}
+			encodedOptions[encodedSize++] = number;
+			encodedOptions[encodedSize++] = offset;
+			encodedOptions[encodedSize++] = length;
+			encoded = buffer;
+			if (number == OptionNumberRegistry.URI_PATH || number == OptionNumberRegistry.URI_QUERY) {
+				explicitUriOptions = true;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Decode encoded options.
+	 * 
+	 * @param number option number of options to decode, or {@link #ALL}.
+	 * @since 2.5
+	 */
+	private void decode(int number) {
+		if (encoded != null) {
+			decodeEncoded(number);
+		}
+	}
+
+	/**
+	 * Decode encoded options.
+	 * 
+	 * Releases the buffer, if all encoded options are decoded.
+	 * 
+	 * @param number option number of options to decode, or {@link #ALL}.
+	 * @since 2.5
+	 */
+	private synchronized void decodeEncoded(int number) {
+		byte[] buffer = encoded;
+		if (buffer == null) {
+			return;
+		}
+		boolean pending = false;
+		for (int index = 0; index < encodedSize; index += 3) {
+			int current = encodedOptions[index];
+			if (current == DECODED) {
+				continue;
+			}
+			if (current == number || number == ALL) {
+				encodedOptions[index] = DECODED;
+				decodeOption(current, buffer, encodedOptions[index + 1], encodedOptions[index + 2]);
+			} else {
+				pending = true;
+			}
+		}
+		if (!pending) {
+			encodedOptions = null;
+			encodedSize = 0;
+			encoded = null;
+		}
+	}
+
+	/**
+	 * Decode already validated option.
+	 * 
+	 * @param number option number
+	 * @param buffer buffer with encoded option value
+	 * @param offset offset of the option value
+	 * @param length length of the option value
+	 * @since 2.5
+	 */
+	private void decodeOption(int number, byte[] buffer, int offset, int length) {
+		switch (number) {
+		case OptionNumberRegistry.IF_MATCH:
+			if (if_match_list == null)
+				if_match_list = new ArrayList<byte[]>();
+			if_match_list.add(Arrays.copyOfRange(buffer, offset, offset + length));
+			break;
+		case OptionNumberRegistry.URI_HOST:
+			uri_host = new String(buffer, offset, length, CoAP.UTF8_CHARSET);
+			break;
+		case OptionNumberRegistry.ETAG:
+			if (etag_list == null)
+				etag_list = new ArrayList<byte[]>();
+			etag_list.add(Arrays.copyOfRange(buffer, offset, offset + length));
+			break;
+		case OptionNumberRegistry.IF_NONE_MATCH:
+			if_none_match = true;
+			break;
+		case OptionNumberRegistry.URI_PORT:
+			uri_port = decodeInteger(buffer, offset, length);
+			break;
+		case OptionNumberRegistry.LOCATION_PATH:
+			if (location_path_list == null)
+				location_path_list = new ArrayList<String>();
+			location_path_list.add(new String(buffer, offset, length, CoAP.UTF8_CHARSET));
+			break;
+		case OptionNumberRegistry.URI_PATH:
+			if (uri_path_list == null)
+				uri_path_list = new ArrayList<String>();
+			uri_path_list.add(new String(buffer, offset, length, CoAP.UTF8_CHARSET));
+			break;
+		case OptionNumberRegistry.CONTENT_FORMAT:
+			content_format = decodeInteger(buffer, offset, length);
+			break;
+		case OptionNumberRegistry.MAX_AGE:
+			max_age = decodeLong(buffer, offset, length);
+			break;
+		case OptionNumberRegistry.URI_QUERY:
+			if (uri_query_list == null)
+				uri_query_list = new ArrayList<String>();
+			uri_query_list.add(new String(buffer, offset, length, CoAP.UTF8_CHARSET));
+			break;
+		case OptionNumberRegistry.ACCEPT:
+			accept = decodeInteger(buffer, offset, length);
+			break;
+		case OptionNumberRegistry.LOCATION_QUERY:
+			if (location_query_list == null)
+				location_query_list = new ArrayList<String>();
+			location_query_list.add(new String(buffer, offset, length, CoAP.UTF8_CHARSET));
+			break;
+		case OptionNumberRegistry.PROXY_URI:
+			proxy_uri = new String(buffer, offset, length, CoAP.UTF8_CHARSET);
+			break;
+		case OptionNumberRegistry.PROXY_SCHEME:
+			proxy_scheme = new String(buffer, offset, length, CoAP.UTF8_CHARSET);
+			break;
+		case OptionNumberRegistry.BLOCK1:
+			block1 = new BlockOption(Arrays.copyOfRange(buffer, offset, offset + length));
+			break;
+		case OptionNumberRegistry.BLOCK2:
+			block2 = new BlockOption(Arrays.copyOfRange(buffer, offset, offset + length));
+			break;
+		case OptionNumberRegistry.SIZE1:
+			size1 = decodeInteger(buffer, offset, length);
+			break;
+		case OptionNumberRegistry.SIZE2:
+			size2 = decodeInteger(buffer, offset, length);
+			break;
+		case OptionNumberRegistry.OBSERVE:
+			observe = decodeInteger(buffer, offset, length);
+			break;
+		case OptionNumberRegistry.OSCORE:
+			oscore = Arrays.copyOfRange(buffer, offset, offset + length);
+			break;
+		default:
+			if (others == null)
+				others = new ArrayList<Option>();
+			others.add(new Option(number, Arrays.copyOfRange(buffer, offset, offset + length)));
+			break;
+		}
+	}
+
+	/**
+	 * Check, if encoded option value is valid.
+	 * 
+	 * Applies the same checks as the setters of the options.
+	 * 
+	 * @param number option number
+	 * @param buffer buffer with encoded option value
+	 * @param offset offset of the option value
+	 * @param length length of the option value
+	 * @throws IllegalArgumentException if the option value is not valid.
+	 * @since 2.5
+	 */
+	private static void checkEncodedOption(int number, byte[] buffer, int offset, int length) {
+		switch (number) {
+		case OptionNumberRegistry.IF_MATCH:
+			if (length > 8)
+				throw new IllegalArgumentException("If-Match option must be smaller or equal to 8 bytes: "
+						+ Utils.toHexString(Arrays.copyOfRange(buffer, offset, offset + length)));
+			break;
+		case OptionNumberRegistry.URI_HOST:
+			checkOptionLength(length, 1, 255, "URI-Host");
+			break;
+		case OptionNumberRegistry.URI_PORT:
+			checkUriPort(decodeInteger(buffer, offset, length));
+			break;
+		case OptionNumberRegistry.LOCATION_PATH:
+			checkOptionLength(length, 0, 255, "Location-Path");
+			break;
+		case OptionNumberRegistry.URI_PATH:
+			checkOptionLength(length, 0, 255, "Uri-Path");
+			break;
+		case OptionNumberRegistry.CONTENT_FORMAT:
+			int format = decodeInteger(buffer, offset, length);
+			if (format <= MediaTypeRegistry.UNDEFINED || format > MediaTypeRegistry.MAX_TYPE) {
+				throw new IllegalArgumentException("Content Format option must be between 0 and "
+						+ MediaTypeRegistry.MAX_TYPE + " (2 bytes) inclusive");
+			}
+			break;
+		case OptionNumberRegistry.MAX_AGE:
+			checkMaxAge(decodeLong(buffer, offset, length));
+			break;
+		case OptionNumberRegistry.URI_QUERY:
+			checkOptionLength(length, 0, 255, "Uri-Query");
+			break;
+		case OptionNumberRegistry.ACCEPT:
+			checkAccept(decodeInteger(buffer, offset, length));
+			break;
+		case OptionNumberRegistry.LOCATION_QUERY:
+			checkOptionLength(length, 0, 255, "Location-Query");
+			break;
+		case OptionNumberRegistry.PROXY_URI:
+			checkOptionLength(length, 1, 1034, "Proxy-Uri");
+			break;
+		case OptionNumberRegistry.PROXY_SCHEME:
+			checkOptionLength(length, 1, 255, "Proxy-Scheme");
+			break;
+		case OptionNumberRegistry.BLOCK1:
+		case OptionNumberRegistry.BLOCK2:
+			if (length > 3)
+				throw new IllegalArgumentException("Block option's length " + length + " must be at most 3 bytes inclusive");
+			break;
+		case OptionNumberRegistry.OBSERVE:
+			checkObserve(decodeInteger(buffer, offset, length));
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Decode integer option value.
+	 * 
+	 * Same as {@link Option#getIntegerValue()}.
+	 * 
+	 * @param buffer buffer with encoded option value
+	 * @param offset offset of the option value
+	 * @param length length of the option value
+	 * @return integer value
+	 * @since 2.5
+	 */
+	private static int decodeInteger(byte[] buffer, int offset, int length) {
+		int ret = 0;
+		int last = offset + length - 1;
+		for (int i = 0; i < length; i++) {
+			ret += (buffer[last - i] & 0xFF) << (i * 8);
+		}
+		return ret;
+	}
+
+	/**
+	 * Decode long option value.
+	 * 
+	 * Same as {@link Option#getLongValue()}.
+	 * 
+	 * @param buffer buffer with encoded option value
+	 * @param offset offset of the option value
+	 * @param length length of the option value
+	 * @return long value
+	 * @since 2.5
+	 */
+	private static long decodeLong(byte[] buffer, int offset, int length) {
+		long ret = 0;
+		int last = offset + length - 1;
+		for (int i = 0; i < length; i++) {
+			ret += (long) (buffer[last - i] & 0xFF) << (i * 8);
+		}
+		return ret;
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
@@ -1626,11 +2083,78 @@ public final class OptionSet {
 		if (value == null) {
 			throw new NullPointerException(optionName + " option must not be null!");
 		}
-		int length = value.getBytes(CoAP.UTF8_CHARSET).length;
+		checkOptionLength(value.getBytes(CoAP.UTF8_CHARSET).length, min, max, optionName);
+	}
+
+	/**
+	 * Check, if length of option value is in the provided range.
+	 * 
+	 * @param length length of the option value in bytes
+	 * @param min minimum length
+	 * @param max maximum length
+	 * @param optionName name of checked option
+	 * @throws IllegalArgumentException if the provided length is out of the
+	 *             provided range.
+	 * @since 2.5
+	 */
+	private static void checkOptionLength(int length, int min, int max, String optionName) {
 		if (length < min || length > max) {
 			String message = String.format("%s option's length %d must be between %d and %d inclusive!", optionName,
 					length, min, max);
 			throw new IllegalArgumentException(message);
 		}
 	}
+
+	/**
+	 * Check, if URI port is valid.
+	 * 
+	 * @param port URI port
+	 * @throws IllegalArgumentException if the port is not valid.
+	 * @since 2.5
+	 */
+	private static void checkUriPort(int port) {
+		if (port < 0 || (1 << 16) - 1 < port) {
+			throw new IllegalArgumentException("URI port option must be between 0 and " + ((1 << 16) - 1)
+					+ " (2 bytes) inclusive but was " + port);
+		}
+	}
+
+	/**
+	 * Check, if Max-Age is valid.
+	 * 
+	 * @param age Max-Age
+	 * @throws IllegalArgumentException if the Max-Age is not valid.
+	 * @since 2.5
+	 */
+	private static void checkMaxAge(long age) {
+		if (age < 0 || ((1L<<32)-1) < age)
+			throw new IllegalArgumentException("Max-Age option must be between 0 and "+((1L<<32)-1)+" (4 bytes) inclusive");
+	}
+
+	/**
+	 * Check, if Accept is valid.
+	 * 
+	 * @param format Accept content format
+	 * @throws IllegalArgumentException if the Accept is not valid.
+	 * @since 2.5
+	 */
+	private static void checkAccept(int format) {
+		if (format < 0 || format > MediaTypeRegistry.MAX_TYPE) {
+			throw new IllegalArgumentException(
+					"Accept option must be between 0 and " + MediaTypeRegistry.MAX_TYPE + " (2 bytes) inclusive");
+		}
+	}
+
+	/**
+	 * Check, if Observe is valid.
+	 * 
+	 * @param seqnum Observe sequence number
+	 * @throws IllegalArgumentException if the Observe is not valid.
+	 * @since 2.5
+	 */
+	private static void checkObserve(int seqnum) {
+		if (!isValidObserveOption(seqnum)) {
+			throw new IllegalArgumentException("Observe option must be between 0 and " + MAX_OBSERVE_NO + " (3 bytes) inclusive");
+		}
+	}
 }
@@ -38,6 +38,9 @@
  *                                                    set multicast address as
  *                                                    host URI option. 
  *    Achim Kraus (Bosch Software Innovations GmbH) - fix left timeout calculation
+ *    Bosch.IO GmbH                                 - add body consumer for
+ *                                                    streamed blockwise transfers
+ *    Bosch.IO GmbH                                 - add random access flag
  ******************************************************************************/
 package org.eclipse.californium.core.coap;
 
@@ -250,6 +253,21 @@ public class Request extends Message {
 	 */
 	private volatile Throwable responseHandlingError;
 
+	/**
+	 * Consumer, which has received the body of this request.
+	 * 
+	 * @since 2.5
+	 */
+	private volatile BlockwiseBodyConsumer bodyConsumer;
+
+	/**
+	 * Indicates, that the Block2 option of this request retrieves a single
+	 * block.
+	 * 
+	 * @since 2.5
+	 */
+	private volatile boolean randomAccess;
+
 	/**
 	 * Creates a request of type {@code CON} for a CoAP code.
 	 * 
@@ -1171,6 +1189,62 @@ public class Request extends Message {
 		}
 	}
 
+	/**
+	 * Get the consumer, which has received the body of this request.
+	 * 
+	 * @return consumer of the body, or {@code null}, if the body is contained
+	 *         in the payload.
+	 * @see BlockwiseBodyConsumer
+	 * @since 2.5
+	 */
+	public BlockwiseBodyConsumer getBodyConsumer() {
+		return bodyConsumer;
+	}
+
+	/**
+	 * Set the consumer, which has received the body of this request.
+	 * 
+	 * Used by the {@code BlockwiseLayer} for requests with streamed bodies.
+	 * 
+	 * @param bodyConsumer consumer of the body
+	 * @see BlockwiseBodyConsumer
+	 * @since 2.5
+	 */
+	public void setBodyConsumer(BlockwiseBodyConsumer bodyConsumer) {
+		this.bodyConsumer = bodyConsumer;
+	}
+
+	/**
+	 * Check, if the Block2 option of this request retrieves a single block.
+	 * 
+	 * @return {@code true}, if the response is passed to the application
+	 *         without retrieving further blocks, {@code false}, otherwise.
+	 * @see #setRandomAccess(boolean)
+	 * @since 2.5
+	 */
+	public boolean isRandomAccess() {
+		return randomAccess;
+	}
+
+	/**
+	 * Set, if the Block2 option of this request retrieves a single block.
+	 * 
+	 * The {@code BlockwiseLayer} regards a Block2 option with a block number
+	 * larger than {@code 0} as random access. The response is passed to the
+	 * application and no further blocks are retrieved. Setting random access
+	 * extends that to block {@code 0}, which is otherwise considered as early
+	 * negotiation of the block size. Such requests are also not tracked by the
+	 * {@code BlockwiseLayer}, so several random access requests for different
+	 * blocks of the same resource may be sent in parallel.
+	 * 
+	 * @param randomAccess {@code true}, to retrieve a single block,
+	 *            {@code false}, otherwise.
+	 * @since 2.5
+	 */
+	public void setRandomAccess(boolean randomAccess) {
+		this.randomAccess = randomAccess;
+	}
+
 	/**
 	 * @return an unmodifiable map containing additional information about this
 	 *         request.
@@ -24,9 +24,14 @@
  *                                                    EndpointContext
  *    Achim Kraus (Bosch Software Innovations GmbH) - change type for rtt to Long
  *    Achim Kraus (Bosch Software Innovations GmbH) - remove "is last", not longer meaningful
+ *    Bosch.IO GmbH                                 - add body source for streamed
+ *                                                    blockwise transfers
  ******************************************************************************/
 package org.eclipse.californium.core.coap;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
 import org.eclipse.californium.core.coap.CoAP.ResponseCode;
 import org.eclipse.californium.core.network.Matcher;
 import org.eclipse.californium.core.network.stack.ReliabilityLayer;
@@ -51,6 +56,21 @@ public class Response extends Message {
 	 */
 	private volatile Long rtt;
 
+	/**
+	 * Source of the body. {@code null}, if the body is contained in the
+	 * payload.
+	 * 
+	 * @since 2.5
+	 */
+	private volatile FileChannel bodySource;
+
+	/**
+	 * Size of the body source.
+	 * 
+	 * @since 2.5
+	 */
+	private volatile int bodySourceSize;
+
 	/**
 	 * Creates a response to the provided received request with the specified
 	 * response code. The destination endpoint context of the response will be
@@ -165,6 +185,75 @@ public class Response extends Message {
 		return getOptions().hasBlock1() || getOptions().hasBlock2();
 	}
 
+	/**
+	 * Set a source for the body of this response.
+	 * <p>
+	 * If the body exceeds the size of a single message, the
+	 * {@code BlockwiseLayer} reads the blocks from the source, when the peer
+	 * requests them, instead of buffering the whole body in memory. Otherwise
+	 * the body is read into the payload, before the response is sent. In both
+	 * cases the response takes over the ownership of the source and closes it,
+	 * when the transfer is completed or fails. The payload of the response is
+	 * ignored, if a source is set.
+	 * <p>
+	 * The source is only supported by the {@code BlockwiseLayer}. Endpoints
+	 * with custom stacks without that layer must use the payload.
+	 * 
+	 * @param source source of the body. The blocks are read using
+	 *            positional reads, which don't change the position of the
+	 *            channel. {@code null} to use the payload.
+	 * @throws IOException if the size of the source is not available
+	 * @throws IllegalArgumentException if the source is larger than
+	 *             {@link Integer#MAX_VALUE}
+	 * @since 2.5
+	 */
+	public void setBodySource(FileChannel source) throws IOException {
+		int size = 0;
+		if (source != null) {
+			long sourceSize = source.size();
+			if (sourceSize > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("body source with " + sourceSize + " bytes is too large!");
+			}
+			size = (int) sourceSize;
+		}
+		this.bodySourceSize = size;
+		this.bodySource = source;
+	}
+
+	/**
+	 * Get the source of the body.
+	 * 
+	 * @return source of the body, or {@code null}, if the body is contained in
+	 *         the payload.
+	 * @see #setBodySource(FileChannel)
+	 * @since 2.5
+	 */
+	public FileChannel getBodySource() {
+		return bodySource;
+	}
+
+	/**
+	 * Get size of the body.
+	 * 
+	 * @return size of the body source, if available, or the size of the
+	 *         payload.
+	 * @since 2.5
+	 */
+	public int getBodySize() {
+		return bodySource != null ? bodySourceSize : getPayloadSize();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Considers the {@link #getBodySize()}.
+	 */
+	@Override
+	public boolean hasBlock(final BlockOption block2) {
+		int size = getBodySize();
+		return 0 < size && block2.getOffset() < size;
+	}
+
 	/**
 	 * Checks whether this response's code indicates an error.
 	 * 
@@ -70,6 +70,7 @@
  *    Achim Kraus (Bosch Software Innovations GmbH) - move response retransmission
  *                                                    setup to BaseCoapStack to include
  *                                                    it also in a try-catch
+ *    Bosch.IO GmbH                                 - receive batches of messages
  ******************************************************************************/
 package org.eclipse.californium.core.network;
 
@@ -125,6 +126,7 @@ import org.eclipse.californium.core.observe.NotificationListener;
 import org.eclipse.californium.core.observe.ObservationStore;
 import org.eclipse.californium.core.server.MessageDeliverer;
 import org.eclipse.californium.elements.AddressEndpointContext;
+import org.eclipse.californium.elements.BatchRawDataChannel;
 import org.eclipse.californium.elements.Connector;
 import org.eclipse.californium.elements.EndpointContext;
 import org.eclipse.californium.elements.EndpointContextMatcher;
@@ -459,13 +461,13 @@ public class CoapEndpoint implements Endpoint, MessagePostProcessInterceptors, M
 			this.matcher = new TcpMatcher(config, new NotificationDispatcher(), tokenGenerator, observationStore,
 					this.exchangeStore, exchangeExecutionHandler, endpointContextMatcher);
 			this.serializer = new TcpDataSerializer();
-			this.parser = new TcpDataParser();
+			this.parser = new TcpDataParser(config.getBoolean(Keys.USE_LAZY_OPTIONS_DECODING));
 		} else {
 			this.useRequestOffloading = config.getBoolean(Keys.USE_MESSAGE_OFFLOADING);
 			this.matcher = new UdpMatcher(config, new NotificationDispatcher(), tokenGenerator, observationStore,
 					this.exchangeStore, exchangeExecutionHandler, endpointContextMatcher);
 			this.serializer = new UdpDataSerializer();
-			this.parser = new UdpDataParser();
+			this.parser = new UdpDataParser(config.getBoolean(Keys.USE_LAZY_OPTIONS_DECODING));
 		}
 		final int healthStatusInterval = config.getInt(Keys.HEALTH_STATUS_INTERVAL, NetworkConfigDefaults.DEFAULT_HEALTH_STATUS_INTERVAL); // seconds
 		// this is a useful health metric
@@ -1117,26 +1119,67 @@ public class CoapEndpoint implements Endpoint, MessagePostProcessInterceptors, M
 	 * for an associated exchange and then forwards the message with the
 	 * exchange to the stack of layers.
 	 */
-	private class InboxImpl implements RawDataChannel {
+	private class InboxImpl implements BatchRawDataChannel {
 
 		@Override
 		public void receiveData(final RawData raw) {
+			checkRawData(raw);
+
+			// Create a new task to process this message
+			runInProtocolStage(new Runnable() {
+
+				@Override
+				public void run() {
+					receiveMessage(raw);
+				}
+			});
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * Process all messages of the batch in one task of the protocol stage.
+		 * 
+		 * @since 2.5
+		 */
+		@Override
+		public void receiveData(final List<RawData> raws) {
+			for (RawData raw : raws) {
+				checkRawData(raw);
+			}
+
+			// Create a new task to process this batch
+			runInProtocolStage(new Runnable() {
+
+				@Override
+				public void run() {
+					for (RawData raw : raws) {
+						try {
+							receiveMessage(raw);
+						} catch (RuntimeException e) {
+							LOGGER.error("{}exception in protocol stage thread: {}", tag, e.getMessage(), e);
+						}
+					}
+				}
+			});
+		}
+
+		/**
+		 * Check, if the received message has an endpoint context with a source
+		 * address.
+		 * 
+		 * @param raw received message
+		 * @throws IllegalArgumentException if the endpoint context or source
+		 *             address is missing
+		 * @since 2.5
+		 */
+		private void checkRawData(RawData raw) {
 			if (raw.getEndpointContext() == null) {
 				throw new IllegalArgumentException("received message that does not have a endpoint context");
 			} else if (raw.getEndpointContext().getPeerAddress() == null) {
 				throw new IllegalArgumentException("received message that does not have a source address");
 			} else if (raw.getEndpointContext().getPeerAddress().getPort() == 0) {
 				throw new IllegalArgumentException("received message that does not have a source port");
-			} else {
-
-				// Create a new task to process this message
-				runInProtocolStage(new Runnable() {
-
-					@Override
-					public void run() {
-						receiveMessage(raw);
-					}
-				});
 			}
 		}
 
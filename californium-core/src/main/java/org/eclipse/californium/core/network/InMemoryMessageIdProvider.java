@@ -20,6 +20,8 @@
  *                                                    MessageIdTracker to
  *                                                    MapBasedMessageIdTracker.
  *    Achim Kraus (Bosch Software Innovations GmbH) - add multicast mid tracker.
+ *    Bosch.IO GmbH                                 - add ring tracker and
+ *                                                    striped tracker lookup.
  ******************************************************************************/
 package org.eclipse.californium.core.network;
 
@@ -39,16 +41,39 @@ import org.slf4j.LoggerFactory;
  * <p>
  * This provider maintains an instance of {@link MessageIdTracker} for each
  * endpoint identified by IP address and port.
+ * <p>
+ * Since 2.5 the trackers are distributed by the hash of the endpoint's address
+ * into stripes. Each stripe is a {@link LeastRecentlyUsedCache} with its own
+ * lock and its part of the maximum number of active peers. Therefore
+ * concurrent lookups for different peers are mostly not blocking each other.
  */
 public class InMemoryMessageIdProvider implements MessageIdProvider {
 
 	private static final Logger LOG = LoggerFactory.getLogger(InMemoryMessageIdProvider.class);
 
 	public enum TrackerMode {
-		NULL, GROUPED, MAPBASED
+		NULL, GROUPED, MAPBASED,
+		/**
+		 * Use {@link RingMessageIdTracker}.
+		 * 
+		 * @since 2.5
+		 */
+		RING
 	}
 
-	private final LeastRecentlyUsedCache<InetSocketAddress, MessageIdTracker> trackers;
+	/**
+	 * Default number of stripes.
+	 * 
+	 * @since 2.5
+	 */
+	public static final int DEFAULT_STRIPES = 16;
+	/**
+	 * Minimum number of trackers of a stripe. Smaller providers use less
+	 * stripes.
+	 */
+	private static final int MIN_STRIPE_CAPACITY = 64;
+
+	private final LeastRecentlyUsedCache<InetSocketAddress, MessageIdTracker>[] trackers;
 	private final MessageIdTracker multicastTracker;
 	private final TrackerMode mode;
 	private final Random random;
@@ -63,12 +88,14 @@ public class InMemoryMessageIdProvider implements MessageIdProvider {
 	 * <li>{@link org.eclipse.californium.core.network.config.NetworkConfig.Keys#MID_TRACKER}
 	 * - determine the tracker mode. Supported values are "NULL" (for
 	 * {@link NullMessageIdTracker}), "GROUPED" (for
-	 * {@link GroupedMessageIdTracker}), and "MAPBASED" (for
-	 * {@link MapBasedMessageIdTracker}).</li>
+	 * {@link GroupedMessageIdTracker}), "MAPBASED" (for
+	 * {@link MapBasedMessageIdTracker}), and "RING" (for
+	 * {@link RingMessageIdTracker}).</li>
 	 * <li>{@link org.eclipse.californium.core.network.config.NetworkConfig.Keys#MID_TRACKER_GROUPS}
 	 * - determine the group size for the message IDs, if the grouped tracker is
 	 * used. Each group is marked as <em>in use</em>, if a MID within the group
-	 * is used.</li>
+	 * is used. For the ring tracker, determine the number of time buckets per
+	 * exchange lifetime.</li>
 	 * <li>{@link org.eclipse.californium.core.network.config.NetworkConfig.Keys#EXCHANGE_LIFETIME}
 	 * - each (group of a) message ID returned by <em>getNextMessageId</em> is
 	 * marked as <em>in use</em> for this amount of time (ms).</li>
@@ -83,6 +110,7 @@ public class InMemoryMessageIdProvider implements MessageIdProvider {
 	 * @throws IllegalArgumentException if the config contains no value tracker
 	 *             mode.
 	 */
+	@SuppressWarnings("unchecked")
 	public InMemoryMessageIdProvider(final NetworkConfig config) {
 		if (config == null) {
 			throw new NullPointerException("Config must not be null");
@@ -104,10 +132,17 @@ public class InMemoryMessageIdProvider implements MessageIdProvider {
 		} else {
 			random = null;
 		}
+		int capacity = config.getInt(NetworkConfig.Keys.MAX_ACTIVE_PEERS, 150000);
 		// 10 minutes
-		trackers = new LeastRecentlyUsedCache<>(config.getInt(NetworkConfig.Keys.MAX_ACTIVE_PEERS, 150000),
-				config.getLong(NetworkConfig.Keys.MAX_PEER_INACTIVITY_PERIOD, 10 * 60));
-		trackers.setEvictingOnReadAccess(false);
+		long threshold = config.getLong(NetworkConfig.Keys.MAX_PEER_INACTIVITY_PERIOD, 10 * 60);
+		int stripes = Math.max(1, Math.min(DEFAULT_STRIPES, capacity / MIN_STRIPE_CAPACITY));
+		trackers = (LeastRecentlyUsedCache<InetSocketAddress, MessageIdTracker>[]) new LeastRecentlyUsedCache<?, ?>[stripes];
+		for (int index = 0; index < stripes; ++index) {
+			// distribute the remainder to the first stripes
+			int stripeCapacity = capacity / stripes + (index < capacity % stripes ? 1 : 0);
+			trackers[index] = new LeastRecentlyUsedCache<>(stripeCapacity, threshold);
+			trackers[index].setEvictingOnReadAccess(false);
+		}
 		int multicastBaseMid = config.getInt(NetworkConfig.Keys.MULTICAST_BASE_MID);
 		if (0 < multicastBaseMid) {
 			this.multicastBaseMid = multicastBaseMid;
@@ -120,6 +155,9 @@ public class InMemoryMessageIdProvider implements MessageIdProvider {
 			case MAPBASED:
 				multicastTracker = new MapBasedMessageIdTracker(mid, multicastBaseMid, max, config);
 				break;
+			case RING:
+				multicastTracker = new RingMessageIdTracker(mid, multicastBaseMid, max, config);
+				break;
 			case GROUPED:
 			default:
 				multicastTracker = new GroupedMessageIdTracker(mid, multicastBaseMid, max, config);
@@ -143,7 +181,7 @@ public class InMemoryMessageIdProvider implements MessageIdProvider {
 		}
 	}
 
-	private synchronized MessageIdTracker getTracker(final InetSocketAddress destination) {
+	private MessageIdTracker getTracker(final InetSocketAddress destination) {
 		// destination mc
 		// => use special range 65001-65535
 		// destination sp
@@ -158,28 +196,68 @@ public class InMemoryMessageIdProvider implements MessageIdProvider {
 			return multicastTracker;
 		}
 
-		MessageIdTracker tracker = trackers.get(destination);
-		if (tracker == null) {
-			// create new tracker for destination lazily
-			int mid = null == random ? 0 : random.nextInt(multicastBaseMid);
-			switch (mode) {
-			case NULL:
-				tracker = new NullMessageIdTracker(mid, 0, multicastBaseMid);
-				break;
-			case MAPBASED:
-				tracker = new MapBasedMessageIdTracker(mid, 0, multicastBaseMid, config);
-				break;
-			case GROUPED:
-			default:
-				tracker = new GroupedMessageIdTracker(mid, 0, multicastBaseMid, config);
-				break;
+		LeastRecentlyUsedCache<InetSocketAddress, MessageIdTracker> stripe = getStripe(destination);
+		synchronized (stripe) {
+			MessageIdTracker tracker = stripe.get(destination);
+			if (tracker == null) {
+				// create new tracker for destination lazily
+				tracker = createTracker();
+				if (!stripe.put(destination, tracker)) {
+					return null;
+				}
 			}
-			if (trackers.put(destination, tracker)) {
-				return tracker;
-			} else {
-				return null;
+			return tracker;
+		}
+	}
+
+	/**
+	 * Get stripe for destination.
+	 * 
+	 * @param destination destination address
+	 * @return stripe of trackers for that destination
+	 * @since 2.5
+	 */
+	private LeastRecentlyUsedCache<InetSocketAddress, MessageIdTracker> getStripe(
+			final InetSocketAddress destination) {
+		if (trackers.length == 1) {
+			return trackers[0];
+		}
+		int hash = destination.hashCode();
+		hash ^= (hash >>> 16);
+		return trackers[(hash & Integer.MAX_VALUE) % trackers.length];
+	}
+
+	/**
+	 * Create tracker for single peer according the {@link #mode}.
+	 * 
+	 * @return created tracker
+	 * @since 2.5
+	 */
+	private MessageIdTracker createTracker() {
+		MessageIdTracker tracker;
+		int mid;
+		if (null == random) {
+			mid = 0;
+		} else {
+			synchronized (random) {
+				mid = random.nextInt(multicastBaseMid);
 			}
 		}
+		switch (mode) {
+		case NULL:
+			tracker = new NullMessageIdTracker(mid, 0, multicastBaseMid);
+			break;
+		case MAPBASED:
+			tracker = new MapBasedMessageIdTracker(mid, 0, multicastBaseMid, config);
+			break;
+		case RING:
+			tracker = new RingMessageIdTracker(mid, 0, multicastBaseMid, config);
+			break;
+		case GROUPED:
+		default:
+			tracker = new GroupedMessageIdTracker(mid, 0, multicastBaseMid, config);
+			break;
+		}
 		return tracker;
 	}
 }
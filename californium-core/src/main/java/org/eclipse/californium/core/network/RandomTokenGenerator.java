@@ -14,6 +14,8 @@
  *     Achim Kraus (Bosch Software Innovations GmbH) - initial API and implementation
  *                                                     derived from former 
  *                                                     InMemoryRandomTokenProvider
+ *     Bosch.IO GmbH                                 - use thread local random
+ *                                                     buffers
  *******************************************************************************/
 package org.eclipse.californium.core.network;
 
@@ -40,15 +42,32 @@ import org.slf4j.LoggerFactory;
  * tokens with different size will be treated as
  * {@link Scope#SHORT_TERM_CLIENT_LOCAL}.
  *
+ * The random bytes are taken from a thread local buffer, which is filled in
+ * batches by a thread local {@link SecureRandom}. That avoids the contention
+ * of a shared {@link SecureRandom}, when many threads create tokens.
+ *
  * This implementation is thread-safe.
  */
 public class RandomTokenGenerator implements TokenGenerator {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(RandomTokenGenerator.class);
 	private static final int DEFAULT_TOKEN_LENGTH = 8; // bytes
+	/**
+	 * Size of the thread local buffer for random bytes.
+	 * 
+	 * @since 2.5
+	 */
+	private static final int RANDOM_BUFFER_SIZE = 512; // bytes
+
+	private static final ThreadLocal<RandomBuffer> threadLocalRandomBuffer = new ThreadLocal<RandomBuffer>() {
+
+		@Override
+		protected RandomBuffer initialValue() {
+			return new RandomBuffer();
+		}
+	};
 
 	private final int tokenSize;
-	private final SecureRandom rng;
 
 	/**
 	 * Creates a new {@link RandomTokenGenerator}.
@@ -60,9 +79,9 @@ public class RandomTokenGenerator implements TokenGenerator {
 		if (networkConfig == null) {
 			throw new NullPointerException("NetworkConfig must not be null");
 		}
-		this.rng = new SecureRandom();
-		// trigger self-seeding of the PRNG, may "take a while"
-		this.rng.nextInt(10);
+		// trigger self-seeding of the PRNG of the current thread,
+		// may "take a while"
+		threadLocalRandomBuffer.get();
 		this.tokenSize = networkConfig.getInt(Keys.TOKEN_SIZE_LIMIT, DEFAULT_TOKEN_LENGTH);
 		LOGGER.info("using tokens of {} bytes in length", this.tokenSize);
 	}
@@ -70,7 +89,7 @@ public class RandomTokenGenerator implements TokenGenerator {
 	@Override
 	public Token createToken(Scope scope) {
 		byte[] token = new byte[tokenSize];
-		rng.nextBytes(token);
+		threadLocalRandomBuffer.get().nextBytes(token);
 		switch (scope) {
 		case LONG_TERM:
 			// set bit 0 to 1
@@ -132,4 +151,41 @@ public class RandomTokenGenerator implements TokenGenerator {
 		}
 	}
 
+	/**
+	 * Buffer for random bytes.
+	 * 
+	 * Filled in batches by a {@link SecureRandom}. Used by one thread only.
+	 * 
+	 * @since 2.5
+	 */
+	private static class RandomBuffer {
+
+		private final SecureRandom rng = new SecureRandom();
+		private final byte[] buffer = new byte[RANDOM_BUFFER_SIZE];
+		private int position = RANDOM_BUFFER_SIZE;
+
+		private RandomBuffer() {
+			// trigger self-seeding of the PRNG, may "take a while"
+			rng.nextInt(10);
+		}
+
+		/**
+		 * Fill bytes with random bytes from this buffer.
+		 * 
+		 * @param bytes bytes to fill
+		 */
+		private void nextBytes(byte[] bytes) {
+			int offset = 0;
+			while (offset < bytes.length) {
+				if (position == buffer.length) {
+					rng.nextBytes(buffer);
+					position = 0;
+				}
+				int length = Math.min(bytes.length - offset, buffer.length - position);
+				System.arraycopy(buffer, position, bytes, offset, length);
+				position += length;
+				offset += length;
+			}
+		}
+	}
 }
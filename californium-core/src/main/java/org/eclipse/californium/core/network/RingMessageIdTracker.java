@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.core.network;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.coap.Message;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.elements.util.ClockUtil;
+
+/**
+ * A helper for keeping track of message IDs using a small ring of lifetime
+ * buckets.
+ * <p>
+ * According to the
+ * <a href="https://tools.ietf.org/html/rfc7252#section-4.4">CoAP spec</a>
+ *
+ * <pre>
+ * The same Message ID MUST NOT be reused (in communicating with the
+   same endpoint) within the EXCHANGE_LIFETIME (Section 4.8.2).
+ * </pre>
+ *
+ * The MIDs are assigned in ascending order using a sequence counter. The
+ * exchange lifetime is split into time buckets and for each bucket only the
+ * sequence counter of the first MID assigned within that bucket is kept. A
+ * bucket expires, when the exchange lifetime after the end of the bucket is
+ * over. The oldest MID still in use is therefore the first MID of the oldest
+ * not expired bucket, and the next MID is free, if it is less than the range
+ * of MIDs ahead of that oldest one.
+ * <p>
+ * In difference to the {@link GroupedMessageIdTracker}, each single MID is
+ * freed as soon as its own lifetime (rounded up to the bucket duration) is
+ * over. In difference to the {@link MapBasedMessageIdTracker}, the memory is
+ * fixed and doesn't depend on the number of MIDs in use. The buckets are
+ * stored in a single primitive {@code long[]} with two values per bucket.
+ *
+ * @since 2.5
+ */
+public class RingMessageIdTracker implements MessageIdTracker {
+
+	/**
+	 * Number of buckets in ring. One more than the number of buckets of the
+	 * exchange lifetime, for the current bucket.
+	 */
+	private final int ringSize;
+	/**
+	 * Number of buckets per exchange lifetime.
+	 */
+	private final int buckets;
+	/**
+	 * Minimal MID.
+	 */
+	private final int min;
+	/**
+	 * Range of MIDs.
+	 */
+	private final int range;
+	/**
+	 * Duration of bucket. Value in nanoseconds. {@code 0}, if the exchange
+	 * lifetime is not positive and so all MIDs are free.
+	 */
+	private final long bucketNanos;
+	/**
+	 * Start of tracker. Used as time base for the buckets. Value in
+	 * nanoseconds.
+	 *
+	 * @see ClockUtil#nanoRealtime()
+	 */
+	private final long startNanos;
+	/**
+	 * Ring of buckets. The bucket with index {@code i} uses
+	 * {@code ring[2 * i]} for the epoch of the bucket, and
+	 * {@code ring[2 * i + 1]} for the sequence counter of the first MID
+	 * assigned in that epoch.
+	 */
+	private final long ring[];
+	/**
+	 * Sequence counter of the next MID.
+	 */
+	private long counter;
+
+	/**
+	 * Creates a new lifetime bucket ring based tracker.
+	 *
+	 * The following configuration values are used:
+	 * <ul>
+	 * <li>{@link org.eclipse.californium.core.network.config.NetworkConfig.Keys#MID_TRACKER_GROUPS}
+	 * - determine the number of time buckets per exchange lifetime.</li>
+	 * <li>{@link org.eclipse.californium.core.network.config.NetworkConfig.Keys#EXCHANGE_LIFETIME}
+	 * - each message ID returned by <em>getNextMessageId</em> is marked as
+	 * <em>in use</em> for this amount of time (ms), rounded up to the bucket
+	 * duration.</li>
+	 * </ul>
+	 *
+	 * @param initialMid initial MID
+	 * @param minMid minimal MID (inclusive).
+	 * @param maxMid maximal MID (exclusive).
+	 * @param config configuration
+	 * @throws IllegalArgumentException if minMid is not smaller than maxMid or
+	 *             initialMid is not in the range of minMid and maxMid
+	 */
+	public RingMessageIdTracker(int initialMid, int minMid, int maxMid, NetworkConfig config) {
+		if (minMid >= maxMid) {
+			throw new IllegalArgumentException("max. MID " + maxMid + " must be larger than min. MID " + minMid + "!");
+		}
+		if (initialMid < minMid || maxMid <= initialMid) {
+			throw new IllegalArgumentException(
+					"initial MID " + initialMid + " must be in range [" + minMid + "-" + maxMid + ")!");
+		}
+		long exchangeLifetimeNanos = TimeUnit.MILLISECONDS
+				.toNanos(config.getLong(NetworkConfig.Keys.EXCHANGE_LIFETIME));
+		this.buckets = Math.max(1, config.getInt(NetworkConfig.Keys.MID_TRACKER_GROUPS));
+		this.ringSize = buckets + 1;
+		this.min = minMid;
+		this.range = maxMid - minMid;
+		this.counter = initialMid - minMid;
+		this.startNanos = ClockUtil.nanoRealtime();
+		if (exchangeLifetimeNanos > 0) {
+			// round up, the buckets must cover the exchange lifetime
+			this.bucketNanos = (exchangeLifetimeNanos + buckets - 1) / buckets;
+		} else {
+			this.bucketNanos = 0;
+		}
+		this.ring = new long[ringSize * 2];
+		for (int index = 0; index < ring.length; index += 2) {
+			ring[index] = -1;
+		}
+	}
+
+	/**
+	 * Gets the next usable message ID.
+	 *
+	 * @return a message ID or {@code -1} if all message IDs are in use
+	 *         currently.
+	 */
+	@Override
+	public int getNextMessageId() {
+		final long now = ClockUtil.nanoRealtime();
+		synchronized (this) {
+			long next = counter;
+			if (bucketNanos > 0) {
+				long epoch = (now - startNanos) / bucketNanos;
+				// buckets of older epochs are expired
+				long oldest = epoch - buckets;
+				int current = (int) (epoch % ringSize) * 2;
+				for (int index = 0; index < ring.length; index += 2) {
+					long bucketEpoch = ring[index];
+					if (bucketEpoch >= oldest && bucketEpoch >= 0 && next - ring[index + 1] >= range) {
+						// MID of previous round still in use
+						return Message.NONE;
+					}
+				}
+				if (ring[current] != epoch) {
+					ring[current] = epoch;
+					ring[current + 1] = next;
+				}
+			}
+			counter = next + 1;
+			return (int) (next % range) + min;
+		}
+	}
+
+	/**
+	 * Get number of time buckets per exchange lifetime.
+	 *
+	 * @return number of buckets
+	 */
+	public int getBuckets() {
+		return buckets;
+	}
+}
@@ -130,6 +130,14 @@ public final class NetworkConfig {
 		 * @since 2.2
 		 */
 		public static final String USE_MESSAGE_OFFLOADING = "USE_MESSAGE_OFFLOADING";
+		/**
+		 * Keep the options of received messages encoded and decode them on
+		 * the first access.
+		 * 
+		 * @see org.eclipse.californium.core.coap.OptionSet#addEncodedOption(byte[], int, int, int)
+		 * @since 2.5
+		 */
+		public static final String USE_LAZY_OPTIONS_DECODING = "USE_LAZY_OPTIONS_DECODING";
 
 		public static final String USE_RANDOM_MID_START = "USE_RANDOM_MID_START";
 		public static final String MID_TRACKER = "MID_TACKER";
@@ -234,6 +242,14 @@ public final class NetworkConfig {
 		public static final String CONGESTION_CONTROL_ALGORITHM = "CONGESTION_CONTROL_ALGORITHM";
 
 		public static final String PROTOCOL_STAGE_THREAD_COUNT = "PROTOCOL_STAGE_THREAD_COUNT";
+		/**
+		 * Execute requests for resources without own executor on virtual
+		 * threads, if supported by the JVM. Otherwise these requests are
+		 * executed by the protocol stage.
+		 * 
+		 * @since 2.5
+		 */
+		public static final String RESOURCE_VIRTUAL_THREADS = "RESOURCE_VIRTUAL_THREADS";
 		public static final String NETWORK_STAGE_RECEIVER_THREAD_COUNT = "NETWORK_STAGE_RECEIVER_THREAD_COUNT";
 		public static final String NETWORK_STAGE_SENDER_THREAD_COUNT = "NETWORK_STAGE_SENDER_THREAD_COUNT";
 
@@ -268,6 +284,13 @@ public final class NetworkConfig {
 		 * MILLISECONDS).
 		 */
 		public static final String CROP_ROTATION_PERIOD = "CROP_ROTATION_PERIOD";
+		/**
+		 * Deduplicator with generations of primitive indexes. Uses
+		 * {@link #CROP_ROTATION_PERIOD} for the time covered by a generation.
+		 * 
+		 * @since 2.5
+		 */
+		public static final String DEDUPLICATOR_GENERATIONS = "DEDUPLICATOR_GENERATIONS";
 		public static final String NO_DEDUPLICATOR = "NO_DEDUPLICATOR";
 		public static final String DEDUPLICATOR_AUTO_REPLACE = "DEDUPLICATOR_AUTO_REPLACE";
 		public static final String RESPONSE_MATCHING = "RESPONSE_MATCHING";
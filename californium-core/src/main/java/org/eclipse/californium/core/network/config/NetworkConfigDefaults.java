@@ -30,6 +30,7 @@ package org.eclipse.californium.core.network.config;
 
 import org.eclipse.californium.core.coap.CoAP;
 import org.eclipse.californium.core.network.GroupedMessageIdTracker;
+import org.eclipse.californium.core.network.RingMessageIdTracker;
 import org.eclipse.californium.core.network.config.NetworkConfig.Keys;
 import org.eclipse.californium.elements.UDPConnector;
 
@@ -88,7 +89,8 @@ public class NetworkConfigDefaults {
 	/**
 	 * The default MID tracker.
 	 * 
-	 * Supported values are {@code NULL}, {@code GROUPED}, or {@code MAPBASED}.
+	 * Supported values are {@code NULL}, {@code GROUPED}, {@code MAPBASED}, or
+	 * {@code RING}.
 	 * <p>
 	 * The default value is {@code GROUPED}.
 	 */
@@ -97,7 +99,8 @@ public class NetworkConfigDefaults {
 	/**
 	 * The default number of MID groups.
 	 * <p>
-	 * Used for {@link GroupedMessageIdTracker}. The default value is 16.
+	 * Used for {@link GroupedMessageIdTracker} and as number of time buckets
+	 * for {@link RingMessageIdTracker}. The default value is 16.
 	 */
 	public static final int DEFAULT_MID_TRACKER_GROUPS = 16;
 
@@ -208,6 +211,7 @@ public class NetworkConfigDefaults {
 		config.setInt(Keys.LEISURE, 5000);
 		config.setFloat(Keys.PROBING_RATE, 1f);
 		config.setBoolean(Keys.USE_MESSAGE_OFFLOADING, false);
+		config.setBoolean(Keys.USE_LAZY_OPTIONS_DECODING, false);
 
 		config.setInt(Keys.MAX_LATENCY, 100 * 1000); //ms
 		config.setInt(Keys.MAX_SERVER_RESPONSE_DELAY, 250 * 1000); //ms
@@ -233,6 +237,7 @@ public class NetworkConfigDefaults {
 		config.setString(Keys.CONGESTION_CONTROL_ALGORITHM, "Cocoa"); // see org.eclipse.californium.core.network.stack.congestioncontrol
 
 		config.setInt(Keys.PROTOCOL_STAGE_THREAD_COUNT, CORES);
+		config.setBoolean(Keys.RESOURCE_VIRTUAL_THREADS, false);
 		config.setInt(Keys.NETWORK_STAGE_RECEIVER_THREAD_COUNT, WINDOWS ? CORES : 1);
 		config.setInt(Keys.NETWORK_STAGE_SENDER_THREAD_COUNT, WINDOWS ? CORES : 1);
 
@@ -17,6 +17,7 @@
  *    Daniel Pauli - parsers and initial implementation
  *    Kai Hudalla - logging
  *    Bosch Software Innovations GmbH - migrate to SLF4J
+ *    Bosch.IO GmbH                   - add generation deduplicator
  ******************************************************************************/
 package org.eclipse.californium.core.network.deduplication;
 
@@ -78,6 +79,8 @@ public class DeduplicatorFactory {
 			return new SweepDeduplicator(config);
 		case NetworkConfig.Keys.DEDUPLICATOR_CROP_ROTATION:
 			return new CropRotation(config);
+		case NetworkConfig.Keys.DEDUPLICATOR_GENERATIONS:
+			return new GenerationDeduplicator(config);
 		case NetworkConfig.Keys.NO_DEDUPLICATOR:
 			return new NoDeduplicator();
 		default:
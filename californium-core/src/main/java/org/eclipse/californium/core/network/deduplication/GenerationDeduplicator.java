@@ -0,0 +1,448 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.core.network.deduplication;
+
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.network.Exchange;
+import org.eclipse.californium.core.network.KeyMID;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.core.network.config.NetworkConfig.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This deduplicator keeps the incoming messages in generations of primitive
+ * open-addressing indexes.
+ * <p>
+ * Each generation covers a
+ * {@link org.eclipse.californium.core.network.config.NetworkConfig.Keys#CROP_ROTATION_PERIOD}.
+ * A message is added to the current generation. On rotation, the oldest
+ * generation is cleared at once and becomes the current one. The number of
+ * generations is chosen, that a message is kept at least
+ * {@link org.eclipse.californium.core.network.config.NetworkConfig.Keys#EXCHANGE_LIFETIME}.
+ * Therefore the expiration costs are proportional to the size of one
+ * generation, and not to the number of all messages as for the
+ * {@link SweepDeduplicator}.
+ * </p>
+ * <p>
+ * The index is keyed by a packed long of the peer's hash and the MID. The
+ * {@link KeyMID} is only compared, if that packed long matches. Neither
+ * lookups nor additions allocate objects, except the indexes are growing.
+ * The index is split into segments with separate locks to reduce the
+ * contention of concurrent receiving threads.
+ * </p>
+ *
+ * @since 2.5
+ */
+public class GenerationDeduplicator implements Deduplicator {
+
+	private final static Logger LOGGER = LoggerFactory.getLogger(GenerationDeduplicator.class);
+
+	/**
+	 * Number of segments. Must be a power of 2.
+	 */
+	private static final int SEGMENTS = 16;
+	/**
+	 * Initial and minimum capacity of the index of a generation in a segment.
+	 * Must be a power of 2.
+	 */
+	private static final int MIN_CAPACITY = 64;
+
+	private final Segment[] segments;
+	private final int generations;
+	private final long period;
+	private final boolean replace;
+	private final Rotation rotation;
+	private volatile ScheduledFuture<?> jobStatus;
+	private ScheduledExecutorService executor;
+
+	/**
+	 * Creates a new generation deduplicator for configuration properties.
+	 * <p>
+	 * The following configuration values are used:
+	 * <ul>
+	 * <li>{@link org.eclipse.californium.core.network.config.NetworkConfig.Keys#EXCHANGE_LIFETIME}
+	 * - minimum time a message is kept in milliseconds</li>
+	 * <li>{@link org.eclipse.californium.core.network.config.NetworkConfig.Keys#CROP_ROTATION_PERIOD}
+	 * - the time covered by a generation in milliseconds</li>
+	 * <li>{@link org.eclipse.californium.core.network.config.NetworkConfig.Keys#DEDUPLICATOR_AUTO_REPLACE}
+	 * - the flag to enable exchange replacing, if the new exchange differs
+	 * from the already stored one.</li>
+	 * </ul>
+	 *
+	 * @param config the configuration to use.
+	 */
+	public GenerationDeduplicator(NetworkConfig config) {
+		long lifetime = config.getLong(NetworkConfig.Keys.EXCHANGE_LIFETIME);
+		period = config.getLong(NetworkConfig.Keys.CROP_ROTATION_PERIOD);
+		if (period <= 0) {
+			throw new IllegalArgumentException("crop rotation period " + period + " must be positive!");
+		}
+		replace = config.getBoolean(Keys.DEDUPLICATOR_AUTO_REPLACE);
+		// the current generation is started up to one period before a message
+		// is added, so one additional generation is required
+		generations = (int) Math.max(2, (lifetime + period - 1) / period + 1);
+		segments = new Segment[SEGMENTS];
+		for (int index = 0; index < SEGMENTS; ++index) {
+			segments[index] = new Segment(generations);
+		}
+		rotation = new Rotation();
+		LOGGER.debug("{} generations of {}ms", generations, period);
+	}
+
+	@Override
+	public synchronized void start() {
+		if (jobStatus == null) {
+			jobStatus = executor.scheduleAtFixedRate(rotation, period, period, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public synchronized void stop() {
+		if (jobStatus != null) {
+			jobStatus.cancel(false);
+			jobStatus = null;
+			clear();
+		}
+	}
+
+	@Override
+	public synchronized void setExecutor(ScheduledExecutorService executor) {
+		if (jobStatus != null)
+			throw new IllegalStateException("executor service can not be set on running Deduplicator");
+		this.executor = executor;
+	}
+
+	@Override
+	public Exchange findPrevious(KeyMID key, Exchange exchange) {
+		long packed = pack(key);
+		Segment segment = segment(packed);
+		synchronized (segment) {
+			int generation = segment.find(packed, key);
+			if (generation >= 0) {
+				Exchange previous = segment.exchange(generation);
+				if (!replace || previous.getOrigin() == exchange.getOrigin()) {
+					LOGGER.debug("found exchange for {}", key);
+					return previous;
+				}
+				LOGGER.debug("replace exchange for {}", key);
+				segment.remove(generation);
+			} else {
+				LOGGER.debug("add exchange for {}", key);
+			}
+			segment.add(packed, key, exchange);
+			return null;
+		}
+	}
+
+	@Override
+	public boolean replacePrevious(KeyMID key, Exchange previous, Exchange exchange) {
+		long packed = pack(key);
+		Segment segment = segment(packed);
+		synchronized (segment) {
+			int generation = segment.find(packed, key);
+			if (generation >= 0) {
+				if (segment.exchange(generation) != previous) {
+					return false;
+				}
+				// refresh the replaced exchange
+				segment.remove(generation);
+			}
+			segment.add(packed, key, exchange);
+			return true;
+		}
+	}
+
+	@Override
+	public Exchange find(KeyMID key) {
+		long packed = pack(key);
+		Segment segment = segment(packed);
+		synchronized (segment) {
+			int generation = segment.find(packed, key);
+			return generation < 0 ? null : segment.exchange(generation);
+		}
+	}
+
+	@Override
+	public void clear() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				for (Index index : segment.indexes) {
+					index.clear();
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				for (Index index : segment.indexes) {
+					size += index.size;
+				}
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Pack the peer's hash and the MID of the key into a long.
+	 *
+	 * @param key key to pack
+	 * @return packed key
+	 */
+	private static long pack(KeyMID key) {
+		return ((long) key.getPeer().hashCode() << 16) | key.getMID();
+	}
+
+	/**
+	 * Spread the bits of the packed key.
+	 *
+	 * @param packed packed key
+	 * @return hash
+	 */
+	private static int hash(long packed) {
+		long hash = packed * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	private Segment segment(long packed) {
+		return segments[(hash(packed) >>> 28) & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * Segment with the generations of the indexes.
+	 *
+	 * Must be accessed synchronized on the segment.
+	 */
+	private static class Segment {
+
+		/**
+		 * Ring of generations.
+		 */
+		private final Index[] indexes;
+		/**
+		 * Index of the current generation.
+		 */
+		private int current;
+		/**
+		 * Slot of the last successful {@link #find(long, KeyMID)}.
+		 */
+		private int slot;
+
+		private Segment(int generations) {
+			indexes = new Index[generations];
+			for (int index = 0; index < generations; ++index) {
+				indexes[index] = new Index(MIN_CAPACITY);
+			}
+		}
+
+		/**
+		 * Find key, starting with the current generation.
+		 *
+		 * @param packed packed key
+		 * @param key key
+		 * @return generation of the key, or {@code -1}, if not available.
+		 *         The slot is kept for {@link #exchange(int)} and
+		 *         {@link #remove(int)}.
+		 */
+		private int find(long packed, KeyMID key) {
+			int hash = hash(packed);
+			int generation = current;
+			for (int count = 0; count < indexes.length; ++count) {
+				int slot = indexes[generation].find(hash, packed, key);
+				if (slot >= 0) {
+					this.slot = slot;
+					return generation;
+				}
+				generation = generation == 0 ? indexes.length - 1 : generation - 1;
+			}
+			return -1;
+		}
+
+		private Exchange exchange(int generation) {
+			return indexes[generation].exchanges[slot];
+		}
+
+		private void remove(int generation) {
+			indexes[generation].remove(slot);
+		}
+
+		private void add(long packed, KeyMID key, Exchange exchange) {
+			indexes[current].add(hash(packed), packed, key, exchange);
+		}
+
+		/**
+		 * Clear the oldest generation and make it the current one.
+		 *
+		 * @return number of removed entries
+		 */
+		private int rotate() {
+			int next = current + 1;
+			if (next == indexes.length) {
+				next = 0;
+			}
+			int removed = indexes[next].size;
+			indexes[next].clear();
+			current = next;
+			return removed;
+		}
+	}
+
+	/**
+	 * Open-addressing index with linear probing.
+	 */
+	private static class Index {
+
+		private long[] packed;
+		private KeyMID[] keys;
+		private Exchange[] exchanges;
+		private int mask;
+		private int size;
+
+		private Index(int capacity) {
+			allocate(capacity);
+		}
+
+		private void allocate(int capacity) {
+			packed = new long[capacity];
+			keys = new KeyMID[capacity];
+			exchanges = new Exchange[capacity];
+			mask = capacity - 1;
+		}
+
+		private int find(int hash, long packed, KeyMID key) {
+			if (size == 0) {
+				return -1;
+			}
+			int slot = hash & mask;
+			while (keys[slot] != null) {
+				if (this.packed[slot] == packed && keys[slot].equals(key)) {
+					return slot;
+				}
+				slot = (slot + 1) & mask;
+			}
+			return -1;
+		}
+
+		private void add(int hash, long packed, KeyMID key, Exchange exchange) {
+			if ((size + 1) * 2 > keys.length) {
+				grow();
+			}
+			int slot = hash & mask;
+			while (keys[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+			this.packed[slot] = packed;
+			keys[slot] = key;
+			exchanges[slot] = exchange;
+			++size;
+		}
+
+		/**
+		 * Remove slot. Shifts the following entries backwards to keep the
+		 * probe sequences without tombstones.
+		 *
+		 * @param slot slot to remove
+		 */
+		private void remove(int slot) {
+			int free = slot;
+			int next = (free + 1) & mask;
+			while (keys[next] != null) {
+				int home = hash(packed[next]) & mask;
+				// move entry, if its home isn't cyclically in (free, next]
+				if (((next - home) & mask) >= ((next - free) & mask)) {
+					packed[free] = packed[next];
+					keys[free] = keys[next];
+					exchanges[free] = exchanges[next];
+					free = next;
+				}
+				next = (next + 1) & mask;
+			}
+			keys[free] = null;
+			exchanges[free] = null;
+			--size;
+		}
+
+		private void grow() {
+			long[] oldPacked = packed;
+			KeyMID[] oldKeys = keys;
+			Exchange[] oldExchanges = exchanges;
+			allocate(oldKeys.length * 2);
+			size = 0;
+			for (int index = 0; index < oldKeys.length; ++index) {
+				if (oldKeys[index] != null) {
+					add(hash(oldPacked[index]), oldPacked[index], oldKeys[index], oldExchanges[index]);
+				}
+			}
+		}
+
+		/**
+		 * Clear index. Shrinks the capacity, if the index was used only
+		 * sparsely.
+		 */
+		private void clear() {
+			int capacity = keys.length;
+			if (capacity > MIN_CAPACITY && size * 8 < capacity) {
+				int newCapacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, size * 4)));
+				allocate(newCapacity);
+			} else if (size > 0) {
+				Arrays.fill(keys, null);
+				Arrays.fill(exchanges, null);
+			}
+			size = 0;
+		}
+	}
+
+	/**
+	 * Clear the oldest generation and make it the current one.
+	 *
+	 * @return number of removed entries
+	 */
+	int rotate() {
+		int removed = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				removed += segment.rotate();
+			}
+		}
+		return removed;
+	}
+
+	private class Rotation implements Runnable {
+
+		@Override
+		public void run() {
+			try {
+				int removed = rotate();
+				LOGGER.trace("Rotation removed {} entries", removed);
+			} catch (Throwable t) {
+				LOGGER.warn("Exception in generation rotation", t);
+			}
+		}
+	}
+}
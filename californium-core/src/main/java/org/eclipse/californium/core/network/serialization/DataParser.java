@@ -23,6 +23,7 @@
  * Achim Kraus (Bosch Software Innovations GmbH) - add EndpointContext when parsing
  *                                                 RawData. 
  * Achim Kraus (Bosch Software Innovations GmbH) - expose parseOptionsAndPayload
+ * Bosch.IO GmbH                                 - add lazy options decoding
  ******************************************************************************/
 package org.eclipse.californium.core.network.serialization;
 
@@ -33,12 +34,40 @@ import org.eclipse.californium.elements.util.DatagramReader;
 import static org.eclipse.californium.core.coap.CoAP.MessageFormat.PAYLOAD_MARKER;
 
 import java.io.ByteArrayInputStream;
+import java.util.Arrays;
 
 /**
  * A base class for parsing CoAP messages from a byte array.
  */
 public abstract class DataParser {
 
+	/**
+	 * Keep options encoded and decode them on the first access.
+	 * 
+	 * @since 2.5
+	 */
+	private final boolean lazyOptions;
+
+	/**
+	 * Create parser, which decodes all options when parsing the message.
+	 */
+	public DataParser() {
+		this(false);
+	}
+
+	/**
+	 * Create parser.
+	 * 
+	 * @param lazyOptions {@code true}, to keep the options encoded and decode
+	 *            them on the first access, {@code false}, to decode all
+	 *            options when parsing the message.
+	 * @see OptionSet#addEncodedOption(byte[], int, int, int)
+	 * @since 2.5
+	 */
+	protected DataParser(boolean lazyOptions) {
+		this.lazyOptions = lazyOptions;
+	}
+
 	/**
 	 * Parses a byte array into a CoAP Message.
 	 * 
@@ -73,11 +102,11 @@ public abstract class DataParser {
 		try {
 			Message message = null;
 			if (CoAP.isRequest(header.getCode())) {
-				message = parseMessage(reader, header, new Request(CoAP.Code.valueOf(header.getCode())));
+				message = parseMessage(msg, reader, header, new Request(CoAP.Code.valueOf(header.getCode())));
 			} else if (CoAP.isResponse(header.getCode())) {
-				message = parseMessage(reader, header, new Response(CoAP.ResponseCode.valueOf(header.getCode())));
+				message = parseMessage(msg, reader, header, new Response(CoAP.ResponseCode.valueOf(header.getCode())));
 			} else if (CoAP.isEmptyMessage(header.getCode())) {
-				message = parseMessage(reader, header, new EmptyMessage(header.getType()));
+				message = parseMessage(msg, reader, header, new EmptyMessage(header.getType()));
 			}
 
 			// Set the message's bytes and return the message
@@ -92,12 +121,17 @@ public abstract class DataParser {
 		throw new CoAPMessageFormatException(errorMsg, header.getToken(), header.getMID(), header.getCode(), CoAP.Type.CON == header.getType());
 	}
 
-	private static Message parseMessage(final DatagramReader source, final MessageHeader header, final Message target) {
+	private Message parseMessage(final byte[] msg, final DatagramReader source, final MessageHeader header,
+			final Message target) {
 		target.setMID(header.getMID());
 		target.setType(header.getType());
 		target.setToken(header.getToken());
 
-		parseOptionsAndPayload(source, target);
+		if (lazyOptions) {
+			parseEncodedOptionsAndPayload(msg, msg.length - source.bitsLeft() / Byte.SIZE, target);
+		} else {
+			parseOptionsAndPayload(source, target);
+		}
 		return target;
 	}
 
@@ -205,6 +239,109 @@ public abstract class DataParser {
 		}
 	}
 
+	/**
+	 * Parse options and payload from byte array in a single pass.
+	 * 
+	 * The options are only validated and added with the offset and length of
+	 * their values to the options of the message. They are decoded on the
+	 * first access.
+	 * 
+	 * @param msg byte array with the message
+	 * @param offset offset of the options within the byte array
+	 * @param message message to set options and payload
+	 * @throws CoAPMessageFormatException if the options or payload are
+	 *             malformed
+	 * @see OptionSet#addEncodedOption(byte[], int, int, int)
+	 * @since 2.5
+	 */
+	private static void parseEncodedOptionsAndPayload(final byte[] msg, int offset, final Message message) {
+		OptionSet options = message.getOptions();
+		int currentOptionNumber = 0;
+		int end = msg.length;
+
+		while (offset < end) {
+			byte nextByte = msg[offset++];
+			if (nextByte == PAYLOAD_MARKER) {
+				// the presence of a marker followed by a zero-length payload must be processed as a message format error
+				if (offset == end) {
+					throw new CoAPMessageFormatException(
+							"Found payload marker (0xFF) but message contains no payload",
+							message.getToken(), message.getMID(), message.getRawCode(), message.isConfirmable());
+				}
+				// get payload
+				if (!message.isIntendedPayload()) {
+					message.setUnintendedPayload();
+				}
+				message.setPayload(Arrays.copyOfRange(msg, offset, end));
+				return;
+			}
+			// the first 4 bits of the byte represent the option delta
+			int optionDelta = (0xF0 & nextByte) >> 4;
+			// the second 4 bits represent the option length
+			int optionLength = 0x0F & nextByte;
+			if (optionDelta == 13) {
+				optionDelta = readExtendedValue(msg, offset, 1, message) + 13;
+				offset += 1;
+			} else if (optionDelta == 14) {
+				optionDelta = readExtendedValue(msg, offset, 2, message) + 269;
+				offset += 2;
+			} else if (optionDelta == 15) {
+				throw new CoAPMessageFormatException(
+						"Message contains illegal option delta/length: " + optionDelta,
+						message.getToken(), message.getMID(), message.getRawCode(), message.isConfirmable());
+			}
+			if (optionLength == 13) {
+				optionLength = readExtendedValue(msg, offset, 1, message) + 13;
+				offset += 1;
+			} else if (optionLength == 14) {
+				optionLength = readExtendedValue(msg, offset, 2, message) + 269;
+				offset += 2;
+			} else if (optionLength == 15) {
+				throw new CoAPMessageFormatException(
+						"Message contains illegal option delta/length: " + optionLength,
+						message.getToken(), message.getMID(), message.getRawCode(), message.isConfirmable());
+			}
+			currentOptionNumber += optionDelta;
+			if (end - offset < optionLength) {
+				String msgText = String.format(
+						"Message contains option of length %d with only fewer bytes left in the message",
+						optionLength);
+				throw new CoAPMessageFormatException(msgText, message.getToken(), message.getMID(), message.getRawCode(), message.isConfirmable());
+			}
+			try {
+				options.addEncodedOption(msg, currentOptionNumber, offset, optionLength);
+			} catch (IllegalArgumentException ex) {
+				throw new CoAPMessageFormatException(ex.getMessage(), message.getToken(), message.getMID(), message.getRawCode(), message.isConfirmable());
+			}
+			offset += optionLength;
+		}
+		message.setPayload((String) null);
+	}
+
+	/**
+	 * Read extended option delta or length.
+	 * 
+	 * @param msg byte array with the message
+	 * @param offset offset of the extended value
+	 * @param length number of bytes of the extended value, 1 or 2.
+	 * @param message message for error details
+	 * @return extended value
+	 * @throws CoAPMessageFormatException if the message is too short
+	 * @since 2.5
+	 */
+	private static int readExtendedValue(final byte[] msg, final int offset, final int length, final Message message) {
+		if (msg.length - offset < length) {
+			throw new CoAPMessageFormatException(
+					"Message contains option with missing extended delta/length",
+					message.getToken(), message.getMID(), message.getRawCode(), message.isConfirmable());
+		}
+		if (length == 1) {
+			return msg[offset] & 0xFF;
+		} else {
+			return ((msg[offset] & 0xFF) << 8) | (msg[offset + 1] & 0xFF);
+		}
+	}
+
 	/**
 	 * Calculates the next option number based on the current option number and the option delta as specified in
 	 * RFC 7252, Section 3.1
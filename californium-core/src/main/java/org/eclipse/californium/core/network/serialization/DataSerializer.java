@@ -26,6 +26,8 @@
  *                                                 for RawData
  * Achim Kraus (Bosch Software Innovations GmbH) - expose serializeOptionsAndPayload
  *                                                 and adapt parameters
+ * Bosch.IO GmbH                                 - serialize into single
+ *                                                 pre-sized buffer
  ******************************************************************************/
 package org.eclipse.californium.core.network.serialization;
 
@@ -37,11 +39,21 @@ import org.eclipse.californium.elements.util.DatagramWriter;
 
 import static org.eclipse.californium.core.coap.CoAP.MessageFormat.*;
 
+import java.util.List;
+
 /**
  * Serializes messages into wire format.
  */
 public abstract class DataSerializer {
 
+	/**
+	 * Maximum size of the header without token. The TCP header requires up to
+	 * 6 bytes, the UDP header 4.
+	 * 
+	 * @since 2.5
+	 */
+	private static final int MAX_HEADER_SIZE = 6;
+
 	/**
 	 * Serializes a message to the wire format.
 	 * <p>
@@ -58,7 +70,7 @@ public abstract class DataSerializer {
 		if (message == null) {
 			throw new NullPointerException("message must not be null!");
 		}
-		DatagramWriter messageWriter = new DatagramWriter();
+		DatagramWriter messageWriter;
 		if (message.getRawCode() == 0) {
 			// simple serialization for empty message.
 			// https://tools.ietf.org/html/rfc7252#section-4.1
@@ -71,19 +83,23 @@ public abstract class DataSerializer {
 			}
 			MessageHeader header = new MessageHeader(CoAP.VERSION, message.getType(), message.getToken(), 0,
 					message.getMID(), 0);
+			messageWriter = new DatagramWriter(MAX_HEADER_SIZE);
 			serializeHeader(messageWriter, header);
 			messageWriter.writeCurrentByte();
 		} else {
-			DatagramWriter optionsAndPayloadWriter = new DatagramWriter();
-			serializeOptionsAndPayload(optionsAndPayloadWriter, message.getOptions(), message.getPayload());
-			optionsAndPayloadWriter.writeCurrentByte();
+			// calculate the size in advance to write
+			// header, options, and payload into a single buffer
+			List<Option> options = message.getOptions().asSortedList();
+			byte[] payload = message.getPayload();
+			int size = getOptionsAndPayloadSize(options, payload);
 
 			MessageHeader header = new MessageHeader(CoAP.VERSION, message.getType(), message.getToken(),
-					message.getRawCode(), message.getMID(), optionsAndPayloadWriter.size());
+					message.getRawCode(), message.getMID(), size);
 
+			messageWriter = new DatagramWriter(MAX_HEADER_SIZE + message.getToken().length() + size);
 			serializeHeader(messageWriter, header);
 			messageWriter.writeCurrentByte();
-			messageWriter.write(optionsAndPayloadWriter);
+			serializeOptionsAndPayload(messageWriter, options, payload);
 		}
 		return messageWriter.toByteArray();
 	}
@@ -224,9 +240,49 @@ public abstract class DataSerializer {
 		if (optionSet == null) {
 			throw new NullPointerException("option-set must not be null!");
 		}
-		
+		serializeOptionsAndPayload(writer, optionSet.asSortedList(), payload);
+	}
+
+	/**
+	 * Calculate the size of the serialized options and payload.
+	 * 
+	 * @param options sorted list of options
+	 * @param payload payload. Maybe {@code null} for no payload.
+	 * @return size of the serialized options and payload in bytes
+	 * @throws IllegalArgumentException if an option delta or length is not
+	 *             supported.
+	 * @since 2.5
+	 */
+	private static int getOptionsAndPayloadSize(final List<Option> options, final byte[] payload) {
+		int size = 0;
+		int lastOptionNumber = 0;
+		for (Option option : options) {
+			int optionNumber = option.getNumber();
+			int optionLength = option.getLength();
+			size += 1 + getExtendedSize(optionNumber - lastOptionNumber) + getExtendedSize(optionLength)
+					+ optionLength;
+			lastOptionNumber = optionNumber;
+		}
+		if (payload != null && payload.length > 0) {
+			size += 1 + payload.length;
+		}
+		return size;
+	}
+
+	/**
+	 * Serialize sorted options and payload. Append the serialized options and
+	 * payload to the writer.
+	 * 
+	 * @param writer writer to append the data
+	 * @param options sorted list of options to be serialized
+	 * @param payload payload to be serialized. Maybe {@code null} for no
+	 *            payload.
+	 * @since 2.5
+	 */
+	private static void serializeOptionsAndPayload(DatagramWriter writer, final List<Option> options,
+			final byte[] payload) {
 		int lastOptionNumber = 0;
-		for (Option option : optionSet.asSortedList()) {
+		for (Option option : options) {
 			byte[] value = option.getValue();
 
 			// write 4-bit option delta
@@ -270,6 +326,25 @@ public abstract class DataSerializer {
 		}
 	}
 
+	/**
+	 * Returns the size of the extended option delta or length field.
+	 *
+	 * @param optionValue the option value (delta or length) to be encoded.
+	 * @return the size of the extended field in bytes (0 - 2).
+	 * @throws IllegalArgumentException if the option value is &gt; 65535 + 269.
+	 * @since 2.5
+	 */
+	private static int getExtendedSize(final int optionValue) {
+		int nibble = getOptionNibble(optionValue);
+		if (nibble == 13) {
+			return 1;
+		} else if (nibble == 14) {
+			return 2;
+		} else {
+			return 0;
+		}
+	}
+
 	/**
 	 * Returns the 4-bit option header value.
 	 *
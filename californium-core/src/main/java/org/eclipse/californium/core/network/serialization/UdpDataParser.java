@@ -35,6 +35,25 @@ import static org.eclipse.californium.core.coap.CoAP.MessageFormat.*;
  */
 public final class UdpDataParser extends DataParser {
 
+	/**
+	 * Create parser, which decodes all options when parsing the message.
+	 */
+	public UdpDataParser() {
+		super();
+	}
+
+	/**
+	 * Create parser.
+	 * 
+	 * @param lazyOptions {@code true}, to keep the options encoded and decode
+	 *            them on the first access, {@code false}, to decode all
+	 *            options when parsing the message.
+	 * @since 2.5
+	 */
+	public UdpDataParser(boolean lazyOptions) {
+		super(lazyOptions);
+	}
+
 	@Override
 	protected MessageHeader parseHeader(final DatagramReader reader) {
 		if (!reader.bytesAvailable(4)) {
@@ -24,6 +24,8 @@
  * Achim Kraus (Bosch Software Innovations GmbH) - support multicast,
  *                                                 move multicast exchange complete
  *                                                 to MulticastCleanupMessageObserver
+ * Bosch.IO GmbH                                 - pass body consumer provider
+ *                                                 to BlockwiseLayer
  ******************************************************************************/
 package org.eclipse.californium.core.network.stack;
 
@@ -33,6 +35,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.eclipse.californium.core.coap.BlockOption;
+import org.eclipse.californium.core.coap.BlockwiseBodyConsumer;
 import org.eclipse.californium.core.coap.EmptyMessage;
 import org.eclipse.californium.core.coap.Request;
 import org.eclipse.californium.core.coap.Response;
@@ -159,6 +162,15 @@ public abstract class BaseCoapStack implements CoapStack {
 	@Override
 	public final void setDeliverer(final MessageDeliverer deliverer) {
 		this.deliverer = deliverer;
+		BlockwiseBodyConsumer.Provider provider = null;
+		if (deliverer instanceof BlockwiseBodyConsumer.Provider) {
+			provider = (BlockwiseBodyConsumer.Provider) deliverer;
+		}
+		for (Layer layer : layers) {
+			if (layer instanceof BlockwiseLayer) {
+				((BlockwiseLayer) layer).setBodyConsumerProvider(provider);
+			}
+		}
 	}
 
 	@Override
@@ -14,10 +14,13 @@
  *    Bosch Software Innovations - initial creation
  *    Achim Kraus (Bosch Software Innovations GmbH) - use EndpointContext
  *    Achim Kraus (Bosch Software Innovations GmbH) - replace byte array token by Token
+ *    Bosch.IO GmbH                                 - add body consumer for
+ *                                                    streamed transfers
  ******************************************************************************/
 package org.eclipse.californium.core.network.stack;
 
 import org.eclipse.californium.core.coap.BlockOption;
+import org.eclipse.californium.core.coap.BlockwiseBodyConsumer;
 import org.eclipse.californium.core.coap.OptionSet;
 import org.eclipse.californium.core.coap.Request;
 import org.eclipse.californium.core.coap.Response;
@@ -35,6 +38,10 @@ public final class Block1BlockwiseStatus extends BlockwiseStatus {
 		super(bufferSize, contentFormat);
 	}
 
+	private Block1BlockwiseStatus(final BlockwiseBodyConsumer consumer, final int contentFormat) {
+		super(consumer, contentFormat);
+	}
+
 	/**
 	 * Creates a new tracker for sending a request body.
 	 * 
@@ -71,6 +78,26 @@ public final class Block1BlockwiseStatus extends BlockwiseStatus {
 		return status;
 	}
 
+	/**
+	 * Creates a new tracker for receiving a request body, which passes the
+	 * blocks to a consumer instead of buffering them.
+	 * 
+	 * @param exchange The message exchange the transfer is part of.
+	 * @param block The block of the request body.
+	 * @param consumer The consumer of the request body.
+	 * @return The tracker.
+	 * @throws NullPointerException if consumer is {@code null}
+	 * @since 2.5
+	 */
+	public static Block1BlockwiseStatus forInboundRequest(final Exchange exchange, final Request block,
+			final BlockwiseBodyConsumer consumer) {
+		int contentFormat = block.getOptions().getContentFormat();
+		Block1BlockwiseStatus status = new Block1BlockwiseStatus(consumer, contentFormat);
+		status.exchange = exchange;
+		status.setFirst(block);
+		return status;
+	}
+
 	/**
 	 * Gets a request or sending the next block of the body.
 	 * <p>
@@ -23,15 +23,21 @@
  *    Bosch Software Innovations GmbH - migrate to SLF4J
  *    Achim Kraus (Bosch Software Innovations GmbH) - remove "is last", not longer meaningful
  *    Achim Kraus (Bosch Software Innovations GmbH) - fix openjdk-11 covariant return types
+ *    Bosch.IO GmbH                                 - read blocks from body source
  ******************************************************************************/
 package org.eclipse.californium.core.network.stack;
 
+import java.io.EOFException;
+import java.io.IOException;
 import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.eclipse.californium.core.coap.BlockOption;
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
 import org.eclipse.californium.core.coap.MessageObserverAdapter;
 import org.eclipse.californium.core.coap.OptionSet;
 import org.eclipse.californium.core.coap.Request;
@@ -61,6 +67,19 @@ public final class Block2BlockwiseStatus extends BlockwiseStatus {
 	 */
 	private Response response;
 	private byte[] etag;
+	/**
+	 * Source of the body of the response. {@code null}, if the body is
+	 * buffered.
+	 * 
+	 * @since 2.5
+	 */
+	private FileChannel source;
+	/**
+	 * Size of the body source.
+	 * 
+	 * @since 2.5
+	 */
+	private int sourceSize;
 
 	private Block2BlockwiseStatus(final int bufferSize, final int contentFormat) {
 		super(bufferSize, contentFormat);
@@ -77,10 +96,17 @@ public final class Block2BlockwiseStatus extends BlockwiseStatus {
 	 * @return The tracker.
 	 */
 	public static Block2BlockwiseStatus forOutboundResponse(final Exchange exchange, final Response response, final int preferredBlockSize) {
-		Block2BlockwiseStatus status = new Block2BlockwiseStatus(response.getPayloadSize(), response.getOptions().getContentFormat());
+		int bodySize = response.getBodySize();
+		FileChannel source = takeBodySource(response);
+		int bufferSize = source == null ? bodySize : 0;
+		Block2BlockwiseStatus status = new Block2BlockwiseStatus(bufferSize, response.getOptions().getContentFormat());
 		status.response = response;
 		status.exchange = exchange;
-		if (response.getPayload() != null) {
+		if (source != null) {
+			// read the blocks on demand from the source
+			status.source = source;
+			status.sourceSize = bodySize;
+		} else if (response.getPayload() != null) {
 			status.buf.put(response.getPayload());
 			((Buffer)status.buf).flip();
 		}
@@ -286,9 +312,39 @@ public final class Block2BlockwiseStatus extends BlockwiseStatus {
 			throw new IllegalStateException("no response to track");
 		}
 
-		final Response block = new Response(response.getCode());
+		int bodySize = source != null ? sourceSize : getBufferSize();
+		int currentSize = BlockOption.szx2Size(getCurrentSzx());
+		int from = getCurrentNum() * currentSize;
+		boolean m = false;
+		boolean error = false;
+		byte[] blockPayload = null;
+
+		if (0 < bodySize && from < bodySize) {
+			int to = Math.min((getCurrentNum() + 1) * currentSize, bodySize);
+			int length = to - from;
+			m = to < bodySize;
+
+			if (source != null) {
+				try {
+					blockPayload = readBlock(source, from, length);
+				} catch (IOException ex) {
+					LOGGER.warn("reading block {} from body source failed!", getCurrentNum(), ex);
+					error = true;
+					m = false;
+				}
+			} else {
+				blockPayload = new byte[length];
+				// crop payload -- do after calculation of m in case block==response
+				((Buffer)buf).position(from);
+				buf.get(blockPayload, 0, length);
+			}
+		}
+
+		final Response block = new Response(error ? ResponseCode.INTERNAL_SERVER_ERROR : response.getCode());
 		block.setDestinationContext(response.getDestinationContext());
-		block.setOptions(new OptionSet(response.getOptions()));
+		if (!error) {
+			block.setOptions(new OptionSet(response.getOptions()));
+		}
 		block.setMaxResourceBodySize(response.getMaxResourceBodySize());
 		block.addMessageObservers(response.getMessageObservers());
 		if (getCurrentNum() != 0) {
@@ -313,34 +369,39 @@ public final class Block2BlockwiseStatus extends BlockwiseStatus {
 				}
 			});
 			block.setType(response.getType());
-			if (response.getOptions().getSize2() == null) {
+			if (!error && response.getOptions().getSize2() == null) {
 				// indicate overall size to peer
-				block.getOptions().setSize2(response.getPayloadSize());
+				block.getOptions().setSize2(bodySize);
 			}
 		}
 
-		int bodySize = getBufferSize();
-		int currentSize = BlockOption.szx2Size(getCurrentSzx());
-		int from = getCurrentNum() * currentSize;
-		boolean m = false;
-
-		if (0 < bodySize && from < bodySize) {
-			int to = Math.min((getCurrentNum() + 1) * currentSize, bodySize);
-			int length = to - from;
-			byte[] blockPayload = new byte[length];
-			m = to < bodySize;
-
-			// crop payload -- do after calculation of m in case block==response
-			((Buffer)buf).position(from);
-			buf.get(blockPayload, 0, length);
+		if (blockPayload != null) {
 			block.setPayload(blockPayload);
 		}
 		setComplete(!m);
 
-		block.getOptions().setBlock2(getCurrentSzx(), m, getCurrentNum());
+		if (!error) {
+			block.getOptions().setBlock2(getCurrentSzx(), m, getCurrentNum());
+		}
 		return block;
 	}
 
+	/**
+	 * Closes the body source.
+	 * 
+	 * @since 2.5
+	 */
+	@Override
+	protected void release() {
+		FileChannel source;
+		synchronized (this) {
+			source = this.source;
+			this.source = null;
+		}
+		closeBodySource(source);
+		super.release();
+	}
+
 	/**
 	 * Complete transfer. If the blockwise transfer is based on the same
 	 * exchange then the new response, just complete the current request and
@@ -436,6 +497,9 @@ public final class Block2BlockwiseStatus extends BlockwiseStatus {
 	 * @throws IllegalArgumentException if the response does not contain the block. Clients
 	 *            can check whether a message contains a particular block using the
 	 *            {@link Response#hasBlock(BlockOption)} method.
+	 * @throws IllegalStateException if reading the block from the body source
+	 *             of the response fails (since 2.5). The body source is closed
+	 *             in any case.
 	 */
 	public static final void crop(final Response responseToCrop, final BlockOption requestedBlock) {
 
@@ -447,20 +511,115 @@ public final class Block2BlockwiseStatus extends BlockwiseStatus {
 			throw new IllegalArgumentException("given response does not contain block");
 		} else {
 
-			int bodySize = responseToCrop.getPayloadSize();
+			int bodySize = responseToCrop.getBodySize();
 			int from = requestedBlock.getOffset();
 			int to = Math.min((requestedBlock.getNum() + 1) * requestedBlock.getSize(), bodySize);
 			int length = to - from;
 
 			LOGGER.debug("cropping response body [size={}] to block {}", bodySize, requestedBlock);
 
-			byte[] blockPayload = new byte[length];
+			byte[] blockPayload;
 			boolean m = to < bodySize;
 			responseToCrop.getOptions().setBlock2(requestedBlock.getSzx(), m, requestedBlock.getNum());
 
-			// crop payload -- do after calculation of m in case block==response
-			System.arraycopy(responseToCrop.getPayload(), from, blockPayload, 0, length);
+			FileChannel source = responseToCrop.getBodySource();
+			if (source != null) {
+				try {
+					blockPayload = readBlock(source, from, length);
+				} catch (IOException ex) {
+					throw new IllegalStateException("reading body source failed!", ex);
+				} finally {
+					releaseBodySource(responseToCrop);
+				}
+			} else {
+				blockPayload = new byte[length];
+				// crop payload -- do after calculation of m in case block==response
+				System.arraycopy(responseToCrop.getPayload(), from, blockPayload, 0, length);
+			}
 			responseToCrop.setPayload(blockPayload);
 		}
 	}
+
+	/**
+	 * Reads the body source of the response into the payload.
+	 * <p>
+	 * Used for responses with body sources, which are sent in a single
+	 * message. The source is closed afterwards.
+	 * 
+	 * @param response The response with the body source.
+	 * @throws IOException if reading the source failed
+	 * @since 2.5
+	 */
+	static void loadBodySource(final Response response) throws IOException {
+		FileChannel source = response.getBodySource();
+		if (source != null) {
+			try {
+				response.setPayload(readBlock(source, 0, response.getBodySize()));
+			} finally {
+				releaseBodySource(response);
+			}
+		}
+	}
+
+	/**
+	 * Closes and removes the body source of the response.
+	 * 
+	 * @param response The response with the body source.
+	 * @since 2.5
+	 */
+	static void releaseBodySource(final Response response) {
+		closeBodySource(takeBodySource(response));
+	}
+
+	/**
+	 * Takes the body source of the response.
+	 * 
+	 * @param response The response with the body source.
+	 * @return The body source, or {@code null}, if the response doesn't have
+	 *         one.
+	 * @since 2.5
+	 */
+	private static FileChannel takeBodySource(final Response response) {
+		FileChannel source = response.getBodySource();
+		if (source != null) {
+			try {
+				response.setBodySource(null);
+			} catch (IOException e) {
+				// not thrown for null
+			}
+		}
+		return source;
+	}
+
+	/**
+	 * Reads a block from the body source.
+	 * 
+	 * @param source The body source.
+	 * @param from The offset of the block.
+	 * @param length The length of the block.
+	 * @return The block.
+	 * @throws IOException if reading failed or the end of the source is
+	 *             reached before.
+	 * @since 2.5
+	 */
+	private static byte[] readBlock(final FileChannel source, final int from, final int length)
+			throws IOException {
+		ByteBuffer block = ByteBuffer.allocate(length);
+		while (block.hasRemaining()) {
+			if (source.read(block, from + block.position()) < 0) {
+				throw new EOFException("body source ends at " + (from + block.position()) + " bytes!");
+			}
+		}
+		return block.array();
+	}
+
+	private static void closeBodySource(final FileChannel source) {
+		if (source != null) {
+			try {
+				source.close();
+			} catch (IOException ex) {
+				LOGGER.debug("closing body source failed!", ex);
+			}
+		}
+	}
 }
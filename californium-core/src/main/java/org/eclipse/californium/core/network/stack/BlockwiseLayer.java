@@ -59,15 +59,25 @@
  *    Achim Kraus (Bosch Software Innovations GmbH) - extract requestNextBlock from 
  *                                                    tcp_experimental_features branch
  *                                                    for easier merging in the future.
+ *    Bosch.IO GmbH                                 - add streamed transfers using
+ *                                                    body consumers and body sources
+ *    Bosch.IO GmbH                                 - track transfers in concurrent
+ *                                                    maps instead of global locks
+ *    Bosch.IO GmbH                                 - pass requests and responses with
+ *                                                    random access flag
  ******************************************************************************/
 package org.eclipse.californium.core.network.stack;
 
+import java.io.IOException;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.californium.core.coap.BlockOption;
+import org.eclipse.californium.core.coap.BlockwiseBodyConsumer;
 import org.eclipse.californium.core.coap.CoAP.ResponseCode;
 import org.eclipse.californium.core.coap.CoAP.Type;
 import org.eclipse.californium.core.coap.Message;
@@ -80,7 +90,6 @@ import org.eclipse.californium.core.coap.Token;
 import org.eclipse.californium.core.network.Exchange;
 import org.eclipse.californium.core.network.config.NetworkConfig;
 import org.eclipse.californium.core.network.config.NetworkConfigDefaults;
-import org.eclipse.californium.elements.util.LeastRecentlyUsedCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -106,6 +115,21 @@ import org.slf4j.LoggerFactory;
  * to the client that has issued the original request.</li>
  * </ul>
  * <p>
+ * Since 2.5 the bodies of the blockwise transfers of a server could also be
+ * streamed instead of buffered. If the {@link BlockwiseBodyConsumer.Provider}
+ * provides a consumer for the first block of a request, the blocks are passed
+ * to that consumer as they arrive and the request is delivered without
+ * payload. A response with a {@link Response#getBodySource()} is served by
+ * reading the requested blocks from that source.
+ * <p>
+ * Since 2.5 the transfers are tracked in concurrent maps by their
+ * {@link KeyUri}. The status of a key is created, replaced, and removed by
+ * atomic map operations, a transfer is only locked by its own status. So
+ * transfers of different peers or resources are not blocking each other. A
+ * status is removed, when the transfer is completed, fails, or times out
+ * after {@code BLOCKWISE_STATUS_LIFETIME}. At most {@code MAX_ACTIVE_PEERS}
+ * transfers are tracked for each direction.
+ * <p>
  * Block-wise transfer does not support concurrent transfer for the same
  * resource. So using <em>transparent</em> block-wise transfer with CoAP observe
  * is not really advised. When concurrent transfer is detected we always
@@ -160,8 +184,14 @@ public class BlockwiseLayer extends AbstractLayer {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(BlockwiseLayer.class);
 	private static final Logger HEALTH_LOGGER = LoggerFactory.getLogger(LOGGER.getName() + ".health");
-	private final LeastRecentlyUsedCache<KeyUri, Block1BlockwiseStatus> block1Transfers;
-	private final LeastRecentlyUsedCache<KeyUri, Block2BlockwiseStatus> block2Transfers;
+	private final ConcurrentMap<KeyUri, Block1BlockwiseStatus> block1Transfers = new ConcurrentHashMap<>();
+	private final ConcurrentMap<KeyUri, Block2BlockwiseStatus> block2Transfers = new ConcurrentHashMap<>();
+	/**
+	 * Maximum number of tracked transfers for each direction.
+	 * 
+	 * @since 2.5
+	 */
+	private final int maxTransfers;
 	private final AtomicInteger ignoredBlock2 = new AtomicInteger();
 	private volatile boolean enableStatus;
 	private ScheduledFuture<?> statusLogger;
@@ -174,6 +204,12 @@ public class BlockwiseLayer extends AbstractLayer {
 	private int healthStatusInterval;
 	/* @since 2.4 */
 	private boolean enableAutoFailoverOn413;
+	/**
+	 * Provider for consumers of streamed request bodies.
+	 * 
+	 * @since 2.5
+	 */
+	private volatile BlockwiseBodyConsumer.Provider bodyConsumerProvider;
 
 	/**
 	 * Creates a new blockwise layer for a configuration.
@@ -219,12 +255,8 @@ public class BlockwiseLayer extends AbstractLayer {
 				NetworkConfigDefaults.DEFAULT_BLOCKWISE_STATUS_LIFETIME);
 		maxResourceBodySize = config.getInt(NetworkConfig.Keys.MAX_RESOURCE_BODY_SIZE,
 				NetworkConfigDefaults.DEFAULT_MAX_RESOURCE_BODY_SIZE);
-		int maxActivePeers = config.getInt(NetworkConfig.Keys.MAX_ACTIVE_PEERS,
+		maxTransfers = config.getInt(NetworkConfig.Keys.MAX_ACTIVE_PEERS,
 				NetworkConfigDefaults.DEFAULT_MAX_ACTIVE_PEERS);
-		block1Transfers = new LeastRecentlyUsedCache<>(maxActivePeers, TimeUnit.MILLISECONDS.toSeconds(blockTimeout));
-		block1Transfers.setEvictingOnReadAccess(false);
-		block2Transfers = new LeastRecentlyUsedCache<>(maxActivePeers, TimeUnit.MILLISECONDS.toSeconds(blockTimeout));
-		block2Transfers.setEvictingOnReadAccess(false);
 		strictBlock2Option = config.getBoolean(NetworkConfig.Keys.BLOCKWISE_STRICT_BLOCK2_OPTION, NetworkConfigDefaults.DEFAULT_BLOCKWISE_STRICT_BLOCK2_OPTION);
 
 		healthStatusInterval = config.getInt(NetworkConfig.Keys.HEALTH_STATUS_INTERVAL, 60); // seconds
@@ -237,6 +269,17 @@ public class BlockwiseLayer extends AbstractLayer {
 				 maxMessageSize, preferredBlockSize, blockTimeout, maxResourceBodySize, strictBlock2Option);
 	}
 
+	/**
+	 * Set provider for consumers of streamed request bodies.
+	 * 
+	 * @param provider provider for consumers. {@code null}, to buffer all
+	 *            request bodies.
+	 * @since 2.5
+	 */
+	public void setBodyConsumerProvider(BlockwiseBodyConsumer.Provider provider) {
+		this.bodyConsumerProvider = provider;
+	}
+
 	@Override
 	public void start() {
 		if (healthStatusInterval > 0 && HEALTH_LOGGER.isDebugEnabled() && statusLogger == null) {
@@ -247,7 +290,7 @@ public class BlockwiseLayer extends AbstractLayer {
 					if (enableStatus) {
 						{
 							HEALTH_LOGGER.debug("{} block1 transfers", block1Transfers.size());
-							Iterator<Block1BlockwiseStatus> iterator = block1Transfers.valuesIterator();
+							Iterator<Block1BlockwiseStatus> iterator = block1Transfers.values().iterator();
 							int max = 5;
 							while (iterator.hasNext()) {
 								HEALTH_LOGGER.debug("   block1 {}", iterator.next());
@@ -259,7 +302,7 @@ public class BlockwiseLayer extends AbstractLayer {
 						}
 						{
 							HEALTH_LOGGER.debug("{} block2 transfers", block2Transfers.size());
-							Iterator<Block2BlockwiseStatus> iterator = block2Transfers.valuesIterator();
+							Iterator<Block2BlockwiseStatus> iterator = block2Transfers.values().iterator();
 							int max = 5;
 							while (iterator.hasNext()) {
 								HEALTH_LOGGER.debug("   block2 {}", iterator.next());
@@ -289,7 +332,7 @@ public class BlockwiseLayer extends AbstractLayer {
 
 		Request requestToSend = request;
 
-		if (isTransparentBlockwiseHandlingEnabled() && !request.isMulticast()) {
+		if (isTransparentBlockwiseHandlingEnabled() && !request.isMulticast() && !request.isRandomAccess()) {
 
 			BlockOption block2 = request.getOptions().getBlock2();
 			if (block2 != null && block2.getNum() > 0) {
@@ -337,45 +380,44 @@ public class BlockwiseLayer extends AbstractLayer {
 
 		final KeyUri key = getKey(exchange, request);
 
-		synchronized (block1Transfers) {
-
-			Block1BlockwiseStatus status = getBlock1Status(key);
-			if (status != null) {
-				// there already is a block1 transfer going on to the resource
-				// cancel the original request and start over with a new tracker
-				status.cancelRequest();
-				clearBlock1Status(key, status);
-			}
-			status = getOutboundBlock1Status(key, exchange, request, blocksize);
-
-			final Request block = status.getNextRequestBlock();
-			block.setDestinationContext(request.getDestinationContext());
-			Token token = request.getToken();
-			if (token != null) {
-				block.setToken(token);
-			}
-			block.addMessageObserver(new MessageObserverAdapter() {
+		Block1BlockwiseStatus status = Block1BlockwiseStatus.forOutboundRequest(exchange, request, blocksize);
+		Block1BlockwiseStatus previousStatus = replaceBlock1Status(key, status);
+		if (previousStatus != null) {
+			// there already is a block1 transfer going on to the resource
+			// cancel the original request and start over with a new tracker
+			previousStatus.cancelRequest();
+			previousStatus.setComplete(true);
+		}
+		LOGGER.debug("created tracker for outbound block1 transfer {}, transfers in progress: {}", status,
+				block1Transfers.size());
+
+		final Request block = status.getNextRequestBlock();
+		block.setDestinationContext(request.getDestinationContext());
+		Token token = request.getToken();
+		if (token != null) {
+			block.setToken(token);
+		}
+		block.addMessageObserver(new MessageObserverAdapter() {
 
-				@Override
-				public void onReadyToSend() {
-					// when the request for transferring the first block
-					// has been sent out, we copy the token to the
-					// original request so that at the end of the
-					// blockwise transfer the Matcher can correctly
-					// close the overall exchange
-					if (request.getToken() == null) {
-						request.setToken(block.getToken());
-					}
-					if (!request.hasMID()) {
-						request.setMID(block.getMID());
-					}
+			@Override
+			public void onReadyToSend() {
+				// when the request for transferring the first block
+				// has been sent out, we copy the token to the
+				// original request so that at the end of the
+				// blockwise transfer the Matcher can correctly
+				// close the overall exchange
+				if (request.getToken() == null) {
+					request.setToken(block.getToken());
+				}
+				if (!request.hasMID()) {
+					request.setMID(block.getMID());
 				}
-			});
+			}
+		});
 
-			addBlock1CleanUpObserver(block, key, status);
-			prepareBlock1Cleanup(status, key);
-			return block;
-		}
+		addBlock1CleanUpObserver(block, key, status);
+		prepareBlock1Cleanup(status, key);
+		return block;
 	}
 
 	@Override
@@ -422,7 +464,19 @@ public class BlockwiseLayer extends AbstractLayer {
 
 	private void handleInboundBlockwiseUpload(final Exchange exchange, final Request request) {
 
-		if (requestExceedsMaxBodySize(request)) {
+		BlockOption block1 = request.getOptions().getBlock1();
+		KeyUri key = getKey(exchange, request);
+		BlockwiseBodyConsumer consumer = null;
+		boolean streamed;
+		if (block1.getNum() == 0) {
+			consumer = getBodyConsumer(exchange);
+			streamed = consumer != null;
+		} else {
+			Block1BlockwiseStatus status = getBlock1Status(key);
+			streamed = status != null && status.hasBodyConsumer();
+		}
+
+		if (!streamed && requestExceedsMaxBodySize(request)) {
 			int maxResourceBodySize = getMaxResourceBodySize(request);
 			Response error = Response.createResponse(request, ResponseCode.REQUEST_ENTITY_TOO_LARGE);
 			error.setPayload(String.format("body too large, can process %d bytes max", maxResourceBodySize));
@@ -432,13 +486,16 @@ public class BlockwiseLayer extends AbstractLayer {
 
 		} else {
 
-			BlockOption block1 = request.getOptions().getBlock1();
 			LOGGER.debug("inbound request contains block1 option {}", block1);
-			KeyUri key = getKey(exchange, request);
-			Block1BlockwiseStatus status = getInboundBlock1Status(key, exchange, request);
-
-			if (block1.getNum() == 0 && status.getCurrentNum() > 0) {
-				status = resetInboundBlock1Status(key, exchange, request);
+			Block1BlockwiseStatus status;
+			if (consumer != null) {
+				// a streamed transfer always starts a new transfer
+				status = resetInboundBlock1Status(key, exchange, request, consumer);
+			} else {
+				status = getInboundBlock1Status(key, exchange, request);
+				if (block1.getNum() == 0 && status.getCurrentNum() > 0) {
+					status = resetInboundBlock1Status(key, exchange, request, null);
+				}
 			}
 
 			if (block1.getNum() != status.getCurrentNum()) {
@@ -457,8 +514,13 @@ public class BlockwiseLayer extends AbstractLayer {
 
 			} else if (!status.addBlock(request.getPayload())) {
 
-				sendBlock1ErrorResponse(key, status, exchange, request, ResponseCode.REQUEST_ENTITY_TOO_LARGE,
-						"body exceeded expected size " + status.getBufferSize());
+				if (status.hasBodyConsumer()) {
+					sendBlock1ErrorResponse(key, status, exchange, request, ResponseCode.INTERNAL_SERVER_ERROR,
+							"body could not be consumed");
+				} else {
+					sendBlock1ErrorResponse(key, status, exchange, request, ResponseCode.REQUEST_ENTITY_TOO_LARGE,
+							"body exceeded expected size " + status.getBufferSize());
+				}
 
 			} else {
 
@@ -485,6 +547,7 @@ public class BlockwiseLayer extends AbstractLayer {
 					// Assemble and deliver
 					Request assembled = new Request(request.getCode());
 					status.assembleReceivedMessage(assembled);
+					assembled.setBodyConsumer(status.takeBodyConsumer());
 
 					// make sure we deliver the request using the MID and token of the latest request
 					// so that the response created by the application layer can reply to his 
@@ -582,7 +645,12 @@ public class BlockwiseLayer extends AbstractLayer {
 					// the resource implementation does not support blockwise retrieval
 					// but instead has responded with the full response body
 					// crop the response down to the requested block
-					Block2BlockwiseStatus.crop(responseToSend, requestBlock2);
+					try {
+						Block2BlockwiseStatus.crop(responseToSend, requestBlock2);
+					} catch (IllegalStateException ex) {
+						LOGGER.warn("resource [{}] body source failed!", exchange.getRequest().getURI(), ex);
+						responseToSend = createErrorResponse(exchange, response, ResponseCode.INTERNAL_SERVER_ERROR);
+					}
 
 				} else {
 
@@ -615,6 +683,20 @@ public class BlockwiseLayer extends AbstractLayer {
 			}
 		}
 
+		if (response.getBodySource() != null) {
+			if (responseToSend == response) {
+				// body fits into a single message
+				try {
+					Block2BlockwiseStatus.loadBodySource(response);
+				} catch (IOException ex) {
+					LOGGER.warn("resource [{}] body source failed!", exchange.getRequest().getURI(), ex);
+					responseToSend = createErrorResponse(exchange, response, ResponseCode.INTERNAL_SERVER_ERROR);
+				}
+			} else {
+				Block2BlockwiseStatus.releaseBodySource(response);
+			}
+		}
+
 		exchange.setCurrentResponse(responseToSend);
 		lower().sendResponse(exchange, responseToSend);
 	}
@@ -637,7 +719,8 @@ public class BlockwiseLayer extends AbstractLayer {
 	@Override
 	public void receiveResponse(final Exchange exchange, final Response response) {
 
-		if (isTransparentBlockwiseHandlingEnabled() && !exchange.getRequest().isMulticast()) {
+		if (isTransparentBlockwiseHandlingEnabled() && !exchange.getRequest().isMulticast()
+				&& !exchange.getRequest().isRandomAccess()) {
 			if (response.isError()) {
 				// handle blockwise specific error codes
 				switch(response.getCode()) {
@@ -728,39 +811,41 @@ public class BlockwiseLayer extends AbstractLayer {
 				BlockOption block1 = response.getOptions().getBlock1();
 				final KeyUri key = getKey(exchange, exchange.getRequest());
 
-				synchronized (block1Transfers) {
-					Block1BlockwiseStatus status = getBlock1Status(key);
-					if (status == null) {
-						// We sent a request without using block1 and
-						// server give us hint it want it with block1
-						Request request = exchange.getRequest();
-						if (!exchange.getRequest().isCanceled() && block1.getNum() == 0
-								&& block1.getSize() < request.getPayloadSize()) {
-							// Start block1 transfer
-							Request blockRequest = startBlockwiseUpload(exchange, request,
-									Math.min(block1.getSize(), preferredBlockSize));
-							exchange.setCurrentRequest(blockRequest);
-							lower().sendRequest(exchange, blockRequest);
-							return true;
-						}
-					} else if (!status.hasMatchingToken(response)) {
-						// a concurrent block1 transfer has been started in
-						// the meantime which has "overwritten" the status
-						// object with the new (concurrent) request to we simply
-						// discard the response
-						LOGGER.debug("discarding obsolete block1 response: {}", response);
-						return true;
-					} else if (exchange.getRequest().isCanceled()) {
-						clearBlock1Status(key, status);
+				Block1BlockwiseStatus status = getBlock1Status(key);
+				if (status == null) {
+					// We sent a request without using block1 and
+					// server give us hint it want it with block1
+					Request request = exchange.getRequest();
+					if (!exchange.getRequest().isCanceled() && block1.getNum() == 0
+							&& block1.getSize() < request.getPayloadSize()) {
+						// Start block1 transfer
+						Request blockRequest = startBlockwiseUpload(exchange, request,
+								Math.min(block1.getSize(), preferredBlockSize));
+						exchange.setCurrentRequest(blockRequest);
+						lower().sendRequest(exchange, blockRequest);
 						return true;
-					} else {
-						// we handle only Entity Too Large
-						// at begin of the transfer and
-						// if blocksize requested is smaller
-						if (status.getCurrentNum() == 0 && block1.getSize() < status.getCurrentSize()) {
-							// re-send first block with smaller size
-							sendBlock(exchange, response, key, status, 0, block1.getSzx());
+					}
+				} else {
+					synchronized (status) {
+						if (!status.hasMatchingToken(response)) {
+							// a concurrent block1 transfer has been started in
+							// the meantime which has "overwritten" the status
+							// object with the new (concurrent) request to we simply
+							// discard the response
+							LOGGER.debug("discarding obsolete block1 response: {}", response);
 							return true;
+						} else if (exchange.getRequest().isCanceled()) {
+							clearBlock1Status(key, status);
+							return true;
+						} else {
+							// we handle only Entity Too Large
+							// at begin of the transfer and
+							// if blocksize requested is smaller
+							if (status.getCurrentNum() == 0 && block1.getSize() < status.getCurrentSize()) {
+								// re-send first block with smaller size
+								sendBlock(exchange, response, key, status, 0, block1.getSzx());
+								return true;
+							}
 						}
 					}
 				}
@@ -807,16 +892,17 @@ public class BlockwiseLayer extends AbstractLayer {
 		// Block1 transfer has been originally created for an outbound request
 		final KeyUri key = getKey(exchange, exchange.getRequest());
 
-		synchronized (block1Transfers) {
-
-			Block1BlockwiseStatus status = getBlock1Status(key);
+		Block1BlockwiseStatus status = getBlock1Status(key);
 
-			if (status == null) {
+		if (status == null) {
 
-				// request has not been sent blockwise
-				LOGGER.debug("discarding unexpected block1 response: {}", response);
+			// request has not been sent blockwise
+			LOGGER.debug("discarding unexpected block1 response: {}", response);
+			return;
+		}
 
-			} else if (!status.hasMatchingToken(response)) {
+		synchronized (status) {
+			if (!status.hasMatchingToken(response)) {
 
 				// a concurrent block1 transfer has been started in the meantime
 				// which has "overwritten" the status object with the new (concurrent) request
@@ -1001,14 +1087,11 @@ public class BlockwiseLayer extends AbstractLayer {
 			exchange.getRequest().cancel();
 
 		} else {
-			Block2BlockwiseStatus status;
-			synchronized (block2Transfers) {
-				status = getBlock2Status(key);
-				if (discardBlock2(key, status, exchange, response)) {
-					return;
-				}
-				status = getInboundBlock2Status(key, exchange, response);
+			Block2BlockwiseStatus status = getBlock2Status(key);
+			if (discardBlock2(key, status, exchange, response)) {
+				return;
 			}
+			status = getInboundBlock2Status(key, exchange, response);
 			if (block2.getNum() == status.getCurrentNum()) {
 
 				// We got the block we expected :-)
@@ -1141,6 +1224,27 @@ public class BlockwiseLayer extends AbstractLayer {
 
 	/////////// HELPER METHODS //////////
 
+	private static Response createErrorResponse(final Exchange exchange, final Response response,
+			final ResponseCode code) {
+		Response error = Response.createResponse(exchange.getRequest(), code);
+		error.setType(response.getType());
+		error.setMID(response.getMID());
+		error.addMessageObservers(response.getMessageObservers());
+		return error;
+	}
+
+	private BlockwiseBodyConsumer getBodyConsumer(final Exchange exchange) {
+		BlockwiseBodyConsumer.Provider provider = bodyConsumerProvider;
+		if (provider != null) {
+			try {
+				return provider.getBodyConsumer(exchange);
+			} catch (RuntimeException ex) {
+				LOGGER.warn("body consumer provider failed!", ex);
+			}
+		}
+		return null;
+	}
+
 	private static KeyUri getKey(final Exchange exchange, final Request request) {
 
 		if (exchange.isOfLocalOrigin()) {
@@ -1159,30 +1263,16 @@ public class BlockwiseLayer extends AbstractLayer {
 		}
 	}
 
-	private Block1BlockwiseStatus getOutboundBlock1Status(final KeyUri key, final Exchange exchange, final Request request, int blocksize) {
-
-		synchronized (block1Transfers) {
-			Block1BlockwiseStatus status = block1Transfers.get(key);
-			if (status == null) {
-				status = Block1BlockwiseStatus.forOutboundRequest(exchange, request, blocksize);
-				block1Transfers.put(key, status);
-				enableStatus = true;
-				LOGGER.debug("created tracker for outbound block1 transfer {}, transfers in progress: {}", status,
-						block1Transfers.size());
-			}
-			return status;
-		}
-	}
-
 	private Block1BlockwiseStatus getInboundBlock1Status(final KeyUri key, final Exchange exchange, final Request request) {
-		Block1BlockwiseStatus status;
-		int maxPayloadSize = getMaxResourceBodySize(request);
-		synchronized (block1Transfers) {
-			status = block1Transfers.get(key);
-			if (status == null) {
-				status = Block1BlockwiseStatus.forInboundRequest(exchange, request, maxPayloadSize);
-				block1Transfers.put(key, status);
-				enableStatus = true;
+		Block1BlockwiseStatus status = block1Transfers.get(key);
+		if (status == null) {
+			int maxPayloadSize = getMaxResourceBodySize(request);
+			status = Block1BlockwiseStatus.forInboundRequest(exchange, request, maxPayloadSize);
+			Block1BlockwiseStatus previousStatus = addBlock1Status(key, status);
+			if (previousStatus != null) {
+				// concurrently added
+				status = previousStatus;
+			} else {
 				LOGGER.debug("created tracker for inbound block1 transfer {}, transfers in progress: {}", status,
 						block1Transfers.size());
 			}
@@ -1192,126 +1282,178 @@ public class BlockwiseLayer extends AbstractLayer {
 		return status;
 	}
 
-	private Block1BlockwiseStatus resetInboundBlock1Status(final KeyUri key, final Exchange exchange, final Request request) {
-		Block1BlockwiseStatus removedStatus;
+	private Block1BlockwiseStatus resetInboundBlock1Status(final KeyUri key, final Exchange exchange, final Request request,
+			final BlockwiseBodyConsumer consumer) {
 		Block1BlockwiseStatus newStatus;
-		synchronized (block1Transfers) {
-			removedStatus = block1Transfers.remove(key);
-			LOGGER.warn("inbound block1 transfer reset at {} by peer: {}", removedStatus, request);
-			// remove old status ensures, that getInboundBlock1Status could be
-			// called in synchronized (block1Transfers)
-			newStatus = getInboundBlock1Status(key, exchange, request);
+		if (consumer != null) {
+			newStatus = Block1BlockwiseStatus.forInboundRequest(exchange, request, consumer);
+		} else {
+			int maxPayloadSize = getMaxResourceBodySize(request);
+			newStatus = Block1BlockwiseStatus.forInboundRequest(exchange, request, maxPayloadSize);
 		}
+		Block1BlockwiseStatus removedStatus = replaceBlock1Status(key, newStatus);
 		if (removedStatus != null) {
+			LOGGER.warn("inbound block1 transfer reset at {} by peer: {}", removedStatus, request);
 			removedStatus.setComplete(true);
 		}
+		LOGGER.debug("created tracker for inbound block1 transfer {}, transfers in progress: {}", newStatus,
+				block1Transfers.size());
+		// register a task for cleaning up if the peer does not send all blocks
+		prepareBlock1Cleanup(newStatus, key);
 		return newStatus;
 	}
 
-	private Block2BlockwiseStatus getOutboundBlock2Status(final KeyUri key, final Exchange exchange, final Response response) {
-
-		Block2BlockwiseStatus status;
-		synchronized (block2Transfers) {
-			status = block2Transfers.get(key);
-			if (status == null) {
-				status = Block2BlockwiseStatus.forOutboundResponse(exchange, response, preferredBlockSize);
-				block2Transfers.put(key, status);
-				enableStatus = true;
-				LOGGER.debug("created tracker for outbound block2 transfer {}, transfers in progress: {}", status,
-						block2Transfers.size());
-			}
-		}
-		// we register a clean up task in case the peer does not retrieve all blocks
-		prepareBlock2Cleanup(status, key);
-		return status;
-	}
-
 	private Block2BlockwiseStatus getInboundBlock2Status(final KeyUri key, final Exchange exchange, final Response response) {
-		int maxPayloadSize = getMaxResourceBodySize(response);
-		synchronized (block2Transfers) {
-			Block2BlockwiseStatus status = block2Transfers.get(key);
-			if (status == null) {
-				status = Block2BlockwiseStatus.forInboundResponse(exchange, response, maxPayloadSize);
-				block2Transfers.put(key, status);
-				enableStatus = true;
+		Block2BlockwiseStatus status = block2Transfers.get(key);
+		if (status == null) {
+			int maxPayloadSize = getMaxResourceBodySize(response);
+			status = Block2BlockwiseStatus.forInboundResponse(exchange, response, maxPayloadSize);
+			Block2BlockwiseStatus previousStatus = addBlock2Status(key, status);
+			if (previousStatus != null) {
+				// concurrently added
+				status = previousStatus;
+			} else {
 				LOGGER.debug("created tracker for {} inbound block2 transfer {}, transfers in progress: {}, {}", key,
 						status, block2Transfers.size(), response);
+				// register a task for cleaning up if no further block is requested
+				prepareBlock2Cleanup(status, key);
 			}
-			return status;
 		}
+		return status;
 	}
 
 	private KeyUri addRandomAccessBlock2Status(final Exchange exchange, final Request request) {
 
 		KeyUri key = getKey(exchange, request);
-		int size;
 		Block2BlockwiseStatus status = Block2BlockwiseStatus.forRandomAccessRequest(exchange, request);
-		synchronized (block2Transfers) {
-			block2Transfers.put(key, status);
-			size = block1Transfers.size();
-		}
-		enableStatus = true;
+		replaceBlock2Status(key, status);
 		addBlock2CleanUpObserver(request, key, status);
-		LOGGER.debug("created tracker for random access block2 retrieval {}, transfers in progress: {}", status, size);
+		LOGGER.debug("created tracker for random access block2 retrieval {}, transfers in progress: {}", status,
+				block2Transfers.size());
 		return key;
 	}
 
 	private Block2BlockwiseStatus resetOutboundBlock2Status(KeyUri key, Exchange exchange, Response response) {
-		Block2BlockwiseStatus previousStatus;
-		Block2BlockwiseStatus newStatus;
-		synchronized (block2Transfers) {
-			previousStatus = block2Transfers.remove(key);
-			newStatus = getOutboundBlock2Status(key, exchange, response);
-		}
+		Block2BlockwiseStatus newStatus = Block2BlockwiseStatus.forOutboundResponse(exchange, response,
+				preferredBlockSize);
+		Block2BlockwiseStatus previousStatus = replaceBlock2Status(key, newStatus);
 		if (previousStatus != null && !previousStatus.isComplete()) {
 			LOGGER.debug("stop previous block transfer {} {} for new {}", key, previousStatus, response);
 			previousStatus.completeResponse();
 		} else {
 			LOGGER.debug("block transfer {} for {}", key, response);
 		}
+		LOGGER.debug("created tracker for outbound block2 transfer {}, transfers in progress: {}", newStatus,
+				block2Transfers.size());
+		// we register a clean up task in case the peer does not retrieve all blocks
+		prepareBlock2Cleanup(newStatus, key);
 		return newStatus;
 	}
 
 	private Block1BlockwiseStatus getBlock1Status(final KeyUri key) {
 
-		synchronized (block1Transfers) {
-			return block1Transfers.get(key);
-		}
+		return block1Transfers.get(key);
 	}
 
 	private Block2BlockwiseStatus getBlock2Status(final KeyUri key) {
 
-		synchronized (block2Transfers) {
-			return block2Transfers.get(key);
+		return block2Transfers.get(key);
+	}
+
+	/**
+	 * Add status of block1 transfer, if no status is tracked for that key.
+	 * 
+	 * @param key key of the transfer
+	 * @param status status to add
+	 * @return the status already tracked for that key, or {@code null}, if the
+	 *         status is added or exceeds the maximum number of transfers.
+	 * @since 2.5
+	 */
+	private Block1BlockwiseStatus addBlock1Status(final KeyUri key, final Block1BlockwiseStatus status) {
+		if (block1Transfers.size() >= maxTransfers) {
+			LOGGER.warn("too many block1 transfers, {} not tracked!", key);
+			return null;
 		}
+		enableStatus = true;
+		return block1Transfers.putIfAbsent(key, status);
 	}
 
-	private Block1BlockwiseStatus clearBlock1Status(KeyUri key, Block1BlockwiseStatus status) {
-		int size;
-		Block1BlockwiseStatus removedTracker;
-		synchronized (block1Transfers) {
-			removedTracker = block1Transfers.remove(key, status);
-			size = block1Transfers.size();
+	/**
+	 * Put status of block1 transfer, replacing the status tracked for that
+	 * key.
+	 * 
+	 * @param key key of the transfer
+	 * @param status status to put
+	 * @return the replaced status, or {@code null}, if no status was tracked
+	 *         for that key.
+	 * @since 2.5
+	 */
+	private Block1BlockwiseStatus replaceBlock1Status(final KeyUri key, final Block1BlockwiseStatus status) {
+		Block1BlockwiseStatus previousStatus = block1Transfers.get(key);
+		if (previousStatus == null && block1Transfers.size() >= maxTransfers) {
+			LOGGER.warn("too many block1 transfers, {} not tracked!", key);
+			return null;
 		}
-		if (removedTracker != null) {
-			LOGGER.debug("removing block1 tracker [{}], block1 transfers still in progress: {}", key, size);
-			removedTracker.setComplete(true);
+		enableStatus = true;
+		return block1Transfers.put(key, status);
+	}
+
+	/**
+	 * Add status of block2 transfer, if no status is tracked for that key.
+	 * 
+	 * @param key key of the transfer
+	 * @param status status to add
+	 * @return the status already tracked for that key, or {@code null}, if the
+	 *         status is added or exceeds the maximum number of transfers.
+	 * @since 2.5
+	 */
+	private Block2BlockwiseStatus addBlock2Status(final KeyUri key, final Block2BlockwiseStatus status) {
+		if (block2Transfers.size() >= maxTransfers) {
+			LOGGER.warn("too many block2 transfers, {} not tracked!", key);
+			return null;
 		}
-		return removedTracker;
+		enableStatus = true;
+		return block2Transfers.putIfAbsent(key, status);
 	}
 
-	private Block2BlockwiseStatus clearBlock2Status(KeyUri key, Block2BlockwiseStatus status) {
-		int size;
-		Block2BlockwiseStatus removedTracker;
-		synchronized (block2Transfers) {
-			removedTracker = block2Transfers.remove(key, status);
-			size = block2Transfers.size();
+	/**
+	 * Put status of block2 transfer, replacing the status tracked for that
+	 * key.
+	 * 
+	 * @param key key of the transfer
+	 * @param status status to put
+	 * @return the replaced status, or {@code null}, if no status was tracked
+	 *         for that key.
+	 * @since 2.5
+	 */
+	private Block2BlockwiseStatus replaceBlock2Status(final KeyUri key, final Block2BlockwiseStatus status) {
+		Block2BlockwiseStatus previousStatus = block2Transfers.get(key);
+		if (previousStatus == null && block2Transfers.size() >= maxTransfers) {
+			LOGGER.warn("too many block2 transfers, {} not tracked!", key);
+			return null;
 		}
-		if (removedTracker != null) {
-			LOGGER.debug("removing block2 tracker [{}], block2 transfers still in progress: {}", key, size);
-			removedTracker.setComplete(true);
+		enableStatus = true;
+		return block2Transfers.put(key, status);
+	}
+
+	private Block1BlockwiseStatus clearBlock1Status(KeyUri key, Block1BlockwiseStatus status) {
+		if (block1Transfers.remove(key, status)) {
+			LOGGER.debug("removing block1 tracker [{}], block1 transfers still in progress: {}", key,
+					block1Transfers.size());
+			status.setComplete(true);
+			return status;
 		}
-		return removedTracker;
+		return null;
+	}
+
+	private Block2BlockwiseStatus clearBlock2Status(KeyUri key, Block2BlockwiseStatus status) {
+		if (block2Transfers.remove(key, status)) {
+			LOGGER.debug("removing block2 tracker [{}], block2 transfers still in progress: {}", key,
+					block2Transfers.size());
+			status.setComplete(true);
+			return status;
+		}
+		return null;
 	}
 
 	private boolean requiresBlockwise(final Request request) {
@@ -1324,14 +1466,15 @@ public class BlockwiseLayer extends AbstractLayer {
 
 	private boolean requiresBlockwise(final Exchange exchange, final Response response, final BlockOption requestBlock2) {
 
-		boolean blockwiseRequired = response.getPayloadSize() > maxMessageSize;
+		int bodySize = response.getBodySize();
+		boolean blockwiseRequired = bodySize > maxMessageSize;
 		if (requestBlock2 != null) {
 			// client might have included early negotiation block2 option
 			// If the block2 strict mode has been enabled we must respond with a block2 option even if the payload fits in one block
-			blockwiseRequired = blockwiseRequired || strictBlock2Option || response.getPayloadSize() > requestBlock2.getSize();
+			blockwiseRequired = blockwiseRequired || strictBlock2Option || bodySize > requestBlock2.getSize();
 		}
 		if (blockwiseRequired) {
-			LOGGER.debug("response body [{}/{}] requires blockwise transfer", response.getPayloadSize(),
+			LOGGER.debug("response body [{}/{}] requires blockwise transfer", bodySize,
 					maxMessageSize);
 		}
 		return blockwiseRequired;
@@ -1375,7 +1518,10 @@ public class BlockwiseLayer extends AbstractLayer {
 						LOGGER.debug("block1 transfer timed out: {}", key);
 						status.timeoutCurrentTranfer();
 					}
-					clearBlock1Status(key, status);
+					if (clearBlock1Status(key, status) == null) {
+						// replaced or not tracked, release resources
+						status.setComplete(true);
+					}
 				} catch (Exception e) {
 					LOGGER.debug("Unexcepted error while block1 cleaning", e);
 				}
@@ -1440,7 +1586,10 @@ public class BlockwiseLayer extends AbstractLayer {
 						LOGGER.debug("block2 transfer timed out: {}", key);
 						status.timeoutCurrentTranfer();
 					}
-					clearBlock2Status(key, status);
+					if (clearBlock2Status(key, status) == null) {
+						// replaced or not tracked, release resources
+						status.setComplete(true);
+					}
 				} catch (Exception e) {
 					LOGGER.debug("Unexcepted error while block2 cleaning", e);
 				}
@@ -1462,6 +1611,6 @@ public class BlockwiseLayer extends AbstractLayer {
 	}
 
 	public boolean isEmpty() {
-		return block1Transfers.size() == 0 && block2Transfers.size() == 0;
+		return block1Transfers.isEmpty() && block2Transfers.isEmpty();
 	}
 }
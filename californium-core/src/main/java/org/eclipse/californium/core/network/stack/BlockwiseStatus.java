@@ -22,9 +22,12 @@
  *    Achim Kraus (Bosch Software Innovations GmbH) - replace striped executor
  *                                                    with serial executor
  *    Achim Kraus (Bosch Software Innovations GmbH) - fix openjdk-11 covariant return types
+ *    Bosch.IO GmbH                                 - add body consumer for
+ *                                                    streamed transfers
  ******************************************************************************/
 package org.eclipse.californium.core.network.stack;
 
+import java.io.IOException;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.util.concurrent.ScheduledFuture;
@@ -32,6 +35,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.eclipse.californium.core.coap.BlockOption;
+import org.eclipse.californium.core.coap.BlockwiseBodyConsumer;
 import org.eclipse.californium.core.coap.Message;
 import org.eclipse.californium.core.coap.OptionSet;
 import org.eclipse.californium.core.coap.Request;
@@ -62,6 +66,13 @@ public abstract class BlockwiseStatus {
 	private int currentSzx;
 	private boolean complete;
 	private int blockCount;
+	/**
+	 * Consumer of the body. {@code null}, if the body is buffered, or the
+	 * consumer is already taken or aborted.
+	 * 
+	 * @since 2.5
+	 */
+	private BlockwiseBodyConsumer consumer;
 
 	/**
 	 * Creates a new blockwise status.
@@ -74,6 +85,23 @@ public abstract class BlockwiseStatus {
 		this.contentFormat = contentFormat;
 	}
 
+	/**
+	 * Creates a new blockwise status, which passes the blocks to a consumer
+	 * instead of buffering them.
+	 * 
+	 * @param consumer The consumer of the body.
+	 * @param contentFormat The Content-Format of the body.
+	 * @throws NullPointerException if consumer is {@code null}
+	 * @since 2.5
+	 */
+	protected BlockwiseStatus(final BlockwiseBodyConsumer consumer, final int contentFormat) {
+		this(0, contentFormat);
+		if (consumer == null) {
+			throw new NullPointerException("consumer must not be null!");
+		}
+		this.consumer = consumer;
+	}
+
 	/**
 	 * Creates a new blockwise status.
 	 * <p>
@@ -171,30 +199,97 @@ public abstract class BlockwiseStatus {
 	/**
 	 * Marks the transfer as complete.
 	 * <p>
-	 * Also cancels the <em>cleanUpTask</em> if the transfer is complete.
+	 * Also cancels the <em>cleanUpTask</em> if the transfer is complete and
+	 * {@link #release()}s the body, if the transfer gets complete.
 	 * 
 	 * @param complete {@code true} if all blocks have been transferred.
 	 */
-	public final synchronized void setComplete(final boolean complete) {
-		this.complete = complete;
-		if (complete && cleanUpTask != null) {
-			cleanUpTask.cancel(false);
-			cleanUpTask = null;
+	public final void setComplete(final boolean complete) {
+		boolean release;
+		synchronized (this) {
+			release = complete && !this.complete;
+			this.complete = complete;
+			if (complete && cleanUpTask != null) {
+				cleanUpTask.cancel(false);
+				cleanUpTask = null;
+			}
+		}
+		if (release) {
+			release();
+		}
+	}
+
+	/**
+	 * Releases the body of the transfer.
+	 * <p>
+	 * Called, when the transfer gets complete. Aborts the consumer of the body,
+	 * if it's not taken before.
+	 * 
+	 * @see #takeBodyConsumer()
+	 * @since 2.5
+	 */
+	protected void release() {
+		BlockwiseBodyConsumer consumer;
+		synchronized (this) {
+			consumer = this.consumer;
+			this.consumer = null;
 		}
+		if (consumer != null) {
+			try {
+				consumer.onAbort();
+			} catch (RuntimeException ex) {
+				LOGGER.warn("body consumer failed on abort!", ex);
+			}
+		}
+	}
+
+	/**
+	 * Checks, if the blocks are passed to a consumer instead of buffering
+	 * them.
+	 * 
+	 * @return {@code true}, if the body is consumed, {@code false}, if the
+	 *         body is buffered.
+	 * @since 2.5
+	 */
+	final synchronized boolean hasBodyConsumer() {
+		return consumer != null;
 	}
 
 	/**
-	 * Adds a block to the buffer.
+	 * Takes the consumer of the body.
+	 * <p>
+	 * The consumer is not longer aborted, when the transfer gets complete.
+	 * 
+	 * @return the consumer, or {@code null}, if the body is buffered or the
+	 *         consumer is already aborted.
+	 * @since 2.5
+	 */
+	final synchronized BlockwiseBodyConsumer takeBodyConsumer() {
+		BlockwiseBodyConsumer consumer = this.consumer;
+		this.consumer = null;
+		return consumer;
+	}
+
+	/**
+	 * Adds a block to the buffer or passes it to the consumer of the body.
 	 *
 	 * @param block The block to add.
-	 * @return {@code true} if the block could be added to the buffer.
+	 * @return {@code true} if the block could be added to the buffer or was
+	 *         consumed.
 	 */
 	public final synchronized boolean addBlock(final byte[] block) {
 
 		boolean result = false;
-		if (block == null) {
+		if (block == null || block.length == 0) {
 			result = true;
-		} else if (block != null && buf.remaining() >= block.length) {
+		} else if (consumer != null) {
+			try {
+				consumer.onBlock(block);
+				result = true;
+			} catch (IOException ex) {
+				LOGGER.debug("body consumer failed!", ex);
+			}
+		} else if (buf.remaining() >= block.length) {
 			result = true;
 			buf.put(block);
 		} else {
@@ -19,6 +19,9 @@
  *    Kai Hudalla (Bosch Software Innovations GmbH) - use Logger's message formatting instead of
  *                                                    explicit String concatenation
  *    Achim Kraus (Bosch Software Innovations GmbH) - replace byte array token by Token
+ *    Bosch.IO GmbH                                 - add default executor
+ *    Bosch.IO GmbH                                 - provide body consumers of
+ *                                                    resources
  ******************************************************************************/
 package org.eclipse.californium.core.server;
 
@@ -28,6 +31,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.Executor;
 
+import org.eclipse.californium.core.coap.BlockwiseBodyConsumer;
 import org.eclipse.californium.core.coap.CoAP;
 import org.eclipse.californium.core.coap.CoAP.ResponseCode;
 import org.eclipse.californium.core.coap.Request;
@@ -43,8 +47,12 @@ import org.slf4j.LoggerFactory;
 /**
  * The ServerMessageDeliverer delivers requests to corresponding resources and
  * responses to corresponding requests.
+ * <p>
+ * Since 2.5 it provides the {@link BlockwiseBodyConsumer} of resources, which
+ * implement {@link BlockwiseBodyConsumer.Provider}, to stream request bodies
+ * of blockwise transfers.
  */
-public class ServerMessageDeliverer implements MessageDeliverer {
+public class ServerMessageDeliverer implements MessageDeliverer, BlockwiseBodyConsumer.Provider {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ServerMessageDeliverer.class);
 
@@ -54,6 +62,9 @@ public class ServerMessageDeliverer implements MessageDeliverer {
 	/* The manager of the observe mechanism for this server */
 	private final ObserveManager observeManager = new ObserveManager();
 
+	/* The executor for resources without executor. null, to use the protocol stage */
+	private volatile Executor defaultExecutor;
+
 	/**
 	 * Constructs a default message deliverer that delivers requests to the
 	 * resources rooted at the specified root.
@@ -64,6 +75,21 @@ public class ServerMessageDeliverer implements MessageDeliverer {
 		this.root = root;
 	}
 
+	/**
+	 * Set executor for resources without executor.
+	 * 
+	 * Requests for resources, which {@link Resource#getExecutor()} returns
+	 * {@code null}, are processed by this executor. The responses are still
+	 * sent in order by the executor of the exchange.
+	 * 
+	 * @param executor executor for resources without executor. {@code null},
+	 *            to process these requests by the protocol stage.
+	 * @since 2.5
+	 */
+	public void setDefaultExecutor(Executor executor) {
+		this.defaultExecutor = executor;
+	}
+
 	/**
 	 * Delivers an inbound CoAP request to an appropriate resource.
 	 * <p>
@@ -95,6 +121,9 @@ public class ServerMessageDeliverer implements MessageDeliverer {
 
 				// Get the executor and let it process the request
 				Executor executor = resource.getExecutor();
+				if (executor == null) {
+					executor = defaultExecutor;
+				}
 				if (executor != null) {
 					executor.execute(new Runnable() {
 
@@ -116,6 +145,24 @@ public class ServerMessageDeliverer implements MessageDeliverer {
 		}
 	}
 
+	/**
+	 * Gets the body consumer of the resource of the request.
+	 * 
+	 * @param exchange The exchange containing the first block of the request.
+	 * @return the body consumer of the resource, or {@code null}, if the
+	 *         resource is not found or doesn't implement
+	 *         {@link BlockwiseBodyConsumer.Provider}.
+	 * @since 2.5
+	 */
+	@Override
+	public BlockwiseBodyConsumer getBodyConsumer(final Exchange exchange) {
+		Resource resource = findResource(exchange);
+		if (resource instanceof BlockwiseBodyConsumer.Provider) {
+			return ((BlockwiseBodyConsumer.Provider) resource).getBodyConsumer(exchange);
+		}
+		return null;
+	}
+
 	/**
 	 * Invoked by the <em>deliverRequest</em> before the request gets processed.
 	 * <p>
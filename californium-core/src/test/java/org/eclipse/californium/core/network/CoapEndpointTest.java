@@ -22,6 +22,7 @@
  ******************************************************************************/
 package org.eclipse.californium.core.network;
 
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -45,6 +46,7 @@ import org.eclipse.californium.core.network.config.NetworkConfig;
 import org.eclipse.californium.core.server.MessageDeliverer;
 import org.eclipse.californium.core.test.CountingMessageObserver;
 import org.eclipse.californium.elements.AddressEndpointContext;
+import org.eclipse.californium.elements.BatchRawDataChannel;
 import org.eclipse.californium.elements.Connector;
 import org.eclipse.californium.elements.DtlsEndpointContext;
 import org.eclipse.californium.elements.EndpointContext;
@@ -210,6 +212,26 @@ public class CoapEndpointTest {
 		assertTrue(receivedRequests.isEmpty());
 	}
 
+	@Test
+	public void testBatchOfRequestsIsDeliveredInOrder() throws Exception {
+		latch = new CountDownLatch(2);
+		byte[] second = getSerializedRequest();
+		second[3] = 0x11; // message ID
+		List<RawData> batch = new ArrayList<RawData>();
+		batch.add(RawData.inbound(getSerializedRequest(), new AddressEndpointContext(SOURCE_ADDRESS), false,
+				System.nanoTime()));
+		batch.add(RawData.inbound(second, new AddressEndpointContext(SOURCE_ADDRESS), false, System.nanoTime()));
+
+		// WHEN a batch of messages is received
+		assertThat(connector.receiver, is(instanceOf(BatchRawDataChannel.class)));
+		((BatchRawDataChannel) connector.receiver).receiveData(batch);
+
+		// THEN both requests are delivered in the order of the batch
+		assertTrue(latch.await(2, TimeUnit.SECONDS));
+		assertThat(receivedRequests.get(0).getMID(), is(0x10));
+		assertThat(receivedRequests.get(1).getMID(), is(0x11));
+	}
+
 	private static byte[] getSerializedRequest() {
 		return new byte[] { 0b01000011, // ver 1, CON, token length: 3
 				0b00000001, // code: 0.01 (GET request)
@@ -98,6 +98,13 @@ public class InMemoryMessageIdProviderTest {
 		assertThat(mid, is(Message.NONE));
 	}
 
+	@Test
+	public void testRingTrackerGetNextMessageIdReturnsMid() {
+		config.set(NetworkConfig.Keys.MID_TRACKER, "RING");
+		InMemoryMessageIdProvider provider = new InMemoryMessageIdProvider(config);
+		testLimitedTrackerGetNextMessageIdReturnsMid(provider);
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void testIllegalTracker() {
 		config.set(NetworkConfig.Keys.MID_TRACKER, "ILLEGAL");
@@ -146,6 +153,21 @@ public class InMemoryMessageIdProviderTest {
 		assertThat(provider.getNextMessageId(getPeerAddress(MAX_PEERS + 1)), is(not(-1)));
 	}
 
+	@Test
+	public void testGetNextMessageIdWithStripes() {
+		int MAX_PEERS = 1000;
+		config.setLong(NetworkConfig.Keys.MAX_ACTIVE_PEERS, MAX_PEERS);
+		InMemoryMessageIdProvider provider = new InMemoryMessageIdProvider(config);
+		addPeers(provider, 200);
+		for (int i = 0; i < 200; i++) {
+			InetSocketAddress peerAddress = getPeerAddress(i);
+			int mid1 = provider.getNextMessageId(peerAddress);
+			int mid2 = provider.getNextMessageId(peerAddress);
+			assertThat(mid1, is(not(-1)));
+			assertThat(mid2, is(not(mid1)));
+		}
+	}
+
 	private static void addPeers(final MessageIdProvider provider, final int peerCount) {
 		for (int i = 0; i < peerCount; i++) {
 			provider.getNextMessageId(getPeerAddress(i));
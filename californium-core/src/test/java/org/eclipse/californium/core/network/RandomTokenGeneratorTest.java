@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.core.network;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.californium.core.network.TokenGenerator.Scope;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.elements.category.Small;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(Small.class)
+public class RandomTokenGeneratorTest {
+
+	private static final int TOKEN_SIZE = 8;
+
+	RandomTokenGenerator generator;
+
+	@Before
+	public void setUp() {
+		NetworkConfig config = NetworkConfig.createStandardWithoutFile();
+		config.setInt(NetworkConfig.Keys.TOKEN_SIZE_LIMIT, TOKEN_SIZE);
+		generator = new RandomTokenGenerator(config);
+	}
+
+	@Test
+	public void testScopeIsEncoded() {
+		for (int index = 0; index < 1000; ++index) {
+			for (Scope scope : Scope.values()) {
+				Token token = generator.createToken(scope);
+				assertThat(token.length(), is(TOKEN_SIZE));
+				assertThat(generator.getScope(token), is(scope));
+			}
+		}
+	}
+
+	@Test
+	public void testTokensAreUniqueAcrossThreads() throws InterruptedException {
+		final int threads = 4;
+		final int tokens = 10000;
+		final Set<Token> all = Collections.synchronizedSet(new HashSet<Token>());
+		Thread[] workers = new Thread[threads];
+		for (int index = 0; index < threads; ++index) {
+			workers[index] = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int count = 0; count < tokens; ++count) {
+						all.add(generator.createToken(Scope.SHORT_TERM_CLIENT_LOCAL));
+					}
+				}
+			});
+			workers[index].start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		assertThat(all.size(), is(threads * tokens));
+	}
+}
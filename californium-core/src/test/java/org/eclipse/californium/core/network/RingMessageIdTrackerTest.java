@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ *                    derived from GroupedMessageIdTrackerTest
+ ******************************************************************************/
+package org.eclipse.californium.core.network;
+
+import static org.eclipse.californium.core.network.MessageIdTracker.TOTAL_NO_OF_MIDS;
+import static org.eclipse.californium.elements.util.TestConditionTools.inRange;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.coap.Message;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.elements.category.Small;
+import org.eclipse.californium.elements.rule.TestTimeRule;
+import org.eclipse.californium.rule.CoapNetworkRule;
+import org.eclipse.californium.rule.CoapThreadsRule;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Verifies that RingMessageIdTracker correctly marks MIDs as <em>in use</em>.
+ */
+@Category(Small.class)
+public class RingMessageIdTrackerTest {
+
+	private static final int INITIAL_MID = 0;
+	private static final int EXCHANGE_LIFETIME = 16000; // ms
+
+	@ClassRule
+	public static CoapNetworkRule network = new CoapNetworkRule(CoapNetworkRule.Mode.DIRECT,
+			CoapNetworkRule.Mode.NATIVE);
+
+	@Rule
+	public CoapThreadsRule cleanup = new CoapThreadsRule();
+
+	@Rule
+	public TestTimeRule time = new TestTimeRule();
+
+	@Test
+	public void testGetNextMessageIdFailsIfAllMidsAreInUse() throws Exception {
+		NetworkConfig config = network.createStandardTestConfig();
+		config.setInt(NetworkConfig.Keys.EXCHANGE_LIFETIME, EXCHANGE_LIFETIME);
+		RingMessageIdTracker tracker = new RingMessageIdTracker(INITIAL_MID, 0, TOTAL_NO_OF_MIDS, config);
+		// all MIDs could be used once
+		for (int i = 0; i < TOTAL_NO_OF_MIDS; i++) {
+			int mid = tracker.getNextMessageId();
+			assertThat(mid, is(i));
+		}
+		// THEN no MID is available until the exchange lifetime is over
+		assertThat(tracker.getNextMessageId(), is(Message.NONE));
+	}
+
+	@Test
+	public void testGetNextMessageIdFailsIfAllMidsInRangeAreInUse() throws Exception {
+		NetworkConfig config = network.createStandardTestConfig();
+		config.setInt(NetworkConfig.Keys.EXCHANGE_LIFETIME, EXCHANGE_LIFETIME);
+		final int minMid = 1024;
+		final int maxMid = 2048;
+		final int rangeMid = maxMid - minMid;
+		RingMessageIdTracker tracker = new RingMessageIdTracker(INITIAL_MID + minMid, minMid, maxMid, config);
+		for (int i = 0; i < rangeMid; i++) {
+			int mid = tracker.getNextMessageId();
+			assertThat(mid, is(inRange(minMid, maxMid)));
+		}
+		assertThat(tracker.getNextMessageId(), is(Message.NONE));
+	}
+
+	@Test
+	public void testGetNextMessageIdReusesIdAfterExchangeLifetime() throws Exception {
+		NetworkConfig config = network.createStandardTestConfig();
+		config.setInt(NetworkConfig.Keys.EXCHANGE_LIFETIME, EXCHANGE_LIFETIME);
+		RingMessageIdTracker tracker = new RingMessageIdTracker(INITIAL_MID, 0, TOTAL_NO_OF_MIDS, config);
+		long bucket = EXCHANGE_LIFETIME / tracker.getBuckets();
+
+		// use the first half of the MIDs
+		for (int i = 0; i < TOTAL_NO_OF_MIDS / 2; i++) {
+			assertThat(tracker.getNextMessageId(), is(not(Message.NONE)));
+		}
+		// use the second half of the MIDs in the next bucket
+		time.addTestTimeShift(bucket, TimeUnit.MILLISECONDS);
+		for (int i = 0; i < TOTAL_NO_OF_MIDS / 2; i++) {
+			assertThat(tracker.getNextMessageId(), is(not(Message.NONE)));
+		}
+		assertThat(tracker.getNextMessageId(), is(Message.NONE));
+
+		// the first half is not free before the exchange lifetime is over
+		time.addTestTimeShift(EXCHANGE_LIFETIME - bucket, TimeUnit.MILLISECONDS);
+		assertThat(tracker.getNextMessageId(), is(Message.NONE));
+
+		// after the exchange lifetime and the bucket duration, the first half is free
+		time.addTestTimeShift(bucket, TimeUnit.MILLISECONDS);
+		for (int i = 0; i < TOTAL_NO_OF_MIDS / 2; i++) {
+			assertThat(tracker.getNextMessageId(), is(i));
+		}
+		// but not the second half
+		assertThat(tracker.getNextMessageId(), is(Message.NONE));
+
+		time.addTestTimeShift(bucket, TimeUnit.MILLISECONDS);
+		assertThat(tracker.getNextMessageId(), is(TOTAL_NO_OF_MIDS / 2));
+	}
+
+	@Test
+	public void testGetNextMessageIdRangeRollover() throws Exception {
+		assertMessageIdRangeRollover(0, 65000);
+		assertMessageIdRangeRollover(1000, 4000);
+		assertMessageIdRangeRollover(65000, TOTAL_NO_OF_MIDS);
+	}
+
+	public void assertMessageIdRangeRollover(int min, int max) throws Exception {
+		// GIVEN a tracker with an EXCHANGE_LIFETIME of -1 (MID always expired)
+		NetworkConfig config = network.createStandardTestConfig();
+		config.setInt(NetworkConfig.Keys.EXCHANGE_LIFETIME, -1);
+		final int range = max - min;
+		final RingMessageIdTracker tracker = new RingMessageIdTracker(INITIAL_MID + min, min, max, config);
+		final String msg = "not next mid in range[" + min + "..." + max + ") for ";
+
+		// WHEN retrieving all message IDs from the tracker
+		int lastMid = -1;
+		for (int i = 0; i < TOTAL_NO_OF_MIDS * 4; i++) {
+			int nextMid = tracker.getNextMessageId();
+			assertThat(nextMid, is(inRange(min, max)));
+			if (-1 < lastMid) {
+				int mid = ((lastMid - min + 1) % range) + min;
+				assertThat(msg + lastMid, nextMid, is(mid));
+			}
+			lastMid = nextMid;
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMidRange() throws Exception {
+		NetworkConfig config = network.createStandardTestConfig();
+		new RingMessageIdTracker(10, 10, 10, config);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidinitialMid() throws Exception {
+		NetworkConfig config = network.createStandardTestConfig();
+		new RingMessageIdTracker(21, 15, 20, config);
+	}
+}
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.core.network.deduplication;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.network.Exchange;
+import org.eclipse.californium.core.network.KeyMID;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.core.network.config.NetworkConfig.Keys;
+import org.eclipse.californium.elements.category.Small;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(Small.class)
+public class GenerationDeduplicatorTest {
+
+	private static final InetAddress ADDRESS = InetAddress.getLoopbackAddress();
+	private static final long LIFETIME = 1000;
+	private static final long PERIOD = 500;
+
+	GenerationDeduplicator deduplicator;
+
+	@Before
+	public void init() {
+		NetworkConfig config = new NetworkConfig();
+		config.setLong(Keys.EXCHANGE_LIFETIME, LIFETIME);
+		config.setLong(Keys.CROP_ROTATION_PERIOD, PERIOD);
+		config.setBoolean(Keys.DEDUPLICATOR_AUTO_REPLACE, true);
+		deduplicator = new GenerationDeduplicator(config);
+	}
+
+	@Test
+	public void testMessageIsKeptForExchangeLifetime() {
+		KeyMID key = new KeyMID(10, new InetSocketAddress(ADDRESS, 5683));
+		assertThat(deduplicator.findPrevious(key, newExchange()), is(nullValue()));
+		// lifetime / period + 1 generations
+		deduplicator.rotate();
+		deduplicator.rotate();
+		assertThat(deduplicator.find(key), is(notNullValue()));
+		deduplicator.rotate();
+		assertThat(deduplicator.find(key), is(nullValue()));
+		assertThat(deduplicator.isEmpty(), is(true));
+	}
+
+	@Test
+	public void testReplacePreviousRefreshesMessage() {
+		KeyMID key = new KeyMID(10, new InetSocketAddress(ADDRESS, 5683));
+		Exchange exchange1 = newExchange();
+		Exchange exchange2 = newExchange();
+		assertThat(deduplicator.findPrevious(key, exchange1), is(nullValue()));
+		deduplicator.rotate();
+		deduplicator.rotate();
+		assertThat(deduplicator.replacePrevious(key, exchange1, exchange2), is(true));
+		deduplicator.rotate();
+		assertThat(deduplicator.find(key), is(exchange2));
+		assertThat(deduplicator.size(), is(1));
+	}
+
+	@Test
+	public void testManyMessages() {
+		int peers = 100;
+		int messages = 1000;
+		Exchange exchange = newExchange();
+		for (int port = 0; port < peers; ++port) {
+			InetSocketAddress peer = new InetSocketAddress(ADDRESS, 5683 + port);
+			for (int mid = 0; mid < messages; ++mid) {
+				assertThat(deduplicator.findPrevious(new KeyMID(mid, peer), exchange), is(nullValue()));
+			}
+		}
+		assertThat(deduplicator.size(), is(peers * messages));
+		// remove every second message by replacing it into the next generation
+		deduplicator.rotate();
+		for (int port = 0; port < peers; ++port) {
+			InetSocketAddress peer = new InetSocketAddress(ADDRESS, 5683 + port);
+			for (int mid = 0; mid < messages; mid += 2) {
+				assertThat(deduplicator.replacePrevious(new KeyMID(mid, peer), exchange, newExchange()), is(true));
+			}
+		}
+		assertThat(deduplicator.size(), is(peers * messages));
+		for (int port = 0; port < peers; ++port) {
+			InetSocketAddress peer = new InetSocketAddress(ADDRESS, 5683 + port);
+			for (int mid = 0; mid < messages; ++mid) {
+				assertThat(deduplicator.find(new KeyMID(mid, peer)), is(notNullValue()));
+			}
+		}
+		deduplicator.rotate();
+		deduplicator.rotate();
+		assertThat(deduplicator.size(), is(peers * messages / 2));
+		for (int port = 0; port < peers; ++port) {
+			InetSocketAddress peer = new InetSocketAddress(ADDRESS, 5683 + port);
+			for (int mid = 0; mid < messages; ++mid) {
+				Exchange found = deduplicator.find(new KeyMID(mid, peer));
+				assertThat(found == null, is(mid % 2 == 1));
+			}
+		}
+	}
+
+	private static Exchange newExchange() {
+		Request incoming = Request.newGet();
+		incoming.setMID(10);
+		return new Exchange(incoming, Exchange.Origin.REMOTE, null);
+	}
+}
@@ -82,6 +82,8 @@ public class DataParserTest {
 		List<Object[]> parameters = new ArrayList<>();
 		parameters.add(new Object[] { new UdpDataSerializer(), new UdpDataParser(), false });
 		parameters.add(new Object[] { new TcpDataSerializer(), new TcpDataParser(), true });
+		parameters.add(new Object[] { new UdpDataSerializer(), new UdpDataParser(true), false });
+		parameters.add(new Object[] { new TcpDataSerializer(), new TcpDataParser(true), true });
 		return parameters;
 	}
 
@@ -159,6 +159,39 @@ public class BlockwiseLayerTest {
 		verify(upperLayer).receiveResponse(exchange, response);
 	}
 
+	/**
+	 * Verifies that the first block of a random access request is forwarded
+	 * to the upper layer without retrieving the remaining blocks.
+	 */
+	@Test
+	public void testReceiveResponseForwardsFirstBlockOfRandomAccessRequest() {
+
+		NetworkConfig config = NetworkConfig.createStandardWithoutFile()
+				.setInt(Keys.MAX_MESSAGE_SIZE, 128)
+				.setInt(Keys.MAX_RESOURCE_BODY_SIZE, 200);
+		Layer upperLayer = mock(Layer.class);
+		Layer lowerLayer = mock(Layer.class);
+		BlockwiseLayer blockwiseLayer = new BlockwiseLayer(config);
+		blockwiseLayer.setUpperLayer(upperLayer);
+		blockwiseLayer.setLowerLayer(lowerLayer);
+
+		Request req = Request.newGet();
+		req.setURI("coap://127.0.0.1/bigResource");
+		req.getOptions().setBlock2(BlockOption.size2Szx(64), false, 0);
+		req.setRandomAccess(true);
+		Exchange exchange = new Exchange(req, Origin.LOCAL, MatcherTestUtils.TEST_EXCHANGE_EXECUTOR);
+		blockwiseLayer.sendRequest(exchange, req);
+
+		Response response = receiveResponseFor(req);
+		response.getOptions().setSize2(256).setBlock2(BlockOption.size2Szx(64), true, 0);
+		blockwiseLayer.receiveResponse(exchange, response);
+
+		verify(lowerLayer).sendRequest(exchange, req);
+		verify(upperLayer).receiveResponse(exchange, response);
+		verify(lowerLayer, Mockito.times(1)).sendRequest(Mockito.any(Exchange.class), Mockito.any(Request.class));
+		assertThat(blockwiseLayer.isEmpty(), is(true));
+	}
+
 	private static Request newReceivedBlockwiseRequest(final int bodySize, final int blockSize) {
 		Request request = Request.newPut();
 		request.getOptions().setBlock1(BlockOption.size2Szx(blockSize), true, 0).setSize1(bodySize);
@@ -12,13 +12,25 @@
  * 
  * Contributors:
  *    Bosch Software Innovations - initial creation
+ *    Bosch.IO GmbH              - add test for virtual threads
  ******************************************************************************/
 package org.eclipse.californium.core.server;
 
+import static org.hamcrest.CoreMatchers.startsWith;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
 
+import org.eclipse.californium.TestTools;
+import org.eclipse.californium.core.CoapClient;
+import org.eclipse.californium.core.CoapResource;
+import org.eclipse.californium.core.CoapResponse;
 import org.eclipse.californium.core.CoapServer;
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.core.server.resources.CoapExchange;
 import org.eclipse.californium.elements.category.Small;
+import org.eclipse.californium.elements.util.ExecutorsUtil;
 import org.eclipse.californium.rule.CoapNetworkRule;
 import org.eclipse.californium.rule.CoapThreadsRule;
 import org.junit.ClassRule;
@@ -62,4 +74,37 @@ public class CoapServerTest {
 		}
 		assertEquals("All news threads created must be destroyed", numberOfThreadbefore, Thread.activeCount());
 	}
+
+	@Test
+	public void testResourceVirtualThreads() throws Exception {
+		NetworkConfig config = network.createStandardTestConfig();
+		config.setBoolean(NetworkConfig.Keys.RESOURCE_VIRTUAL_THREADS, true);
+		CoapEndpoint.Builder builder = new CoapEndpoint.Builder();
+		builder.setInetSocketAddress(TestTools.LOCALHOST_EPHEMERAL);
+		builder.setNetworkConfig(config);
+		CoapEndpoint endpoint = builder.build();
+
+		CoapServer server = new CoapServer(config);
+		cleanup.add(server);
+		server.addEndpoint(endpoint);
+		server.add(new CoapResource("thread") {
+
+			@Override
+			public void handleGET(CoapExchange exchange) {
+				exchange.respond(ResponseCode.CONTENT, Thread.currentThread().getName());
+			}
+		});
+		server.start();
+
+		CoapClient client = new CoapClient(TestTools.getUri(endpoint, "thread"));
+		cleanup.add(client);
+		CoapResponse response = client.get();
+		assertEquals(ResponseCode.CONTENT, response.getCode());
+		if (ExecutorsUtil.isVirtualThreadSupported()) {
+			assertThat(response.getResponseText(), startsWith("CoapServer(resource)#"));
+		} else {
+			// fallback to protocol stage
+			assertThat(response.getResponseText(), startsWith("CoapServer(main)#"));
+		}
+	}
 }
@@ -22,6 +22,9 @@
  *                                                    setup of test-network
  *    Achim Kraus (Bosch Software Innovations GmbH) - fix race condition with
  *                                                    reordered notifications
+ *    Bosch.IO GmbH                                 - add tests for response futures
+ *    Bosch.IO GmbH                                 - add tests for windowed blockwise
+ *                                                    download
  ******************************************************************************/
 package org.eclipse.californium.core.test;
 
@@ -30,8 +33,11 @@ import static org.hamcrest.CoreMatchers.startsWith;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.californium.TestTools;
@@ -39,15 +45,19 @@ import org.eclipse.californium.core.CoapClient;
 import org.eclipse.californium.core.CoapObserveRelation;
 import org.eclipse.californium.core.CoapResource;
 import org.eclipse.californium.core.CoapResponse;
+import org.eclipse.californium.core.CoapResponseFuture;
 import org.eclipse.californium.core.CoapServer;
 import org.eclipse.californium.core.coap.CoAP.Code;
 import org.eclipse.californium.core.coap.CoAP.ResponseCode;
 import org.eclipse.californium.core.coap.CoAP.Type;
 import org.eclipse.californium.core.coap.MediaTypeRegistry;
 import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
 import org.eclipse.californium.core.network.CoapEndpoint;
 import org.eclipse.californium.core.network.Endpoint;
 import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.core.network.interceptors.MessageInterceptor;
+import org.eclipse.californium.core.network.interceptors.MessageInterceptorAdapter;
 import org.eclipse.californium.core.server.resources.CoapExchange;
 import org.eclipse.californium.elements.category.Medium;
 import org.eclipse.californium.elements.rule.TestNameLoggerRule;
@@ -73,6 +83,7 @@ public class ClientAsynchronousTest {
 	public TestNameLoggerRule name = new TestNameLoggerRule();
 
 	public static final String TARGET = "storage";
+	public static final String LARGE_TARGET = "large";
 	public static final String CONTENT_1 = "one";
 	public static final String CONTENT_2 = "two";
 	public static final String QUERY_UPPER_CASE = "uppercase";
@@ -82,6 +93,9 @@ public class ClientAsynchronousTest {
 
 	private static StorageResource resource;
 
+	private static String largeUri;
+	private static String largeContent;
+
 	private CoapClient client;
 
 	@BeforeClass
@@ -227,6 +241,125 @@ public class ClientAsynchronousTest {
 		assertTrue(handler.waitOnLoadCalls(1, 1, TimeUnit.SECONDS));
 	}
 
+	@Test
+	public void testAsyncGetFuture() throws Exception {
+		CoapResponseFuture future = client.getAsync();
+		CoapResponse response = future.get(1, TimeUnit.SECONDS);
+		assertTrue(future.isDone());
+		assertEquals(CONTENT_1, response.getResponseText());
+
+		// handler added after completion is called immediately
+		CountingCoapHandler handler = new CountingCoapHandler();
+		future.addHandler(handler);
+		assertThat(handler.getOnLoadCalls(), is(1));
+	}
+
+	@Test
+	public void testAsyncPostFutureTriggersHandler() throws Exception {
+		CountingCoapHandler handler = new CountingCoapHandler() {
+
+			@Override
+			public void assertLoad(CoapResponse response) {
+				assertEquals(CONTENT_1, response.getResponseText());
+			}
+		};
+		client.postAsync(CONTENT_2.getBytes(), MediaTypeRegistry.TEXT_PLAIN).addHandler(handler);
+		assertTrue(handler.waitOnLoadCalls(1, 1, TimeUnit.SECONDS));
+		assertThat(resource.getContent(), is(CONTENT_2));
+	}
+
+	@Test
+	public void testCanceledFutureIsNotSent() throws Exception {
+		List<Request> requests = new ArrayList<>();
+		for (int index = 0; index < 10; ++index) {
+			requests.add(Request.newGet());
+		}
+		List<CoapResponseFuture> futures = client.pipeline(requests, 1);
+		CoapResponseFuture last = futures.get(futures.size() - 1);
+		assertTrue(last.cancel(false));
+		assertTrue(last.isCancelled());
+		for (int index = 0; index < futures.size() - 1; ++index) {
+			assertEquals(CONTENT_1, futures.get(index).get(1, TimeUnit.SECONDS).getResponseText());
+		}
+		assertThat(last.getRequest().isCanceled(), is(true));
+		try {
+			last.get();
+			fail("canceled future returned response");
+		} catch (CancellationException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testPipelineCompletesAllRequests() throws Exception {
+		List<Request> requests = new ArrayList<>();
+		for (int index = 0; index < 50; ++index) {
+			requests.add(Request.newGet());
+		}
+		List<CoapResponseFuture> futures = client.pipeline(requests, 4);
+		assertThat(futures.size(), is(requests.size()));
+		for (int index = 0; index < requests.size(); ++index) {
+			CoapResponseFuture future = futures.get(index);
+			assertThat(future.getRequest(), is(requests.get(index)));
+			assertEquals(CONTENT_1, future.get(1, TimeUnit.SECONDS).getResponseText());
+		}
+	}
+
+	@Test
+	public void testBlockwiseWindowDownloadsLargeBody() throws Exception {
+		client.setURI(largeUri);
+		client.useBlockwiseWindow(4).useEarlyNegotiation(64);
+		CoapResponse response = client.getAsync().get(2, TimeUnit.SECONDS);
+		assertThat(response.getCode(), is(ResponseCode.CONTENT));
+		assertEquals(largeContent, response.getResponseText());
+		assertThat(response.getOptions().hasBlock2(), is(false));
+
+		// download again with next exchanges
+		response = client.getAsync().get(2, TimeUnit.SECONDS);
+		assertEquals(largeContent, response.getResponseText());
+	}
+
+	@Test
+	public void testBlockwiseWindowDownloadsLargeBodyWithZeroSize2() throws Exception {
+		// a Size2 of 0 is considered as unknown size
+		MessageInterceptor zeroSize2 = new MessageInterceptorAdapter() {
+
+			@Override
+			public void sendResponse(Response response) {
+				if (response.getOptions().hasSize2()) {
+					response.getOptions().setSize2(0);
+				}
+			}
+		};
+		serverEndpoint.addInterceptor(zeroSize2);
+		try {
+			client.setURI(largeUri);
+			client.useBlockwiseWindow(4).useEarlyNegotiation(64);
+			CoapResponse response = client.getAsync().get(2, TimeUnit.SECONDS);
+			assertThat(response.getCode(), is(ResponseCode.CONTENT));
+			assertEquals(largeContent, response.getResponseText());
+		} finally {
+			serverEndpoint.removeInterceptor(zeroSize2);
+		}
+	}
+
+	@Test
+	public void testBlockwiseWindowDownloadsSingleBlock() throws Exception {
+		client.useBlockwiseWindow(4).useEarlyNegotiation(64);
+		CoapResponse response = client.getAsync().get(1, TimeUnit.SECONDS);
+		assertThat(response.getCode(), is(ResponseCode.CONTENT));
+		assertEquals(CONTENT_1, response.getResponseText());
+		assertThat(response.getOptions().hasBlock2(), is(false));
+	}
+
+	@Test
+	public void testBlockwiseWindowDeliversErrorResponse() throws Exception {
+		client.setURI(uri + "/missing");
+		client.useBlockwiseWindow(4);
+		CoapResponse response = client.getAsync().get(1, TimeUnit.SECONDS);
+		assertThat(response.getCode(), is(ResponseCode.NOT_FOUND));
+	}
+
 	private static CoapServer createServer() {
 		NetworkConfig config = network.getStandardTestConfig();
 		CoapEndpoint.Builder builder = new CoapEndpoint.Builder();
@@ -237,10 +370,17 @@ public class ClientAsynchronousTest {
 		resource = new StorageResource(TARGET, CONTENT_1);
 		CoapServer server = new CoapServer(config);
 		server.add(resource);
+		StringBuilder content = new StringBuilder();
+		for (int index = 0; content.length() < 2000; ++index) {
+			content.append("block-content-").append(index).append(',');
+		}
+		largeContent = content.toString();
+		server.add(new StorageResource(LARGE_TARGET, largeContent));
 
 		server.addEndpoint(serverEndpoint);
 		server.start();
 		uri = TestTools.getUri(serverEndpoint, TARGET);
+		largeUri = TestTools.getUri(serverEndpoint, LARGE_TARGET);
 		return server;
 	}
 
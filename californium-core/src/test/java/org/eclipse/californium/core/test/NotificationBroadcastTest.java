@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.core.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.californium.TestTools;
+import org.eclipse.californium.core.CoapClient;
+import org.eclipse.californium.core.CoapObserveRelation;
+import org.eclipse.californium.core.CoapResource;
+import org.eclipse.californium.core.CoapResponse;
+import org.eclipse.californium.core.CoapServer;
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.core.network.Exchange;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.core.server.resources.CoapExchange;
+import org.eclipse.californium.elements.category.Medium;
+import org.eclipse.californium.elements.rule.TestNameLoggerRule;
+import org.eclipse.californium.rule.CoapNetworkRule;
+import org.eclipse.californium.rule.CoapThreadsRule;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Test notification broadcast of a {@link CoapResource}.
+ */
+@Category(Medium.class)
+public class NotificationBroadcastTest {
+
+	@ClassRule
+	public static CoapNetworkRule network = new CoapNetworkRule(CoapNetworkRule.Mode.DIRECT,
+			CoapNetworkRule.Mode.NATIVE);
+
+	private static final int OBSERVERS = 20;
+	/**
+	 * Number of observers to require more than one batch.
+	 */
+	private static final int BATCH_OBSERVERS = 300;
+	private static final String TARGET = "broadcast";
+
+	@Rule
+	public CoapThreadsRule cleanup = new CoapThreadsRule();
+
+	@Rule
+	public TestNameLoggerRule name = new TestNameLoggerRule();
+
+	private BroadcastResource resource;
+	private CoapClient client;
+
+	@Before
+	public void startupServer() {
+		NetworkConfig config = network.createStandardTestConfig();
+		config.setInt(NetworkConfig.Keys.PROTOCOL_STAGE_THREAD_COUNT, 4);
+
+		CoapEndpoint.Builder builder = new CoapEndpoint.Builder();
+		builder.setInetSocketAddress(TestTools.LOCALHOST_EPHEMERAL);
+		builder.setNetworkConfig(config);
+		CoapEndpoint serverEndpoint = builder.build();
+
+		CoapServer server = new CoapServer(config);
+		cleanup.add(server);
+		server.addEndpoint(serverEndpoint);
+		resource = new BroadcastResource(TARGET);
+		server.add(resource);
+		server.start();
+
+		builder = new CoapEndpoint.Builder();
+		builder.setInetSocketAddress(TestTools.LOCALHOST_EPHEMERAL);
+		builder.setNetworkConfig(config);
+		CoapEndpoint clientEndpoint = builder.build();
+		cleanup.add(clientEndpoint);
+
+		client = new CoapClient(TestTools.getUri(serverEndpoint, TARGET));
+		client.setEndpoint(clientEndpoint);
+		cleanup.add(client);
+	}
+
+	@Test
+	public void testNotificationIsRenderedOncePerVariant() throws Exception {
+		List<CountingCoapHandler> handlers = new ArrayList<>();
+		List<CoapObserveRelation> relations = new ArrayList<>();
+		for (int index = 0; index < OBSERVERS; ++index) {
+			int accept = (index & 1) == 0 ? MediaTypeRegistry.TEXT_PLAIN : MediaTypeRegistry.APPLICATION_JSON;
+			CountingCoapHandler handler = new CountingCoapHandler();
+			relations.add(client.observeAndWait(handler, accept));
+			assertTrue(handler.waitOnLoadCalls(1, 1000, TimeUnit.MILLISECONDS));
+			handlers.add(handler);
+		}
+		assertEquals(OBSERVERS, resource.getCounter.get());
+
+		resource.change("next");
+
+		for (int index = 0; index < OBSERVERS; ++index) {
+			CountingCoapHandler handler = handlers.get(index);
+			assertTrue("missing notification " + index, handler.waitOnLoadCalls(2, 1000, TimeUnit.MILLISECONDS));
+			CoapResponse response = relations.get(index).getCurrent();
+			if ((index & 1) == 0) {
+				assertEquals("next", response.getResponseText());
+				assertEquals(MediaTypeRegistry.TEXT_PLAIN, response.getOptions().getContentFormat());
+			} else {
+				assertEquals("{\"value\":\"next\"}", response.getResponseText());
+				assertEquals(MediaTypeRegistry.APPLICATION_JSON, response.getOptions().getContentFormat());
+			}
+		}
+		// rendered once for each of the two variants
+		assertEquals(OBSERVERS + 2, resource.getCounter.get());
+
+		for (CoapObserveRelation relation : relations) {
+			relation.proactiveCancel();
+		}
+	}
+
+	@Test
+	public void testObserveNumberIsIncreased() throws Exception {
+		CountingCoapHandler handler = new CountingCoapHandler();
+		CoapObserveRelation relation = client.observeAndWait(handler);
+		assertTrue(handler.waitOnLoadCalls(1, 1000, TimeUnit.MILLISECONDS));
+		Integer first = relation.getCurrent().getOptions().getObserve();
+
+		resource.change("next");
+		assertTrue(handler.waitOnLoadCalls(2, 1000, TimeUnit.MILLISECONDS));
+		Integer second = relation.getCurrent().getOptions().getObserve();
+		assertTrue("observe not increased " + first + " >= " + second, first < second);
+
+		relation.proactiveCancel();
+	}
+
+	/**
+	 * Test, that the batches are executed in parallel by the executor of the
+	 * server, if the resource doesn't define an executor.
+	 */
+	@Test
+	public void testBatchesAreExecutedInParallel() throws Exception {
+		List<CountingCoapHandler> handlers = new ArrayList<>();
+		List<CoapObserveRelation> relations = new ArrayList<>();
+		for (int index = 0; index < BATCH_OBSERVERS; ++index) {
+			CountingCoapHandler handler = new CountingCoapHandler();
+			relations.add(client.observeAndWait(handler));
+			assertTrue(handler.waitOnLoadCalls(1, 1000, TimeUnit.MILLISECONDS));
+			handlers.add(handler);
+		}
+
+		// each batch waits in its first notification for a second batch
+		resource.batches = new CountDownLatch(2);
+		resource.change("next");
+
+		for (int index = 0; index < BATCH_OBSERVERS; ++index) {
+			CountingCoapHandler handler = handlers.get(index);
+			assertTrue("missing notification " + index, handler.waitOnLoadCalls(2, 5000, TimeUnit.MILLISECONDS));
+		}
+		assertFalse("batch executed by caller", resource.batchThreads.contains(Thread.currentThread()));
+		assertTrue("batches not executed in parallel", resource.parallel.get());
+
+		for (CoapObserveRelation relation : relations) {
+			relation.proactiveCancel();
+		}
+	}
+
+	private static class BroadcastResource extends CoapResource {
+
+		private final AtomicInteger getCounter = new AtomicInteger();
+		private final Set<Thread> batchThreads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+		private final AtomicBoolean parallel = new AtomicBoolean();
+		private volatile CountDownLatch batches;
+		private volatile String value = "initial";
+
+		public BroadcastResource(String name) {
+			super(name);
+			setObservable(true);
+			setNotificationBroadcast(true);
+		}
+
+		public void change(String value) {
+			this.value = value;
+			changed();
+		}
+
+		@Override
+		public void checkObserveRelation(Exchange exchange, Response response) {
+			CountDownLatch batches = this.batches;
+			if (batches != null && batchThreads.add(Thread.currentThread())) {
+				batches.countDown();
+				try {
+					if (batches.await(2000, TimeUnit.MILLISECONDS)) {
+						parallel.set(true);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			super.checkObserveRelation(exchange, response);
+		}
+
+		@Override
+		public void handleGET(CoapExchange exchange) {
+			getCounter.incrementAndGet();
+			if (exchange.getRequestOptions().getAccept() == MediaTypeRegistry.APPLICATION_JSON) {
+				exchange.respond(ResponseCode.CONTENT, "{\"value\":\"" + value + "\"}",
+						MediaTypeRegistry.APPLICATION_JSON);
+			} else {
+				exchange.respond(ResponseCode.CONTENT, value, MediaTypeRegistry.TEXT_PLAIN);
+			}
+		}
+	}
+}
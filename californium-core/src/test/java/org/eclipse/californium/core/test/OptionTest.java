@@ -16,6 +16,7 @@
  *    Dominique Im Obersteg - parsers and initial implementation
  *    Daniel Pauli - parsers and initial implementation
  *    Kai Hudalla - logging
+ *    Bosch.IO GmbH - add tests for encoded options
  ******************************************************************************/
 package org.eclipse.californium.core.test;
 
@@ -24,6 +25,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.List;
+
+import org.eclipse.californium.core.coap.CoAP;
 import org.eclipse.californium.core.coap.Option;
 import org.eclipse.californium.core.coap.OptionNumberRegistry;
 import org.eclipse.californium.core.coap.OptionSet;
@@ -435,4 +439,107 @@ public class OptionTest {
 				"{\"ETag\":[0x010203,0xbeef], \"Location-Path\":\"abc\", \"Uri-Path\":[\"this\",\"is\",\"a\",\"test\"], \"Max-Age\":77}",
 				options.toString());
 	}
+
+	@Test
+	public void testEncodedOptions() {
+		byte[] buffer = "xxtestpathvalue".getBytes(CoAP.UTF8_CHARSET);
+		byte[] maxAge = new byte[] { 0, 1, 2 };
+		OptionSet options = new OptionSet();
+		options.addEncodedOption(buffer, OptionNumberRegistry.URI_PATH, 2, 4);
+		options.addEncodedOption(buffer, OptionNumberRegistry.URI_PATH, 6, 4);
+		options.addEncodedOption(buffer, OptionNumberRegistry.URI_QUERY, 10, 5);
+		options.addEncodedOption(maxAge, OptionNumberRegistry.MAX_AGE, 1, 2);
+
+		assertEquals("test/path", options.getUriPathString());
+		assertEquals("value", options.getUriQueryString());
+		assertEquals(Long.valueOf(0x0102), options.getMaxAge());
+		assertFalse(options.hasContentFormat());
+		assertEquals(4, options.asSortedList().size());
+	}
+
+	@Test
+	public void testEncodedOptionsDecodedOnAccess() {
+		byte[] buffer = new byte[] { 1, 2, 3 };
+		OptionSet options = new OptionSet();
+		options.addEncodedOption(buffer, OptionNumberRegistry.ETAG, 0, 3);
+		options.addEncodedOption(buffer, OptionNumberRegistry.IF_MATCH, 1, 2);
+		// modification of the buffer is visible for not decoded options
+		buffer[0] = 4;
+		assertArrayEquals(new byte[] { 4, 2, 3 }, options.getETags().get(0));
+		buffer[1] = 5;
+		assertArrayEquals(new byte[] { 4, 2, 3 }, options.getETags().get(0));
+		assertArrayEquals(new byte[] { 5, 3 }, options.getIfMatch().get(0));
+	}
+
+	@Test
+	public void testEncodedOptionsKeepOrder() {
+		byte[] buffer = "abc".getBytes(CoAP.UTF8_CHARSET);
+		OptionSet options = new OptionSet();
+		options.addEncodedOption(buffer, OptionNumberRegistry.URI_PATH, 0, 1);
+		options.addUriPath("b");
+		options.addEncodedOption(buffer, OptionNumberRegistry.URI_PATH, 2, 1);
+		assertEquals("a/b/c", options.getUriPathString());
+
+		options.addEncodedOption(buffer, OptionNumberRegistry.URI_HOST, 0, 3);
+		options.setUriHost("host");
+		assertEquals("host", options.getUriHost());
+
+		options.addEncodedOption(buffer, 65000, 0, 1);
+		options.addOption(new Option(65000, "b"));
+		List<Option> others = options.getOthers();
+		assertEquals(2, others.size());
+		assertEquals("a", others.get(0).getStringValue());
+		assertEquals("b", others.get(1).getStringValue());
+	}
+
+	@Test
+	public void testEncodedOptionsCopy() {
+		byte[] buffer = "abc".getBytes(CoAP.UTF8_CHARSET);
+		OptionSet options = new OptionSet();
+		options.addEncodedOption(buffer, OptionNumberRegistry.LOCATION_PATH, 0, 3);
+		OptionSet copy = new OptionSet(options);
+		assertEquals("abc", copy.getLocationPathString());
+		assertEquals("abc", options.getLocationPathString());
+		options.clear();
+		assertEquals(0, options.getLocationPathCount());
+		assertEquals(1, copy.getLocationPathCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEncodedOptionInvalidUriHost() {
+		new OptionSet().addEncodedOption(new byte[2], OptionNumberRegistry.URI_HOST, 0, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEncodedOptionInvalidObserve() {
+		new OptionSet().addEncodedOption(new byte[] { 1, 0, 0, 0 }, OptionNumberRegistry.OBSERVE, 0, 4);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEncodedOptionExceedsBuffer() {
+		new OptionSet().addEncodedOption(new byte[2], OptionNumberRegistry.ETAG, 1, 2);
+	}
+
+	@Test
+	public void testSortedListMergesOtherOptions() {
+		OptionSet options = new OptionSet();
+		options.addOption(new Option(65000, "z"));
+		options.addOption(new Option(2, "a"));
+		options.setSize1(10);
+		options.setObserve(1);
+		options.setUriPath("path");
+		options.addOtherOption(new Option(OptionNumberRegistry.URI_PATH, "other"));
+		options.setBlock2(0, false, 1);
+
+		List<Option> list = options.asSortedList();
+		int[] expected = { 2, OptionNumberRegistry.OBSERVE, OptionNumberRegistry.URI_PATH,
+				OptionNumberRegistry.URI_PATH, OptionNumberRegistry.BLOCK2, OptionNumberRegistry.SIZE1, 65000 };
+		assertEquals(expected.length, list.size());
+		for (int index = 0; index < expected.length; ++index) {
+			assertEquals(expected[index], list.get(index).getNumber());
+		}
+		// known options are sorted before other options with the same number
+		assertEquals("path", list.get(2).getStringValue());
+		assertEquals("other", list.get(3).getStringValue());
+	}
 }
@@ -28,6 +28,7 @@
  *    Achim Kraus (Bosch Software Innovations GmbH) - replace byte array token by Token
  *    Achim Kraus (Bosch Software Innovations GmbH) - relax timing for eclipse jenkins
  *    Achim Kraus (Bosch Software Innovations GmbH) - add partial support for TimeAssume
+ *    Bosch.IO GmbH                                 - add tests for streamed transfers
  ******************************************************************************/
 package org.eclipse.californium.core.test.lockstep;
 
@@ -38,28 +39,43 @@ import static org.eclipse.californium.core.coap.CoAP.Code.PUT;
 import static org.eclipse.californium.core.coap.CoAP.ResponseCode.CHANGED;
 import static org.eclipse.californium.core.coap.CoAP.ResponseCode.CONTENT;
 import static org.eclipse.californium.core.coap.CoAP.ResponseCode.CONTINUE;
+import static org.eclipse.californium.core.coap.CoAP.ResponseCode.INTERNAL_SERVER_ERROR;
 import static org.eclipse.californium.core.coap.CoAP.ResponseCode.REQUEST_ENTITY_INCOMPLETE;
 import static org.eclipse.californium.core.coap.CoAP.ResponseCode.REQUEST_ENTITY_TOO_LARGE;
 import static org.eclipse.californium.core.coap.CoAP.Type.ACK;
 import static org.eclipse.californium.core.coap.CoAP.Type.CON;
 import static org.eclipse.californium.core.coap.CoAP.Type.NON;
+import static org.eclipse.californium.core.coap.OptionNumberRegistry.BLOCK2;
 import static org.eclipse.californium.core.coap.OptionNumberRegistry.OBSERVE;
 import static org.eclipse.californium.core.test.MessageExchangeStoreTool.assertAllExchangesAreCompleted;
 import static org.eclipse.californium.core.test.lockstep.IntegrationTestTools.createLockstepEndpoint;
 import static org.eclipse.californium.core.test.lockstep.IntegrationTestTools.generateNextToken;
 import static org.eclipse.californium.core.test.lockstep.IntegrationTestTools.printServerLog;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.californium.TestTools;
 import org.eclipse.californium.core.CoapResource;
 import org.eclipse.californium.core.CoapServer;
+import org.eclipse.californium.core.coap.BlockwiseBodyConsumer;
 import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.Request;
 import org.eclipse.californium.core.coap.Response;
 import org.eclipse.californium.core.coap.Token;
+import org.eclipse.californium.core.network.Exchange;
 import org.eclipse.californium.core.network.config.NetworkConfig;
 import org.eclipse.californium.core.server.resources.CoapExchange;
 import org.eclipse.californium.core.test.MessageExchangeStoreTool.CoapTestEndpoint;
@@ -75,6 +91,7 @@ import org.junit.ClassRule;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
 
 
 /**
@@ -95,12 +112,16 @@ public class BlockwiseServerSideTest {
 	@Rule
 	public TestNameLoggerRule name = new TestNameLoggerRule();
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	private static final int TEST_EXCHANGE_LIFETIME = 247; // milliseconds
 	private static final int TEST_SWEEP_DEDUPLICATOR_INTERVAL = 100; // milliseconds
 	private static final int TEST_PREFERRED_BLOCK_SIZE = 128; // bytes
 	private static final int TEST_BLOCKWISE_STATUS_LIFETIME = 500;
 	private static final int MAX_RESOURCE_BODY_SIZE = 1024;
 	private static final String RESOURCE_PATH = "test";
+	private static final String STREAM_RESOURCE_PATH = "stream";
 
 	private NetworkConfig config;
 
@@ -109,6 +130,7 @@ public class BlockwiseServerSideTest {
 	private LockstepEndpoint client;
 	private int mid = 7000;
 	private TestResource testResource;
+	private StreamResource streamResource;
 	private String respPayload;
 	private String reqtPayload;
 	private byte[] etag;
@@ -137,6 +159,8 @@ public class BlockwiseServerSideTest {
 		server = new CoapServer(config);
 		server.addEndpoint(serverEndpoint);
 		server.add(testResource);
+		streamResource = new StreamResource(STREAM_RESOURCE_PATH);
+		server.add(streamResource);
 		server.start();
 		cleanup.add(server);
 		InetSocketAddress serverAddress = serverEndpoint.getAddress();
@@ -973,6 +997,147 @@ public class BlockwiseServerSideTest {
 		testResource.clearObserveRelations();
 	}
 
+	/**
+	 * Verifies, that a streamed request body is passed block by block to the
+	 * consumer of the resource, even if the body exceeds the
+	 * MAX_RESOURCE_BODY_SIZE.
+	 * 
+	 * @throws Exception if the test fails.
+	 */
+	@Test
+	public void testStreamedBlockwisePUT() throws Exception {
+		System.out.println("Streamed blockwise PUT");
+		respPayload = generateRandomPayload(50);
+		reqtPayload = generateRandomPayload(MAX_RESOURCE_BODY_SIZE + 200);
+
+		Token tok = generateNextToken();
+		sendStreamBlocks(tok, 0, reqtPayload.length());
+
+		assertThat(streamResource.consumers.size(), is(1));
+		TestBodyConsumer consumer = streamResource.consumers.get(0);
+		assertThat(consumer.getBody(), is(reqtPayload));
+		assertThat(consumer.aborted, is(false));
+		assertThat(streamResource.request.getPayloadSize(), is(0));
+		assertThat((TestBodyConsumer) streamResource.request.getBodyConsumer(), is(sameInstance(consumer)));
+	}
+
+	/**
+	 * Verifies, that the consumer of a streamed request body is aborted, when
+	 * the peer restarts the transfer.
+	 * 
+	 * @throws Exception if the test fails.
+	 */
+	@Test
+	public void testStreamedBlockwisePUTWithRestartOfTransfer() throws Exception {
+		System.out.println("Streamed blockwise PUT restart of the blockwise transfer");
+		respPayload = generateRandomPayload(50);
+		reqtPayload = generateRandomPayload(300);
+
+		Token tok = generateNextToken();
+		client.sendRequest(CON, PUT, tok, ++mid).path(STREAM_RESOURCE_PATH).block1(0, true, 128).size1(reqtPayload.length()).payload(reqtPayload, 0, 128).go();
+		client.expectResponse(ACK, CONTINUE, tok, mid).block1(0, true, 128).go();
+
+		client.sendRequest(CON, PUT, tok, ++mid).path(STREAM_RESOURCE_PATH).block1(1, true, 128).payload(reqtPayload, 128, 256).go();
+		client.expectResponse(ACK, CONTINUE, tok, mid).block1(1, true, 128).go();
+
+		serverInterceptor.logNewLine("... client crashes or whatever and restarts transfer");
+
+		sendStreamBlocks(tok, 0, reqtPayload.length());
+
+		assertThat(streamResource.consumers.size(), is(2));
+		assertThat(streamResource.consumers.get(0).aborted, is(true));
+		assertThat(streamResource.consumers.get(1).aborted, is(false));
+		assertThat(streamResource.consumers.get(1).getBody(), is(reqtPayload));
+	}
+
+	/**
+	 * Verifies, that the transfer fails with a 5.00 and the consumer is
+	 * aborted, if the consumer fails.
+	 * 
+	 * @throws Exception if the test fails.
+	 */
+	@Test
+	public void testStreamedBlockwisePUTFailsWith500IfConsumerFails() throws Exception {
+		System.out.println("Streamed blockwise PUT fails for failing consumer");
+		reqtPayload = generateRandomPayload(300);
+		streamResource.failingBlock = 1;
+
+		Token tok = generateNextToken();
+		client.sendRequest(CON, PUT, tok, ++mid).path(STREAM_RESOURCE_PATH).block1(0, true, 128).size1(reqtPayload.length()).payload(reqtPayload, 0, 128).go();
+		client.expectResponse(ACK, CONTINUE, tok, mid).block1(0, true, 128).go();
+
+		client.sendRequest(CON, PUT, tok, ++mid).path(STREAM_RESOURCE_PATH).block1(1, true, 128).payload(reqtPayload, 128, 256).go();
+		client.expectResponse(ACK, INTERNAL_SERVER_ERROR, tok, mid).block1(1, true, 128).go();
+
+		assertThat(streamResource.consumers.size(), is(1));
+		assertThat(streamResource.consumers.get(0).aborted, is(true));
+		assertThat(streamResource.request, is(nullValue()));
+	}
+
+	/**
+	 * Verifies, that the blocks of a response with a body source are read
+	 * from that source and the source is closed at the end of the transfer.
+	 * 
+	 * @throws Exception if the test fails.
+	 */
+	@Test
+	public void testGETWithBodySource() throws Exception {
+		System.out.println("Blockwise GET with body source");
+		respPayload = generateRandomPayload(300);
+		Token tok = generateNextToken();
+
+		client.sendRequest(CON, GET, tok, ++mid).path(STREAM_RESOURCE_PATH).go();
+		client.expectResponse(ACK, CONTENT, tok, mid).block2(0, true, 128).size2(300).payload(respPayload, 0, 128).go();
+		assertThat(streamResource.source.isOpen(), is(true));
+
+		client.sendRequest(CON, GET, tok, ++mid).path(STREAM_RESOURCE_PATH).block2(1, false, 128).go();
+		client.expectResponse(ACK, CONTENT, tok, mid).block2(1, true, 128).payload(respPayload, 128, 256).go();
+
+		client.sendRequest(CON, GET, tok, ++mid).path(STREAM_RESOURCE_PATH).block2(2, false, 128).go();
+		client.expectResponse(ACK, CONTENT, tok, mid).block2(2, false, 128).payload(respPayload, 256, 300).go();
+		assertThat(streamResource.source.isOpen(), is(false));
+	}
+
+	/**
+	 * Verifies, that a small response with a body source is sent in a single
+	 * message and that random access reads the requested block from the
+	 * source.
+	 * 
+	 * @throws Exception if the test fails.
+	 */
+	@Test
+	public void testSingleAndRandomAccessGETWithBodySource() throws Exception {
+		System.out.println("Single and random access GET with body source");
+		respPayload = generateRandomPayload(100);
+		Token tok = generateNextToken();
+
+		client.sendRequest(CON, GET, tok, ++mid).path(STREAM_RESOURCE_PATH).go();
+		client.expectResponse(ACK, CONTENT, tok, mid).noOption(BLOCK2).payload(respPayload).go();
+		assertThat(streamResource.source.isOpen(), is(false));
+
+		respPayload = generateRandomPayload(300);
+		client.sendRequest(CON, GET, tok, ++mid).path(STREAM_RESOURCE_PATH).block2(2, true, 64).go();
+		client.expectResponse(ACK, CONTENT, tok, mid).block2(2, true, 64).payload(respPayload, 128, 192).go();
+		assertThat(streamResource.source.isOpen(), is(false));
+	}
+
+	private void sendStreamBlocks(Token tok, int num, int length) throws Exception {
+		for (int from = num * 128; from < length; from += 128, ++num) {
+			int to = Math.min(from + 128, length);
+			boolean m = to < length;
+			LockstepEndpoint.RequestProperty request = client.sendRequest(CON, PUT, tok, ++mid).path(STREAM_RESOURCE_PATH).block1(num, m, 128).payload(reqtPayload, from, to);
+			if (num == 0) {
+				request.size1(length);
+			}
+			request.go();
+			if (m) {
+				client.expectResponse(ACK, CONTINUE, tok, mid).block1(num, true, 128).go();
+			} else {
+				client.expectResponse(ACK, CHANGED, tok, mid).block1(num, false, 128).payload(respPayload).go();
+			}
+		}
+	}
+
 	// All tests are made with this resource
 	private class TestResource extends CoapResource {
 
@@ -1013,4 +1178,77 @@ public class BlockwiseServerSideTest {
 			exchange.respond(response);
 		}
 	}
+
+	private class StreamResource extends CoapResource implements BlockwiseBodyConsumer.Provider {
+
+		private final List<TestBodyConsumer> consumers = new ArrayList<TestBodyConsumer>();
+		private volatile int failingBlock = -1;
+		private volatile Request request;
+		private volatile FileChannel source;
+
+		public StreamResource(String name) {
+			super(name);
+		}
+
+		@Override
+		public BlockwiseBodyConsumer getBodyConsumer(Exchange exchange) {
+			TestBodyConsumer consumer = new TestBodyConsumer(failingBlock);
+			consumers.add(consumer);
+			return consumer;
+		}
+
+		public void handleGET(final CoapExchange exchange) {
+			Response resp = Response.createResponse(exchange.advanced().getRequest(), ResponseCode.CONTENT);
+			try {
+				File file = folder.newFile();
+				FileOutputStream out = new FileOutputStream(file);
+				try {
+					out.write(respPayload.getBytes());
+				} finally {
+					out.close();
+				}
+				source = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+				resp.setBodySource(source);
+			} catch (IOException e) {
+				resp = Response.createResponse(exchange.advanced().getRequest(), ResponseCode.INTERNAL_SERVER_ERROR);
+			}
+			exchange.respond(resp);
+		}
+
+		public void handlePUT(final CoapExchange exchange) {
+			request = exchange.advanced().getRequest();
+			Response resp = Response.createResponse(exchange.advanced().getRequest(), ResponseCode.CHANGED);
+			resp.setPayload(respPayload);
+			exchange.respond(resp);
+		}
+	}
+
+	private static class TestBodyConsumer implements BlockwiseBodyConsumer {
+
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		private final int failingBlock;
+		private int blocks;
+		private volatile boolean aborted;
+
+		private TestBodyConsumer(int failingBlock) {
+			this.failingBlock = failingBlock;
+		}
+
+		@Override
+		public synchronized void onBlock(byte[] block) throws IOException {
+			if (blocks++ == failingBlock) {
+				throw new IOException("failure!");
+			}
+			body.write(block);
+		}
+
+		@Override
+		public void onAbort() {
+			aborted = true;
+		}
+
+		private synchronized String getBody() {
+			return new String(body.toByteArray());
+		}
+	}
 }
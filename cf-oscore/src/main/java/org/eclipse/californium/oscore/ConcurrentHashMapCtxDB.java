@@ -0,0 +1,339 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.californium.elements.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implements the OSCoreCtxDB interface with concurrent maps.
+ * 
+ * In difference to the {@link HashMapCtxDB}, the database is not locked. The
+ * lookups, which are executed for every protected message, don't block each
+ * other. Updates are only locked per segment of the maps, so messages of
+ * different contexts and tokens are processed in parallel.
+ * 
+ * The contexts of the same RID are kept in a nested map with the ID Context
+ * as key. A nested map is removed, when it gets empty. If a context is added
+ * to a nested map after it has been removed, the adding is retried with a new
+ * nested map. If a context is added after the empty check, but before the
+ * nested map is removed, the removing adds that context again.
+ * 
+ * @since 2.5
+ */
+public class ConcurrentHashMapCtxDB implements OSCoreCtxDB {
+
+	/**
+	 * The logger
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentHashMapCtxDB.class);
+
+	/**
+	 * Key for uris without host. Concurrent maps don't support {@code null}
+	 * as key.
+	 */
+	private static final String NO_HOST = "";
+
+	/**
+	 * Map of RID to map of ID Context to context.
+	 */
+	private final ConcurrentMap<ByteId, ConcurrentMap<ByteId, OSCoreCtx>> contextMap = new ConcurrentHashMap<ByteId, ConcurrentMap<ByteId, OSCoreCtx>>();
+
+	private final ConcurrentMap<Token, OSCoreCtx> tokenMap = new ConcurrentHashMap<Token, OSCoreCtx>();
+	private final ConcurrentMap<String, OSCoreCtx> uriMap = new ConcurrentHashMap<String, OSCoreCtx>();
+	private final ConcurrentMap<Token, Integer> seqMap = new ConcurrentHashMap<Token, Integer>();
+
+	private final Set<Token> allTokens = Collections.newSetFromMap(new ConcurrentHashMap<Token, Boolean>());
+
+	/**
+	 * Retrieve context using RID and ID Context. If the provided ID Context is
+	 * null a result will be returned if there is only one unique context for
+	 * that RID.
+	 */
+	@Override
+	public OSCoreCtx getContext(byte[] rid, byte[] IDContext) throws CoapOSException {
+		// Do not allow a null RID
+		if (rid == null) {
+			LOGGER.error(ErrorDescriptions.BYTE_ARRAY_NULL);
+			throw new NullPointerException(ErrorDescriptions.BYTE_ARRAY_NULL);
+		}
+
+		ConcurrentMap<ByteId, OSCoreCtx> matchingRidMap = contextMap.get(new ByteId(rid));
+
+		// No matching RID found at all
+		if (matchingRidMap == null) {
+			return null;
+		}
+
+		if (IDContext == null) {
+			// If retrieving using only RID, there must be only 1 match maximum
+			if (matchingRidMap.size() > 1) {
+				throw new CoapOSException(ErrorDescriptions.CONTEXT_NOT_FOUND_IDCONTEXT, ResponseCode.UNAUTHORIZED);
+			}
+			return first(matchingRidMap);
+		} else {
+			// If retrieving using both RID and ID Context
+			return matchingRidMap.get(new ByteId(IDContext));
+		}
+	}
+
+	/**
+	 * Retrieve context using only RID when it is certain it is unique.
+	 */
+	@Override
+	public OSCoreCtx getContext(byte[] rid) {
+		ConcurrentMap<ByteId, OSCoreCtx> matchingRidMap = contextMap.get(new ByteId(rid));
+
+		if (matchingRidMap == null) {
+			return null;
+		}
+
+		if (matchingRidMap.size() > 1) {
+			throw new RuntimeException("Attempting to retrieve context with only non-unique RID.");
+		}
+
+		return first(matchingRidMap);
+	}
+
+	@Override
+	public OSCoreCtx getContextByToken(Token token) {
+		if (token != null) {
+			return tokenMap.get(token);
+		} else {
+			LOGGER.error(ErrorDescriptions.TOKEN_NULL);
+			throw new NullPointerException(ErrorDescriptions.TOKEN_NULL);
+		}
+	}
+
+	@Override
+	public OSCoreCtx getContext(String uri) throws OSException {
+		if (uri != null) {
+			return uriMap.get(uriKey(HashMapCtxDB.normalizeServerUri(uri)));
+		} else {
+			LOGGER.error(ErrorDescriptions.STRING_NULL);
+			throw new NullPointerException(ErrorDescriptions.STRING_NULL);
+		}
+	}
+
+	@Override
+	public void addContext(Token token, OSCoreCtx ctx) {
+		if (token != null) {
+			if (ctx == null) {
+				LOGGER.error(ErrorDescriptions.CONTEXT_NULL);
+				throw new NullPointerException(ErrorDescriptions.CONTEXT_NULL);
+			}
+			allTokens.add(token);
+			tokenMap.put(token, ctx);
+		}
+		addContext(ctx);
+	}
+
+	@Override
+	public void addContext(String uri, OSCoreCtx ctx) throws OSException {
+		if (uri != null) {
+			if (ctx == null) {
+				LOGGER.error(ErrorDescriptions.CONTEXT_NULL);
+				throw new NullPointerException(ErrorDescriptions.CONTEXT_NULL);
+			}
+			String normalizedUri = HashMapCtxDB.normalizeServerUri(uri);
+			uriMap.put(uriKey(normalizedUri), ctx);
+			ctx.setUri(normalizedUri);
+		}
+		addContext(ctx);
+	}
+
+	@Override
+	public void addContext(OSCoreCtx ctx) {
+		if (ctx != null) {
+			ByteId rid = new ByteId(ctx.getRecipientId());
+			ByteId idContext = idContext(ctx);
+			while (true) {
+				ConcurrentMap<ByteId, OSCoreCtx> ridMap = contextMap.get(rid);
+				// If there is no existing map for this RID, create it
+				if (ridMap == null) {
+					ConcurrentMap<ByteId, OSCoreCtx> newRidMap = new ConcurrentHashMap<ByteId, OSCoreCtx>(4);
+					ridMap = contextMap.putIfAbsent(rid, newRidMap);
+					if (ridMap == null) {
+						ridMap = newRidMap;
+					}
+				}
+				ridMap.put(idContext, ctx);
+				// the map may have been removed concurrently, when it was
+				// empty before
+				if (contextMap.get(rid) == ridMap) {
+					break;
+				}
+			}
+		} else {
+			LOGGER.error(ErrorDescriptions.CONTEXT_NULL);
+			throw new NullPointerException(ErrorDescriptions.CONTEXT_NULL);
+		}
+	}
+
+	@Override
+	public void removeContext(OSCoreCtx ctx) {
+		if (ctx != null) {
+			ByteId rid = new ByteId(ctx.getRecipientId());
+			ConcurrentMap<ByteId, OSCoreCtx> ridMap = contextMap.get(rid);
+
+			// If there is no existing map for this RID return
+			if (ridMap == null) {
+				return;
+			}
+
+			ridMap.remove(idContext(ctx));
+
+			if (ridMap.isEmpty()) {
+				// If the RID map is now empty, remove it
+				if (contextMap.remove(rid, ridMap)) {
+					// a context may have been added concurrently after the
+					// empty check, but before the removal. Add these
+					// contexts again.
+					for (OSCoreCtx remaining : ridMap.values()) {
+						addContext(remaining);
+					}
+				}
+			}
+		} else {
+			LOGGER.error(ErrorDescriptions.CONTEXT_NULL);
+			throw new NullPointerException(ErrorDescriptions.CONTEXT_NULL);
+		}
+	}
+
+	@Override
+	public Integer getSeqByToken(Token token) {
+		if (token != null) {
+			return seqMap.get(token);
+		} else {
+			LOGGER.error(ErrorDescriptions.TOKEN_NULL);
+			throw new NullPointerException(ErrorDescriptions.TOKEN_NULL);
+		}
+	}
+
+	@Override
+	public void addSeqByToken(Token token, Integer seq) {
+		if (seq == null || seq < 0) {
+			throw new NullPointerException(ErrorDescriptions.SEQ_NBR_INVALID);
+		}
+		if (token == null) {
+			throw new NullPointerException(ErrorDescriptions.TOKEN_NULL);
+		}
+		if (!allTokens.add(token)) {
+			LOGGER.info("Token exists, but this could be a refresh if not there is a problem");
+		}
+		seqMap.put(token, seq);
+	}
+
+	@Override
+	public boolean tokenExist(Token token) {
+		if (token != null) {
+			return allTokens.contains(token);
+		} else {
+			LOGGER.error(ErrorDescriptions.TOKEN_NULL);
+			throw new NullPointerException(ErrorDescriptions.TOKEN_NULL);
+		}
+	}
+
+	@Override
+	public void removeSeqByToken(Token token) {
+		if (token != null) {
+			seqMap.remove(token);
+			if (!tokenMap.containsKey(token)) {
+				allTokens.remove(token);
+			}
+		} else {
+			LOGGER.error(ErrorDescriptions.TOKEN_NULL);
+			throw new NullPointerException(ErrorDescriptions.TOKEN_NULL);
+		}
+	}
+
+	@Override
+	public void updateSeqByToken(Token token, Integer seq) {
+		if (tokenExist(token)) {
+			addSeqByToken(token, seq);
+		}
+	}
+
+	/**
+	 * Removes associations for this token, except for the generator
+	 * 
+	 * @param token the token to remove
+	 */
+	@Override
+	public void removeToken(Token token) {
+		tokenMap.remove(token);
+		seqMap.remove(token);
+	}
+
+	/**
+	 * Used mainly for test purpose, to purge the db of all contexts
+	 */
+	@Override
+	public void purge() {
+		contextMap.clear();
+		tokenMap.clear();
+		uriMap.clear();
+		seqMap.clear();
+		allTokens.clear();
+	}
+
+	/**
+	 * Get key for the uri map.
+	 * 
+	 * @param normalizedUri normalized uri. May be {@code null}, if the uri
+	 *            has no host.
+	 * @return key for the uri map
+	 */
+	private static String uriKey(String normalizedUri) {
+		return normalizedUri == null ? NO_HOST : normalizedUri;
+	}
+
+	/**
+	 * Get ID Context of context as key for the nested map.
+	 * 
+	 * @param ctx context
+	 * @return ID Context as key. {@link Bytes#EMPTY}, if the context has no
+	 *         ID Context.
+	 */
+	private static ByteId idContext(OSCoreCtx ctx) {
+		byte[] IDContext = ctx.getIdContext();
+		if (IDContext == null) {
+			IDContext = Bytes.EMPTY;
+		}
+		return new ByteId(IDContext);
+	}
+
+	/**
+	 * Get first context of nested map.
+	 * 
+	 * @param ridMap nested map of a RID
+	 * @return first context, or {@code null}, if the map has been emptied
+	 *         concurrently.
+	 */
+	private static OSCoreCtx first(ConcurrentMap<ByteId, OSCoreCtx> ridMap) {
+		Iterator<OSCoreCtx> iterator = ridMap.values().iterator();
+		return iterator.hasNext() ? iterator.next() : null;
+	}
+}
@@ -15,6 +15,8 @@
  *    Ludwig Seitz (RISE SICS)
  *    Tobias Andersson (RISE SICS)
  *    Rikard Höglund (RISE SICS)
+ *    Bosch.IO GmbH - pass allocated sender sequence number
+ *    Bosch.IO GmbH - pass sequence number of request for responses
  *    
  ******************************************************************************/
 package org.eclipse.californium.oscore;
@@ -64,6 +66,32 @@ public abstract class Encryptor {
 	 */
 	protected static byte[] encryptAndEncode(Encrypt0Message enc, OSCoreCtx ctx, Message message, boolean newPartialIV)
 			throws OSException {
+		return encryptAndEncode(enc, ctx, message, newPartialIV, ctx.getSenderSeq(), ctx.getReceiverSeq());
+	}
+
+	/**
+	 * Encrypt the COSE message using the OSCore context and the provided
+	 * sequence numbers.
+	 * 
+	 * @param enc the encrypt structure
+	 * @param ctx the OSCore context
+	 * @param message the message
+	 * @param newPartialIV if response contains partialIV
+	 * @param senderSeq the sender sequence number allocated for the message.
+	 *            Used for requests and for responses with a new partialIV.
+	 * @param requestSeq the sequence number (partial IV) of the request a
+	 *            response is sent for. Used for the AAD of responses and for
+	 *            the nonce of responses without a new partialIV. Ignored for
+	 *            requests.
+	 *
+	 * @return the COSE message
+	 * 
+	 * @throws OSException if encryption or encoding fails
+	 * @see OSCoreCtx#allocateSenderSeq()
+	 * @since 2.5
+	 */
+	protected static byte[] encryptAndEncode(Encrypt0Message enc, OSCoreCtx ctx, Message message, boolean newPartialIV,
+			int senderSeq, int requestSeq) throws OSException {
 		boolean isRequest = message instanceof Request;
 
 		try {
@@ -73,26 +101,26 @@ public abstract class Encryptor {
 			byte[] aad = null;
 
 			if (isRequest) {
-				partialIV = OSSerializer.processPartialIV(ctx.getSenderSeq());
+				partialIV = OSSerializer.processPartialIV(senderSeq);
 				nonce = OSSerializer.nonceGeneration(partialIV, ctx.getSenderId(), ctx.getCommonIV(),
 						ctx.getIVLength());
-				aad = OSSerializer.serializeAAD(CoAP.VERSION, ctx.getAlg(), ctx.getSenderSeq(), ctx.getSenderId(), message.getOptions());
+				aad = OSSerializer.serializeAAD(CoAP.VERSION, ctx.getAlg(), senderSeq, ctx.getSenderId(), message.getOptions());
 				enc.addAttribute(HeaderKeys.PARTIAL_IV, CBORObject.FromObject(partialIV), Attribute.UNPROTECTED);
 				enc.addAttribute(HeaderKeys.KID, CBORObject.FromObject(ctx.getSenderId()), Attribute.UNPROTECTED);
 			} else {
 
 				if (!newPartialIV) {
 					// use nonce from request
-					partialIV = OSSerializer.processPartialIV(ctx.getReceiverSeq());
+					partialIV = OSSerializer.processPartialIV(requestSeq);
 					nonce = OSSerializer.nonceGeneration(partialIV, ctx.getRecipientId(), ctx.getCommonIV(),
 							ctx.getIVLength());
 				} else {
 					// response creates its own partialIV
-					partialIV = OSSerializer.processPartialIV(ctx.getSenderSeq());
+					partialIV = OSSerializer.processPartialIV(senderSeq);
 					nonce = OSSerializer.nonceGeneration(partialIV, ctx.getSenderId(), ctx.getCommonIV(),
 							ctx.getIVLength());
 				}
-				aad = OSSerializer.serializeAAD(CoAP.VERSION, ctx.getAlg(), ctx.getReceiverSeq(), ctx.getRecipientId(), message.getOptions());
+				aad = OSSerializer.serializeAAD(CoAP.VERSION, ctx.getAlg(), requestSeq, ctx.getRecipientId(), message.getOptions());
 			}
 
 			enc.setExternal(aad);
@@ -132,15 +160,33 @@ public abstract class Encryptor {
 	 * @return the entire message's byte array
 	 */
 	protected static byte[] compression(OSCoreCtx ctx, byte[] cipherText, Message message, final boolean newPartialIV) {
+		return compression(ctx, cipherText, message, newPartialIV, ctx.getSenderSeq());
+	}
+
+	/**
+	 * Compresses the message by encoding the Object-Security value with the
+	 * provided sender sequence number and sets the message's payload to the
+	 * cipherText.
+	 * 
+	 * @param ctx the OSCoreCtx
+	 * @param cipherText the cipher text to be appended to this compression
+	 * @param message the message
+	 * @param newPartialIV if response contains partialIV
+	 * @param senderSeq the sender sequence number allocated for the message
+	 * @return the entire message's byte array
+	 * @since 2.5
+	 */
+	protected static byte[] compression(OSCoreCtx ctx, byte[] cipherText, Message message, final boolean newPartialIV,
+			int senderSeq) {
 		boolean request = message instanceof Request;
 		ByteArrayOutputStream bRes = new ByteArrayOutputStream();
 		OptionSet options = message.getOptions();
 		options.removeOscore();
 
 		if (request) {
-			message.getOptions().setOscore(encodeOSCoreRequest(ctx));
+			message.getOptions().setOscore(encodeOSCoreRequest(ctx, senderSeq));
 		} else {
-			message.getOptions().setOscore(encodeOSCoreResponse(ctx, newPartialIV));
+			message.getOptions().setOscore(encodeOSCoreResponse(ctx, newPartialIV, senderSeq));
 		}
 
 		if (cipherText != null) {
@@ -157,9 +203,22 @@ public abstract class Encryptor {
 	 * @return the Object-Security value as byte array
 	 */
 	public static byte[] encodeOSCoreRequest(OSCoreCtx ctx) {
+		return encodeOSCoreRequest(ctx, ctx.getSenderSeq());
+	}
+
+	/**
+	 * Encodes the Object-Security value for a Request with the provided sender
+	 * sequence number.
+	 * 
+	 * @param ctx the context
+	 * @param senderSeq the sender sequence number allocated for the request
+	 * @return the Object-Security value as byte array
+	 * @since 2.5
+	 */
+	public static byte[] encodeOSCoreRequest(OSCoreCtx ctx, int senderSeq) {
 		int firstByte = 0x00;
 		ByteArrayOutputStream bRes = new ByteArrayOutputStream();
-		byte[] partialIV = OSSerializer.processPartialIV(ctx.getSenderSeq());
+		byte[] partialIV = OSSerializer.processPartialIV(senderSeq);
 		firstByte = firstByte | (partialIV.length & 0x07); //PartialIV length
 		firstByte = firstByte | 0x08; //Set the KID bit
 
@@ -196,6 +255,22 @@ public abstract class Encryptor {
 	 * @return the Object-Security value as byte array
 	 */
 	public static byte[] encodeOSCoreResponse(OSCoreCtx ctx, final boolean newPartialIV) {
+		return encodeOSCoreResponse(ctx, newPartialIV, ctx.getSenderSeq());
+	}
+
+	/**
+	 * Encodes the Object-Security value for a Response with the provided
+	 * sender sequence number.
+	 * 
+	 * @param ctx the context
+	 * @param newPartialIV if true encodes the partialIV, otherwise partialIV is
+	 *            not encoded
+	 * @param senderSeq the sender sequence number allocated for the response.
+	 *            Only used, if newPartialIV is {@code true}.
+	 * @return the Object-Security value as byte array
+	 * @since 2.5
+	 */
+	public static byte[] encodeOSCoreResponse(OSCoreCtx ctx, final boolean newPartialIV, int senderSeq) {
 		int firstByte = 0x00;
 		ByteArrayOutputStream bRes = new ByteArrayOutputStream();
 
@@ -205,7 +280,7 @@ public abstract class Encryptor {
 		}
 
 		if (newPartialIV) {
-			byte[] partialIV = OSSerializer.processPartialIV(ctx.getSenderSeq());
+			byte[] partialIV = OSSerializer.processPartialIV(senderSeq);
 			firstByte = firstByte | (partialIV.length & 0x07);
 
 			bRes.write(firstByte);
@@ -15,6 +15,7 @@
  *    Ludwig Seitz (RISE SICS)
  *    Tobias Andersson (RISE SICS)
  *    Rikard Höglund (RISE SICS)
+ *    Bosch.IO GmbH - share uri normalization
  *    
  ******************************************************************************/
 package org.eclipse.californium.oscore;
@@ -39,6 +40,9 @@ import org.eclipse.californium.elements.util.Bytes;
 /**
  * 
  * Implements the OSCoreCtxDB interface with HashMaps.
+ * 
+ * All access is synchronized on the database. For many concurrent messages,
+ * consider to use the {@link ConcurrentHashMapCtxDB}.
  *
  */
 public class HashMapCtxDB implements OSCoreCtxDB {
@@ -290,7 +294,7 @@ public class HashMapCtxDB implements OSCoreCtxDB {
 	 *
 	 * @throws OSException on failure to parse the URI
 	 */
-	private static String normalizeServerUri(String uri) throws OSException {
+	static String normalizeServerUri(String uri) throws OSException {
 		String normalized = null;
 
 		try {
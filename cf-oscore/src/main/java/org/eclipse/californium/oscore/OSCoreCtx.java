@@ -15,6 +15,7 @@
  *    Ludwig Seitz (RISE SICS)
  *    Tobias Andersson (RISE SICS)
  *    Rikard Höglund (RISE SICS)
+ *    Bosch.IO GmbH - atomic sender sequence number and lock-free replay window
  *    
  ******************************************************************************/
 package org.eclipse.californium.oscore;
@@ -22,6 +23,9 @@ package org.eclipse.californium.oscore;
 import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,6 +49,15 @@ import org.eclipse.californium.scandium.dtls.cipher.CCMBlockCipher;
  * 
  * Represents the Security Context and its parameters. At initiation derives the
  * keys and IVs. Also maintains replay window.
+ * 
+ * The sender sequence number and the replay window are updated without locks.
+ * Each protected message gets its own sender sequence number by
+ * {@link #allocateSenderSeq()}, also if several threads use the same context.
+ * The recipient sequence number and the replay window are kept in a single
+ * atomic value, which is updated by a compare-and-set loop in
+ * {@link #checkIncomingSeq(int)}. The window covers up to
+ * {@link #MAX_REPLAY_WINDOW_SIZE} sequence numbers before the largest received
+ * one.
  *
  */
 public class OSCoreCtx {
@@ -57,6 +70,13 @@ public class OSCoreCtx {
 	private static final byte ZERO = 0;
 	private static final byte ONE = 1;
 
+	/**
+	 * Maximum size of the replay window.
+	 * 
+	 * @since 2.5
+	 */
+	public static final int MAX_REPLAY_WINDOW_SIZE = Integer.SIZE;
+
 	private AlgorithmID common_alg;
 	private byte[] common_master_secret;
 	private byte[] common_master_salt;
@@ -65,22 +85,26 @@ public class OSCoreCtx {
 
 	private byte[] sender_id;
 	private byte[] sender_key;
-	private int sender_seq;
+	private final AtomicInteger sender_seq = new AtomicInteger();
 
 	private byte[] recipient_id;
 	private byte[] recipient_key;
-	private int recipient_seq;
 	private int recipient_replay_window_size;
-	private int recipient_replay_window;
+	/**
+	 * Recipient sequence number in the upper 32 bits, replay window in the
+	 * lower 32 bits. Bit {@code n} of the window is set, if the sequence
+	 * number {@code recipient_seq - n - 1} has been received.
+	 */
+	private final AtomicLong recipient_replay_state = new AtomicLong();
 
 	private AlgorithmID kdf;
 
-	private int rollback_recipient_seq = -1;
-	private int rollback_recipient_replay = -1;
+	private volatile int rollback_recipient_seq = -1;
+	private volatile int rollback_recipient_replay = -1;
 	private byte[] rollback_last_block_tag = null;
 
 	private byte[] last_block_tag = null;
-	private int seqMax = Integer.MAX_VALUE;
+	private volatile int seqMax = Integer.MAX_VALUE;
 
 	private int id_length;
 	private int iv_length;
@@ -205,8 +229,8 @@ public class OSCoreCtx {
 
 		setLengths();
 
-		this.sender_seq = 0;
-		this.recipient_seq = -1;
+		this.sender_seq.set(0);
+		this.recipient_replay_state.set(replayState(-1, 0));
 
 		if (master_secret != null) {
 			this.common_master_secret = master_secret.clone();
@@ -237,7 +261,6 @@ public class OSCoreCtx {
 		} else {
 			this.recipient_replay_window_size = replay_size.intValue();
 		}
-		this.recipient_replay_window = 0;
 
 		if (master_salt == null) {
 			// Default value. Automatically initialized with 0-es.
@@ -387,15 +410,15 @@ public class OSCoreCtx {
 	/**
 	 * @return the sender sequence number
 	 */
-	public synchronized int getSenderSeq() {
-		return sender_seq;
+	public int getSenderSeq() {
+		return sender_seq.get();
 	}
 
 	/**
 	 * @return the receiver sequence number
 	 */
-	public synchronized int getReceiverSeq() {
-		return recipient_seq;
+	public int getReceiverSeq() {
+		return replaySeq(recipient_replay_state.get());
 	}
 
 	/**
@@ -444,7 +467,7 @@ public class OSCoreCtx {
 	 * @return recipient replay window
 	 */
 	public int getRecipientReplayWindow() {
-		return recipient_replay_window;
+		return replayWindow(recipient_replay_state.get());
 	}
 
 	public byte[] getMasterSecret() {
@@ -626,15 +649,18 @@ public class OSCoreCtx {
 	/**
 	 * @param seq the sender sequence number to set
 	 */
-	public synchronized void setSenderSeq(int seq) {
-		sender_seq = seq;
+	public void setSenderSeq(int seq) {
+		sender_seq.set(seq);
 	}
 
 	/**
 	 * @param seq the recipient sequence number to set
 	 */
-	public synchronized void setReceiverSeq(int seq) {
-		recipient_seq = seq;
+	public void setReceiverSeq(int seq) {
+		long state;
+		do {
+			state = recipient_replay_state.get();
+		} while (!recipient_replay_state.compareAndSet(state, replayState(seq, replayWindow(state))));
 	}
 
 	/**
@@ -758,12 +784,31 @@ public class OSCoreCtx {
 	 *
 	 * @throws OSException if the sequence number wraps
 	 */
-	public synchronized void increaseSenderSeq() throws OSException {
-		if (sender_seq >= seqMax) {
-			LOGGER.error("Sequence number wrapped, get a new OSCore context");
-			throw new OSException("Sequence number wrapped");
-		}
-		sender_seq++;
+	public void increaseSenderSeq() throws OSException {
+		allocateSenderSeq();
+	}
+
+	/**
+	 * Allocate a sender sequence number.
+	 * 
+	 * Returns the current sender sequence number and increases it by one in a
+	 * single atomic step. Therefore concurrent callers never get the same
+	 * sequence number.
+	 * 
+	 * @return the sender sequence number to be used for a message
+	 * @throws OSException if the sequence number wraps
+	 * @since 2.5
+	 */
+	public int allocateSenderSeq() throws OSException {
+		int seq;
+		do {
+			seq = sender_seq.get();
+			if (seq >= seqMax) {
+				LOGGER.error("Sequence number wrapped, get a new OSCore context");
+				throw new OSException("Sequence number wrapped");
+			}
+		} while (!sender_seq.compareAndSet(seq, seq + 1));
+		return seq;
 	}
 
 	/**
@@ -773,49 +818,59 @@ public class OSCoreCtx {
 	 * 
 	 * @throws OSException if the sequence number wraps or if for a replay
 	 */
-	public synchronized void checkIncomingSeq(int seq) throws OSException {
+	public void checkIncomingSeq(int seq) throws OSException {
 		if (seq >= seqMax) {
 			LOGGER.error("Sequence number wrapped, get new OSCore context");
 			throw new OSException(ErrorDescriptions.REPLAY_DETECT);
 		}
-		rollback_recipient_seq = recipient_seq;
-		rollback_recipient_replay = recipient_replay_window;
-		if (seq > recipient_seq) {
-			// Update the replay window
-			int shift = seq - recipient_seq;
-			recipient_replay_window = recipient_replay_window << shift;
-			recipient_seq = seq;
-		} else if (seq == recipient_seq) {
-			LOGGER.error("Sequence number is replay");
-			throw new OSException(ErrorDescriptions.REPLAY_DETECT);
-		} else { // seq < recipient_seq
-			if (seq + recipient_replay_window_size < recipient_seq) {
-				LOGGER.error("Message too old");
-				throw new OSException(ErrorDescriptions.REPLAY_DETECT);
-			}
-			// seq+replay_window_size > recipient_seq
-			int shift = this.recipient_seq - seq;
-			int pattern = 1 << shift;
-			int verifier = recipient_replay_window & pattern;
-			verifier = verifier >> shift;
-			if (verifier == 1) {
+		int windowSize = Math.min(recipient_replay_window_size, MAX_REPLAY_WINDOW_SIZE);
+		long state;
+		long newState;
+		do {
+			state = recipient_replay_state.get();
+			int recipientSeq = replaySeq(state);
+			long window = replayWindow(state) & 0xffffffffL;
+			if (seq > recipientSeq) {
+				// slide the replay window, the previous largest sequence
+				// number is then part of the window
+				int shift = seq - recipientSeq;
+				if (recipientSeq < 0 || shift > MAX_REPLAY_WINDOW_SIZE) {
+					window = 0;
+				} else {
+					window = ((window << 1) | 1) << (shift - 1);
+				}
+				newState = replayState(seq, (int) window);
+			} else if (seq == recipientSeq) {
+				LOGGER.error("Sequence number is replay");
 				throw new OSException(ErrorDescriptions.REPLAY_DETECT);
+			} else { // seq < recipient_seq
+				int shift = recipientSeq - seq;
+				if (shift > windowSize) {
+					LOGGER.error("Message too old");
+					throw new OSException(ErrorDescriptions.REPLAY_DETECT);
+				}
+				long pattern = 1L << (shift - 1);
+				if ((window & pattern) != 0) {
+					throw new OSException(ErrorDescriptions.REPLAY_DETECT);
+				}
+				newState = replayState(recipientSeq, (int) (window | pattern));
 			}
-			recipient_replay_window = recipient_replay_window | pattern;
-		}
+		} while (!recipient_replay_state.compareAndSet(state, newState));
+		rollback_recipient_seq = replaySeq(state);
+		rollback_recipient_replay = replayWindow(state);
 	}
 
 	/**
 	 * Rolls back the latest recipient sequence number update if any
 	 */
 	public synchronized void rollBack() {
-		if (rollback_recipient_replay != -1) {
-			recipient_replay_window = rollback_recipient_replay;
-			rollback_recipient_replay = -1;
-		}
-		if (rollback_recipient_seq != -1) {
-			recipient_seq = rollback_recipient_seq;
+		if (rollback_recipient_seq != -1 || rollback_recipient_replay != -1) {
+			long state = recipient_replay_state.get();
+			int seq = rollback_recipient_seq != -1 ? rollback_recipient_seq : replaySeq(state);
+			int window = rollback_recipient_replay != -1 ? rollback_recipient_replay : replayWindow(state);
+			recipient_replay_state.set(replayState(seq, window));
 			rollback_recipient_seq = -1;
+			rollback_recipient_replay = -1;
 		}
 		if (this.rollback_last_block_tag != null) {
 			this.last_block_tag = this.rollback_last_block_tag;
@@ -823,6 +878,18 @@ public class OSCoreCtx {
 		}
 	}
 
+	private static long replayState(int seq, int window) {
+		return ((long) seq << 32) | (window & 0xffffffffL);
+	}
+
+	private static int replaySeq(long state) {
+		return (int) (state >> 32);
+	}
+
+	private static int replayWindow(long state) {
+		return (int) state;
+	}
+
 	protected static byte[] deriveKey(byte[] secret, byte[] salt, int cbitKey, String digest, byte[] rgbContext)
 			throws CoseException {
 
@@ -14,6 +14,7 @@
  *    Joakim Brorsson
  *    Tobias Andersson (RISE SICS)
  *    Rikard Höglund (RISE SICS)
+ *    Bosch.IO GmbH - use sequence number of the protected request
  *    
  ******************************************************************************/
 package org.eclipse.californium.oscore;
@@ -88,6 +89,28 @@ public class ObjectSecurityLayer extends AbstractLayer {
 		return ResponseEncryptor.encrypt(ctxDb, message, ctx, newPartialIV, outerBlockwise);
 	}
 
+	/**
+	 * Encrypt an outgoing response using the OSCore context and the sequence
+	 * number of the request.
+	 * 
+	 * @param ctxDb the OSCore context DB
+	 * @param message the message
+	 * @param ctx the OSCore context
+	 * @param newPartialIV boolean to indicate whether to use a new partial IV or not
+	 * @param outerBlockwise boolean to indicate whether the block-wise options
+	 *            should be encrypted or not
+	 * @param requestSeq the sequence number (partial IV) of the request
+	 * 
+	 * @return the encrypted message
+	 * 
+	 * @throws OSException error while encrypting response
+	 * @since 2.5
+	 */
+	public static Response prepareSend(OSCoreCtxDB ctxDb, Response message, OSCoreCtx ctx, final boolean newPartialIV,
+			boolean outerBlockwise, int requestSeq) throws OSException {
+		return ResponseEncryptor.encrypt(ctxDb, message, ctx, newPartialIV, outerBlockwise, requestSeq);
+	}
+
 	/**
 	 * Decrypt an incoming request using the right OSCore context
 	 *
@@ -157,9 +180,11 @@ public class ObjectSecurityLayer extends AbstractLayer {
 				OSCoreEndpointContextInfo.sendingRequest(ctx, exchange);
 
 				exchange.setCryptographicContextID(ctx.getRecipientId());
-				final int seqByToken = ctx.getSenderSeq();
 
 				final Request preparedRequest = prepareSend(ctxDb, request);
+				// the sequence number allocated for this request, other
+				// requests may use the context concurrently
+				final int seqByToken = OptionJuggle.getPartialIV(preparedRequest.getOptions().getOscore());
 				final OSCoreCtx finalCtx = ctxDb.getContext(uri);
 
 				if (outgoingExceedsMaxUnfragSize(preparedRequest, outerBlockwise, ctx.getMaxUnfragmentedSize())) {
@@ -219,10 +244,18 @@ public class ObjectSecurityLayer extends AbstractLayer {
 					&& exchange.getCurrentRequest().getOptions().getOscore().length != 0;
 
 			try {
-				OSCoreCtx ctx = ctxDb.getContextByToken(exchange.getCurrentRequest().getToken());
+				Token token = exchange.getCurrentRequest().getToken();
+				OSCoreCtx ctx = ctxDb.getContextByToken(token);
+				// the sequence number of the request, other requests may
+				// use the context concurrently
+				Integer requestSeq = ctxDb.getSeqByToken(token);
+				if (requestSeq == null) {
+					LOGGER.error(ErrorDescriptions.SEQ_NBR_INVALID);
+					throw new OSException(ErrorDescriptions.SEQ_NBR_INVALID);
+				}
 				addPartialIV = ctx.getResponsesIncludePartialIV() || exchange.getRequest().getOptions().hasObserve();
 
-				Response preparedResponse = prepareSend(ctxDb, response, ctx, addPartialIV, outerBlockwise);
+				Response preparedResponse = prepareSend(ctxDb, response, ctx, addPartialIV, outerBlockwise, requestSeq);
 
 				if (outgoingExceedsMaxUnfragSize(preparedResponse, outerBlockwise, ctx.getMaxUnfragmentedSize())) {
 					super.sendResponse(exchange,
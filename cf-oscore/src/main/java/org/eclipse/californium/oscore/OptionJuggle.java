@@ -14,6 +14,7 @@
  *    Joakim Brorsson
  *    Ludwig Seitz (RISE SICS)
  *    Tobias Andersson (RISE SICS)
+ *    Bosch.IO GmbH - retrieve partial IV
  *    
  ******************************************************************************/
 package org.eclipse.californium.oscore;
@@ -400,4 +401,31 @@ public class OptionJuggle {
 		return kidContext;
 	}
 
+	/**
+	 * Retrieve the partial IV value from an OSCORE option.
+	 * 
+	 * @param oscoreOption the OSCORE option
+	 * @return the partial IV as sequence number, or {@code -1}, if the option
+	 *         contains no partial IV
+	 * @since 2.5
+	 */
+	static int getPartialIV(byte[] oscoreOption) {
+		if (oscoreOption.length == 0) {
+			return -1;
+		}
+
+		// Parse the flag byte
+		byte flagByte = oscoreOption[0];
+		int n = flagByte & 0x07;
+		if (n == 0 || n >= oscoreOption.length) {
+			return -1;
+		}
+
+		int seq = 0;
+		for (int index = 1; index <= n; ++index) {
+			seq = (seq << 8) | (oscoreOption[index] & 0xff);
+		}
+		return seq;
+	}
+
 }
@@ -15,6 +15,7 @@
  *    Ludwig Seitz (RISE SICS)
  *    Tobias Andersson (RISE SICS)
  *    Rikard Höglund (RISE SICS)
+ *    Bosch.IO GmbH - keep sequence number of request
  *    
  ******************************************************************************/
 package org.eclipse.californium.oscore;
@@ -73,6 +74,8 @@ public class RequestDecryptor extends Decryptor {
 			LOGGER.error(ErrorDescriptions.FAILED_TO_DECODE_COSE);
 			throw new CoapOSException(ErrorDescriptions.FAILED_TO_DECODE_COSE, ResponseCode.BAD_OPTION);
 		}
+		// the partial IV of the request is required to protect the response
+		int seq = OptionJuggle.getPartialIV(uOptions.getOscore());
 
 		CBORObject kid = enc.findAttribute(HeaderKeys.KID);
 		if (kid == null || !kid.getType().equals(CBORType.ByteString)) {
@@ -134,8 +137,11 @@ public class RequestDecryptor extends Decryptor {
 		// We need the kid value on layer level
 		request.getOptions().setOscore(rid);
 
-		// Associate the Token with the context used
+		// Associate the Token with the context and the sequence number used
 		db.addContext(request.getToken(), ctx);
+		if (request.getToken() != null) {
+			db.addSeqByToken(request.getToken(), seq);
+		}
 
 		//Set information about the OSCORE context used in the endpoint context of this request
 		OSCoreEndpointContextInfo.receivingRequest(ctx, request);
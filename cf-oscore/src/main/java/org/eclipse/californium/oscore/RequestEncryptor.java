@@ -15,6 +15,7 @@
  *    Ludwig Seitz (RISE SICS)
  *    Tobias Andersson (RISE SICS)
  *    Rikard Höglund (RISE SICS)
+ *    Bosch.IO GmbH - allocate sender sequence number before encryption
  *    
  ******************************************************************************/
 package org.eclipse.californium.oscore;
@@ -63,18 +64,20 @@ public class RequestEncryptor extends Encryptor {
 			throw new OSException(ErrorDescriptions.CONTEXT_REGENERATION_FAILED);
 		}
 
+		// allocate the sequence number, that concurrent requests get their own
+		int seq = ctx.allocateSenderSeq();
+
 		int realCode = request.getCode().value;
 		request = OptionJuggle.setFakeCodeRequest(request);
 
 		OptionSet options = request.getOptions();
 		byte[] confidential = OSSerializer.serializeConfidentialData(options, request.getPayload(), realCode);
 		Encrypt0Message enc = prepareCOSEStructure(confidential);
-		byte[] cipherText = encryptAndEncode(enc, ctx, request, false);
-		compression(ctx, cipherText, request, false);
+		byte[] cipherText = encryptAndEncode(enc, ctx, request, false, seq, -1);
+		compression(ctx, cipherText, request, false, seq);
 
 		request.setOptions(OptionJuggle.prepareUoptions(request.getOptions()));
 
-		ctx.increaseSenderSeq();
 		return request;
 	}
 
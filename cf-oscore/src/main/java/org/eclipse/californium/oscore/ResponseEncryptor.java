@@ -15,6 +15,8 @@
  *    Ludwig Seitz (RISE SICS)
  *    Tobias Andersson (RISE SICS)
  *    Rikard Höglund (RISE SICS)
+ *    Bosch.IO GmbH - allocate sender sequence number before encryption
+ *    Bosch.IO GmbH - use sequence number of request
  *    
  ******************************************************************************/
 package org.eclipse.californium.oscore;
@@ -39,6 +41,13 @@ public class ResponseEncryptor extends Encryptor {
 	private static final Logger LOGGER = LoggerFactory.getLogger(ResponseEncryptor.class);
 
 	/**
+	 * Encrypt response using the last received sequence number of the
+	 * context.
+	 * 
+	 * Not suitable for concurrent requests, use
+	 * {@link #encrypt(OSCoreCtxDB, Response, OSCoreCtx, boolean, boolean, int)}
+	 * with the sequence number of the request instead.
+	 * 
 	 * @param db the context DB
 	 * @param response the response
 	 * @param ctx the OSCore context
@@ -55,6 +64,33 @@ public class ResponseEncryptor extends Encryptor {
 			LOGGER.error(ErrorDescriptions.CTX_NULL);
 			throw new OSException(ErrorDescriptions.CTX_NULL);
 		}
+		return encrypt(db, response, ctx, newPartialIV, outerBlockwise, ctx.getReceiverSeq());
+	}
+
+	/**
+	 * Encrypt response using the sequence number of the request.
+	 * 
+	 * @param db the context DB
+	 * @param response the response
+	 * @param ctx the OSCore context
+	 * @param newPartialIV boolean to indicate whether to use a new partial IV or not
+	 * @param outerBlockwise boolean to indicate whether the block-wise options should be encrypted or not
+	 * @param requestSeq the sequence number (partial IV) of the request.
+	 *            Used for the AAD and, if no new partial IV is used, for the
+	 *            nonce.
+	 * 
+	 * @return the response with the encrypted OSCore option
+	 * 
+	 * @throws OSException when encryption fails
+	 * @see OSCoreCtxDB#getSeqByToken(org.eclipse.californium.core.coap.Token)
+	 * @since 2.5
+	 */
+	public static Response encrypt(OSCoreCtxDB db, Response response, OSCoreCtx ctx, final boolean newPartialIV,
+			boolean outerBlockwise, int requestSeq) throws OSException {
+		if (ctx == null) {
+			LOGGER.error(ErrorDescriptions.CTX_NULL);
+			throw new OSException(ErrorDescriptions.CTX_NULL);
+		}
 
 		// Perform context re-derivation procedure if ongoing
 		try {
@@ -64,6 +100,9 @@ public class ResponseEncryptor extends Encryptor {
 			throw new OSException(ErrorDescriptions.CONTEXT_REGENERATION_FAILED);
 		}
 
+		// allocate a new partial IV, that concurrent responses get their own
+		int seq = newPartialIV ? ctx.allocateSenderSeq() : ctx.getSenderSeq();
+
 		int realCode = response.getCode().value;
 		response = OptionJuggle.setFakeCodeResponse(response);
 
@@ -78,8 +117,8 @@ public class ResponseEncryptor extends Encryptor {
 
 		byte[] confidential = OSSerializer.serializeConfidentialData(options, response.getPayload(), realCode);
 		Encrypt0Message enc = prepareCOSEStructure(confidential);
-		byte[] cipherText = encryptAndEncode(enc, ctx, response, newPartialIV);
-		compression(ctx, cipherText, response, newPartialIV);
+		byte[] cipherText = encryptAndEncode(enc, ctx, response, newPartialIV, seq, requestSeq);
+		compression(ctx, cipherText, response, newPartialIV, seq);
 
 		options = response.getOptions();
 		response.setOptions(OptionJuggle.prepareUoptions(options));
@@ -88,11 +127,6 @@ public class ResponseEncryptor extends Encryptor {
 			response.setOptions(response.getOptions().setBlock1(block1Option));
 		}
 
-		//If new partial IV was generated for response increment sender seq nr.
-		if (newPartialIV) {
-			ctx.increaseSenderSeq();
-		}
-		
 		return response;
 	}
 }
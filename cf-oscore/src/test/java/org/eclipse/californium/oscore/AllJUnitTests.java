@@ -26,10 +26,10 @@ import org.junit.runners.Suite.SuiteClasses;
  *
  */
 @RunWith(Suite.class)
-@SuiteClasses({ ByteIdTest.class, HashMapCtxDBTest.class, OptionJuggleTest.class, OSCoreCtxTest.class, OSCoreTest.class,
-		OSSerializerTest.class, OSCoreServerClientTest.class, OSCoreObserveTest.class, EncryptorTest.class,
-		DecryptorTest.class, EndpointContextInfoTest.class, ContextRederivationTest.class,
-		OSCoreInnerBlockwiseTest.class, OSCoreOuterBlockwiseTest.class, OSCoreAlgorithmsTest.class })
+@SuiteClasses({ ByteIdTest.class, HashMapCtxDBTest.class, ConcurrentHashMapCtxDBTest.class, OptionJuggleTest.class,
+		OSCoreCtxTest.class, OSCoreTest.class, OSSerializerTest.class, OSCoreServerClientTest.class,
+		OSCoreObserveTest.class, EncryptorTest.class, DecryptorTest.class, EndpointContextInfoTest.class,
+		ContextRederivationTest.class, OSCoreInnerBlockwiseTest.class, OSCoreOuterBlockwiseTest.class, OSCoreAlgorithmsTest.class })
 public class AllJUnitTests {
 
 }
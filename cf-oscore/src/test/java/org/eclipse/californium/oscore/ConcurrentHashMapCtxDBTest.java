@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.californium.cose.AlgorithmID;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class ConcurrentHashMapCtxDBTest {
+
+	private final Token token = new Token(new byte[] { 0x09, 0x08, 0x07, 0x06 });
+	private final Token modifiedToken = new Token(new byte[] { 0x08, 0x07, 0x06, 0x05 });
+	private final String uri = "coap/hello/1";
+	private final String modifiedUri = "coap://localhost";
+	private final byte[] master_secret = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B, 0x0C, 0x0D,
+			0x0E, 0x0F, 0x10, 0x11, 0x12, 0x13, 0x14, 0x15, 0x16, 0x17, 0x18, 0x19, 0x1A, 0x1B, 0x1C, 0x1D, 0x1E, 0x1F,
+			0x20, 0x21, 0x22, 0x23 };
+	private final AlgorithmID alg = AlgorithmID.AES_CCM_16_64_128;
+	private final byte[] rid = new byte[] { 0x73, 0x65, 0x72, 0x76, 0x65, 0x72 };
+	private final byte[] sid = new byte[] { 0x63, 0x6C, 0x69, 0x65, 0x6E, 0x74 };
+	private final byte[] modifiedRid = new byte[] { 0x01, 0x65, 0x72, 0x76, 0x65, 0x72 };
+	private final byte[] context_id = { 0x74, 0x65, 0x73, 0x74, 0x74, 0x65, 0x73, 0x74 };
+	private final byte[] context_id_2 = { 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x10, 0x11 };
+	private final Integer seq = 42;
+
+	@Rule
+	public final ExpectedException exception = ExpectedException.none();
+
+	@Test
+	public void testGetContextNull() throws OSException {
+		ConcurrentHashMapCtxDB db = new ConcurrentHashMapCtxDB();
+
+		assertNull(db.getContext(rid));
+		assertNull(db.getContext(uri));
+		assertNull(db.getContextByToken(token));
+	}
+
+	@Test
+	public void testAddGetContextRidIDContextMultiple() throws OSException {
+		ConcurrentHashMapCtxDB db = new ConcurrentHashMapCtxDB();
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32, null,
+				context_id);
+		OSCoreCtx ctx2 = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32, null,
+				context_id_2);
+		db.addContext(ctx);
+		db.addContext(ctx2);
+
+		assertEquals(ctx, db.getContext(rid, ctx.getIdContext()));
+		assertEquals(ctx2, db.getContext(rid, ctx2.getIdContext()));
+		assertNull(db.getContext(modifiedRid, context_id));
+	}
+
+	@Test
+	public void testAddGetContextRidMultipleFail() throws OSException {
+		exception.expect(CoapOSException.class);
+		exception.expectMessage(ErrorDescriptions.CONTEXT_NOT_FOUND_IDCONTEXT);
+
+		ConcurrentHashMapCtxDB db = new ConcurrentHashMapCtxDB();
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32, null,
+				context_id);
+		OSCoreCtx ctx2 = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32, null,
+				context_id_2);
+		db.addContext(ctx);
+		db.addContext(ctx2);
+
+		db.getContext(rid, null);
+	}
+
+	@Test
+	public void testRemoveContext() throws OSException {
+		ConcurrentHashMapCtxDB db = new ConcurrentHashMapCtxDB();
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32, null,
+				context_id);
+		OSCoreCtx ctx2 = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32, null,
+				context_id_2);
+		db.addContext(ctx);
+		db.addContext(ctx2);
+		db.removeContext(ctx);
+
+		assertNull(db.getContext(rid, context_id));
+		assertEquals(ctx2, db.getContext(rid));
+
+		db.removeContext(ctx2);
+		assertNull(db.getContext(rid));
+
+		db.addContext(ctx);
+		assertEquals(ctx, db.getContext(rid));
+	}
+
+	@Test
+	public void testAddGetContextUri() throws OSException {
+		ConcurrentHashMapCtxDB db = new ConcurrentHashMapCtxDB();
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32, null,
+				null);
+		db.addContext(uri, ctx);
+
+		assertEquals(ctx, db.getContext(rid));
+		assertEquals(ctx, db.getContext(uri));
+		assertNull(db.getContext(modifiedUri));
+		assertNull(db.getContextByToken(token));
+	}
+
+	@Test
+	public void testAddGetContextToken() throws OSException {
+		ConcurrentHashMapCtxDB db = new ConcurrentHashMapCtxDB();
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32, null,
+				null);
+		db.addContext(token, ctx);
+
+		assertEquals(ctx, db.getContext(rid));
+		assertEquals(ctx, db.getContextByToken(token));
+		assertNull(db.getContextByToken(modifiedToken));
+		assertTrue(db.tokenExist(token));
+
+		db.removeToken(token);
+		assertNull(db.getContextByToken(token));
+	}
+
+	@Test
+	public void testNullSeqByToken() throws OSException {
+		ConcurrentHashMapCtxDB db = new ConcurrentHashMapCtxDB();
+		exception.expect(NullPointerException.class);
+
+		db.addSeqByToken(token, null);
+	}
+
+	@Test
+	public void testSeqByToken() throws OSException {
+		ConcurrentHashMapCtxDB db = new ConcurrentHashMapCtxDB();
+		db.addSeqByToken(token, seq);
+
+		assertEquals(seq, db.getSeqByToken(token));
+		assertNull(db.getSeqByToken(modifiedToken));
+		assertTrue(db.tokenExist(token));
+
+		db.updateSeqByToken(token, seq + 1);
+		assertEquals(Integer.valueOf(seq + 1), db.getSeqByToken(token));
+
+		db.removeSeqByToken(token);
+		assertNull(db.getSeqByToken(token));
+		assertFalse(db.tokenExist(token));
+	}
+
+	/**
+	 * Add and remove contexts of the same RID concurrently. The contexts added
+	 * by one thread must not get lost, when the nested map is removed by the
+	 * other thread.
+	 */
+	@Test
+	public void testConcurrentAddAndRemove() throws Exception {
+		for (int run = 0; run < 10; ++run) {
+			concurrentAddAndRemove();
+		}
+	}
+
+	private void concurrentAddAndRemove() throws Exception {
+		final ConcurrentHashMapCtxDB db = new ConcurrentHashMapCtxDB();
+		final OSCoreCtx ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32,
+				null, context_id);
+		final OSCoreCtx ctx2 = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32,
+				null, context_id_2);
+		final int loops = 10000;
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		Thread adder = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					for (int loop = 0; loop < loops; ++loop) {
+						db.addContext(ctx);
+						if (db.getContext(rid, context_id) != ctx) {
+							throw new AssertionError("context lost in loop " + loop);
+						}
+						db.removeContext(ctx);
+					}
+				} catch (Throwable t) {
+					error.set(t);
+				}
+			}
+		});
+		Thread remover = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					for (int loop = 0; loop < loops; ++loop) {
+						db.addContext(ctx2);
+						if (db.getContext(rid, context_id_2) != ctx2) {
+							throw new AssertionError("context 2 lost in loop " + loop);
+						}
+						db.removeContext(ctx2);
+					}
+				} catch (Throwable t) {
+					error.set(t);
+				}
+			}
+		});
+		adder.start();
+		remover.start();
+		adder.join(TimeUnit.SECONDS.toMillis(10));
+		remover.join(TimeUnit.SECONDS.toMillis(10));
+		if (error.get() != null) {
+			throw new AssertionError(error.get());
+		}
+		assertNull(db.getContext(rid));
+	}
+}
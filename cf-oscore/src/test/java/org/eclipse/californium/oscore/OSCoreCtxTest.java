@@ -13,6 +13,7 @@
  * Contributors:
  *    Tobias Andersson (RISE SICS)
  *    Rikard Höglund (RISE SICS)
+ *    Bosch.IO GmbH - add sequence number and replay window tests
  *    
  ******************************************************************************/
 package org.eclipse.californium.oscore;
@@ -20,8 +21,12 @@ package org.eclipse.californium.oscore;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.californium.cose.AlgorithmID;
 import org.junit.After;
@@ -183,4 +188,90 @@ public class OSCoreCtxTest {
 		
 		assertArrayEquals(predictedCommonIVContextID, ctx.getCommonIV());
 	}
+
+	@Test
+	public void testReplayWindow() throws OSException {
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, cipher, sid, rid, kdf, 32, null, null);
+
+		ctx.checkIncomingSeq(5);
+		ctx.checkIncomingSeq(7);
+		assertEquals(7, ctx.getReceiverSeq());
+		// within window, not received before
+		ctx.checkIncomingSeq(6);
+		ctx.checkIncomingSeq(0);
+		assertEquals(7, ctx.getReceiverSeq());
+
+		// replays, including the previous largest sequence number
+		assertReplay(ctx, 7);
+		assertReplay(ctx, 6);
+		assertReplay(ctx, 5);
+		assertReplay(ctx, 0);
+
+		// slide window to the edge
+		ctx.checkIncomingSeq(39);
+		assertReplay(ctx, 7);
+		// too old
+		assertReplay(ctx, 6);
+		ctx.checkIncomingSeq(8);
+	}
+
+	@Test
+	public void testReplayWindowRollBack() throws OSException {
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, cipher, sid, rid, kdf, 32, null, null);
+
+		ctx.checkIncomingSeq(3);
+		ctx.checkIncomingSeq(10);
+		ctx.rollBack();
+		assertEquals(3, ctx.getReceiverSeq());
+		ctx.checkIncomingSeq(10);
+		assertReplay(ctx, 3);
+	}
+
+	@Test
+	public void testConcurrentSenderSeqAllocation() throws Exception {
+		final OSCoreCtx ctx = new OSCoreCtx(master_secret, true, cipher, sid, rid, kdf, 32, null, null);
+		final int threads = 4;
+		final int loops = 1000;
+		final Set<Integer> allocated = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+		Thread[] workers = new Thread[threads];
+		for (int index = 0; index < threads; ++index) {
+			workers[index] = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						for (int loop = 0; loop < loops; ++loop) {
+							allocated.add(ctx.allocateSenderSeq());
+						}
+					} catch (OSException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			});
+			workers[index].start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		assertEquals(threads * loops, allocated.size());
+		assertEquals(threads * loops, ctx.getSenderSeq());
+	}
+
+	@Test
+	public void testSenderSeqWrap() throws OSException {
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, cipher, sid, rid, kdf, 32, null, null);
+		ctx.setSeqMax(1);
+		assertEquals(0, ctx.allocateSenderSeq());
+		exception.expect(OSException.class);
+		ctx.allocateSenderSeq();
+	}
+
+	private static void assertReplay(OSCoreCtx ctx, int seq) {
+		try {
+			ctx.checkIncomingSeq(seq);
+			fail("replay of " + seq + " not detected!");
+		} catch (OSException e) {
+			assertEquals(ErrorDescriptions.REPLAY_DETECT, e.getMessage());
+		}
+	}
 }
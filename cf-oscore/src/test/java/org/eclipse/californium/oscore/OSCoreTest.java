@@ -15,6 +15,7 @@
  *    Ludwig Seitz (RISE SICS)
  *    Tobias Andersson (RISE SICS)
  *    Rikard Höglund (RISE SICS)
+ *    Bosch.IO GmbH - add test for interleaved responses
  *    
  ******************************************************************************/
 package org.eclipse.californium.oscore;
@@ -22,10 +23,12 @@ package org.eclipse.californium.oscore;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.eclipse.californium.core.coap.CoAP;
 import org.eclipse.californium.core.coap.MediaTypeRegistry;
@@ -413,6 +416,46 @@ public class OSCoreTest {
 		}
 	}
 
+	/**
+	 * Tests that responses to interleaved requests on the same context use the
+	 * partial IV of their own request.
+	 * 
+	 * @throws OSException if encryption or decryption fails
+	 */
+	@Test
+	public void testInterleavedResponses() throws OSException {
+		Token tokReq1 = generateToken();
+		Token tokReq2 = generateToken();
+		Request request1 = sendRequest(uriFull, dbClient, tokReq1);
+		Request request2 = sendRequest(uriFull, dbClient, tokReq2);
+		int seq1 = OptionJuggle.getPartialIV(request1.getOptions().getOscore());
+		int seq2 = OptionJuggle.getPartialIV(request2.getOptions().getOscore());
+		assertNotEquals(seq1, seq2);
+		dbClient.addSeqByToken(tokReq1, seq1);
+		dbClient.addSeqByToken(tokReq2, seq2);
+
+		// receive both requests before responding
+		ObjectSecurityLayer.prepareReceive(dbServer, request1, serverCtx);
+		ObjectSecurityLayer.prepareReceive(dbServer, request2, serverCtx);
+		assertEquals(Integer.valueOf(seq1), dbServer.getSeqByToken(tokReq1));
+		assertEquals(Integer.valueOf(seq2), dbServer.getSeqByToken(tokReq2));
+
+		// respond in reverse order
+		Response response2 = sendResponse("response 2", dbServer, serverCtx, tokReq2);
+		Response response1 = sendResponse("response 1", dbServer, serverCtx, tokReq1);
+
+		byte[] nonce1 = OSSerializer.nonceGeneration(OSSerializer.processPartialIV(seq1), serverCtx.getRecipientId(),
+				serverCtx.getCommonIV(), serverCtx.getIVLength());
+		byte[] nonce2 = OSSerializer.nonceGeneration(OSSerializer.processPartialIV(seq2), serverCtx.getRecipientId(),
+				serverCtx.getCommonIV(), serverCtx.getIVLength());
+		assertFalse(Arrays.equals(nonce1, nonce2));
+
+		response1 = ObjectSecurityLayer.prepareReceive(dbClient, response1);
+		response2 = ObjectSecurityLayer.prepareReceive(dbClient, response2);
+		assertEquals("response 1", response1.getPayloadString());
+		assertEquals("response 2", response2.getPayloadString());
+	}
+
 	@Test
 	public void testSequenceNumbersReplayReject() throws Exception {
 		// Test Receive replay of request
@@ -574,6 +617,16 @@ public class OSCoreTest {
 		return ObjectSecurityLayer.prepareSend(null, response, tid, false, false);
 	}
 
+	private static Response sendResponse(String responsePayload, OSCoreCtxDB db, OSCoreCtx tid, Token token)
+			throws OSException {
+		Response response = new Response(CoAP.ResponseCode.CONTENT);
+		response.setPayload(responsePayload);
+		response.getOptions().addOption(new Option(OptionNumberRegistry.OSCORE));
+		response.setToken(token);
+
+		return ObjectSecurityLayer.prepareSend(db, response, tid, false, false, db.getSeqByToken(token));
+	}
+
 	public Token generateToken() {
 		Token token;
 		do {
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.elements;
+
+import java.util.List;
+
+/**
+ * A processor for batches of messages received from the network layer.
+ * 
+ * Connectors, which receive multiple messages at once, e.g. multiple records
+ * of one datagram, may pass them as batch to this processor, if the
+ * registered {@link RawDataChannel} implements this interface.
+ * 
+ * @since 2.5
+ */
+public interface BatchRawDataChannel extends RawDataChannel {
+
+	/**
+	 * Processes a batch of raw messages received from the network.
+	 * 
+	 * The messages must be processed in the order of the list. As for
+	 * {@link #receiveData(RawData)}, an implementation should return quickly.
+	 * 
+	 * @param raws the raw messages to process
+	 */
+	void receiveData(List<RawData> raws);
+
+}
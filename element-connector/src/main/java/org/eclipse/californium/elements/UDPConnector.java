@@ -33,6 +33,9 @@
  *                                                    on stop()
  *    Achim Kraus (Bosch Software Innovations GmbH) - make connector extendible to
  *                                                    support multicast sockets
+ *    Bosch.IO GmbH                                 - add NIO mode with
+ *                                                    bounded outbound queue
+ *    Bosch.IO GmbH                                 - add SO_REUSEPORT shards
  ******************************************************************************/
 package org.eclipse.californium.elements;
 
@@ -41,16 +44,26 @@ import java.io.InterruptedIOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.californium.elements.exception.EndpointMismatchException;
+import org.eclipse.californium.elements.exception.OutboundQueueOverflowException;
 import org.eclipse.californium.elements.util.Bytes;
 import org.eclipse.californium.elements.util.ClockUtil;
+import org.eclipse.californium.elements.util.ReusePortUtil;
 import org.eclipse.californium.elements.util.StringUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,9 +83,50 @@ import org.slf4j.LoggerFactory;
  * 
  * The number of threads can be set through {@link #setReceiverThreadCount(int)}
  * and {@link #setSenderThreadCount(int)} before the connector is started.
+ * 
+ * Optionally the connector uses a non-blocking {@link DatagramChannel} instead
+ * of the blocking {@link DatagramSocket}, see {@link #setNioMode(boolean)}. In
+ * that mode, a single thread waits on a {@link Selector} and drains all
+ * available datagrams and all pending outgoing messages, up to
+ * {@link #setNioBurstSize(int)} each, per wakeup.
+ * 
+ * The outbound queue could be bounded using
+ * {@link #setOutboundQueueCapacity(int)}. If the queue is exceeded, a message
+ * is dropped according the {@link OutboundQueuePolicy} and reported to its
+ * {@link MessageCallback#onError(Throwable)} with a
+ * {@link OutboundQueueOverflowException}.
+ * 
+ * On platforms supporting {@code SO_REUSEPORT}, the connector could bind
+ * several sockets ("shards") to the same port, see
+ * {@link #setReusePortShardCount(int)}. The kernel distributes the peers
+ * among the shards, each shard is served by its own receiver threads.
  */
 public class UDPConnector implements Connector {
 
+	/**
+	 * Policy for exceeded outbound queue.
+	 * 
+	 * @since 2.5
+	 */
+	public enum OutboundQueuePolicy {
+		/**
+		 * Reject the new message. Applies back-pressure to the sender.
+		 */
+		REJECT_NEW,
+		/**
+		 * Drop the oldest queued message in order to queue the new message.
+		 */
+		DROP_OLDEST
+	}
+
+	/**
+	 * Default number of datagrams processed in NIO mode per wakeup and
+	 * direction.
+	 * 
+	 * @since 2.5
+	 */
+	public static final int DEFAULT_NIO_BURST_SIZE = 64;
+
 	public static final Logger LOGGER = LoggerFactory.getLogger(UDPConnector.class);
 
 	public static final int UNDEFINED = 0;
@@ -96,8 +150,28 @@ public class UDPConnector implements Connector {
 	 */
 	private final List<Thread> senderThreads = new LinkedList<Thread>();
 
-	/** The outbound message queue. */
-	private final BlockingQueue<RawData> outgoing;
+	/**
+	 * The outbound message queue.
+	 * 
+	 * Created on {@link #start()} according the
+	 * {@link #setOutboundQueueCapacity(int)}.
+	 */
+	private volatile BlockingQueue<RawData> outgoing;
+
+	/**
+	 * Indicates, that a wakeup of the selector is already pending. Used to
+	 * coalesce the wakeups in NIO mode.
+	 * 
+	 * @since 2.5
+	 */
+	private final AtomicBoolean wakeupPending = new AtomicBoolean();
+
+	/**
+	 * Selector used in NIO mode.
+	 * 
+	 * @since 2.5
+	 */
+	private volatile Selector selector;
 
 	protected volatile boolean running;
 
@@ -123,6 +197,58 @@ public class UDPConnector implements Connector {
 
 	private int receiverPacketSize = 2048;
 
+	/**
+	 * Capacity of the outbound queue. {@link #UNDEFINED} for an unbounded
+	 * queue.
+	 * 
+	 * @since 2.5
+	 */
+	private int outboundQueueCapacity = UNDEFINED;
+
+	/**
+	 * Policy, if the outbound queue is exceeded.
+	 * 
+	 * @since 2.5
+	 */
+	private OutboundQueuePolicy outboundQueuePolicy = OutboundQueuePolicy.REJECT_NEW;
+
+	/**
+	 * {@code true}, if the NIO mode is used, {@code false}, otherwise.
+	 * 
+	 * @since 2.5
+	 */
+	private boolean nio;
+
+	/**
+	 * Maximum number of datagrams to receive and to send per wakeup in NIO
+	 * mode.
+	 * 
+	 * @since 2.5
+	 */
+	private int nioBurstSize = DEFAULT_NIO_BURST_SIZE;
+
+	/**
+	 * Number of sockets bound with {@code SO_REUSEPORT} to the same address.
+	 * 
+	 * @since 2.5
+	 */
+	private int reusePortShards = 1;
+
+	/**
+	 * Additional sockets bound with {@code SO_REUSEPORT}. The first shard is
+	 * {@link #socket}.
+	 * 
+	 * @since 2.5
+	 */
+	private final List<DatagramSocket> shardSockets = new ArrayList<DatagramSocket>();
+
+	/**
+	 * Selectors of the additional shards in NIO mode.
+	 * 
+	 * @since 2.5
+	 */
+	private final List<Selector> shardSelectors = new ArrayList<Selector>();
+
 	/**
 	 * {@code true}, if socket is reused, {@code false}, otherwise.
 	 * @since 2.3
@@ -164,7 +290,6 @@ public class UDPConnector implements Connector {
 		}
 		this.running = false;
 		this.effectiveAddr = localAddr;
-		// TODO: think about restricting the outbound queue's capacity
 		this.outgoing = new LinkedBlockingQueue<RawData>();
 	}
 
@@ -175,12 +300,42 @@ public class UDPConnector implements Connector {
 			return;
 		}
 
-		DatagramSocket socket = new DatagramSocket(null);
-		socket.setReuseAddress(reuseAddress);
-		socket.bind(localAddr);
+		DatagramSocket socket;
+		if (nio || reusePortShards > 1) {
+			socket = openChannelSocket(localAddr);
+		} else {
+			socket = new DatagramSocket(null);
+			socket.setReuseAddress(reuseAddress);
+			socket.bind(localAddr);
+		}
 		init(socket);
 	}
 
+	/**
+	 * Open and bind socket of a {@link DatagramChannel}.
+	 * 
+	 * Enables {@code SO_REUSEPORT}, if {@link #reusePortShards} is larger
+	 * than {@code 1}. Configures the channel non-blocking in NIO mode.
+	 * 
+	 * @param bindAddress address to bind the socket to
+	 * @return bound socket
+	 * @throws IOException if an i/o error occurred
+	 * @since 2.5
+	 */
+	private DatagramSocket openChannelSocket(InetSocketAddress bindAddress) throws IOException {
+		DatagramChannel channel = reusePortShards > 1 ? ReusePortUtil.open() : DatagramChannel.open();
+		try {
+			channel.configureBlocking(!nio);
+			DatagramSocket socket = channel.socket();
+			socket.setReuseAddress(reuseAddress);
+			socket.bind(bindAddress);
+			return socket;
+		} catch (IOException ex) {
+			channel.close();
+			throw ex;
+		}
+	}
+
 	/**
 	 * Initialize connector using the provided socket.
 	 * 
@@ -201,18 +356,72 @@ public class UDPConnector implements Connector {
 		}
 		sendBufferSize = socket.getSendBufferSize();
 
+		if (outboundQueueCapacity > 0) {
+			outgoing = new ArrayBlockingQueue<RawData>(outboundQueueCapacity);
+		} else {
+			outgoing = new LinkedBlockingQueue<RawData>();
+		}
+
+		DatagramChannel channel = socket.getChannel();
+		if (channel != null && !channel.isBlocking()) {
+			selector = register(channel);
+			wakeupPending.set(false);
+		}
+
+		if (reusePortShards > 1 && channel != null) {
+			try {
+				for (int shard = 1; shard < reusePortShards; ++shard) {
+					DatagramSocket shardSocket = openChannelSocket(effectiveAddr);
+					shardSockets.add(shardSocket);
+					if (receiveBufferSize != UNDEFINED) {
+						shardSocket.setReceiveBufferSize(receiveBufferSize);
+					}
+					if (sendBufferSize != UNDEFINED) {
+						shardSocket.setSendBufferSize(sendBufferSize);
+					}
+					if (selector != null) {
+						shardSelectors.add(register(shardSocket.getChannel()));
+					}
+				}
+			} catch (IOException ex) {
+				closeShards();
+				if (selector != null) {
+					selector.close();
+					selector = null;
+				}
+				throw ex;
+			}
+		}
+
 		// running only, if the socket could be opened
 		running = true;
 
-		// start receiver and sender threads
-		LOGGER.info("UDPConnector starts up {} sender threads and {} receiver threads", senderCount, receiverCount);
+		if (selector != null) {
+			// start the selector threads, the first shard's thread sends
+			LOGGER.info("UDPConnector starts up {} NIO selector threads", shardSelectors.size() + 1);
+			receiverThreads.add(new Selecting("UDP-NIO-" + localAddr, channel, selector, true));
+			for (int shard = 0; shard < shardSelectors.size(); ++shard) {
+				receiverThreads.add(new Selecting("UDP-NIO-" + localAddr + "#" + (shard + 1),
+						shardSockets.get(shard).getChannel(), shardSelectors.get(shard), false));
+			}
+		} else {
+			// start receiver and sender threads
+			LOGGER.info("UDPConnector starts up {} sender threads and {} receiver threads for {} shards",
+					senderCount, receiverCount, shardSockets.size() + 1);
 
-		for (int i = 0; i < receiverCount; i++) {
-			receiverThreads.add(new Receiver("UDP-Receiver-" + localAddr + "[" + i + "]"));
-		}
+			for (int i = 0; i < receiverCount; i++) {
+				receiverThreads.add(new Receiver("UDP-Receiver-" + localAddr + "[" + i + "]", socket));
+			}
+			for (int shard = 0; shard < shardSockets.size(); ++shard) {
+				for (int i = 0; i < receiverCount; i++) {
+					receiverThreads.add(new Receiver("UDP-Receiver-" + localAddr + "#" + (shard + 1) + "[" + i + "]",
+							shardSockets.get(shard)));
+				}
+			}
 
-		for (int i = 0; i < senderCount; i++) {
-			senderThreads.add(new Sender("UDP-Sender-" + localAddr + "[" + i + "]"));
+			for (int i = 0; i < senderCount; i++) {
+				senderThreads.add(new Sender("UDP-Sender-" + localAddr + "[" + i + "]"));
+			}
 		}
 
 		for (Thread t : receiverThreads) {
@@ -233,6 +442,45 @@ public class UDPConnector implements Connector {
 				receiveBufferSize, sendBufferSize, receiverPacketSize);
 	}
 
+	/**
+	 * Register non-blocking channel for receiving at a new selector.
+	 * 
+	 * @param channel non-blocking channel
+	 * @return selector
+	 * @throws IOException if an i/o error occurred
+	 * @since 2.5
+	 */
+	private static Selector register(DatagramChannel channel) throws IOException {
+		Selector selector = Selector.open();
+		try {
+			channel.register(selector, SelectionKey.OP_READ);
+		} catch (IOException ex) {
+			selector.close();
+			throw ex;
+		}
+		return selector;
+	}
+
+	/**
+	 * Close additional shards.
+	 * 
+	 * @since 2.5
+	 */
+	private void closeShards() {
+		for (Selector shardSelector : shardSelectors) {
+			try {
+				shardSelector.close();
+			} catch (IOException e) {
+				LOGGER.debug("UDPConnector on [{}] failed to close selector", effectiveAddr, e);
+			}
+		}
+		shardSelectors.clear();
+		for (DatagramSocket shardSocket : shardSockets) {
+			shardSocket.close();
+		}
+		shardSockets.clear();
+	}
+
 	@Override
 	public void stop() {
 		// move onError callback out of synchronized block
@@ -251,6 +499,15 @@ public class UDPConnector implements Connector {
 				t.interrupt();
 			}
 			outgoing.drainTo(pending);
+			if (selector != null) {
+				try {
+					selector.close();
+				} catch (IOException e) {
+					LOGGER.debug("UDPConnector on [{}] failed to close selector", effectiveAddr, e);
+				}
+				selector = null;
+			}
+			closeShards();
 			if (socket != null) {
 				socket.close();
 				socket = null;
@@ -291,15 +548,40 @@ public class UDPConnector implements Connector {
 			throw new NullPointerException("Message must not be null");
 		}
 		// move onError callback out of synchronized block
+		RawData dropped = null;
+		Selector wakeup = null;
 		boolean running;
 		synchronized (this) {
 			running = this.running;
 			if (running) {
-				outgoing.add(msg);
+				if (!outgoing.offer(msg)) {
+					if (outboundQueuePolicy == OutboundQueuePolicy.DROP_OLDEST) {
+						dropped = outgoing.poll();
+						if (!outgoing.offer(msg)) {
+							// unbound queue of zero size, not expected
+							dropped = msg;
+						}
+					} else {
+						dropped = msg;
+					}
+				}
+				if (selector != null && wakeupPending.compareAndSet(false, true)) {
+					wakeup = selector;
+				}
 			}
 		}
 		if (!running) {
 			notifyMsgAsInterrupted(msg);
+		} else {
+			if (wakeup != null) {
+				wakeup.wakeup();
+			}
+			if (dropped != null) {
+				LOGGER.debug("UDPConnector ({}) outbound queue exceeded, drops {} bytes to {}", effectiveAddr,
+						dropped.getSize(), dropped.getInetSocketAddress());
+				dropped.onError(new OutboundQueueOverflowException(
+						"Outbound queue of " + outboundQueueCapacity + " messages exceeded!"));
+			}
 		}
 	}
 
@@ -322,6 +604,56 @@ public class UDPConnector implements Connector {
 		msg.onError(new InterruptedIOException("Connector is not running."));
 	}
 
+	/**
+	 * Check, if message should be sent with the "none endpoint context" of
+	 * UDP connector.
+	 * 
+	 * @param raw outgoing message
+	 * @return connection context to send the message, or {@code null}, if
+	 *         the message must not be sent. The message's
+	 *         {@link MessageCallback#onError(Throwable)} is already called in
+	 *         that case.
+	 */
+	private EndpointContext matchOutgoing(RawData raw) {
+		EndpointContext destination = raw.getEndpointContext();
+		InetSocketAddress destinationAddress = destination.getPeerAddress();
+		EndpointContext connectionContext = new UdpEndpointContext(destinationAddress);
+		EndpointContextMatcher endpointMatcher = UDPConnector.this.endpointContextMatcher;
+		if (endpointMatcher != null && !endpointMatcher.isToBeSent(destination, connectionContext)) {
+			LOGGER.warn("UDPConnector ({}) drops {} bytes to {}:{}", effectiveAddr, raw.getSize(),
+					destinationAddress.getAddress(), destinationAddress.getPort());
+			raw.onError(new EndpointMismatchException());
+			return null;
+		}
+		return connectionContext;
+	}
+
+	/**
+	 * Process received datagram.
+	 * 
+	 * @param data received data. May be modified by the receiver.
+	 * @param source source address of the datagram
+	 * @param timestamp receive timestamp in nanoseconds
+	 */
+	private void processDatagram(byte[] data, InetSocketAddress source, long timestamp) {
+		RawDataChannel dataReceiver = receiver;
+		if (dataReceiver == null) {
+			LOGGER.debug("UDPConnector ({}) received UDP datagram from {} without receiver. Discarding ...",
+					effectiveAddr, StringUtil.toString(source));
+		} else {
+			if (LOGGER.isDebugEnabled()) {
+				String local = StringUtil.toString(effectiveAddr);
+				if (multicast) {
+					local = "mc/" + local;
+				}
+				LOGGER.debug("UDPConnector ({}) received {} bytes from {}", local, data.length,
+						StringUtil.toString(source));
+			}
+			RawData msg = RawData.inbound(data, new UdpEndpointContext(source), multicast, timestamp);
+			dataReceiver.receiveData(msg);
+		}
+	}
+
 	private abstract class NetworkStageThread extends Thread {
 
 		/**
@@ -367,11 +699,13 @@ public class UDPConnector implements Connector {
 
 	private class Receiver extends NetworkStageThread {
 
+		private final DatagramSocket receiveSocket;
 		private DatagramPacket datagram;
 		private int size;
 
-		private Receiver(String name) {
+		private Receiver(String name, DatagramSocket socket) {
 			super(name);
+			this.receiveSocket = socket;
 			// we add one byte to be able to detect potential truncation.
 			this.size = receiverPacketSize + 1;
 			this.datagram = new DatagramPacket(new byte[size], size);
@@ -379,32 +713,20 @@ public class UDPConnector implements Connector {
 
 		protected void work() throws IOException {
 			datagram.setLength(size);
-			DatagramSocket currentSocket = socket;
-			if (currentSocket != null) {
+			DatagramSocket currentSocket = receiveSocket;
+			if (running) {
 				currentSocket.receive(datagram);
-				RawDataChannel dataReceiver = receiver;
 				if (datagram.getLength() >= size) {
 					// too large datagram for our buffer! data could have been
 					// truncated, so we discard it.
 					LOGGER.debug(
 							"UDPConnector ({}) received truncated UDP datagram from {}:{}. Maximum size allowed {}. Discarding ...",
 							effectiveAddr, datagram.getAddress(), datagram.getPort(), size - 1);
-				} else if (dataReceiver == null) {
-					LOGGER.debug("UDPConnector ({}) received UDP datagram from {}:{} without receiver. Discarding ...",
-							effectiveAddr, datagram.getAddress(), datagram.getPort());
 				} else {
 					long timestamp = ClockUtil.nanoRealtime();
-					String local = StringUtil.toString(effectiveAddr);
-					if (multicast) {
-						local = "mc/" + local;
-					}
-					LOGGER.debug("UDPConnector ({}) received {} bytes from {}:{}", local, datagram.getLength(),
-							datagram.getAddress(), datagram.getPort());
 					byte[] bytes = Arrays.copyOfRange(datagram.getData(), datagram.getOffset(), datagram.getLength());
-					RawData msg = RawData.inbound(bytes,
-							new UdpEndpointContext(new InetSocketAddress(datagram.getAddress(), datagram.getPort())),
-							multicast, timestamp);
-					dataReceiver.receiveData(msg);
+					processDatagram(bytes, new InetSocketAddress(datagram.getAddress(), datagram.getPort()),
+							timestamp);
 				}
 			}
 		}
@@ -421,20 +743,11 @@ public class UDPConnector implements Connector {
 
 		protected void work() throws InterruptedException {
 			RawData raw = outgoing.take(); // Blocking
-			/*
-			 * check, if message should be sent with the "none endpoint context"
-			 * of UDP connector
-			 */
-			EndpointContext destination = raw.getEndpointContext();
-			InetSocketAddress destinationAddress = destination.getPeerAddress();
-			EndpointContext connectionContext = new UdpEndpointContext(destinationAddress);
-			EndpointContextMatcher endpointMatcher = UDPConnector.this.endpointContextMatcher;
-			if (endpointMatcher != null && !endpointMatcher.isToBeSent(destination, connectionContext)) {
-				LOGGER.warn("UDPConnector ({}) drops {} bytes to {}:{}", effectiveAddr, datagram.getLength(),
-						destinationAddress.getAddress(), destinationAddress.getPort());
-				raw.onError(new EndpointMismatchException());
+			EndpointContext connectionContext = matchOutgoing(raw);
+			if (connectionContext == null) {
 				return;
 			}
+			InetSocketAddress destinationAddress = connectionContext.getPeerAddress();
 			datagram.setData(raw.getBytes());
 			datagram.setSocketAddress(destinationAddress);
 
@@ -455,6 +768,162 @@ public class UDPConnector implements Connector {
 		}
 	}
 
+	/**
+	 * Selector thread for NIO mode.
+	 * 
+	 * Drains up to {@link UDPConnector#nioBurstSize} received datagrams and up
+	 * to {@link UDPConnector#nioBurstSize} outgoing messages per wakeup. If
+	 * the socket's send buffer is full, waits for the channel to get writable
+	 * again.
+	 * 
+	 * @since 2.5
+	 */
+	private class Selecting extends NetworkStageThread {
+
+		private final DatagramChannel channel;
+		private final Selector selector;
+		private final ByteBuffer receiveBuffer;
+		private final int burst;
+		private final int size;
+		/**
+		 * {@code true}, if this thread sends the outgoing messages,
+		 * {@code false}, if it only receives.
+		 */
+		private final boolean sending;
+		/**
+		 * Message, which could not be sent because the socket's send buffer
+		 * was full.
+		 */
+		private RawData blocked;
+
+		private Selecting(String name, DatagramChannel channel, Selector selector, boolean sending) {
+			super(name);
+			this.sending = sending;
+			this.channel = channel;
+			this.selector = selector;
+			this.burst = nioBurstSize;
+			// we add one byte to be able to detect potential truncation.
+			this.size = receiverPacketSize + 1;
+			this.receiveBuffer = ByteBuffer.allocateDirect(size);
+		}
+
+		@Override
+		public void run() {
+			super.run();
+			if (blocked != null) {
+				notifyMsgAsInterrupted(blocked);
+				blocked = null;
+			}
+		}
+
+		@Override
+		protected void work() throws IOException {
+			try {
+				if (!wakeupPending.get()) {
+					selector.select();
+				} else {
+					selector.selectNow();
+				}
+				selector.selectedKeys().clear();
+			} catch (ClosedSelectorException ex) {
+				// connector stopped
+				return;
+			}
+			if (!running) {
+				return;
+			}
+			receive();
+			if (!sending) {
+				return;
+			}
+			// all messages queued before are processed now
+			wakeupPending.set(false);
+			boolean blocked = send();
+			SelectionKey key = channel.keyFor(selector);
+			if (key != null && key.isValid()) {
+				if (blocked) {
+					key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				} else {
+					key.interestOps(SelectionKey.OP_READ);
+					if (!outgoing.isEmpty() && running) {
+						// burst limit reached, continue without select
+						wakeupPending.set(true);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Receive burst of datagrams.
+		 * 
+		 * @throws IOException if an i/o error occurred
+		 */
+		private void receive() throws IOException {
+			for (int count = 0; count < burst; ++count) {
+				receiveBuffer.clear();
+				SocketAddress source = channel.receive(receiveBuffer);
+				if (source == null) {
+					break;
+				}
+				receiveBuffer.flip();
+				int length = receiveBuffer.remaining();
+				if (length >= size) {
+					// too large datagram for our buffer! data could have been
+					// truncated, so we discard it.
+					LOGGER.debug(
+							"UDPConnector ({}) received truncated UDP datagram from {}. Maximum size allowed {}. Discarding ...",
+							effectiveAddr, source, size - 1);
+				} else {
+					long timestamp = ClockUtil.nanoRealtime();
+					byte[] bytes = new byte[length];
+					receiveBuffer.get(bytes);
+					processDatagram(bytes, (InetSocketAddress) source, timestamp);
+				}
+			}
+		}
+
+		/**
+		 * Send burst of outgoing messages.
+		 * 
+		 * @return {@code true}, if the socket's send buffer is full,
+		 *         {@code false}, otherwise.
+		 */
+		private boolean send() {
+			for (int count = 0; count < burst; ++count) {
+				RawData raw = blocked;
+				EndpointContext connectionContext;
+				if (raw != null) {
+					blocked = null;
+					connectionContext = new UdpEndpointContext(raw.getInetSocketAddress());
+				} else {
+					raw = outgoing.poll();
+					if (raw == null) {
+						break;
+					}
+					connectionContext = matchOutgoing(raw);
+					if (connectionContext == null) {
+						continue;
+					}
+					raw.onContextEstablished(connectionContext);
+				}
+				InetSocketAddress destinationAddress = connectionContext.getPeerAddress();
+				try {
+					if (channel.send(ByteBuffer.wrap(raw.getBytes()), destinationAddress) == 0) {
+						// send buffer full, retry when writable
+						blocked = raw;
+						return true;
+					}
+					raw.onSent();
+					LOGGER.debug("UDPConnector ({}) sent {} bytes to {}", effectiveAddr, raw.getSize(),
+							StringUtil.toString(destinationAddress));
+				} catch (IOException ex) {
+					raw.onError(ex);
+				}
+			}
+			return false;
+		}
+	}
+
 	/**
 	 * Get reuse address.
 	 * 
@@ -520,6 +989,149 @@ public class UDPConnector implements Connector {
 		return receiverPacketSize;
 	}
 
+	/**
+	 * Set NIO mode.
+	 * 
+	 * In NIO mode a non-blocking {@link DatagramChannel} is used with a single
+	 * selector thread for receiving and sending. The receiver and sender
+	 * thread counts are ignored in that mode. Must be set before the
+	 * connector is started. Not supported for multicast connectors.
+	 * 
+	 * @param enable {@code true}, to use NIO mode, {@code false}, to use
+	 *            blocking receiver and sender threads.
+	 * @since 2.5
+	 */
+	public void setNioMode(boolean enable) {
+		this.nio = enable;
+	}
+
+	/**
+	 * Check, if NIO mode is used.
+	 * 
+	 * @return {@code true}, if NIO mode is used, {@code false}, otherwise.
+	 * @since 2.5
+	 */
+	public boolean isNioMode() {
+		return nio;
+	}
+
+	/**
+	 * Set maximum number of datagrams processed in NIO mode per wakeup and
+	 * direction.
+	 * 
+	 * @param size burst size. Default is {@link #DEFAULT_NIO_BURST_SIZE}.
+	 * @throws IllegalArgumentException if size is less than {@code 1}.
+	 * @since 2.5
+	 */
+	public void setNioBurstSize(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("burst size " + size + " must be at least 1!");
+		}
+		this.nioBurstSize = size;
+	}
+
+	/**
+	 * Get maximum number of datagrams processed in NIO mode per wakeup and
+	 * direction.
+	 * 
+	 * @return burst size
+	 * @since 2.5
+	 */
+	public int getNioBurstSize() {
+		return nioBurstSize;
+	}
+
+	/**
+	 * Set number of sockets bound to the same address using
+	 * {@code SO_REUSEPORT}.
+	 * 
+	 * Each shard is served by {@link #getReceiverThreadCount()} receiver
+	 * threads, or, in NIO mode, by its own selector thread. Outgoing messages
+	 * are sent using the first shard. Must be set before the connector is
+	 * started. Not supported for multicast connectors.
+	 * 
+	 * @param shards number of shards. {@code 1} disables
+	 *            {@code SO_REUSEPORT}.
+	 * @throws IllegalArgumentException if shards is less than {@code 1}.
+	 * @throws IllegalStateException if shards is larger than {@code 1}, but
+	 *             {@code SO_REUSEPORT} is not supported.
+	 * @see ReusePortUtil#isSupported()
+	 * @since 2.5
+	 */
+	public void setReusePortShardCount(int shards) {
+		if (shards < 1) {
+			throw new IllegalArgumentException("shards " + shards + " must be at least 1!");
+		}
+		if (shards > 1 && !ReusePortUtil.isSupported()) {
+			throw new IllegalStateException("SO_REUSEPORT is not supported!");
+		}
+		this.reusePortShards = shards;
+	}
+
+	/**
+	 * Get number of sockets bound to the same address using
+	 * {@code SO_REUSEPORT}.
+	 * 
+	 * @return number of shards
+	 * @since 2.5
+	 */
+	public int getReusePortShardCount() {
+		return reusePortShards;
+	}
+
+	/**
+	 * Set capacity of outbound queue.
+	 * 
+	 * Applied on the next {@link #start()}.
+	 * 
+	 * @param capacity capacity of outbound queue. {@link #UNDEFINED} for an
+	 *            unbounded queue.
+	 * @throws IllegalArgumentException if capacity is negative.
+	 * @see #setOutboundQueuePolicy(OutboundQueuePolicy)
+	 * @since 2.5
+	 */
+	public void setOutboundQueueCapacity(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("capacity " + capacity + " must not be negative!");
+		}
+		this.outboundQueueCapacity = capacity;
+	}
+
+	/**
+	 * Get capacity of outbound queue.
+	 * 
+	 * @return capacity of outbound queue, or {@link #UNDEFINED}, for an
+	 *         unbounded queue.
+	 * @since 2.5
+	 */
+	public int getOutboundQueueCapacity() {
+		return outboundQueueCapacity;
+	}
+
+	/**
+	 * Set policy for exceeded outbound queue.
+	 * 
+	 * @param policy policy
+	 * @throws NullPointerException if policy is {@code null}
+	 * @since 2.5
+	 */
+	public void setOutboundQueuePolicy(OutboundQueuePolicy policy) {
+		if (policy == null) {
+			throw new NullPointerException("policy must not be null!");
+		}
+		this.outboundQueuePolicy = policy;
+	}
+
+	/**
+	 * Get policy for exceeded outbound queue.
+	 * 
+	 * @return policy
+	 * @since 2.5
+	 */
+	public OutboundQueuePolicy getOutboundQueuePolicy() {
+		return outboundQueuePolicy;
+	}
+
 	@Override
 	public String getProtocol() {
 		return "UDP";
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.elements.exception;
+
+/**
+ * Exception indicating, that a message was dropped, because the bounded
+ * outbound queue of a connector has been exceeded.
+ * 
+ * @since 2.5
+ */
+public class OutboundQueueOverflowException extends ConnectorException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Create new instance.
+	 */
+	public OutboundQueueOverflowException() {
+		super();
+	}
+
+	/**
+	 * Create new instance with message.
+	 * 
+	 * @param message message
+	 */
+	public OutboundQueueOverflowException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.elements.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of reusable byte arrays with the same size.
+ *
+ * Used to receive datagrams without allocating a new buffer for each
+ * datagram. The buffers are handed out as reference counted
+ * {@link PooledBuffer}, which return their byte array to this pool, when the
+ * last reference is released. If the pool is exhausted, new byte arrays are
+ * created. If the pool is full, released byte arrays are left to the garbage
+ * collector.
+ *
+ * Thread-safe.
+ *
+ * @since 2.5
+ */
+public class BufferPool {
+
+	/**
+	 * Size of the buffers.
+	 */
+	private final int bufferSize;
+	/**
+	 * Pooled byte arrays.
+	 */
+	private final BlockingQueue<byte[]> pool;
+	/**
+	 * Number of byte arrays taken from the pool.
+	 */
+	private final AtomicLong reused = new AtomicLong();
+	/**
+	 * Number of byte arrays created, because the pool was exhausted.
+	 */
+	private final AtomicLong created = new AtomicLong();
+
+	/**
+	 * Create pool.
+	 *
+	 * @param bufferSize size of the buffers
+	 * @param capacity maximum number of pooled buffers
+	 * @throws IllegalArgumentException if buffer size or capacity is less than
+	 *             {@code 1}.
+	 */
+	public BufferPool(int bufferSize, int capacity) {
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("buffer size " + bufferSize + " must be at least 1!");
+		}
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity " + capacity + " must be at least 1!");
+		}
+		this.bufferSize = bufferSize;
+		this.pool = new ArrayBlockingQueue<byte[]>(capacity);
+	}
+
+	/**
+	 * Get size of the buffers.
+	 *
+	 * @return size of the buffers
+	 */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * Acquire buffer.
+	 *
+	 * The returned buffer has a reference count of {@code 1}. Call
+	 * {@link PooledBuffer#release()}, when it's not longer used.
+	 *
+	 * @return buffer
+	 */
+	public PooledBuffer acquire() {
+		byte[] data = pool.poll();
+		if (data == null) {
+			created.incrementAndGet();
+			data = new byte[bufferSize];
+		} else {
+			reused.incrementAndGet();
+		}
+		return new PooledBuffer(this, data);
+	}
+
+	/**
+	 * Return byte array to pool.
+	 *
+	 * @param data byte array of released buffer
+	 */
+	void release(byte[] data) {
+		pool.offer(data);
+	}
+
+	/**
+	 * Get number of currently pooled buffers.
+	 *
+	 * @return number of currently pooled buffers
+	 */
+	public int getPooledBuffers() {
+		return pool.size();
+	}
+
+	/**
+	 * Get number of reused buffers.
+	 *
+	 * @return number of buffers taken from the pool
+	 */
+	public long getReusedBuffers() {
+		return reused.get();
+	}
+
+	/**
+	 * Get number of created buffers.
+	 *
+	 * @return number of buffers created, because the pool was exhausted.
+	 */
+	public long getCreatedBuffers() {
+		return created.get();
+	}
+
+	@Override
+	public String toString() {
+		return "BufferPool[" + bufferSize + " bytes, " + pool.size() + " pooled, " + reused.get() + " reused, "
+				+ created.get() + " created]";
+	}
+}
@@ -16,6 +16,7 @@
  *    Achim Kraus (Bosch Software Innovations GmbH) - add "mark" and "reset"
  *    Achim Kraus (Bosch Software Innovations GmbH) - add constructor without 
  *                                                    cloning of the provided data.
+ *    Bosch.IO GmbH                                 - add slice support
  ******************************************************************************/
 package org.eclipse.californium.elements.util;
 
@@ -70,6 +71,24 @@ public final class DatagramReader {
 			}
 			return new RangeInputStream(buf, offset, count);
 		}
+
+		/**
+		 * Skip range.
+		 * 
+		 * @param count number of bytes for the range
+		 * @return offset of the range within the buffer
+		 * @throws IllegalArgumentException if provided count exceeds available bytes
+		 * @since 2.5
+		 */
+		private int skipRange(int count) {
+			int offset = pos;
+			long available = skip(count);
+			if (available < count) {
+				throw new IllegalArgumentException(
+						"requested " + count + " bytes exceeds available " + available + " bytes.");
+			}
+			return offset;
+		}
 	}
 	// Attributes //////////////////////////////////////////////////////////////
 
@@ -323,6 +342,32 @@ public final class DatagramReader {
 		return bytes;
 	}
 
+	/**
+	 * Skips a sequence of bytes and returns their offset.
+	 * 
+	 * Enables to use a slice of the byte array, which was provided to
+	 * {@link #DatagramReader(byte[], int, int)} or
+	 * {@link #DatagramReader(byte[], boolean)} without copy, instead of
+	 * copying the bytes with {@link #readBytes(int)}.
+	 * 
+	 * @param count the number of bytes to skip.
+	 * @return offset of the skipped bytes within the byte array.
+	 * @throws IllegalStateException if some bits of the current byte are
+	 *             unread, or the reader is not created with a byte array.
+	 * @throws IllegalArgumentException if provided count exceeds available
+	 *             bytes
+	 * @since 2.5
+	 */
+	public int readSliceOffset(final int count) {
+		if (currentBitIndex > 0) {
+			throw new IllegalStateException(currentBitIndex + " bits unread!");
+		}
+		if (!(byteStream instanceof RangeInputStream)) {
+			throw new IllegalStateException("reader not created with byte array!");
+		}
+		return ((RangeInputStream) byteStream).skipRange(count);
+	}
+
 	/**
 	 * Reads the next byte from the stream.
 	 * 
@@ -12,9 +12,12 @@
  * 
  * Contributors:
  *    Bosch Software Innovations GmbH - initial creation
+ *    Bosch.IO GmbH                   - use timing wheel for protocol timers
+ *    Bosch.IO GmbH                   - add virtual thread executor
  ******************************************************************************/
 package org.eclipse.californium.elements.util;
 
+import java.lang.reflect.Method;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -61,18 +64,103 @@ public class ExecutorsUtil {
 	 */
 	private static final int SPLIT_THRESHOLD = 1;
 
+	/**
+	 * Name of the configuration value for the tick duration of the
+	 * {@link TimingWheelScheduledExecutor} in milliseconds.
+	 * 
+	 * @see StringUtil#getConfigurationLong(String)
+	 * @since 2.5
+	 */
+	public static final String TIMING_WHEEL_TICK_MILLIS_NAME = "EXECUTORS_TIMING_WHEEL_TICK_MILLIS";
+
+	/**
+	 * Tick duration in milliseconds for the {@link TimingWheelScheduledExecutor}.
+	 * {@code 0} to disable the use of the
+	 * {@link TimingWheelScheduledExecutor}.
+	 * 
+	 * Configured by {@link #TIMING_WHEEL_TICK_MILLIS_NAME}. Defaults to
+	 * {@link TimingWheelScheduledExecutor#DEFAULT_TICK_MILLIS}.
+	 * 
+	 * @since 2.5
+	 */
+	private static final long TIMING_WHEEL_TICK_MILLIS;
+
+	static {
+		Long tick = StringUtil.getConfigurationLong(TIMING_WHEEL_TICK_MILLIS_NAME);
+		if (tick == null) {
+			tick = TimingWheelScheduledExecutor.DEFAULT_TICK_MILLIS;
+		} else if (tick < 0) {
+			LOGGER.warn("{} {} must not be negative, timing wheel disabled!", TIMING_WHEEL_TICK_MILLIS_NAME, tick);
+			tick = 0L;
+		}
+		TIMING_WHEEL_TICK_MILLIS = tick;
+	}
+
+	/**
+	 * {@code Thread.ofVirtual()}. {@code null}, if virtual threads are not
+	 * supported by the JVM.
+	 * 
+	 * @since 2.5
+	 */
+	private static final Method OF_VIRTUAL;
+	/**
+	 * {@code Thread.Builder.name(String, long)}.
+	 * 
+	 * @since 2.5
+	 */
+	private static final Method BUILDER_NAME;
+	/**
+	 * {@code Thread.Builder.factory()}.
+	 * 
+	 * @since 2.5
+	 */
+	private static final Method BUILDER_FACTORY;
+	/**
+	 * {@code Executors.newThreadPerTaskExecutor(ThreadFactory)}.
+	 * 
+	 * @since 2.5
+	 */
+	private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+	static {
+		Method ofVirtual = null;
+		Method name = null;
+		Method factory = null;
+		Method newExecutor = null;
+		try {
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			name = builder.getMethod("name", String.class, long.class);
+			factory = builder.getMethod("factory");
+			newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			// preview versions require --enable-preview
+			ofVirtual.invoke(null);
+		} catch (Throwable t) {
+			LOGGER.debug("virtual threads not supported: {}", t.toString());
+			ofVirtual = null;
+		}
+		OF_VIRTUAL = ofVirtual;
+		BUILDER_NAME = name;
+		BUILDER_FACTORY = factory;
+		NEW_THREAD_PER_TASK_EXECUTOR = newExecutor;
+	}
+
 	/**
 	 * Create a scheduled thread pool executor service.
 	 * 
-	 * If the provided number of threads exceeds the {@link #SPLIT_THRESHOLD},
-	 * the {@code SplitScheduledThreadPoolExecutor} is returned.
+	 * If the {@link #TIMING_WHEEL_TICK_MILLIS} is not {@code 0}, a
+	 * {@link TimingWheelScheduledExecutor} is returned. Otherwise, if the
+	 * provided number of threads exceeds the {@link #SPLIT_THRESHOLD}, the
+	 * {@code SplitScheduledThreadPoolExecutor} is returned.
 	 * 
 	 * @param poolSize number of threads for thread pool.
 	 * @param threadFactory thread factory
 	 * @return thread pool based scheduled executor service
 	 */
 	public static ScheduledExecutorService newScheduledThreadPool(int poolSize, ThreadFactory threadFactory) {
-		if (SPLIT_THRESHOLD == 0 || poolSize <= SPLIT_THRESHOLD) {
+		if (TIMING_WHEEL_TICK_MILLIS > 0) {
+			return newTimingWheelScheduler(poolSize, threadFactory);
+		} else if (SPLIT_THRESHOLD == 0 || poolSize <= SPLIT_THRESHOLD) {
 			LOGGER.trace("create scheduled thread pool of {} threads", poolSize);
 			ScheduledExecutorService executor = Executors.newScheduledThreadPool(poolSize, threadFactory);
 			executor.execute(WARMUP);
@@ -103,16 +191,85 @@ public class ExecutorsUtil {
 	/**
 	 * Create a single threaded scheduled executor service.
 	 * 
+	 * If the {@link #TIMING_WHEEL_TICK_MILLIS} is not {@code 0}, a
+	 * {@link TimingWheelScheduledExecutor} with one thread for execution is
+	 * returned.
+	 * 
 	 * @param threadFactory thread factory
 	 * @return single threaded scheduled executor service
 	 */
 	public static ScheduledExecutorService newSingleThreadScheduledExecutor(ThreadFactory threadFactory) {
+		if (TIMING_WHEEL_TICK_MILLIS > 0) {
+			return newTimingWheelScheduler(1, threadFactory);
+		}
 		LOGGER.trace("create scheduled single thread pool");
 		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
 		executor.execute(WARMUP);
 		return executor;
 	}
 
+	/**
+	 * Create a timing wheel scheduled executor service.
+	 * 
+	 * Uses {@link #TIMING_WHEEL_TICK_MILLIS} as tick duration and
+	 * {@link TimingWheelScheduledExecutor#DEFAULT_WHEEL_SIZE}. The tasks are
+	 * executed by the provided number of threads, the wheel is advanced by an
+	 * additional thread.
+	 * 
+	 * @param poolSize number of threads for execution.
+	 * @param threadFactory thread factory
+	 * @return timing wheel scheduled executor service
+	 * @since 2.5
+	 */
+	public static ScheduledExecutorService newTimingWheelScheduler(int poolSize, ThreadFactory threadFactory) {
+		LOGGER.trace("create timing wheel with thread pool of {} threads", poolSize);
+		long tick = TIMING_WHEEL_TICK_MILLIS > 0 ? TIMING_WHEEL_TICK_MILLIS
+				: TimingWheelScheduledExecutor.DEFAULT_TICK_MILLIS;
+		ScheduledExecutorService executor = new TimingWheelScheduledExecutor(poolSize, threadFactory, tick,
+				TimeUnit.MILLISECONDS, TimingWheelScheduledExecutor.DEFAULT_WHEEL_SIZE);
+		executor.execute(WARMUP);
+		return executor;
+	}
+
+	/**
+	 * Check, if the JVM supports virtual threads.
+	 * 
+	 * @return {@code true}, if virtual threads are supported, {@code false},
+	 *         otherwise.
+	 * @since 2.5
+	 */
+	public static boolean isVirtualThreadSupported() {
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * Create an executor service, which executes each task on a new virtual
+	 * thread.
+	 * 
+	 * Virtual threads are detected at runtime. Intended for tasks, which may
+	 * block, e.g. resource handlers accessing a database.
+	 * 
+	 * @param namePrefix for thread names.
+	 * @return executor service, or {@code null}, if virtual threads are not
+	 *         supported by the JVM.
+	 * @see #isVirtualThreadSupported()
+	 * @since 2.5
+	 */
+	public static ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) {
+		if (OF_VIRTUAL != null) {
+			try {
+				Object builder = OF_VIRTUAL.invoke(null);
+				builder = BUILDER_NAME.invoke(builder, namePrefix, 0L);
+				ThreadFactory factory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+				LOGGER.trace("create virtual thread executor");
+				return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+			} catch (Throwable t) {
+				LOGGER.warn("creating virtual thread executor failed!", t);
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Create a scheduler with 2 threads in pools.
 	 * 
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.elements.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference counted buffer of a {@link BufferPool}.
+ *
+ * Several slices of the buffer may be processed independently. Each slice
+ * {@link #retain()}s the buffer and {@link #release()}s it, when the
+ * processing of the slice completes. When the last reference is released, the
+ * byte array is returned to the pool and must not longer be accessed.
+ *
+ * @since 2.5
+ */
+public final class PooledBuffer {
+
+	/**
+	 * Pool to return the byte array to.
+	 */
+	private final BufferPool pool;
+	/**
+	 * Byte array of buffer.
+	 */
+	private final byte[] data;
+	/**
+	 * Reference counter.
+	 */
+	private final AtomicInteger references = new AtomicInteger(1);
+
+	/**
+	 * Create buffer.
+	 *
+	 * @param pool pool to return the byte array to
+	 * @param data byte array of buffer
+	 */
+	PooledBuffer(BufferPool pool, byte[] data) {
+		this.pool = pool;
+		this.data = data;
+	}
+
+	/**
+	 * Get byte array of buffer.
+	 *
+	 * @return byte array
+	 */
+	public byte[] getData() {
+		return data;
+	}
+
+	/**
+	 * Add reference to this buffer.
+	 *
+	 * @return this buffer for command chaining
+	 * @throws IllegalStateException if the buffer is already released
+	 */
+	public PooledBuffer retain() {
+		int count;
+		do {
+			count = references.get();
+			if (count <= 0) {
+				throw new IllegalStateException("buffer already released!");
+			}
+		} while (!references.compareAndSet(count, count + 1));
+		return this;
+	}
+
+	/**
+	 * Release reference to this buffer.
+	 *
+	 * If the last reference is released, the byte array is returned to the
+	 * pool.
+	 *
+	 * @throws IllegalStateException if the buffer is already released
+	 */
+	public void release() {
+		int count = references.decrementAndGet();
+		if (count == 0) {
+			pool.release(data);
+		} else if (count < 0) {
+			throw new IllegalStateException("buffer already released!");
+		}
+	}
+
+	/**
+	 * Get number of references.
+	 *
+	 * @return number of references. {@code 0}, if released.
+	 */
+	public int getReferences() {
+		return Math.max(0, references.get());
+	}
+}
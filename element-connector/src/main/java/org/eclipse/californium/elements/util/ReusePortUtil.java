@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.elements.util;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Utility class for {@code SO_REUSEPORT}.
+ *
+ * {@code SO_REUSEPORT} allows to bind several sockets to the same address and
+ * port. The kernel then distributes the received datagrams based on a hash of
+ * the peer's address among these sockets, so the datagrams of one peer are
+ * always received by the same socket. The option is available with Java 9 and
+ * newer, and is supported on Linux and the BSDs. Therefore it's accessed using
+ * reflection. Not available for Android.
+ *
+ * @since 2.5
+ */
+@NotForAndroid
+public class ReusePortUtil {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReusePortUtil.class);
+
+	/**
+	 * Socket option {@code SO_REUSEPORT}. {@code null}, if not available.
+	 */
+	private static final SocketOption<Boolean> SO_REUSEPORT;
+
+	static {
+		SocketOption<Boolean> option = null;
+		try {
+			Field field = StandardSocketOptions.class.getField("SO_REUSEPORT");
+			@SuppressWarnings("unchecked")
+			SocketOption<Boolean> reusePort = (SocketOption<Boolean>) field.get(null);
+			DatagramChannel channel = DatagramChannel.open();
+			try {
+				if (channel.supportedOptions().contains(reusePort)) {
+					option = reusePort;
+				}
+			} finally {
+				channel.close();
+			}
+		} catch (NoSuchFieldException ex) {
+			LOGGER.debug("SO_REUSEPORT not available!");
+		} catch (IllegalAccessException ex) {
+			LOGGER.debug("SO_REUSEPORT not accessible!", ex);
+		} catch (IOException ex) {
+			LOGGER.debug("SO_REUSEPORT not checked!", ex);
+		}
+		SO_REUSEPORT = option;
+	}
+
+	private ReusePortUtil() {
+	}
+
+	/**
+	 * Check, if {@code SO_REUSEPORT} is supported.
+	 *
+	 * @return {@code true}, if supported, {@code false}, otherwise.
+	 */
+	public static boolean isSupported() {
+		return SO_REUSEPORT != null;
+	}
+
+	/**
+	 * Open unbound datagram channel with {@code SO_REUSEPORT} enabled.
+	 *
+	 * The channel is in blocking mode. Its {@link DatagramChannel#socket()}
+	 * could be used as a common {@link java.net.DatagramSocket}.
+	 *
+	 * @return datagram channel
+	 * @throws IOException if an i/o error occurred
+	 * @throws IllegalStateException if {@code SO_REUSEPORT} is not supported.
+	 * @see #isSupported()
+	 */
+	public static DatagramChannel open() throws IOException {
+		if (SO_REUSEPORT == null) {
+			throw new IllegalStateException("SO_REUSEPORT is not supported!");
+		}
+		DatagramChannel channel = DatagramChannel.open();
+		try {
+			channel.setOption(SO_REUSEPORT, Boolean.TRUE);
+		} catch (IOException ex) {
+			channel.close();
+			throw ex;
+		}
+		return channel;
+	}
+}
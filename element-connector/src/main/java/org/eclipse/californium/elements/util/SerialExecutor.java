@@ -12,17 +12,17 @@
  * 
  * Contributors:
  *    Bosch Software Innovations GmbH - initial creation
+ *    Bosch.IO GmbH                   - allocate queue only for pending jobs
  ******************************************************************************/
 package org.eclipse.californium.elements.util;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.List;
 import java.util.concurrent.AbstractExecutorService;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -62,8 +62,12 @@ public class SerialExecutor extends AbstractExecutorService {
 
 	/**
 	 * Queue for serialized jobs.
+	 * 
+	 * Only allocated, if jobs are pending while a job is executed, and
+	 * released, when drained. That keeps idle serial executors small. Guarded
+	 * by {@link #lock}.
 	 */
-	private final BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+	private ArrayDeque<Runnable> tasks;
 
 	/**
 	 * Lock to protected simultaneous access.
@@ -105,9 +109,13 @@ public class SerialExecutor extends AbstractExecutorService {
 			if (shutdown) {
 				throw new RejectedExecutionException("SerialExecutor already shutdown!");
 			}
-			tasks.offer(command);
 			if (currentlyExecutedJob == null) {
-				scheduleNextJob();
+				scheduleJob(command);
+			} else {
+				if (tasks == null) {
+					tasks = new ArrayDeque<Runnable>(4);
+				}
+				tasks.offer(command);
 			}
 		} finally {
 			lock.unlock();
@@ -202,7 +210,7 @@ public class SerialExecutor extends AbstractExecutorService {
 	public List<Runnable> shutdownNow() {
 		lock.lock();
 		try {
-			List<Runnable> pending = new ArrayList<>(tasks.size());
+			List<Runnable> pending = new ArrayList<>(tasks == null ? 0 : tasks.size());
 			shutdownNow(pending);
 			return pending;
 		} finally {
@@ -222,7 +230,13 @@ public class SerialExecutor extends AbstractExecutorService {
 		lock.lock();
 		try {
 			shutdown();
-			return tasks.drainTo(jobs);
+			int count = 0;
+			if (tasks != null) {
+				count = tasks.size();
+				jobs.addAll(tasks);
+				tasks = null;
+			}
+			return count;
 		} finally {
 			lock.unlock();
 		}
@@ -266,13 +280,39 @@ public class SerialExecutor extends AbstractExecutorService {
 	}
 
 	/**
-	 * Schedule next job from {@link #tasks}. {@link #setOwner()} and
-	 * {@link #clearOwner()} before and after executing the job.
+	 * Schedule next job from {@link #tasks}.
+	 * 
+	 * Releases the {@link #tasks}, when drained.
+	 * 
+	 * @see #scheduleJob(Runnable)
 	 */
 	private final void scheduleNextJob() {
 		lock.lock();
 		try {
-			currentlyExecutedJob = tasks.poll();
+			Runnable next = null;
+			if (tasks != null) {
+				next = tasks.poll();
+				if (tasks.isEmpty()) {
+					tasks = null;
+				}
+			}
+			scheduleJob(next);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Schedule job. {@link #setOwner()} and {@link #clearOwner()} before and
+	 * after executing the job.
+	 * 
+	 * @param job job to schedule. If {@code null}, no job is scheduled and
+	 *            waiting threads are signaled on shutdown.
+	 */
+	private final void scheduleJob(Runnable job) {
+		lock.lock();
+		try {
+			currentlyExecutedJob = job;
 			if (currentlyExecutedJob != null) {
 				final Runnable command = currentlyExecutedJob;
 				executor.execute(new Runnable() {
@@ -0,0 +1,659 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.elements.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scheduled executor service based on a hashed timing wheel.
+ *
+ * The {@link ScheduledThreadPoolExecutor} keeps the scheduled tasks in a heap,
+ * which requires {@code O(log n)} for each schedule and cancel. The protocol
+ * timers (retransmissions, exchange lifetimes, DTLS flights) are scheduled
+ * for almost every message and canceled again in most cases. With many
+ * exchanges in flight, this heap gets large and the scheduling threads
+ * contend on its lock.
+ *
+ * This executor places the scheduled tasks into the buckets of a wheel. Each
+ * bucket covers a tick of the wheel. A single ticker thread advances the
+ * wheel once per tick and hands all expired tasks of the current bucket to
+ * the thread pool in one pass. Scheduling and canceling is {@code O(1)}: the
+ * tasks are pushed on lock-free stacks, which the ticker drains on each tick.
+ * Tasks are executed with a resolution of one tick, never earlier than their
+ * delay. If the wheel is empty, the ticker parks until the next task is
+ * scheduled.
+ *
+ * Note: on {@link #shutdown()}, already scheduled delayed and periodic tasks
+ * are canceled. Tasks passed to {@link #execute(Runnable)} are still
+ * executed. This corresponds to a {@link ScheduledThreadPoolExecutor} with
+ * {@link ScheduledThreadPoolExecutor#setExecuteExistingDelayedTasksAfterShutdownPolicy(boolean)}
+ * set to {@code false}.
+ *
+ * @since 2.5
+ */
+public class TimingWheelScheduledExecutor extends AbstractExecutorService implements ScheduledExecutorService {
+
+	/** the logger. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(TimingWheelScheduledExecutor.class);
+
+	/**
+	 * Default duration of a tick in milliseconds.
+	 */
+	public static final long DEFAULT_TICK_MILLIS = 10;
+	/**
+	 * Default number of buckets of the wheel. With the
+	 * {@link #DEFAULT_TICK_MILLIS}, a round of the wheel takes about 5s, which
+	 * covers the usual retransmission timeouts.
+	 */
+	public static final int DEFAULT_WHEEL_SIZE = 512;
+	/**
+	 * Maximum delay in nanoseconds. Larger delays are truncated to prevent
+	 * overflows.
+	 */
+	private static final long MAX_DELAY_NANOS = Long.MAX_VALUE >> 2;
+
+	/**
+	 * Thread pool to execute the tasks.
+	 */
+	private final ExecutorService executor;
+	/**
+	 * Thread advancing the wheel.
+	 */
+	private final Thread ticker;
+	/**
+	 * Duration of a tick in nanoseconds.
+	 */
+	private final long tickNanos;
+	/**
+	 * Mask for the bucket index. The wheel size is a power of 2.
+	 */
+	private final int mask;
+	/**
+	 * Heads of the buckets. Only accessed by the ticker thread.
+	 */
+	private final WheelTask<?>[] heads;
+	/**
+	 * Tails of the buckets. Only accessed by the ticker thread.
+	 */
+	private final WheelTask<?>[] tails;
+	/**
+	 * Start time of the wheel in nanoseconds.
+	 */
+	private final long startNanos;
+	/**
+	 * Stack of scheduled tasks, not yet placed into the wheel.
+	 */
+	private final AtomicReference<WheelTask<?>> scheduled = new AtomicReference<WheelTask<?>>();
+	/**
+	 * Stack of canceled tasks, not yet removed from the wheel.
+	 */
+	private final AtomicReference<WheelTask<?>> canceled = new AtomicReference<WheelTask<?>>();
+	/**
+	 * Tasks left on shutdown. Set by the ticker thread before it terminates.
+	 */
+	private volatile List<Runnable> remainingTasks;
+	/**
+	 * Indicates, that the ticker thread parks until the next task is
+	 * scheduled.
+	 */
+	private volatile boolean idle;
+	/**
+	 * Indicates, that the executor is shut down.
+	 */
+	private volatile boolean shutdown;
+	/**
+	 * Current tick. Only accessed by the ticker thread.
+	 */
+	private long tick;
+	/**
+	 * Number of tasks in the wheel. Only accessed by the ticker thread.
+	 */
+	private int size;
+
+	/**
+	 * Create timing wheel executor with {@link #DEFAULT_TICK_MILLIS} and
+	 * {@link #DEFAULT_WHEEL_SIZE}.
+	 *
+	 * @param poolSize number of threads to execute the tasks
+	 * @param threadFactory thread factory for the threads of the pool and the
+	 *            ticker thread
+	 */
+	public TimingWheelScheduledExecutor(int poolSize, ThreadFactory threadFactory) {
+		this(poolSize, threadFactory, DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+	}
+
+	/**
+	 * Create timing wheel executor.
+	 *
+	 * @param poolSize number of threads to execute the tasks
+	 * @param threadFactory thread factory for the threads of the pool and the
+	 *            ticker thread
+	 * @param tickDuration duration of a tick
+	 * @param unit time unit of the tick duration
+	 * @param wheelSize number of buckets. Rounded up to the next power of 2.
+	 * @throws IllegalArgumentException if pool size, tick duration, or wheel
+	 *             size is less than {@code 1}
+	 * @throws NullPointerException if thread factory or unit is {@code null}
+	 */
+	public TimingWheelScheduledExecutor(int poolSize, ThreadFactory threadFactory, long tickDuration, TimeUnit unit,
+			int wheelSize) {
+		if (poolSize < 1) {
+			throw new IllegalArgumentException("pool size " + poolSize + " must be at least 1!");
+		}
+		if (tickDuration < 1) {
+			throw new IllegalArgumentException("tick duration " + tickDuration + " must be at least 1!");
+		}
+		if (wheelSize < 1 || wheelSize > (1 << 30)) {
+			throw new IllegalArgumentException("wheel size " + wheelSize + " must be in range [1..2^30]!");
+		}
+		if (threadFactory == null) {
+			throw new NullPointerException("thread factory must not be null!");
+		}
+		int buckets = Integer.highestOneBit(wheelSize);
+		if (buckets < wheelSize) {
+			buckets <<= 1;
+		}
+		this.tickNanos = unit.toNanos(tickDuration);
+		this.mask = buckets - 1;
+		this.heads = new WheelTask<?>[buckets];
+		this.tails = new WheelTask<?>[buckets];
+		this.executor = Executors.newFixedThreadPool(poolSize, threadFactory);
+		this.startNanos = System.nanoTime();
+		this.ticker = threadFactory.newThread(new Runnable() {
+
+			@Override
+			public void run() {
+				runTicker();
+			}
+		});
+		this.ticker.start();
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		if (command == null) {
+			throw new NullPointerException("command must not be null!");
+		}
+		if (shutdown) {
+			throw new RejectedExecutionException("executor is shutdown!");
+		}
+		executor.execute(command);
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+		if (command == null || unit == null) {
+			throw new NullPointerException();
+		}
+		return schedule(new WheelTask<Void>(command, null, triggerTime(delay, unit), 0));
+	}
+
+	@Override
+	public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+		if (callable == null || unit == null) {
+			throw new NullPointerException();
+		}
+		return schedule(new WheelTask<V>(callable, triggerTime(delay, unit)));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+		if (command == null || unit == null) {
+			throw new NullPointerException();
+		}
+		if (period <= 0) {
+			throw new IllegalArgumentException("period " + period + " must be positive!");
+		}
+		return schedule(new WheelTask<Void>(command, null, triggerTime(initialDelay, unit), unit.toNanos(period)));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+		if (command == null || unit == null) {
+			throw new NullPointerException();
+		}
+		if (delay <= 0) {
+			throw new IllegalArgumentException("delay " + delay + " must be positive!");
+		}
+		return schedule(new WheelTask<Void>(command, null, triggerTime(initialDelay, unit), -unit.toNanos(delay)));
+	}
+
+	@Override
+	public void shutdown() {
+		shutdown = true;
+		LockSupport.unpark(ticker);
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		shutdown();
+		List<Runnable> result = new ArrayList<Runnable>();
+		if (Thread.currentThread() != ticker) {
+			try {
+				ticker.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			List<Runnable> remaining = remainingTasks;
+			if (remaining != null) {
+				result.addAll(remaining);
+			}
+		}
+		result.addAll(executor.shutdownNow());
+		return result;
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return shutdown && !ticker.isAlive() && executor.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long timeoutNanos = unit.toNanos(timeout);
+		long deadline = System.nanoTime() + timeoutNanos;
+		if (timeoutNanos > 0) {
+			TimeUnit.NANOSECONDS.timedJoin(ticker, timeoutNanos);
+		}
+		if (ticker.isAlive()) {
+			return false;
+		}
+		return executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Calculate trigger time.
+	 *
+	 * @param delay delay
+	 * @param unit time unit of delay
+	 * @return trigger time in nanoseconds
+	 */
+	private static long triggerTime(long delay, TimeUnit unit) {
+		long nanos = delay <= 0 ? 0 : unit.toNanos(delay);
+		if (nanos > MAX_DELAY_NANOS) {
+			nanos = MAX_DELAY_NANOS;
+		}
+		return System.nanoTime() + nanos;
+	}
+
+	/**
+	 * Schedule task.
+	 *
+	 * Executes the task directly, if it's already expired. Otherwise push it
+	 * on the stack of scheduled tasks.
+	 *
+	 * @param task task to schedule
+	 * @return the scheduled task
+	 * @throws RejectedExecutionException if the executor is shut down
+	 */
+	private <V> WheelTask<V> schedule(WheelTask<V> task) {
+		if (shutdown) {
+			throw new RejectedExecutionException("executor is shutdown!");
+		}
+		if (task.deadline - System.nanoTime() <= 0) {
+			executor.execute(task);
+		} else {
+			push(task);
+		}
+		return task;
+	}
+
+	/**
+	 * Push task on the stack of scheduled tasks.
+	 *
+	 * Wakes up the ticker thread, if that is idle.
+	 *
+	 * @param task task to push
+	 */
+	private void push(WheelTask<?> task) {
+		WheelTask<?> head;
+		do {
+			head = scheduled.get();
+			task.nextScheduled = head;
+		} while (!scheduled.compareAndSet(head, task));
+		if (idle) {
+			LockSupport.unpark(ticker);
+		}
+	}
+
+	/**
+	 * Push task on the stack of canceled tasks.
+	 *
+	 * @param task canceled task
+	 */
+	private void pushCanceled(WheelTask<?> task) {
+		WheelTask<?> head;
+		do {
+			head = canceled.get();
+			task.nextCanceled = head;
+		} while (!canceled.compareAndSet(head, task));
+	}
+
+	/**
+	 * Advance the wheel until the executor is shut down.
+	 */
+	private void runTicker() {
+		try {
+			while (!shutdown) {
+				transferScheduled();
+				removeCanceled();
+				if (size == 0) {
+					idle = true;
+					if (scheduled.get() == null && !shutdown) {
+						LockSupport.park(this);
+					}
+					idle = false;
+					// the wheel is empty, skip the idle ticks
+					long current = (System.nanoTime() - startNanos) / tickNanos;
+					if (current > tick) {
+						tick = current;
+					}
+					continue;
+				}
+				long wait = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+				if (wait > 0) {
+					LockSupport.parkNanos(this, wait);
+					continue;
+				}
+				++tick;
+				expire((int) (tick & mask));
+			}
+		} catch (Throwable t) {
+			LOGGER.error("timing wheel failed!", t);
+			shutdown = true;
+		} finally {
+			terminate();
+		}
+	}
+
+	/**
+	 * Cancel all remaining tasks and shutdown the thread pool.
+	 */
+	private void terminate() {
+		List<Runnable> remaining = new ArrayList<Runnable>();
+		WheelTask<?> task = scheduled.getAndSet(null);
+		while (task != null) {
+			if (!task.isDone()) {
+				remaining.add(task);
+			}
+			task = task.nextScheduled;
+		}
+		for (int index = 0; index <= mask; ++index) {
+			task = heads[index];
+			while (task != null) {
+				if (!task.isDone()) {
+					remaining.add(task);
+				}
+				task = task.next;
+			}
+			heads[index] = null;
+			tails[index] = null;
+		}
+		size = 0;
+		canceled.set(null);
+		for (Runnable runnable : remaining) {
+			((WheelTask<?>) runnable).cancel(false);
+		}
+		remainingTasks = remaining;
+		executor.shutdown();
+	}
+
+	/**
+	 * Place the scheduled tasks into their buckets.
+	 */
+	private void transferScheduled() {
+		WheelTask<?> task = scheduled.getAndSet(null);
+		if (task == null) {
+			return;
+		}
+		// reverse the stack to keep the order of tasks with the same deadline
+		WheelTask<?> reversed = null;
+		while (task != null) {
+			WheelTask<?> next = task.nextScheduled;
+			task.nextScheduled = reversed;
+			reversed = task;
+			task = next;
+		}
+		task = reversed;
+		while (task != null) {
+			WheelTask<?> next = task.nextScheduled;
+			task.nextScheduled = null;
+			if (!task.isCancelled()) {
+				place(task);
+			}
+			task = next;
+		}
+	}
+
+	/**
+	 * Remove the canceled tasks from their buckets.
+	 */
+	private void removeCanceled() {
+		WheelTask<?> task = canceled.getAndSet(null);
+		while (task != null) {
+			WheelTask<?> next = task.nextCanceled;
+			task.nextCanceled = null;
+			if (task.bucket >= 0) {
+				remove(task);
+			}
+			task = next;
+		}
+	}
+
+	/**
+	 * Place task into its bucket.
+	 *
+	 * @param task task to place
+	 */
+	private void place(WheelTask<?> task) {
+		long offset = task.deadline - startNanos;
+		long target = offset <= 0 ? 0 : (offset + tickNanos - 1) / tickNanos;
+		if (target <= tick) {
+			target = tick + 1;
+		}
+		task.rounds = (target - tick - 1) / (mask + 1);
+		int bucket = (int) (target & mask);
+		task.bucket = bucket;
+		task.previous = tails[bucket];
+		task.next = null;
+		if (task.previous == null) {
+			heads[bucket] = task;
+		} else {
+			task.previous.next = task;
+		}
+		tails[bucket] = task;
+		++size;
+	}
+
+	/**
+	 * Remove task from its bucket.
+	 *
+	 * @param task task to remove
+	 */
+	private void remove(WheelTask<?> task) {
+		int bucket = task.bucket;
+		if (task.previous == null) {
+			heads[bucket] = task.next;
+		} else {
+			task.previous.next = task.next;
+		}
+		if (task.next == null) {
+			tails[bucket] = task.previous;
+		} else {
+			task.next.previous = task.previous;
+		}
+		task.bucket = -1;
+		task.previous = null;
+		task.next = null;
+		--size;
+	}
+
+	/**
+	 * Execute all expired tasks of the bucket.
+	 *
+	 * Tasks for later rounds stay in the bucket.
+	 *
+	 * @param bucket index of bucket
+	 */
+	private void expire(int bucket) {
+		WheelTask<?> task = heads[bucket];
+		while (task != null) {
+			WheelTask<?> next = task.next;
+			if (task.rounds <= 0) {
+				remove(task);
+				try {
+					executor.execute(task);
+				} catch (RejectedExecutionException ex) {
+					task.cancel(false);
+				}
+			} else {
+				--task.rounds;
+			}
+			task = next;
+		}
+	}
+
+	/**
+	 * Scheduled task of the wheel.
+	 *
+	 * @param <V> result type
+	 */
+	private class WheelTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+		/**
+		 * Period in nanoseconds. Positive for fixed rate, negative for fixed
+		 * delay, {@code 0} for not periodic tasks.
+		 */
+		private final long period;
+		/**
+		 * Trigger time in nanoseconds.
+		 */
+		private volatile long deadline;
+		/**
+		 * Next task on the stack of scheduled tasks.
+		 */
+		private WheelTask<?> nextScheduled;
+		/**
+		 * Next task on the stack of canceled tasks.
+		 */
+		private WheelTask<?> nextCanceled;
+		/**
+		 * Previous task in bucket. Only accessed by the ticker thread.
+		 */
+		private WheelTask<?> previous;
+		/**
+		 * Next task in bucket. Only accessed by the ticker thread.
+		 */
+		private WheelTask<?> next;
+		/**
+		 * Index of bucket. {@code -1}, if not in the wheel. Only accessed by
+		 * the ticker thread.
+		 */
+		private int bucket = -1;
+		/**
+		 * Left rounds of the wheel, before the task expires. Only accessed by
+		 * the ticker thread.
+		 */
+		private long rounds;
+
+		private WheelTask(Runnable runnable, V result, long deadline, long period) {
+			super(runnable, result);
+			this.deadline = deadline;
+			this.period = period;
+		}
+
+		private WheelTask(Callable<V> callable, long deadline) {
+			super(callable);
+			this.deadline = deadline;
+			this.period = 0;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			if (other == this) {
+				return 0;
+			}
+			long diff;
+			if (other instanceof WheelTask) {
+				diff = deadline - ((WheelTask<?>) other).deadline;
+			} else {
+				diff = getDelay(TimeUnit.NANOSECONDS) - other.getDelay(TimeUnit.NANOSECONDS);
+			}
+			return (diff < 0) ? -1 : ((diff > 0) ? 1 : 0);
+		}
+
+		@Override
+		public boolean isPeriodic() {
+			return period != 0;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled && !shutdown) {
+				pushCanceled(this);
+			}
+			return cancelled;
+		}
+
+		@Override
+		public void run() {
+			if (!isPeriodic()) {
+				super.run();
+			} else if (runAndReset()) {
+				if (shutdown) {
+					cancel(false);
+				} else {
+					if (period > 0) {
+						deadline += period;
+					} else {
+						deadline = System.nanoTime() - period;
+					}
+					push(this);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.elements;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.elements.UDPConnector.OutboundQueuePolicy;
+import org.eclipse.californium.elements.category.NativeDatagramSocketImplRequired;
+import org.eclipse.californium.elements.exception.OutboundQueueOverflowException;
+import org.eclipse.californium.elements.rule.ThreadsRule;
+import org.eclipse.californium.elements.util.SimpleMessageCallback;
+import org.eclipse.californium.elements.util.SimpleRawDataChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests for the NIO mode and the bounded outbound queue of the
+ * {@link UDPConnector}.
+ *
+ * The NIO mode uses a {@link java.nio.channels.DatagramChannel}, which is not
+ * supported by the direct datagram socket implementation.
+ */
+@Category(NativeDatagramSocketImplRequired.class)
+public class UDPConnectorNioTest {
+
+	@Rule
+	public ThreadsRule cleanup = new ThreadsRule();
+
+	UDPConnector connector;
+	UDPConnector destination;
+	SimpleRawDataChannel channel;
+
+	@Before
+	public void setup() throws IOException {
+		connector = new UDPConnector(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		connector.setNioMode(true);
+		channel = new SimpleRawDataChannel(1);
+		destination = new UDPConnector(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		destination.setNioMode(true);
+		destination.setRawDataReceiver(channel);
+		destination.start();
+	}
+
+	@After
+	public void stop() {
+		connector.destroy();
+		destination.destroy();
+	}
+
+	@Test
+	public void testMessageIsSentAndReceived() throws Exception {
+		connector.start();
+		byte[] data = { 0, 1, 2 };
+		SimpleMessageCallback callback = new SimpleMessageCallback(1, false);
+		RawData message = RawData.outbound(data, new UdpEndpointContext(destination.getAddress()), callback, false);
+		connector.send(message);
+
+		assertThat(callback.toString(), callback.await(1000), is(true));
+		assertThat(callback.toString(), callback.isSent(), is(true));
+
+		RawData receivedData = channel.poll(1000, TimeUnit.MILLISECONDS);
+		assertThat("received data:", receivedData, is(notNullValue()));
+		assertThat("bytes received:", receivedData.bytes, is(equalTo(data)));
+		assertThat("source:", receivedData.getInetSocketAddress(), is(connector.getAddress()));
+	}
+
+	@Test
+	public void testBurstIsReceived() throws Exception {
+		int messages = UDPConnector.DEFAULT_NIO_BURST_SIZE * 3;
+		channel = new SimpleRawDataChannel(messages);
+		destination.setRawDataReceiver(channel);
+		connector.setNioBurstSize(4);
+		connector.start();
+		EndpointContext context = new UdpEndpointContext(destination.getAddress());
+		for (int index = 0; index < messages; ++index) {
+			connector.send(RawData.outbound(new byte[] { (byte) index }, context, null, false));
+		}
+		assertThat(channel.await(2000), is(true));
+	}
+
+	@Test
+	public void testTooLargeDatagramIsDropped() throws Exception {
+		connector.start();
+		byte[] data = new byte[destination.getReceiverPacketSize() + 1];
+		Arrays.fill(data, (byte) 1);
+		EndpointContext context = new UdpEndpointContext(destination.getAddress());
+		connector.send(RawData.outbound(data, context, null, false));
+
+		RawData receivedData = channel.poll(100, TimeUnit.MILLISECONDS);
+		assertThat("first received data:", receivedData, is(nullValue()));
+
+		data = new byte[destination.getReceiverPacketSize()];
+		Arrays.fill(data, (byte) 2);
+		connector.send(RawData.outbound(data, context, null, false));
+
+		receivedData = channel.poll(1000, TimeUnit.MILLISECONDS);
+		assertThat("second received data:", receivedData, is(notNullValue()));
+		assertThat("bytes received:", receivedData.bytes, is(equalTo(data)));
+	}
+
+	@Test
+	public void testOutboundQueueRejectsNewMessage() throws Exception {
+		connector.setOutboundQueueCapacity(1);
+		connector.setOutboundQueuePolicy(OutboundQueuePolicy.REJECT_NEW);
+		BlockingEndpointContextMatcher matcher = new BlockingEndpointContextMatcher();
+		connector.setEndpointContextMatcher(matcher);
+		connector.start();
+
+		SimpleMessageCallback[] callbacks = sendBlocked(matcher);
+
+		assertThat(callbacks[2].getError(), is(instanceOf(OutboundQueueOverflowException.class)));
+		matcher.release();
+		assertThat(callbacks[0].await(1000), is(true));
+		assertThat(callbacks[1].await(1000), is(true));
+		assertThat(callbacks[0].isSent(), is(true));
+		assertThat(callbacks[1].isSent(), is(true));
+	}
+
+	@Test
+	public void testOutboundQueueDropsOldestMessage() throws Exception {
+		connector.setOutboundQueueCapacity(1);
+		connector.setOutboundQueuePolicy(OutboundQueuePolicy.DROP_OLDEST);
+		BlockingEndpointContextMatcher matcher = new BlockingEndpointContextMatcher();
+		connector.setEndpointContextMatcher(matcher);
+		connector.start();
+
+		SimpleMessageCallback[] callbacks = sendBlocked(matcher);
+
+		assertThat(callbacks[1].getError(), is(instanceOf(OutboundQueueOverflowException.class)));
+		matcher.release();
+		assertThat(callbacks[0].await(1000), is(true));
+		assertThat(callbacks[2].await(1000), is(true));
+		assertThat(callbacks[0].isSent(), is(true));
+		assertThat(callbacks[2].isSent(), is(true));
+	}
+
+	@Test
+	public void testStopCallsMessageCallbackOnError() throws Exception {
+		connector.setOutboundQueueCapacity(1);
+		BlockingEndpointContextMatcher matcher = new BlockingEndpointContextMatcher();
+		connector.setEndpointContextMatcher(matcher);
+		connector.start();
+		EndpointContext context = new UdpEndpointContext(destination.getAddress());
+		SimpleMessageCallback callback = new SimpleMessageCallback(1, false);
+		connector.send(RawData.outbound(new byte[] { 1 }, context, null, false));
+		assertThat(matcher.awaitBlocked(1000), is(true));
+		connector.send(RawData.outbound(new byte[] { 2 }, context, callback, false));
+		matcher.release();
+		connector.stop();
+		assertThat(callback.await(1000), is(true));
+	}
+
+	/**
+	 * Send three messages, while the connector's thread is blocked by the
+	 * first message.
+	 *
+	 * @param matcher blocking matcher
+	 * @return message callbacks of the three messages
+	 * @throws InterruptedException if the test is interrupted
+	 */
+	private SimpleMessageCallback[] sendBlocked(BlockingEndpointContextMatcher matcher)
+			throws InterruptedException {
+		EndpointContext context = new UdpEndpointContext(destination.getAddress());
+		SimpleMessageCallback[] callbacks = new SimpleMessageCallback[3];
+		for (int index = 0; index < callbacks.length; ++index) {
+			callbacks[index] = new SimpleMessageCallback(1, false);
+			connector.send(RawData.outbound(new byte[] { (byte) index }, context, callbacks[index], false));
+			if (index == 0) {
+				assertThat(matcher.awaitBlocked(1000), is(true));
+			}
+		}
+		return callbacks;
+	}
+
+	private static class BlockingEndpointContextMatcher extends UdpEndpointContextMatcher {
+
+		private final CountDownLatch blocked = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public boolean isToBeSent(EndpointContext messageContext, EndpointContext connectorContext) {
+			blocked.countDown();
+			try {
+				release.await(2000, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return true;
+		}
+
+		public boolean awaitBlocked(long timeoutMillis) throws InterruptedException {
+			return blocked.await(timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+
+		public void release() {
+			release.countDown();
+		}
+	}
+}
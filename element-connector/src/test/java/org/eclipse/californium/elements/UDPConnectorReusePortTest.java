@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.elements;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.californium.elements.category.NativeDatagramSocketImplRequired;
+import org.eclipse.californium.elements.rule.ThreadsRule;
+import org.eclipse.californium.elements.util.ReusePortUtil;
+import org.eclipse.californium.elements.util.SimpleRawDataChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests for the {@code SO_REUSEPORT} shards of the {@link UDPConnector}.
+ */
+@Category(NativeDatagramSocketImplRequired.class)
+public class UDPConnectorReusePortTest {
+
+	private static final int SHARDS = 4;
+	private static final int PEERS = 16;
+
+	@Rule
+	public ThreadsRule cleanup = new ThreadsRule();
+
+	UDPConnector server;
+	List<UDPConnector> peers = new ArrayList<UDPConnector>();
+
+	@Before
+	public void setup() throws IOException {
+		assumeTrue("SO_REUSEPORT not supported", ReusePortUtil.isSupported());
+		server = new UDPConnector(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		server.setReusePortShardCount(SHARDS);
+		for (int index = 0; index < PEERS; ++index) {
+			UDPConnector peer = new UDPConnector(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+			peer.start();
+			peers.add(peer);
+		}
+	}
+
+	@After
+	public void stop() {
+		if (server != null) {
+			server.destroy();
+		}
+		for (UDPConnector peer : peers) {
+			peer.destroy();
+		}
+	}
+
+	@Test
+	public void testShardsReceiveFromAllPeers() throws Exception {
+		server.start();
+		assertReceiveFromAllPeers();
+	}
+
+	@Test
+	public void testNioShardsReceiveFromAllPeers() throws Exception {
+		server.setNioMode(true);
+		server.start();
+		assertReceiveFromAllPeers();
+	}
+
+	@Test
+	public void testShardsRestart() throws Exception {
+		server.start();
+		server.stop();
+		server.start();
+		assertReceiveFromAllPeers();
+	}
+
+	private void assertReceiveFromAllPeers() throws InterruptedException {
+		SimpleRawDataChannel channel = new SimpleRawDataChannel(PEERS);
+		server.setRawDataReceiver(channel);
+		EndpointContext context = new UdpEndpointContext(server.getAddress());
+		for (UDPConnector peer : peers) {
+			peer.send(RawData.outbound(new byte[] { 1, 2, 3 }, context, null, false));
+		}
+		assertThat(channel.await(2000), is(true));
+	}
+}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.elements.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.eclipse.californium.elements.category.Small;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(Small.class)
+public class BufferPoolTest {
+
+	@Test
+	public void testReusesReleasedBuffer() {
+		BufferPool pool = new BufferPool(64, 2);
+		PooledBuffer buffer = pool.acquire();
+		byte[] data = buffer.getData();
+		assertThat(data.length, is(64));
+		assertThat(pool.getCreatedBuffers(), is(1L));
+
+		buffer.release();
+		assertThat(pool.getPooledBuffers(), is(1));
+
+		buffer = pool.acquire();
+		assertThat(buffer.getData(), is(sameInstance(data)));
+		assertThat(pool.getReusedBuffers(), is(1L));
+		assertThat(pool.getPooledBuffers(), is(0));
+	}
+
+	@Test
+	public void testReturnsBufferAfterLastReference() {
+		BufferPool pool = new BufferPool(64, 2);
+		PooledBuffer buffer = pool.acquire();
+		buffer.retain();
+		assertThat(buffer.getReferences(), is(2));
+
+		buffer.release();
+		assertThat(pool.getPooledBuffers(), is(0));
+		buffer.release();
+		assertThat(buffer.getReferences(), is(0));
+		assertThat(pool.getPooledBuffers(), is(1));
+	}
+
+	@Test
+	public void testCreatesBufferWhenExhausted() {
+		BufferPool pool = new BufferPool(64, 1);
+		PooledBuffer buffer1 = pool.acquire();
+		PooledBuffer buffer2 = pool.acquire();
+		assertThat(buffer1.getData(), is(not(sameInstance(buffer2.getData()))));
+		assertThat(pool.getCreatedBuffers(), is(2L));
+
+		buffer1.release();
+		buffer2.release();
+		// capacity exceeded, second buffer is left to the GC
+		assertThat(pool.getPooledBuffers(), is(1));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRetainReleasedBufferFails() {
+		BufferPool pool = new BufferPool(64, 1);
+		PooledBuffer buffer = pool.acquire();
+		buffer.release();
+		buffer.retain();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsZeroCapacity() {
+		new BufferPool(64, 0);
+	}
+}
@@ -194,6 +194,32 @@ public class DatagramReaderTest {
 		rangeReader.readBytes(4);
 	}
 
+	@Test
+	public void testReadSliceOffset() {
+		byte[] buffer = new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06 };
+		reader = new DatagramReader(buffer, 1, 5);
+
+		assertThat(reader.readNextByte(), is((byte)0x02));
+		assertThat(reader.readSliceOffset(3), is(2));
+		assertThat(reader.readNextByte(), is((byte)0x06));
+		assertThat(reader.bytesAvailable(), is(false));
+	}
+
+	@Test (expected = IllegalArgumentException.class)
+	public void testReadSliceOffsetExceedsAvailableBytes() {
+		givenABuffer(new byte[] { 0x01, 0x02, 0x03 });
+
+		reader.readSliceOffset(4);
+	}
+
+	@Test (expected = IllegalStateException.class)
+	public void testReadSliceOffsetRejectsUnreadBits() {
+		givenABuffer(new byte[] { 0x01, 0x02, 0x03 });
+
+		reader.read(4);
+		reader.readSliceOffset(1);
+	}
+
 	private void givenABuffer(byte[] buffer) {
 		reader = new DatagramReader(buffer);
 	}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.elements.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.californium.elements.category.Medium;
+import org.eclipse.californium.elements.rule.ThreadsRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(Medium.class)
+public class TimingWheelScheduledExecutorTest {
+
+	private static final long TICK_MILLIS = 2;
+	private static final int WHEEL_SIZE = 8;
+
+	@Rule
+	public ThreadsRule cleanup = new ThreadsRule();
+
+	TimingWheelScheduledExecutor executor;
+
+	@Before
+	public void setUp() {
+		executor = new TimingWheelScheduledExecutor(1, new TestThreadFactory("wheel-"), TICK_MILLIS,
+				TimeUnit.MILLISECONDS, WHEEL_SIZE);
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		executor.shutdownNow();
+		assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testScheduledTaskIsNotExecutedBeforeDelay() throws Exception {
+		final long start = System.nanoTime();
+		ScheduledFuture<Long> future = executor.schedule(new Callable<Long>() {
+
+			@Override
+			public Long call() throws Exception {
+				return System.nanoTime() - start;
+			}
+		}, 50, TimeUnit.MILLISECONDS);
+		long elapsed = future.get(1, TimeUnit.SECONDS);
+		assertThat(elapsed, is(greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50))));
+	}
+
+	@Test
+	public void testScheduledTaskWithDelayLongerThanRound() throws Exception {
+		// a round of the wheel takes 16ms
+		final long start = System.nanoTime();
+		ScheduledFuture<Long> future = executor.schedule(new Callable<Long>() {
+
+			@Override
+			public Long call() throws Exception {
+				return System.nanoTime() - start;
+			}
+		}, 100, TimeUnit.MILLISECONDS);
+		long elapsed = future.get(1, TimeUnit.SECONDS);
+		assertThat(elapsed, is(greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100))));
+	}
+
+	@Test
+	public void testCanceledTaskIsNotExecuted() throws Exception {
+		final AtomicInteger counter = new AtomicInteger();
+		ScheduledFuture<?> future = executor.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+				counter.incrementAndGet();
+			}
+		}, 20, TimeUnit.MILLISECONDS);
+		assertTrue(future.cancel(false));
+		ScheduledFuture<?> marker = executor.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+			}
+		}, 40, TimeUnit.MILLISECONDS);
+		marker.get(1, TimeUnit.SECONDS);
+		assertThat(future.isCancelled(), is(true));
+		assertThat(counter.get(), is(0));
+	}
+
+	@Test
+	public void testTasksWithSameDelayAreExecutedInOrder() throws Exception {
+		final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		List<Integer> expected = new ArrayList<Integer>();
+		ScheduledFuture<?> last = null;
+		for (int index = 0; index < 100; ++index) {
+			final int number = index;
+			expected.add(number);
+			last = executor.schedule(new Runnable() {
+
+				@Override
+				public void run() {
+					order.add(number);
+				}
+			}, 10, TimeUnit.MILLISECONDS);
+		}
+		last.get(1, TimeUnit.SECONDS);
+		assertThat(order, is(expected));
+	}
+
+	@Test
+	public void testFixedRateTaskIsRepeated() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(5);
+		ScheduledFuture<?> future = executor.scheduleAtFixedRate(new Runnable() {
+
+			@Override
+			public void run() {
+				latch.countDown();
+			}
+		}, 5, 5, TimeUnit.MILLISECONDS);
+		assertTrue(latch.await(1, TimeUnit.SECONDS));
+		assertTrue(future.cancel(false));
+		assertThat(future.isDone(), is(true));
+	}
+
+	@Test
+	public void testShutdownNowReturnsScheduledTasks() throws Exception {
+		executor.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+			}
+		}, 1, TimeUnit.HOURS);
+		List<Runnable> tasks = executor.shutdownNow();
+		assertThat(tasks.size(), is(1));
+		assertThat(((ScheduledFuture<?>) tasks.get(0)).isCancelled(), is(true));
+		assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+		assertThat(executor.isTerminated(), is(true));
+	}
+
+	@Test(expected = RejectedExecutionException.class)
+	public void testScheduleAfterShutdownIsRejected() {
+		executor.shutdown();
+		executor.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+			}
+		}, 1, TimeUnit.MILLISECONDS);
+	}
+}
@@ -116,9 +116,31 @@
  *    Achim Kraus (Bosch Software Innovations GmbH) - move serial executor into connection
  *                                                    process new CLIENT_HELLOs without
  *                                                    serial executor.
+ *    Bosch.IO GmbH                                 - add SO_REUSEPORT shards
+ *    Bosch.IO GmbH                                 - add pooled receive buffers
+ *    Bosch.IO GmbH                                 - replace lock of connection store
+ *                                                    by striped locks per peer address
+ *    Bosch.IO GmbH                                 - save and restore established
+ *                                                    connections on stop and start
+ *    Bosch.IO GmbH                                 - add pool of precomputed
+ *                                                    ephemeral keys
+ *    Bosch.IO GmbH                                 - add crypto executor
+ *    Bosch.IO GmbH                                 - report certificate validation
+ *                                                    cache to health
+ *    Bosch.IO GmbH                                 - compact idle connections
+ *    Bosch.IO GmbH                                 - process records of a datagram
+ *                                                    in one task
  ******************************************************************************/
 package org.eclipse.californium.scandium;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.net.DatagramPacket;
@@ -135,12 +157,14 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -149,9 +173,12 @@ import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import javax.security.auth.Destroyable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import org.eclipse.californium.elements.BatchRawDataChannel;
 import org.eclipse.californium.elements.Connector;
 import org.eclipse.californium.elements.DtlsEndpointContext;
 import org.eclipse.californium.elements.EndpointContext;
@@ -161,14 +188,19 @@ import org.eclipse.californium.elements.exception.EndpointUnconnectedException;
 import org.eclipse.californium.elements.exception.MulticastNotSupportedException;
 import org.eclipse.californium.elements.RawData;
 import org.eclipse.californium.elements.RawDataChannel;
+import org.eclipse.californium.elements.util.BufferPool;
+import org.eclipse.californium.elements.util.Bytes;
 import org.eclipse.californium.elements.util.ClockUtil;
 import org.eclipse.californium.elements.util.DaemonThreadFactory;
 import org.eclipse.californium.elements.util.DatagramReader;
+import org.eclipse.californium.elements.util.DatagramWriter;
 import org.eclipse.californium.elements.util.ExecutorsUtil;
 import org.eclipse.californium.elements.util.LeastRecentlyUsedCache;
 import org.eclipse.californium.elements.util.NamedThreadFactory;
 import org.eclipse.californium.elements.util.NetworkInterfacesUtil;
 import org.eclipse.californium.elements.util.NoPublicAPI;
+import org.eclipse.californium.elements.util.PooledBuffer;
+import org.eclipse.californium.elements.util.ReusePortUtil;
 import org.eclipse.californium.elements.util.SerialExecutor;
 import org.eclipse.californium.elements.util.StringUtil;
 import org.eclipse.californium.scandium.config.DtlsConnectorConfig;
@@ -182,6 +214,7 @@ import org.eclipse.californium.scandium.dtls.ClientHello;
 import org.eclipse.californium.scandium.dtls.Connection;
 import org.eclipse.californium.scandium.dtls.ConnectionEvictedException;
 import org.eclipse.californium.scandium.dtls.ConnectionId;
+import org.eclipse.californium.scandium.dtls.ConcurrentInMemoryConnectionStore;
 import org.eclipse.californium.scandium.dtls.ConnectionIdGenerator;
 import org.eclipse.californium.scandium.dtls.HandshakeResult;
 import org.eclipse.californium.scandium.dtls.HandshakeResultHandler;
@@ -209,8 +242,10 @@ import org.eclipse.californium.scandium.dtls.SessionId;
 import org.eclipse.californium.scandium.dtls.SessionListener;
 import org.eclipse.californium.scandium.dtls.SessionTicket;
 import org.eclipse.californium.scandium.dtls.cipher.CipherSuite;
+import org.eclipse.californium.scandium.dtls.cipher.EphemeralKeyPool;
 import org.eclipse.californium.scandium.dtls.pskstore.AdvancedPskStore;
 import org.eclipse.californium.scandium.dtls.x509.NewAdvancedCertificateVerifier;
+import org.eclipse.californium.scandium.dtls.x509.StaticNewAdvancedCertificateVerifier;
 import org.eclipse.californium.scandium.util.SecretUtil;
 import org.eclipse.californium.scandium.util.ServerNames;
 
@@ -245,11 +280,49 @@ public class DTLSConnector implements Connector, RecordLayer {
 
 	private static final long CLIENT_HELLO_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(60);
 
+	/**
+	 * Number of locks to create new connections for peer addresses.
+	 * 
+	 * @since 2.5
+	 */
+	private static final int CONNECTION_LOCKS = 64;
+
+	/**
+	 * Magic number of the connection state file, "CFDC".
+	 * 
+	 * @since 2.5
+	 */
+	private static final int CONNECTION_STATE_MAGIC = 0x43464443;
+	/**
+	 * Version of the connection state file.
+	 * 
+	 * @since 2.5
+	 */
+	private static final int CONNECTION_STATE_VERSION = 2;
+	/**
+	 * Number of queued crypto operations per crypto thread. If exceeded, the
+	 * crypto operations are executed by the connection threads.
+	 * 
+	 * @since 2.5
+	 */
+	private static final int CRYPTO_QUEUE_SIZE_PER_THREAD = 64;
+
 	/** all the configuration options for the DTLS connector */ 
 	private final DtlsConnectorConfig config;
 
 	private final ResumptionSupportingConnectionStore connectionStore;
 
+	/**
+	 * Striped locks to create new connections for peer addresses.
+	 * 
+	 * Ensures, that only one connection is created for a peer address without
+	 * locking the whole connection store.
+	 * 
+	 * @see #getConnectionLock(InetSocketAddress)
+	 * @since 2.5
+	 */
+	private final Object[] connectionLocks = new Object[CONNECTION_LOCKS];
+
 	/**
 	 * General auto resumption timeout in milliseconds. {@code null}, if auto
 	 * resumption is not used.
@@ -298,6 +371,14 @@ public class DTLSConnector implements Connector, RecordLayer {
 
 	private ScheduledFuture<?> statusLogger;
 
+	/**
+	 * Periodic job to compact idle connections.
+	 * 
+	 * @see DtlsConnectorConfig#getCompactIdleConnectionTimeoutMillis()
+	 * @since 2.5
+	 */
+	private ScheduledFuture<?> connectionCompactor;
+
 	private InetSocketAddress lastBindAddress;
 	/**
 	 * Provided or configured maximum transmission unit.
@@ -320,6 +401,44 @@ public class DTLSConnector implements Connector, RecordLayer {
 
 	private volatile DatagramSocket socket;
 
+	/**
+	 * Additional sockets bound with {@code SO_REUSEPORT} to the same address
+	 * as {@link #socket}.
+	 * 
+	 * @see DtlsConnectorConfig#getReusePortShardCount()
+	 * @since 2.5
+	 */
+	private final List<DatagramSocket> shardSockets = new ArrayList<DatagramSocket>();
+
+	/**
+	 * Pool of receive buffers. {@code null}, if not used.
+	 * 
+	 * @see DtlsConnectorConfig#getReceiveBufferPoolSize()
+	 * @since 2.5
+	 */
+	private volatile BufferPool receiveBufferPool;
+
+	/**
+	 * Pool of precomputed ephemeral keys. {@code null}, if not used.
+	 * 
+	 * @since 2.5
+	 */
+	private volatile EphemeralKeyPool ephemeralKeyPool;
+
+	/**
+	 * Handler for asynchronous handshake results.
+	 * 
+	 * @since 2.5
+	 */
+	private final HandshakeResultHandler handshakeResultHandler;
+
+	/**
+	 * Executor for offloaded crypto operations. {@code null}, if not used.
+	 * 
+	 * @since 2.5
+	 */
+	private volatile ExecutorService cryptoExecutor;
+
 	/** The timer daemon to schedule retransmissions. */
 	private ScheduledExecutorService timer;
 
@@ -367,11 +486,38 @@ public class DTLSConnector implements Connector, RecordLayer {
 	 * @throws NullPointerException if the configuration is <code>null</code>.
 	 */
 	public DTLSConnector(final DtlsConnectorConfig configuration, final SessionCache sessionCache) {
-		this(configuration,
-				new InMemoryConnectionStore(
-						configuration.getMaxConnections(),
-						configuration.getStaleConnectionThreshold(),
-						sessionCache).setTag(configuration.getLoggingTag()));
+		this(configuration, createConnectionStore(configuration, sessionCache));
+	}
+
+	/**
+	 * Create connection store for configuration.
+	 * 
+	 * @param configuration The configuration options.
+	 * @param sessionCache An (optional) cache for <code>DTLSSession</code>
+	 *            objects.
+	 * @return {@link ConcurrentInMemoryConnectionStore}, if
+	 *         {@link DtlsConnectorConfig#getConnectionStoreStripes()} is larger
+	 *         than {@code 1}, {@link InMemoryConnectionStore}, otherwise.
+	 * @throws NullPointerException if the configuration is <code>null</code>.
+	 * @since 2.5
+	 */
+	private static ResumptionSupportingConnectionStore createConnectionStore(
+			final DtlsConnectorConfig configuration, final SessionCache sessionCache) {
+		if (configuration == null) {
+			throw new NullPointerException("Configuration must not be null");
+		}
+		int stripes = configuration.getConnectionStoreStripes();
+		if (stripes > 1) {
+			return new ConcurrentInMemoryConnectionStore(
+					configuration.getMaxConnections(),
+					configuration.getStaleConnectionThreshold(),
+					sessionCache, stripes).setTag(configuration.getLoggingTag());
+		} else {
+			return new InMemoryConnectionStore(
+					configuration.getMaxConnections(),
+					configuration.getStaleConnectionThreshold(),
+					sessionCache).setTag(configuration.getLoggingTag());
+		}
 	}
 
 	/**
@@ -406,12 +552,15 @@ public class DTLSConnector implements Connector, RecordLayer {
 			this.useCidUpdateAddressOnNewerRecordFilter = config.useCidUpdateAddressOnNewerRecordFilter();
 			this.connectionStore = connectionStore;
 			this.connectionStore.attach(connectionIdGenerator);
+			for (int index = 0; index < connectionLocks.length; ++index) {
+				connectionLocks[index] = new Object();
+			}
 			this.connectionStore.setConnectionListener(config.getConnectionListener());
 			ConnectionListener listener = config.getConnectionListener();
 			if (listener instanceof ConnectionExecutionListener) {
 				this.connectionExecutionListener = (ConnectionExecutionListener) listener;
 			}
-			HandshakeResultHandler handler = new HandshakeResultHandler() {
+			this.handshakeResultHandler = new HandshakeResultHandler() {
 
 				@Override
 				public void apply(PskSecretResult secretResult) {
@@ -425,11 +574,11 @@ public class DTLSConnector implements Connector, RecordLayer {
 			};
 			AdvancedPskStore advancedPskStore = config.getAdvancedPskStore();
 			if (advancedPskStore != null) {
-				advancedPskStore.setResultHandler(handler);
+				advancedPskStore.setResultHandler(handshakeResultHandler);
 			}
 			NewAdvancedCertificateVerifier certificateVerifier = config.getAdvancedCertificateVerifier();
 			if (certificateVerifier != null) {
-				certificateVerifier.setResultHandler(handler);
+				certificateVerifier.setResultHandler(handshakeResultHandler);
 			}
 			DtlsHealth healthHandler = config.getHealthHandler();
 			Integer healthStatusInterval = config.getHealthStatusInterval();
@@ -442,6 +591,9 @@ public class DTLSConnector implements Connector, RecordLayer {
 				}
 			}
 			this.health = healthHandler;
+			if (certificateVerifier instanceof StaticNewAdvancedCertificateVerifier) {
+				((StaticNewAdvancedCertificateVerifier) certificateVerifier).setHealthHandler(healthHandler);
+			}
 			this.sessionListener = new SessionAdapter() {
 
 				@Override
@@ -598,6 +750,8 @@ public class DTLSConnector implements Connector, RecordLayer {
 				health.startHandshake();
 			}
 		}
+		handshaker.setEphemeralKeyPool(ephemeralKeyPool);
+		handshaker.setCryptoExecutor(cryptoExecutor, handshakeResultHandler);
 		onInitializeHandshaker(handshaker);
 	}
 
@@ -694,7 +848,13 @@ public class DTLSConnector implements Connector, RecordLayer {
 		if (running.get()) {
 			return;
 		}
-		init(bindAddress, new DatagramSocket(null), config.getMaxTransmissionUnit());
+		DatagramSocket socket;
+		if (config.getReusePortShardCount() > 1) {
+			socket = ReusePortUtil.open().socket();
+		} else {
+			socket = new DatagramSocket(null);
+		}
+		init(bindAddress, socket, config.getMaxTransmissionUnit());
 	}
 
 	/**
@@ -807,6 +967,33 @@ public class DTLSConnector implements Connector, RecordLayer {
 
 		lastBindAddress = new InetSocketAddress(socket.getLocalAddress(), socket.getLocalPort());
 
+		if (config.getReusePortShardCount() > 1 && socket.getChannel() != null) {
+			// the shards share the connections, peers, which are moved by the
+			// kernel to an other shard on address change, are still found
+			// by their connection id.
+			try {
+				for (int shard = 1; shard < config.getReusePortShardCount(); ++shard) {
+					DatagramSocket shardSocket = ReusePortUtil.open().socket();
+					shardSockets.add(shardSocket);
+					shardSocket.setReuseAddress(socket.getReuseAddress());
+					size = config.getSocketReceiveBufferSize();
+					if (size != null && size != 0) {
+						shardSocket.setReceiveBufferSize(size);
+					}
+					size = config.getSocketSendBufferSize();
+					if (size != null && size != 0) {
+						shardSocket.setSendBufferSize(size);
+					}
+					shardSocket.bind(lastBindAddress);
+				}
+			} catch (IOException ex) {
+				closeShards();
+				socket.close();
+				this.socket = null;
+				throw ex;
+			}
+		}
+
 		if (executorService instanceof ScheduledExecutorService) {
 			timer = (ScheduledExecutorService) executorService;
 		} else {
@@ -827,28 +1014,49 @@ public class DTLSConnector implements Connector, RecordLayer {
 
 		running.set(true);
 
-		int receiverThreadCount = config.getReceiverThreadCount();
-		for (int i = 0; i < receiverThreadCount; i++) {
-			Worker receiver = new Worker("DTLS-Receiver-" + i + "-" + lastBindAddress) {
+		int poolSize = config.getReceiveBufferPoolSize();
+		if (poolSize > 0) {
+			if (receiveBufferPool == null || receiveBufferPool.getBufferSize() != inboundDatagramBufferSize) {
+				receiveBufferPool = new BufferPool(inboundDatagramBufferSize, poolSize);
+			}
+		} else {
+			receiveBufferPool = null;
+		}
 
-				private final byte[] receiverBuffer = new byte[inboundDatagramBufferSize];
-				private final DatagramPacket packet = new DatagramPacket(receiverBuffer, inboundDatagramBufferSize);
+		int cryptoThreadCount = config.getCryptoThreadCount();
+		if (cryptoThreadCount > 0) {
+			cryptoExecutor = new ThreadPoolExecutor(cryptoThreadCount, cryptoThreadCount, 0L, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<Runnable>(cryptoThreadCount * CRYPTO_QUEUE_SIZE_PER_THREAD),
+					new DaemonThreadFactory("DTLS-Crypto-" + lastBindAddress + "#", //$NON-NLS-1$
+							NamedThreadFactory.SCANDIUM_THREAD_GROUP));
+		}
 
-				@Override
-				public void doWork() throws Exception {
-					MDC.clear();
-					packet.setLength(inboundDatagramBufferSize);
-					receiveNextDatagramFromNetwork(packet);
-				}
-			};
-			receiver.setDaemon(true);
-			receiver.start();
-			receiverThreads.add(receiver);
+		int keyPoolSize = config.getEphemeralKeyPoolSize();
+		if (keyPoolSize > 0 && !config.getSupportedGroups().isEmpty()) {
+			ephemeralKeyPool = new EphemeralKeyPool(keyPoolSize, config.getSupportedGroups(), executorService,
+					health);
+			ephemeralKeyPool.start();
+		}
+
+		File connectionStateFile = config.getConnectionStateFile();
+		if (connectionStateFile != null) {
+			loadConnections(connectionStateFile);
+		}
+
+		int receiverThreadCount = config.getReceiverThreadCount();
+		for (int i = 0; i < receiverThreadCount; i++) {
+			startReceiver("DTLS-Receiver-" + i + "-" + lastBindAddress, null);
+		}
+		for (int shard = 0; shard < shardSockets.size(); ++shard) {
+			DatagramSocket shardSocket = shardSockets.get(shard);
+			for (int i = 0; i < receiverThreadCount; i++) {
+				startReceiver("DTLS-Receiver-" + i + "#" + (shard + 1) + "-" + lastBindAddress, shardSocket);
+			}
 		}
 
 		String mtuDescription = maximumTransmissionUnit != null ? maximumTransmissionUnit.toString() : "IPv4 " + ipv4Mtu + " / IPv6 " + ipv6Mtu;
-		LOGGER.info("DTLSConnector listening on {}, recv buf = {}, send buf = {}, recv packet size = {}, MTU = {}",
-				lastBindAddress, recvBuffer, sendBuffer, inboundDatagramBufferSize, mtuDescription);
+		LOGGER.info("DTLSConnector listening on {}, recv buf = {}, send buf = {}, recv packet size = {}, MTU = {}, shards = {}",
+				lastBindAddress, recvBuffer, sendBuffer, inboundDatagramBufferSize, mtuDescription, shardSockets.size() + 1);
 
 		// this is a useful health metric
 		// that could later be exported to some kind of monitoring interface
@@ -865,6 +1073,96 @@ public class DTLSConnector implements Connector, RecordLayer {
 				}, healthStatusInterval, healthStatusInterval, TimeUnit.SECONDS);
 			}
 		}
+		final Long compactTimeout = config.getCompactIdleConnectionTimeoutMillis();
+		if (compactTimeout != null) {
+			connectionCompactor = timer.scheduleWithFixedDelay(new Runnable() {
+
+				private Future<Void> pending;
+
+				@Override
+				public void run() {
+					if (pending == null || pending.isDone()) {
+						pending = compactIdleConnections(TimeUnit.MILLISECONDS.toNanos(compactTimeout));
+					}
+				}
+
+			}, compactTimeout, compactTimeout, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Start to compact the established sessions of idle connections.
+	 * 
+	 * @param idleNanos minimum idle time in nanoseconds since the last
+	 *            received message.
+	 * @return future to cancel or wait for completion
+	 * @see Connection#compact(long)
+	 * @since 2.5
+	 */
+	private Future<Void> compactIdleConnections(final long idleNanos) {
+		return startForEach(new LeastRecentlyUsedCache.Predicate<Connection>() {
+
+			@Override
+			public boolean accept(Connection connection) {
+				if (running.get()) {
+					if (connection.hasEstablishedSession() && !connection.isCompacted()) {
+						connection.compact(idleNanos);
+					}
+					return false;
+				}
+				return true;
+			}
+		});
+	}
+
+	/**
+	 * Start receiver thread.
+	 * 
+	 * @param name name of thread
+	 * @param shardSocket socket of additional shard, or {@code null}, to
+	 *            receive with {@link #receiveNextDatagramFromNetwork}.
+	 * @since 2.5
+	 */
+	private void startReceiver(String name, final DatagramSocket shardSocket) {
+		Worker receiver = new Worker(name) {
+
+			private final byte[] receiverBuffer = new byte[inboundDatagramBufferSize];
+			private final DatagramPacket packet = new DatagramPacket(receiverBuffer, inboundDatagramBufferSize);
+
+			@Override
+			public void doWork() throws Exception {
+				MDC.clear();
+				BufferPool pool = receiveBufferPool;
+				if (pool != null) {
+					PooledBuffer buffer = pool.acquire();
+					try {
+						packet.setData(buffer.getData(), 0, inboundDatagramBufferSize);
+						DatagramSocket currentSocket = shardSocket == null ? getSocket() : shardSocket;
+						if (currentSocket != null) {
+							currentSocket.receive(packet);
+							if (packet.getLength() > 0) {
+								processDatagram(packet, buffer);
+							}
+						}
+					} finally {
+						buffer.release();
+					}
+				} else {
+					packet.setData(receiverBuffer, 0, inboundDatagramBufferSize);
+					if (shardSocket == null) {
+						receiveNextDatagramFromNetwork(packet);
+					} else {
+						shardSocket.receive(packet);
+						if (packet.getLength() > 0) {
+							processDatagram(packet);
+						}
+					}
+				}
+			}
+		};
+		receiver.setDaemon(true);
+		receiver.start();
+		receiverThreads.add(receiver);
 	}
 
 	/**
@@ -905,21 +1203,40 @@ public class DTLSConnector implements Connector, RecordLayer {
 		return socket;
 	}
 
+	/**
+	 * Close additional shard sockets.
+	 * 
+	 * @since 2.5
+	 */
+	private void closeShards() {
+		for (DatagramSocket shardSocket : shardSockets) {
+			shardSocket.close();
+		}
+		shardSockets.clear();
+	}
+
 	@Override
 	public final void stop() {
 		ExecutorService shutdownTimer = null;
 		ExecutorService shutdown = null;
 		List<Runnable> pending = new ArrayList<>();
+		boolean stopped = false;
 		synchronized (this) {
 			if (running.compareAndSet(true, false)) {
+				stopped = true;
 				if (statusLogger != null) {
 					statusLogger.cancel(false);
 					statusLogger = null;
 				}
+				if (connectionCompactor != null) {
+					connectionCompactor.cancel(false);
+					connectionCompactor = null;
+				}
 				LOGGER.info("Stopping DTLS connector on [{}]", lastBindAddress);
 				for (Thread t : receiverThreads) {
 					t.interrupt();
 				}
+				closeShards();
 				if (socket != null) {
 					socket.close();
 					socket = null;
@@ -928,6 +1245,15 @@ public class DTLSConnector implements Connector, RecordLayer {
 				ipv4Mtu = DEFAULT_IPV4_MTU;
 				ipv6Mtu = DEFAULT_IPV6_MTU;
 				connectionStore.stop(pending);
+				if (ephemeralKeyPool != null) {
+					ephemeralKeyPool.drain();
+					ephemeralKeyPool = null;
+				}
+				if (cryptoExecutor != null) {
+					// pending crypto operations are obsolete
+					cryptoExecutor.shutdownNow();
+					cryptoExecutor = null;
+				}
 				if (executorService != timer) {
 					pending.addAll(timer.shutdownNow());
 					shutdownTimer = timer;
@@ -972,6 +1298,168 @@ public class DTLSConnector implements Connector, RecordLayer {
 				LOGGER.warn("Shutdown DTLS connector:", e);
 			}
 		}
+		File connectionStateFile = config.getConnectionStateFile();
+		if (stopped && connectionStateFile != null) {
+			saveConnections(connectionStateFile);
+		}
+	}
+
+	/**
+	 * Save the established connections.
+	 * 
+	 * Called at the end of {@link #stop()}, when the socket is closed and the
+	 * executors are terminated. The connections are written into a temporary
+	 * file, which then replaces the provided file. The file contains the keys
+	 * of the connections and is therefore restricted to the owner, if
+	 * supported by the file system.
+	 * 
+	 * @param file file to save the connections
+	 * @see DtlsConnectorConfig#getConnectionStateFile()
+	 * @since 2.5
+	 */
+	private void saveConnections(File file) {
+		File temp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = null;
+		int count = 0;
+		try {
+			// restrict access before any key is written
+			temp.delete();
+			if (!temp.createNewFile()) {
+				throw new IOException("create " + temp + " failed!");
+			}
+			if (!restrictToOwner(temp)) {
+				LOGGER.warn("restricting access to {} failed!", temp);
+			}
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			out.writeInt(CONNECTION_STATE_MAGIC);
+			out.writeInt(CONNECTION_STATE_VERSION);
+			Iterator<Connection> iterator = connectionStore.iterator();
+			while (iterator.hasNext()) {
+				Connection connection = iterator.next();
+				if (!connection.hasEstablishedSession() || connection.isClosed()) {
+					continue;
+				}
+				DatagramWriter writer = new DatagramWriter(true);
+				try {
+					connection.write(writer);
+					byte[] data = writer.toByteArray();
+					out.writeInt(data.length);
+					out.write(data);
+					Bytes.clear(data);
+					++count;
+				} catch (IllegalStateException ex) {
+					LOGGER.debug("skip saving connection {}: {}", connection, ex.getMessage());
+				} finally {
+					writer.close();
+				}
+			}
+			out.close();
+			out = null;
+			if (!temp.renameTo(file)) {
+				file.delete();
+				if (!temp.renameTo(file)) {
+					throw new IOException("rename " + temp + " failed!");
+				}
+			}
+			LOGGER.info("saved {} connections to {}", count, file);
+		} catch (IOException ex) {
+			LOGGER.warn("saving connections to {} failed!", file, ex);
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+				}
+			}
+			temp.delete();
+		}
+	}
+
+	/**
+	 * Restrict access to file to the owner.
+	 * 
+	 * @param file file to restrict access
+	 * @return {@code true}, if access is restricted, {@code false}, if not
+	 *         supported by the file system.
+	 * @since 2.5
+	 */
+	private static boolean restrictToOwner(File file) {
+		// remove access for all, then grant access for the owner
+		boolean restricted = file.setReadable(false, false);
+		restricted &= file.setWritable(false, false);
+		restricted &= file.setExecutable(false, false);
+		restricted &= file.setReadable(true, true);
+		restricted &= file.setWritable(true, true);
+		return restricted;
+	}
+
+	/**
+	 * Restore the connections saved by {@link #saveConnections(File)}.
+	 * 
+	 * Called on start, before the receivers are started. The file is deleted
+	 * before the connections are restored, because restoring the same state
+	 * twice would reuse sequence numbers with the same keys. Connections with
+	 * connection ids, which are already in the connection store, are not
+	 * restored.
+	 * 
+	 * @param file file with saved connections
+	 * @see DtlsConnectorConfig#getConnectionStateFile()
+	 * @since 2.5
+	 */
+	private void loadConnections(File file) {
+		if (!file.exists()) {
+			return;
+		}
+		List<byte[]> states = new ArrayList<>();
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if (in.readInt() == CONNECTION_STATE_MAGIC && in.readInt() == CONNECTION_STATE_VERSION) {
+				while (true) {
+					int length;
+					try {
+						length = in.readInt();
+					} catch (EOFException ex) {
+						break;
+					}
+					byte[] data = new byte[length];
+					in.readFully(data);
+					states.add(data);
+				}
+			} else {
+				LOGGER.warn("{} doesn't contain saved connections!", file);
+			}
+		} catch (IOException ex) {
+			LOGGER.warn("reading connections from {} failed!", file, ex);
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+		if (!file.delete()) {
+			LOGGER.warn("deleting {} failed, connections are not restored!", file);
+			for (byte[] data : states) {
+				Bytes.clear(data);
+			}
+			return;
+		}
+		int count = 0;
+		for (byte[] data : states) {
+			try {
+				Connection connection = Connection.fromReader(new DatagramReader(data, false),
+						new SerialExecutor(executorService));
+				if (connectionStore.get(connection.getConnectionId()) == null && connectionStore.put(connection)) {
+					// put registers the established session as well
+					++count;
+				}
+			} catch (RuntimeException ex) {
+				LOGGER.warn("restoring connection failed!", ex);
+			}
+			Bytes.clear(data);
+		}
+		LOGGER.info("restored {} of {} connections from {}", count, states.size(), file);
 	}
 
 	/**
@@ -1135,11 +1623,11 @@ public class DTLSConnector implements Connector, RecordLayer {
 	 */
 	private final Connection getConnection(InetSocketAddress peerAddress, ConnectionId cid, boolean create) {
 		ExecutorService executor = getExecutorService();
-		synchronized (connectionStore) {
-			Connection connection;
-			if (cid != null) {
-				connection = connectionStore.get(cid);
-			} else {
+		Connection connection;
+		if (cid != null) {
+			connection = connectionStore.get(cid);
+		} else {
+			synchronized (getConnectionLock(peerAddress)) {
 				connection = connectionStore.get(peerAddress);
 				if (connection == null && create) {
 					LOGGER.trace("create new connection for {}", peerAddress);
@@ -1154,16 +1642,33 @@ public class DTLSConnector implements Connector, RecordLayer {
 					return newConnection;
 				}
 			}
-			if (connection == null) {
-				LOGGER.trace("no connection available for {},{}", peerAddress, cid);
-			} else if (!connection.isExecuting() && running.get()) {
-				LOGGER.trace("revive connection for {},{}", peerAddress, cid);
-				connection.setExecutor(new SerialExecutor(executor));
-			} else {
-				LOGGER.trace("connection available for {},{}", peerAddress, cid);
+		}
+		if (connection == null) {
+			LOGGER.trace("no connection available for {},{}", peerAddress, cid);
+		} else if (!connection.isExecuting() && running.get()) {
+			synchronized (connection) {
+				if (!connection.isExecuting()) {
+					LOGGER.trace("revive connection for {},{}", peerAddress, cid);
+					connection.setExecutor(new SerialExecutor(executor));
+				}
 			}
-			return connection;
+		} else {
+			LOGGER.trace("connection available for {},{}", peerAddress, cid);
 		}
+		return connection;
+	}
+
+	/**
+	 * Get lock to create a new connection for the peer address.
+	 * 
+	 * @param peerAddress socket address of peer
+	 * @return lock for the peer address
+	 * @since 2.5
+	 */
+	private Object getConnectionLock(InetSocketAddress peerAddress) {
+		int hash = peerAddress.hashCode();
+		hash ^= (hash >>> 16);
+		return connectionLocks[hash & (connectionLocks.length - 1)];
 	}
 
 	/**
@@ -1201,6 +1706,22 @@ public class DTLSConnector implements Connector, RecordLayer {
 	 * @param packet datagram filled with the received data and source address.
 	 */
 	protected void processDatagram(DatagramPacket packet) {
+		processDatagram(packet, null);
+	}
+
+	/**
+	 * Process received datagram.
+	 * 
+	 * Potentially called by multiple threads.
+	 * 
+	 * @param packet datagram filled with the received data and source address.
+	 * @param buffer pooled buffer of the datagram. The received records are
+	 *            slices of this buffer and are released, when their
+	 *            processing completes. {@code null}, if the fragments of the
+	 *            records are copied.
+	 * @since 2.5
+	 */
+	private void processDatagram(DatagramPacket packet, PooledBuffer buffer) {
 		InetSocketAddress peerAddress = new InetSocketAddress(packet.getAddress(), packet.getPort());
 		MDC.put("PEER", StringUtil.toString(peerAddress));
 		if (health != null) {
@@ -1209,7 +1730,7 @@ public class DTLSConnector implements Connector, RecordLayer {
 		long timestamp = ClockUtil.nanoRealtime();
 
 		DatagramReader reader = new DatagramReader(packet.getData(), packet.getOffset(), packet.getLength());
-		List<Record> records = Record.fromReader(reader, peerAddress, connectionIdGenerator, timestamp);
+		List<Record> records = Record.fromReader(reader, buffer, peerAddress, connectionIdGenerator, timestamp);
 		LOGGER.trace("Received {} DTLS records from {} using a {} byte datagram buffer",
 				records.size(), peerAddress, inboundDatagramBufferSize);
 
@@ -1228,21 +1749,31 @@ public class DTLSConnector implements Connector, RecordLayer {
 			if (health != null) {
 				health.receivingRecord(true);
 			}
+			release(records, 0);
 			return;
 		}
 
 		final Record firstRecord = records.get(0);
 
 		if (records.size() == 1 && firstRecord.isNewClientHello()) {
-			executorService.execute(new Runnable() {
+			try {
+				executorService.execute(new Runnable() {
 
-				@Override
-				public void run() {
-					MDC.put("PEER", StringUtil.toString(firstRecord.getPeerAddress()));
-					processNewClientHello(firstRecord);
-					MDC.clear();
-				}
-			});
+					@Override
+					public void run() {
+						try {
+							MDC.put("PEER", StringUtil.toString(firstRecord.getPeerAddress()));
+							processNewClientHello(firstRecord);
+							MDC.clear();
+						} finally {
+							firstRecord.release();
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				firstRecord.release();
+				throw e;
+			}
 			return;
 		}
 
@@ -1253,6 +1784,7 @@ public class DTLSConnector implements Connector, RecordLayer {
 			if (health != null) {
 				health.receivingRecord(true);
 			}
+			release(records, 0);
 			if (connectionId == null) {
 				DROP_LOGGER.trace("Discarding {} records from [{}] received without existing connection",
 						records.size(), peerAddress);
@@ -1263,34 +1795,92 @@ public class DTLSConnector implements Connector, RecordLayer {
 			return;
 		}
 
-		SerialExecutor serialExecutor = connection.getExecutor();
-
-		for (final Record record : records) {
-			try {
+		processRecords(records, connection, connection.getExecutor());
+	}
 
-				serialExecutor.execute(new Runnable() {
+	/**
+	 * Process the records of one datagram in one task of the serial executor.
+	 * 
+	 * The received application data of multiple records is forwarded as
+	 * batch, if the {@link #messageHandler} is a {@link BatchRawDataChannel}.
+	 * The application data of a single record is forwarded directly.
+	 * 
+	 * @param records records of the datagram
+	 * @param connection connection to process the records
+	 * @param serialExecutor serial executor of the connection
+	 * @since 2.5
+	 */
+	private void processRecords(final List<Record> records, final Connection connection,
+			final SerialExecutor serialExecutor) {
+		try {
+			serialExecutor.execute(new Runnable() {
 
-					@Override
-					public void run() {
-						if (running.get()) {
-							processRecord(record, connection);
+				@Override
+				public void run() {
+					List<RawData> batch = records.size() > 1 ? new ArrayList<RawData>(records.size()) : null;
+					try {
+						for (int index = 0; index < records.size(); ++index) {
+							if (!running.get()) {
+								break;
+							}
+							processRecord(records.get(index), connection, batch);
 						}
+					} finally {
+						release(records, 0);
 					}
-				});
-			} catch (RejectedExecutionException e) {
-				// dont't terminate connection on shutdown!
-				LOGGER.debug("Execution rejected while processing record [type: {}, peer: {}]",
-						record.getType(), peerAddress, e);
-				break;
-			} catch (RuntimeException e) {
-				LOGGER.warn("Unexpected error occurred while processing record [type: {}, peer: {}]",
-						record.getType(), peerAddress, e);
-				terminateConnection(connection, e, AlertLevel.FATAL, AlertDescription.INTERNAL_ERROR);
-				break;
+					if (batch != null) {
+						deliver(batch);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// dont't terminate connection on shutdown!
+			LOGGER.debug("Execution rejected while processing {} records [peer: {}]", records.size(),
+					connection.getPeerAddress(), e);
+			release(records, 0);
+		} catch (RuntimeException e) {
+			LOGGER.warn("Unexpected error occurred while processing {} records [peer: {}]", records.size(),
+					connection.getPeerAddress(), e);
+			release(records, 0);
+			terminateConnection(connection, e, AlertLevel.FATAL, AlertDescription.INTERNAL_ERROR);
+		}
+	}
+
+	/**
+	 * Forward batch of received application data to the
+	 * {@link #messageHandler}.
+	 * 
+	 * @param batch batch of received application data
+	 * @since 2.5
+	 */
+	private void deliver(List<RawData> batch) {
+		RawDataChannel channel = messageHandler;
+		if (channel == null || batch.isEmpty()) {
+			return;
+		}
+		if (batch.size() > 1 && channel instanceof BatchRawDataChannel) {
+			((BatchRawDataChannel) channel).receiveData(batch);
+		} else {
+			for (RawData data : batch) {
+				channel.receiveData(data);
 			}
 		}
 	}
 
+	/**
+	 * Release records, which are not processed.
+	 * 
+	 * @param records list of records
+	 * @param index index of first record to release
+	 * @see Record#release()
+	 * @since 2.5
+	 */
+	private static void release(List<Record> records, int index) {
+		for (; index < records.size(); ++index) {
+			records.get(index).release();
+		}
+	}
+
 	/**
 	 * Process received record.
 	 * 
@@ -1299,6 +1889,19 @@ public class DTLSConnector implements Connector, RecordLayer {
 	 */
 	@Override
 	public void processRecord(Record record, Connection connection) {
+		processRecord(record, connection, null);
+	}
+
+	/**
+	 * Process received record.
+	 * 
+	 * @param record received record.
+	 * @param connection connection to process record.
+	 * @param batch batch to add received application data. {@code null} to
+	 *            forward the application data directly.
+	 * @since 2.5
+	 */
+	private void processRecord(Record record, Connection connection, List<RawData> batch) {
 
 		try {
 			// ensure, that connection is still related to record 
@@ -1408,7 +2011,7 @@ public class DTLSConnector implements Connector, RecordLayer {
 
 			switch (record.getType()) {
 			case APPLICATION_DATA:
-				processApplicationDataRecord(record, connection);
+				processApplicationDataRecord(record, connection, batch);
 				break;
 			case ALERT:
 				processAlertRecord(record, connection, session);
@@ -1555,8 +2158,11 @@ public class DTLSConnector implements Connector, RecordLayer {
 	 * 
 	 * @param record application data record
 	 * @param connection connection to process the received record
+	 * @param batch batch to add received application data. {@code null} to
+	 *            forward the application data directly.
 	 */
-	private void processApplicationDataRecord(final Record record, final Connection connection) {
+	private void processApplicationDataRecord(final Record record, final Connection connection,
+			final List<RawData> batch) {
 		final Handshaker ongoingHandshake = connection.getOngoingHandshake();
 		final DTLSSession session = connection.getEstablishedSession();
 		if (session != null && !connection.isResumptionRequired()) {
@@ -1597,7 +2203,11 @@ public class DTLSConnector implements Connector, RecordLayer {
 				}
 				LOGGER.trace("Received APPLICATION_DATA for {}", context);
 				RawData receivedApplicationMessage = RawData.inbound(message.getData(), context, false, record.getReceiveNanos());
-				channel.receiveData(receivedApplicationMessage);
+				if (batch != null) {
+					batch.add(receivedApplicationMessage);
+				} else {
+					channel.receiveData(receivedApplicationMessage);
+				}
 			}
 		} else if (ongoingHandshake != null) {
 			// wait for FINISH
@@ -1801,7 +2411,7 @@ public class DTLSConnector implements Connector, RecordLayer {
 			if (isClientInControlOfSourceIpAddress(clientHello, record, connections)) {
 				boolean verify = false;
 				Connection connection;
-				synchronized (connectionStore) {
+				synchronized (getConnectionLock(peerAddress)) {
 					connection = connectionStore.get(peerAddress);
 					if (connection != null && !connection.isStartedByClientHello(clientHello)) {
 						Connection sessionConnection = connections.getConnectionBySessionId();
@@ -2617,6 +3227,8 @@ public class DTLSConnector implements Connector, RecordLayer {
 	/**
 	 * Process handshake result.
 	 * 
+	 * Results, which are dropped, are destroyed, if they contain secrets.
+	 * 
 	 * @param handshakeResult asynchronous handshake result
 	 * @since 2.5
 	 */
@@ -2643,20 +3255,40 @@ public class DTLSConnector implements Connector, RecordLayer {
 								}
 							} else {
 								LOGGER.debug("No ongoing handshake for result [{}]", connection);
+								dropHandshakeResult(handshakeResult);
 							}
 						} else {
 							LOGGER.debug("Execution stopped while processing handshake result [{}]", connection);
+							dropHandshakeResult(handshakeResult);
 						}
 					}
 				});
 			} catch (RejectedExecutionException e) {
 				// dont't terminate connection on shutdown!
 				LOGGER.debug("Execution rejected while processing handshake result [{}]", connection, e);
+				dropHandshakeResult(handshakeResult);
 			} catch (RuntimeException e) {
 				LOGGER.warn("Unexpected error occurred while processing handshake result [{}]", connection, e);
+				dropHandshakeResult(handshakeResult);
 			}
 		} else {
 			LOGGER.debug("No connection or ongoing handshake for handshake result [{}]", connection);
+			dropHandshakeResult(handshakeResult);
+		}
+	}
+
+	/**
+	 * Drop handshake result.
+	 * 
+	 * Destroys the secrets of the result, if the result is
+	 * {@link Destroyable}.
+	 * 
+	 * @param handshakeResult dropped handshake result
+	 * @since 2.5
+	 */
+	private static void dropHandshakeResult(HandshakeResult handshakeResult) {
+		if (handshakeResult instanceof Destroyable) {
+			SecretUtil.destroy((Destroyable) handshakeResult);
 		}
 	}
 
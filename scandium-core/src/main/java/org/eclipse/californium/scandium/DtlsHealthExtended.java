@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.scandium;
+
+import org.eclipse.californium.scandium.dtls.cipher.EphemeralKeyPool;
+import org.eclipse.californium.scandium.dtls.x509.StaticNewAdvancedCertificateVerifier;
+
+/**
+ * Extended health interface for {@link DTLSConnector}.
+ * 
+ * Adds reports of the {@link EphemeralKeyPool} and the validation cache of
+ * the {@link StaticNewAdvancedCertificateVerifier}.
+ * 
+ * @since 2.5
+ */
+public interface DtlsHealthExtended extends DtlsHealth {
+
+	/**
+	 * Report taken ephemeral key pair.
+	 * 
+	 * @param depleted {@code true}, if the pool was depleted and the key pair
+	 *            is generated on demand, {@code false}, if a precomputed key
+	 *            pair is taken.
+	 */
+	void takeEphemeralKey(boolean depleted);
+
+	/**
+	 * Report validation of certificate path.
+	 * 
+	 * @param cached {@code true}, if the result of a previous validation is
+	 *            used from the cache, {@code false}, if the certificate path
+	 *            is validated.
+	 */
+	void validatingCertificatePath(boolean cached);
+}
@@ -12,6 +12,8 @@
  * 
  * Contributors:
  *    Bosch Software Innovations GmbH - initial creation
+ *    Bosch.IO GmbH                   - add ephemeral key pool counters
+ *    Bosch.IO GmbH                   - add certificate validation cache counters
  ******************************************************************************/
 package org.eclipse.californium.scandium;
 
@@ -29,7 +31,7 @@ import org.slf4j.LoggerFactory;
  * Health implementation using counter and logging for result.
  */
 @NoPublicAPI
-public class DtlsHealthLogger extends CounterStatisticManager implements DtlsHealth {
+public class DtlsHealthLogger extends CounterStatisticManager implements DtlsHealthExtended {
 
 	/** the logger. */
 	private static final Logger LOGGER = LoggerFactory.getLogger(DTLSConnector.class.getCanonicalName() + ".health");
@@ -46,6 +48,14 @@ public class DtlsHealthLogger extends CounterStatisticManager implements DtlsHea
 	private final SimpleCounterStatistic sentRecords = new SimpleCounterStatistic("sending records", align);
 	private final SimpleCounterStatistic droppedSentRecords = new SimpleCounterStatistic("dropped sending records",
 			align);
+	private final SimpleCounterStatistic pooledEphemeralKeys = new SimpleCounterStatistic("pooled ephemeral keys",
+			align);
+	private final SimpleCounterStatistic depletedEphemeralKeys = new SimpleCounterStatistic(
+			"depleted ephemeral keys", align);
+	private final SimpleCounterStatistic cachedCertificateValidations = new SimpleCounterStatistic(
+			"cached certificate validations", align);
+	private final SimpleCounterStatistic certificateValidations = new SimpleCounterStatistic(
+			"certificate validations", align);
 
 	public DtlsHealthLogger() {
 		this("");
@@ -68,6 +78,10 @@ public class DtlsHealthLogger extends CounterStatisticManager implements DtlsHea
 		add(droppedReceivedRecords);
 		add(sentRecords);
 		add(droppedSentRecords);
+		add(pooledEphemeralKeys);
+		add(depletedEphemeralKeys);
+		add(cachedCertificateValidations);
+		add(certificateValidations);
 	}
 
 	@Override
@@ -84,6 +98,14 @@ public class DtlsHealthLogger extends CounterStatisticManager implements DtlsHea
 				log.append(head).append(droppedSentRecords).append(eol);
 				log.append(head).append(receivedRecords).append(eol);
 				log.append(head).append(droppedReceivedRecords);
+				if (pooledEphemeralKeys.isUsed() || depletedEphemeralKeys.isUsed()) {
+					log.append(eol).append(head).append(pooledEphemeralKeys);
+					log.append(eol).append(head).append(depletedEphemeralKeys);
+				}
+				if (cachedCertificateValidations.isUsed() || certificateValidations.isUsed()) {
+					log.append(eol).append(head).append(cachedCertificateValidations);
+					log.append(eol).append(head).append(certificateValidations);
+				}
 				LOGGER.debug("{}", log);
 			}
 		} catch (Throwable e) {
@@ -115,6 +137,14 @@ public class DtlsHealthLogger extends CounterStatisticManager implements DtlsHea
 				log.append(head).append(droppedSentRecords).append(eol);
 				log.append(head).append(receivedRecords).append(eol);
 				log.append(head).append(droppedReceivedRecords);
+				if (pooledEphemeralKeys.isUsed() || depletedEphemeralKeys.isUsed()) {
+					log.append(eol).append(head).append(pooledEphemeralKeys);
+					log.append(eol).append(head).append(depletedEphemeralKeys);
+				}
+				if (cachedCertificateValidations.isUsed() || certificateValidations.isUsed()) {
+					log.append(eol).append(head).append(cachedCertificateValidations);
+					log.append(eol).append(head).append(certificateValidations);
+				}
 				LOGGER.debug("{}", log);
 			}
 		} catch (Throwable e) {
@@ -159,4 +189,22 @@ public class DtlsHealthLogger extends CounterStatisticManager implements DtlsHea
 			sentRecords.increment();
 		}
 	}
+
+	@Override
+	public void takeEphemeralKey(boolean depleted) {
+		if (depleted) {
+			depletedEphemeralKeys.increment();
+		} else {
+			pooledEphemeralKeys.increment();
+		}
+	}
+
+	@Override
+	public void validatingCertificatePath(boolean cached) {
+		if (cached) {
+			cachedCertificateValidations.increment();
+		} else {
+			certificateValidations.increment();
+		}
+	}
 }
@@ -35,6 +35,7 @@
 
 package org.eclipse.californium.scandium.config;
 
+import java.io.File;
 import java.net.InetSocketAddress;
 import java.security.PrivateKey;
 import java.security.PublicKey;
@@ -49,6 +50,7 @@ import org.eclipse.californium.elements.DtlsEndpointContext;
 import org.eclipse.californium.elements.util.Asn1DerDecoder;
 import org.eclipse.californium.elements.util.CertPathUtil;
 import org.eclipse.californium.elements.util.SslContextUtil;
+import org.eclipse.californium.elements.util.ReusePortUtil;
 import org.eclipse.californium.elements.util.StringUtil;
 import org.eclipse.californium.scandium.ConnectionListener;
 import org.eclipse.californium.scandium.DtlsHealth;
@@ -363,10 +365,57 @@ public final class DtlsConnectorConfig {
 
 	private Long staleConnectionThreshold;
 
+	/**
+	 * Number of stripes of the connection store. {@code 1} to use the
+	 * {@link org.eclipse.californium.scandium.dtls.InMemoryConnectionStore}.
+	 * 
+	 * @since 2.5
+	 */
+	private Integer connectionStoreStripes;
+
+	/**
+	 * File to save the established connections on stop and to restore them
+	 * on start.
+	 * 
+	 * @since 2.5
+	 */
+	private File connectionStateFile;
+
 	private Integer connectionThreadCount;
 
+	/**
+	 * Number of threads for offloaded crypto operations. {@code 0} to
+	 * execute them by the connection threads.
+	 * 
+	 * @since 2.5
+	 */
+	private Integer cryptoThreadCount;
+
 	private Integer receiverThreadCount;
 
+	/**
+	 * Number of sockets bound to the same address using
+	 * {@code SO_REUSEPORT}.
+	 * 
+	 * @since 2.5
+	 */
+	private Integer reusePortShardCount;
+
+	/**
+	 * Number of pooled receive buffers. {@code 0} to disable pooling.
+	 * 
+	 * @since 2.5
+	 */
+	private Integer receiveBufferPoolSize;
+
+	/**
+	 * Maximum number of precomputed ephemeral key pairs per supported group.
+	 * {@code 0} to disable precomputing.
+	 * 
+	 * @since 2.5
+	 */
+	private Integer ephemeralKeyPoolSize;
+
 	private Integer socketReceiveBufferSize;
 
 	private Integer socketSendBufferSize;
@@ -381,6 +430,14 @@ public final class DtlsConnectorConfig {
 	 */
 	private Long autoResumptionTimeoutMillis;
 
+	/**
+	 * Timeout to compact the established sessions of idle connections. If
+	 * {@code null}, the sessions are not compacted. Value is in milliseconds.
+	 * 
+	 * @since 2.5
+	 */
+	private Long compactIdleConnectionTimeoutMillis;
+
 	/**
 	 * Indicates, that "server name indication" is used (client side) and
 	 * supported (server side). The support on the server side currently
@@ -1070,6 +1127,37 @@ public final class DtlsConnectorConfig {
 		return staleConnectionThreshold;
 	}
 
+	/**
+	 * Gets the number of stripes of the connection store.
+	 * <p>
+	 * With more than one stripe, the
+	 * {@link org.eclipse.californium.scandium.dtls.ConcurrentInMemoryConnectionStore}
+	 * is used, which locks only the stripe of a connection instead of the
+	 * whole store. The default value is {@code 1}, which uses the
+	 * {@link org.eclipse.californium.scandium.dtls.InMemoryConnectionStore}.
+	 * 
+	 * @return the number of stripes of the connection store.
+	 * @see #getMaxConnections()
+	 * @since 2.5
+	 */
+	public Integer getConnectionStoreStripes() {
+		return connectionStoreStripes;
+	}
+
+	/**
+	 * Gets the file to persist the established connections.
+	 * <p>
+	 * If available, the connector saves the established connections on
+	 * {@code stop()} into this file and restores them on {@code start()}. The
+	 * file is deleted when the connections are restored.
+	 * 
+	 * @return the file, or {@code null}, if the connections are not persisted.
+	 * @since 2.5
+	 */
+	public File getConnectionStateFile() {
+		return connectionStateFile;
+	}
+
 	/**
 	 * Gets the number of threads which should be use to handle DTLS connection.
 	 * <p>
@@ -1081,6 +1169,24 @@ public final class DtlsConnectorConfig {
 		return connectionThreadCount;
 	}
 
+	/**
+	 * Gets the number of threads for offloaded crypto operations.
+	 * <p>
+	 * If enabled, the servers ECDH key agreement including the master secret
+	 * derivation and the verification of the client's CertificateVerify
+	 * signature are executed by a separate thread pool. That keeps the
+	 * connection threads available for the records of established
+	 * connections, even if many handshakes are processed. The default value
+	 * is {@code 0}, which executes the crypto operations by the connection
+	 * threads.
+	 * 
+	 * @return the number of threads for crypto operations.
+	 * @since 2.5
+	 */
+	public Integer getCryptoThreadCount() {
+		return cryptoThreadCount;
+	}
+
 	/**
 	 * Gets the number of threads which should be use to receive datagrams
 	 * from the socket.
@@ -1093,6 +1199,54 @@ public final class DtlsConnectorConfig {
 		return receiverThreadCount;
 	}
 
+	/**
+	 * Gets the number of sockets bound to the same address using
+	 * {@code SO_REUSEPORT}.
+	 * <p>
+	 * The kernel distributes the peers among these sockets ("shards"). Each
+	 * shard is served by {@link #getReceiverThreadCount()} receiver threads.
+	 * The default value is {@code 1}, which disables {@code SO_REUSEPORT}.
+	 * 
+	 * @return the number of shards.
+	 * @since 2.5
+	 */
+	public Integer getReusePortShardCount() {
+		return reusePortShardCount;
+	}
+
+	/**
+	 * Gets the number of pooled receive buffers.
+	 * <p>
+	 * If enabled, the receiver threads use buffers of a pool to receive the
+	 * datagrams and the received records are slices of these buffers. The
+	 * buffers are returned to the pool, when the processing of all records of
+	 * the datagram completes. The default value is {@code 0}, which disables
+	 * the pool and copies the fragments of the records.
+	 * 
+	 * @return the number of pooled receive buffers.
+	 * @since 2.5
+	 */
+	public Integer getReceiveBufferPoolSize() {
+		return receiveBufferPoolSize;
+	}
+
+	/**
+	 * Gets the maximum number of precomputed ephemeral key pairs per
+	 * supported group.
+	 * <p>
+	 * If enabled, the ephemeral key pairs for the ECDHE key exchange are
+	 * generated in the background by the executor of the connector. That
+	 * reduces the processing time of handshakes, especially if many peers
+	 * start handshakes at the same time. The default value is {@code 0}, which
+	 * disables the precomputing.
+	 * 
+	 * @return the maximum number of precomputed ephemeral key pairs.
+	 * @since 2.5
+	 */
+	public Integer getEphemeralKeyPoolSize() {
+		return ephemeralKeyPoolSize;
+	}
+
 	/**
 	 * Gets size of the socket receive buffer.
 	 * 
@@ -1126,6 +1280,23 @@ public final class DtlsConnectorConfig {
 		return autoResumptionTimeoutMillis;
 	}
 
+	/**
+	 * Get the timeout to compact the established sessions of idle
+	 * connections.
+	 * 
+	 * If no messages are received for this timeout, the established session
+	 * is replaced by a compact representation of its state. It's inflated
+	 * again on the next use.
+	 * 
+	 * @return timeout in milliseconds, or {@code null}, if the sessions are
+	 *         not compacted.
+	 * @see org.eclipse.californium.scandium.dtls.Connection#compact(long)
+	 * @since 2.5
+	 */
+	public Long getCompactIdleConnectionTimeoutMillis() {
+		return compactIdleConnectionTimeoutMillis;
+	}
+
 	/**
 	 * Indicates, that no session id is used by this server and so session are
 	 * also not cached by this server and can not be resumed.
@@ -1350,12 +1521,19 @@ public final class DtlsConnectorConfig {
 		cloned.maxDeferredProcessedIncomingRecordsSize = maxDeferredProcessedIncomingRecordsSize;
 		cloned.maxConnections = maxConnections;
 		cloned.staleConnectionThreshold = staleConnectionThreshold;
+		cloned.connectionStoreStripes = connectionStoreStripes;
+		cloned.connectionStateFile = connectionStateFile;
 		cloned.connectionThreadCount = connectionThreadCount;
+		cloned.cryptoThreadCount = cryptoThreadCount;
 		cloned.receiverThreadCount = receiverThreadCount;
+		cloned.reusePortShardCount = reusePortShardCount;
+		cloned.receiveBufferPoolSize = receiveBufferPoolSize;
+		cloned.ephemeralKeyPoolSize = ephemeralKeyPoolSize;
 		cloned.socketReceiveBufferSize = socketReceiveBufferSize;
 		cloned.socketSendBufferSize = socketSendBufferSize;
 		cloned.healthStatusInterval = healthStatusInterval;
 		cloned.autoResumptionTimeoutMillis = autoResumptionTimeoutMillis;
+		cloned.compactIdleConnectionTimeoutMillis = compactIdleConnectionTimeoutMillis;
 		cloned.sniEnabled = sniEnabled;
 		cloned.verifyPeersOnResumptionThreshold = verifyPeersOnResumptionThreshold;
 		cloned.useNoServerSessionId = useNoServerSessionId;
@@ -2858,6 +3036,56 @@ public final class DtlsConnectorConfig {
 			return this;
 		}
 
+		/**
+		 * Sets the number of stripes of the connection store.
+		 * <p>
+		 * With more than one stripe, the connections are distributed by their
+		 * connection id into stripes with their own lock and their part of the
+		 * {@link #setMaxConnections(int)}. That reduces the contention of many
+		 * receiver threads, e.g. when many peers start handshakes at the same
+		 * time. The eviction of stale connections is then applied per stripe.
+		 * Small stores use less stripes. The default value is {@code 1}, which
+		 * uses a single lock for the whole store.
+		 * 
+		 * @param stripes the number of stripes.
+		 * @return this builder for command chaining.
+		 * @throws IllegalArgumentException if the given stripes are &lt; 1.
+		 * @see org.eclipse.californium.scandium.dtls.ConcurrentInMemoryConnectionStore
+		 * @since 2.5
+		 */
+		public Builder setConnectionStoreStripes(int stripes) {
+			if (stripes < 1) {
+				throw new IllegalArgumentException("stripes " + stripes + " must be at least 1!");
+			}
+			config.connectionStoreStripes = stripes;
+			return this;
+		}
+
+		/**
+		 * Sets the file to persist the established connections.
+		 * <p>
+		 * On {@code stop()} the connector saves the established connections,
+		 * including their session, keys, sequence numbers and connection id,
+		 * into this file. On {@code start()} the connections are restored and
+		 * the file is deleted, so the peers continue to use their current
+		 * record layer state without a new handshake. Intended for graceful
+		 * restarts of the same server.
+		 * <p>
+		 * <b>Note:</b> the file contains the keys of the connections. It must
+		 * therefore be protected by the file permissions. It must also not be
+		 * copied and restored more than once, otherwise sequence numbers are
+		 * reused with the same keys.
+		 * 
+		 * @param file file to save and restore the connections. {@code null}
+		 *            to not persist connections, which is the default.
+		 * @return this builder for command chaining.
+		 * @since 2.5
+		 */
+		public Builder setConnectionStateFile(File file) {
+			config.connectionStateFile = file;
+			return this;
+		}
+
 		/**
 		 * Sets the connection id generator.
 		 * 
@@ -2887,6 +3115,31 @@ public final class DtlsConnectorConfig {
 			return this;
 		}
 
+		/**
+		 * Set the number of threads for offloaded crypto operations.
+		 * <p>
+		 * If enabled, the servers ECDH key agreement including the master
+		 * secret derivation and the verification of the client's
+		 * CertificateVerify signature are executed by a separate thread pool
+		 * with a bounded queue. If that queue is full, the crypto operations
+		 * are executed by the connection threads. The default value is
+		 * {@code 0}, which executes the crypto operations always by the
+		 * connection threads.
+		 * 
+		 * @param threadCount the number of threads. {@code 0} to disable
+		 *            offloading.
+		 * @return this builder for command chaining.
+		 * @throws IllegalArgumentException if thread count is negative
+		 * @since 2.5
+		 */
+		public Builder setCryptoThreadCount(int threadCount) {
+			if (threadCount < 0) {
+				throw new IllegalArgumentException("thread count " + threadCount + " must not be negative!");
+			}
+			config.cryptoThreadCount = threadCount;
+			return this;
+		}
+
 		/**
 		 * Set the number of thread which should be used to receive
 		 * datagrams from the socket.
@@ -2901,6 +3154,84 @@ public final class DtlsConnectorConfig {
 			return this;
 		}
 
+		/**
+		 * Set the number of sockets bound to the same address using
+		 * {@code SO_REUSEPORT}.
+		 * <p>
+		 * The kernel distributes the peers among these sockets ("shards").
+		 * Each shard is served by its own receiver threads, the connections
+		 * are shared. Therefore a peer, which changes its address and so
+		 * maybe its shard, is still found by its connection id. The default
+		 * value is {@code 1}, which disables {@code SO_REUSEPORT}.
+		 * 
+		 * @param shards the number of shards.
+		 * @return this builder for command chaining.
+		 * @throws IllegalArgumentException if shards is less than {@code 1}
+		 * @throws IllegalStateException if shards is larger than {@code 1},
+		 *             but {@code SO_REUSEPORT} is not supported.
+		 * @see ReusePortUtil#isSupported()
+		 * @since 2.5
+		 */
+		public Builder setReusePortShardCount(int shards) {
+			if (shards < 1) {
+				throw new IllegalArgumentException("shards " + shards + " must be at least 1!");
+			}
+			if (shards > 1 && !ReusePortUtil.isSupported()) {
+				throw new IllegalStateException("SO_REUSEPORT is not supported!");
+			}
+			config.reusePortShardCount = shards;
+			return this;
+		}
+
+		/**
+		 * Set the number of pooled receive buffers.
+		 * <p>
+		 * If enabled, the received records are slices of pooled buffers
+		 * instead of copies. The buffers are returned to the pool, when the
+		 * processing of all records of the datagram completes. The pool should
+		 * be large enough to cover the datagrams in processing. If exhausted,
+		 * new buffers are allocated. The default value is {@code 0}, which
+		 * disables the pool.
+		 * 
+		 * @param size the number of pooled receive buffers. {@code 0} to
+		 *            disable the pool.
+		 * @return this builder for command chaining.
+		 * @throws IllegalArgumentException if size is negative
+		 * @since 2.5
+		 */
+		public Builder setReceiveBufferPoolSize(int size) {
+			if (size < 0) {
+				throw new IllegalArgumentException("pool size " + size + " must not be negative!");
+			}
+			config.receiveBufferPoolSize = size;
+			return this;
+		}
+
+		/**
+		 * Set the maximum number of precomputed ephemeral key pairs per
+		 * supported group.
+		 * <p>
+		 * If enabled, the ephemeral key pairs for the ECDHE key exchange are
+		 * generated in the background. The number of pooled key pairs adapts
+		 * to the rate of handshakes, starting with the maximum on start of the
+		 * connector. If the pool is depleted, the key pair is generated within
+		 * the handshake. The default value is {@code 0}, which disables the
+		 * pool.
+		 * 
+		 * @param size the maximum number of precomputed ephemeral key pairs.
+		 *            {@code 0} to disable the pool.
+		 * @return this builder for command chaining.
+		 * @throws IllegalArgumentException if size is negative
+		 * @since 2.5
+		 */
+		public Builder setEphemeralKeyPoolSize(int size) {
+			if (size < 0) {
+				throw new IllegalArgumentException("pool size " + size + " must not be negative!");
+			}
+			config.ephemeralKeyPoolSize = size;
+			return this;
+		}
+
 		/**
 		 * Set the timeout of automatic session resumption in milliseconds.
 		 * <p>
@@ -2925,6 +3256,32 @@ public final class DtlsConnectorConfig {
 			return this;
 		}
 
+		/**
+		 * Set the timeout to compact the established sessions of idle
+		 * connections.
+		 * <p>
+		 * If no messages are received for this timeout, the established
+		 * session including the read and write states with their keys is
+		 * replaced by a compact representation of its state. The session is
+		 * inflated again on the next use. Intended to reduce the heap used for
+		 * many idle peers. The default value is {@code null}, for no
+		 * compaction.
+		 * 
+		 * @param timeoutInMillis the number of milliseconds. {@code null} to
+		 *            disable the compaction.
+		 * @return this builder for command chaining.
+		 * @throws IllegalArgumentException if the timeout is below 1
+		 *             millisecond
+		 * @since 2.5
+		 */
+		public Builder setCompactIdleConnectionTimeoutMillis(Long timeoutInMillis) {
+			if (timeoutInMillis != null && timeoutInMillis < 1) {
+				throw new IllegalArgumentException("compact idle connection timeout must not below 1!");
+			}
+			config.compactIdleConnectionTimeoutMillis = timeoutInMillis;
+			return this;
+		}
+
 		/**
 		 * Sets whether the connector should support the use of the TLS
 		 * <a href="https://tools.ietf.org/html/rfc6066#section-3">
@@ -3270,12 +3627,27 @@ public final class DtlsConnectorConfig {
 			if (config.connectionThreadCount == null) {
 				config.connectionThreadCount = DEFAULT_EXECUTOR_THREAD_POOL_SIZE;
 			}
+			if (config.cryptoThreadCount == null) {
+				config.cryptoThreadCount = 0;
+			}
 			if (config.receiverThreadCount == null) {
 				config.receiverThreadCount = DEFAULT_RECEIVER_THREADS;
 			}
+			if (config.reusePortShardCount == null) {
+				config.reusePortShardCount = 1;
+			}
+			if (config.receiveBufferPoolSize == null) {
+				config.receiveBufferPoolSize = 0;
+			}
+			if (config.ephemeralKeyPoolSize == null) {
+				config.ephemeralKeyPoolSize = 0;
+			}
 			if (config.staleConnectionThreshold == null) {
 				config.staleConnectionThreshold = DEFAULT_STALE_CONNECTION_TRESHOLD;
 			}
+			if (config.connectionStoreStripes == null) {
+				config.connectionStoreStripes = 1;
+			}
 			if (config.maxTransmissionUnitLimit == null){
 				config.maxTransmissionUnitLimit = DEFAULT_MAX_TRANSMISSION_UNIT_LIMIT;
 			}
@@ -487,7 +487,7 @@ public class ClientHandshaker extends Handshaker {
 		 */
 		PskPublicInformation clientIdentity;
 		PskSecretResult masterSecretResult;
-		XECDHECryptography ecdhe = serverKeyExchange == null ? null : new XECDHECryptography(serverKeyExchange.getSupportedGroup());
+		XECDHECryptography ecdhe = serverKeyExchange == null ? null : createEcdhe(serverKeyExchange.getSupportedGroup());
 		switch (session.getKeyExchange()) {
 		case EC_DIFFIE_HELLMAN:
 			clientKeyExchange = new ECDHClientKeyExchange(ecdhe.getEncodedPoint(), session.getPeer());
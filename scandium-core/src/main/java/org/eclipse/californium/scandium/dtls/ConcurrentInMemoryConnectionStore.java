@@ -0,0 +1,695 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.scandium.dtls;
+
+import java.net.InetSocketAddress;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.californium.elements.util.LeastRecentlyUsedCache;
+import org.eclipse.californium.elements.util.SerialExecutor;
+import org.eclipse.californium.elements.util.StringUtil;
+import org.eclipse.californium.scandium.ConnectionListener;
+import org.eclipse.californium.scandium.util.SecretUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory {@link ResumptionSupportingConnectionStore} for many
+ * concurrently accessing threads.
+ * <p>
+ * Functional equivalent to the {@link InMemoryConnectionStore}, but without a
+ * lock for the whole store. The connections are distributed by the hash of
+ * their connection id into stripes. Each stripe is a
+ * {@link LeastRecentlyUsedCache} with its own lock and its part of the
+ * capacity. The <em>least recently used</em> eviction is therefore applied per
+ * stripe. New connection ids are preferred for stripes with remaining capacity,
+ * so a stripe is only full, if the store is (nearly) full.
+ * </p>
+ * <p>
+ * The lookups by connection id, peer address and session id are lock-free.
+ * Only adding, updating and removing a connection locks the stripe of that
+ * connection.
+ * </p>
+ * <p>
+ * Supports also a {@link SessionCache} implementation in the same way as the
+ * {@link InMemoryConnectionStore}.
+ * </p>
+ *
+ * @since 2.5
+ */
+public class ConcurrentInMemoryConnectionStore implements ResumptionSupportingConnectionStore {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ConcurrentInMemoryConnectionStore.class);
+	private static final int DEFAULT_SMALL_EXTRA_CID_LENGTH = 2; // extra cid bytes additionally to required bytes for small capacity.
+	private static final int DEFAULT_LARGE_EXTRA_CID_LENGTH = 3; // extra cid bytes additionally to required bytes for large capacity.
+	private static final int DEFAULT_CACHE_SIZE = 150000;
+	private static final long DEFAULT_EXPIRATION_THRESHOLD = 36 * 60 * 60; // 36h
+	/**
+	 * Default number of stripes.
+	 */
+	public static final int DEFAULT_STRIPES = 16;
+	/**
+	 * Minimum capacity of a stripe. Smaller stores use less stripes.
+	 */
+	private static final int MIN_STRIPE_CAPACITY = 64;
+	private final SessionCache sessionCache;
+	private final LeastRecentlyUsedCache<ConnectionId, Connection>[] stripes;
+	private final int capacity;
+	private final ConcurrentMap<InetSocketAddress, Connection> connectionsByAddress;
+	private final ConcurrentMap<SessionId, Connection> connectionsByEstablishedSession;
+
+	private volatile ConnectionListener connectionListener;
+	/**
+	 * Connection id generator.
+	 *
+	 * @see #attach(ConnectionIdGenerator)
+	 */
+	private volatile ConnectionIdGenerator connectionIdGenerator;
+
+	protected volatile String tag = "";
+
+	/**
+	 * Creates a store with a capacity of 150000 connections, a connection
+	 * expiration threshold of 36 hours, and {@link #DEFAULT_STRIPES}.
+	 */
+	public ConcurrentInMemoryConnectionStore() {
+		this(DEFAULT_CACHE_SIZE, DEFAULT_EXPIRATION_THRESHOLD, null, DEFAULT_STRIPES);
+	}
+
+	/**
+	 * Creates a store based on given configuration parameters.
+	 *
+	 * @param capacity the maximum number of connections the store can manage
+	 * @param threshold the period of time of inactivity (in seconds) after
+	 *            which a connection is considered stale and can be evicted from
+	 *            the store if a new connection is to be added to the store
+	 * @param sessionCache a second level cache to use for <em>current</em>
+	 *            connection state of established DTLS sessions. If implements
+	 *            {@link ClientSessionCache}, restore connection from the cache
+	 *            and mark them to resume. May be {@code null}.
+	 * @param stripes number of stripes. Reduced, if the capacity of a stripe
+	 *            would be less than 64.
+	 * @throws IllegalArgumentException if capacity or stripes is less than
+	 *             {@code 1}.
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentInMemoryConnectionStore(int capacity, long threshold, SessionCache sessionCache,
+			int stripes) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity " + capacity + " must be at least 1!");
+		}
+		if (stripes < 1) {
+			throw new IllegalArgumentException("stripes " + stripes + " must be at least 1!");
+		}
+		stripes = Math.max(1, Math.min(stripes, capacity / MIN_STRIPE_CAPACITY));
+		this.capacity = capacity;
+		this.stripes = (LeastRecentlyUsedCache<ConnectionId, Connection>[]) new LeastRecentlyUsedCache<?, ?>[stripes];
+		this.connectionsByEstablishedSession = new ConcurrentHashMap<>();
+		this.connectionsByAddress = new ConcurrentHashMap<>();
+		this.sessionCache = sessionCache;
+
+		// make sure that session state for stale (evicted) connections is
+		// removed from second level cache
+		LeastRecentlyUsedCache.EvictionListener<Connection> evictionListener = new LeastRecentlyUsedCache.EvictionListener<Connection>() {
+
+			@Override
+			public void onEviction(final Connection staleConnection) {
+				Runnable remove = new Runnable() {
+
+					@Override
+					public void run() {
+						Handshaker handshaker = staleConnection.getOngoingHandshake();
+						if (handshaker != null) {
+							handshaker.handshakeFailed(
+									new ConnectionEvictedException("Evicted!", staleConnection.getPeerAddress()));
+						}
+						removeFromAddressConnections(staleConnection);
+						removeFromEstablishedSessions(staleConnection);
+						ConnectionListener listener = connectionListener;
+						if (listener != null) {
+							listener.onConnectionRemoved(staleConnection);
+						}
+					}
+				};
+				if (staleConnection.isExecuting()) {
+					staleConnection.getExecutor().execute(remove);
+				} else {
+					remove.run();
+				}
+			}
+		};
+		for (int index = 0; index < stripes; ++index) {
+			int stripeCapacity = capacity / stripes;
+			if (index < capacity % stripes) {
+				++stripeCapacity;
+			}
+			LeastRecentlyUsedCache<ConnectionId, Connection> stripe = new LeastRecentlyUsedCache<>(stripeCapacity,
+					threshold);
+			stripe.setEvictingOnReadAccess(false);
+			stripe.setUpdatingOnReadAccess(false);
+			stripe.addEvictionListener(evictionListener);
+			this.stripes[index] = stripe;
+		}
+
+		LOG.info(
+				"Created new ConcurrentInMemoryConnectionStore [capacity: {}, stripes: {}, connection expiration threshold: {}s]",
+				capacity, stripes, threshold);
+	}
+
+	/**
+	 * Set tag for logging outputs.
+	 *
+	 * @param tag tag for logging
+	 * @return this connection store for calls chaining
+	 */
+	public ConcurrentInMemoryConnectionStore setTag(final String tag) {
+		this.tag = StringUtil.normalizeLoggingTag(tag);
+		return this;
+	}
+
+	/**
+	 * Gets the number of stripes.
+	 *
+	 * @return number of stripes
+	 */
+	public int getStripes() {
+		return stripes.length;
+	}
+
+	/**
+	 * Gets the stripe of the connection id.
+	 *
+	 * @param cid connection id
+	 * @return stripe of the connection id
+	 */
+	private LeastRecentlyUsedCache<ConnectionId, Connection> getStripe(ConnectionId cid) {
+		if (stripes.length == 1) {
+			return stripes[0];
+		}
+		// scramble the hash, otherwise the keys of a stripe would share the
+		// lower bits, which are used by the map of the stripe.
+		int hash = cid.hashCode() * 0x9E3779B9;
+		return stripes[(hash >>> 16) % stripes.length];
+	}
+
+	/**
+	 * Creates a new unused connection id.
+	 *
+	 * Prefers connection ids of stripes with remaining capacity. Therefore
+	 * the number of attempts depends on the number of stripes.
+	 *
+	 * @return connection id, or {@code null}, if no free connection id could
+	 *         created
+	 * @see #connectionIdGenerator
+	 * @see ConnectionIdGenerator
+	 */
+	private ConnectionId newConnectionId() {
+		ConnectionId candidate = null;
+		int attempts = 10 * stripes.length;
+		for (int i = 0; i < attempts; ++i) {
+			ConnectionId cid = connectionIdGenerator.createConnectionId();
+			LeastRecentlyUsedCache<ConnectionId, Connection> stripe = getStripe(cid);
+			if (stripe.get(cid) == null) {
+				if (stripe.remainingCapacity() > 0) {
+					return cid;
+				} else if (candidate == null) {
+					candidate = cid;
+				}
+			}
+		}
+		return candidate;
+	}
+
+	@Override
+	public void setConnectionListener(ConnectionListener listener) {
+		this.connectionListener = listener;
+	}
+
+	@Override
+	public void attach(ConnectionIdGenerator connectionIdGenerator) {
+		if (this.connectionIdGenerator != null) {
+			throw new IllegalStateException("Connection id generator already attached!");
+		}
+		if (connectionIdGenerator == null || !connectionIdGenerator.useConnectionId()) {
+			int bits = Integer.SIZE - Integer.numberOfLeadingZeros(capacity);
+			int cidLength = ((bits + 7) / 8); // required bytes for capacity
+			cidLength += (cidLength < 3) ? DEFAULT_SMALL_EXTRA_CID_LENGTH : DEFAULT_LARGE_EXTRA_CID_LENGTH;
+			this.connectionIdGenerator = new SingleNodeConnectionIdGenerator(cidLength);
+		} else {
+			this.connectionIdGenerator = connectionIdGenerator;
+		}
+		if (sessionCache instanceof ClientSessionCache) {
+			ClientSessionCache clientCache = (ClientSessionCache) sessionCache;
+			LOG.debug("resume client sessions {}", clientCache);
+			for (InetSocketAddress peer : clientCache) {
+				SessionTicket ticket = clientCache.getSessionTicket(peer);
+				SessionId id = clientCache.getSessionIdentity(peer);
+				if (ticket != null && id != null) {
+					// restore connection from session ticket
+					Connection connection = new Connection(ticket, id, peer);
+					ConnectionId connectionId = newConnectionId();
+					if (connectionId != null) {
+						connection.setConnectionId(connectionId);
+						LeastRecentlyUsedCache<ConnectionId, Connection> stripe = getStripe(connectionId);
+						synchronized (stripe) {
+							stripe.put(connectionId, connection);
+						}
+						connectionsByAddress.put(peer, connection);
+						LOG.debug("{}resume {} {}", tag, peer, id);
+					} else {
+						LOG.info("{}drop session {} {}, could not allocated cid!", tag, peer, id);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * A connection can be successfully added to the store if any of the
+	 * following conditions is met:
+	 * <ul>
+	 * <li>The remaining capacity of the connection's stripe is greater than
+	 * zero.</li>
+	 * <li>The connection's stripe contains at least one <em>stale</em>
+	 * connection, i.e. a connection that has not been accessed for at least
+	 * the store's <em> connection expiration threshold</em> period. In such a
+	 * case the least-recently accessed stale connection of that stripe gets
+	 * evicted to make place for the new connection to be added.</li>
+	 * </ul>
+	 */
+	@Override
+	public boolean put(final Connection connection) {
+
+		if (connection == null) {
+			return false;
+		}
+		if (!connection.isExecuting()) {
+			throw new IllegalStateException("Connection is not executing!");
+		}
+		ConnectionId connectionId = connection.getConnectionId();
+		if (connectionId == null) {
+			if (connectionIdGenerator == null) {
+				throw new IllegalStateException("Connection id generator must be attached before!");
+			}
+			connectionId = newConnectionId();
+			if (connectionId == null) {
+				throw new IllegalStateException("Connection ids exhausted!");
+			}
+			connection.setConnectionId(connectionId);
+		} else if (connectionId.isEmpty()) {
+			throw new IllegalStateException("Connection must have a none empty connection id!");
+		}
+		LeastRecentlyUsedCache<ConnectionId, Connection> stripe = getStripe(connectionId);
+		synchronized (stripe) {
+			if (stripe.get(connectionId) != null) {
+				throw new IllegalStateException("Connection id already used! " + connectionId);
+			}
+			if (!stripe.put(connectionId, connection)) {
+				LOG.warn("{}connection store is full! {} max. entries.", tag, capacity);
+				return false;
+			}
+			if (LOG.isTraceEnabled()) {
+				LOG.trace("{}connection: add {} (stripe size {})", tag, connection, stripe.size(),
+						new Throwable("connection added!"));
+			} else {
+				LOG.debug("{}connection: add {} (stripe size {})", tag, connectionId, stripe.size());
+			}
+			addToAddressConnections(connection);
+		}
+		DTLSSession session = connection.getEstablishedSession();
+		if (session != null) {
+			putEstablishedSession(session, connection);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean update(final Connection connection, InetSocketAddress newPeerAddress) {
+		if (connection == null) {
+			return false;
+		}
+		ConnectionId connectionId = connection.getConnectionId();
+		if (connectionId == null) {
+			return false;
+		}
+		LeastRecentlyUsedCache<ConnectionId, Connection> stripe = getStripe(connectionId);
+		synchronized (stripe) {
+			if (stripe.update(connectionId)) {
+				if (newPeerAddress == null) {
+					LOG.debug("{}connection: {} updated usage!", tag, connectionId);
+				} else if (!connection.equalsPeerAddress(newPeerAddress)) {
+					InetSocketAddress oldPeerAddress = connection.getPeerAddress();
+					LOG.debug("{}connection: {} updated, address changed from {} to {}!", tag, connectionId,
+							oldPeerAddress, newPeerAddress);
+					if (oldPeerAddress != null) {
+						connectionsByAddress.remove(oldPeerAddress, connection);
+						connection.updatePeerAddress(null);
+					}
+					connection.updatePeerAddress(newPeerAddress);
+					addToAddressConnections(connection);
+				}
+				return true;
+			}
+		}
+		LOG.debug("{}connection: {} - {} update failed!", tag, connectionId, newPeerAddress);
+		return false;
+	}
+
+	@Override
+	public void putEstablishedSession(final DTLSSession session, final Connection connection) {
+		ConnectionListener listener = connectionListener;
+		if (listener != null) {
+			listener.onConnectionEstablished(connection);
+		}
+		SessionId sessionId = session.getSessionIdentifier();
+		if (!sessionId.isEmpty()) {
+			if (sessionCache != null) {
+				sessionCache.put(session);
+			}
+			final Connection previous = connectionsByEstablishedSession.put(sessionId, connection);
+			if (previous != null && previous != connection) {
+				Runnable removePreviousConnection = new Runnable() {
+
+					@Override
+					public void run() {
+						remove(previous, false);
+					}
+				};
+				if (previous.isExecuting()) {
+					previous.getExecutor().execute(removePreviousConnection);
+				} else {
+					removePreviousConnection.run();
+				}
+			}
+		}
+	}
+
+	@Override
+	public void removeFromEstablishedSessions(final DTLSSession session, final Connection connection) {
+		SessionId sessionId = session.getSessionIdentifier();
+		if (!sessionId.isEmpty()) {
+			connectionsByEstablishedSession.remove(sessionId, connection);
+		}
+	}
+
+	@Override
+	public Connection find(final SessionId id) {
+
+		if (id == null || id.isEmpty()) {
+			return null;
+		}
+		Connection conFromLocalCache = findLocally(id);
+
+		if (sessionCache == null) {
+			return conFromLocalCache;
+		}
+
+		// make sure a stale session cannot be resumed
+		SessionTicket ticket = sessionCache.get(id);
+		if (ticket == null) {
+			// either a session with the given ID has never been established
+			// (on other nodes) or another node has removed the session from
+			// the cache, e.g. because it became stale
+			if (conFromLocalCache != null) {
+				// remove corresponding connection from this store
+				remove(conFromLocalCache, false);
+			}
+			return null;
+		} else if (conFromLocalCache == null) {
+			// this probably means that we are taking over the session from a
+			// failed node
+			return new Connection(ticket, id, null);
+			// connection will be put to first level cache as part of
+			// the abbreviated handshake
+		} else {
+			// resume connection found in local cache (i.e. this store)
+			return conFromLocalCache;
+		}
+	}
+
+	private Connection findLocally(final SessionId id) {
+		Connection connection = connectionsByEstablishedSession.get(id);
+		if (connection != null) {
+			DTLSSession establishedSession = connection.getEstablishedSession();
+			if (establishedSession != null) {
+				if (!establishedSession.getSessionIdentifier().equals(id)) {
+					LOG.warn("{}connection {} changed session {}!={}!", tag, connection.getConnectionId(), id,
+							establishedSession.getSessionIdentifier());
+				}
+			} else {
+				LOG.warn("{}connection {} lost session {}!", tag, connection.getConnectionId(), id);
+			}
+			ConnectionId connectionId = connection.getConnectionId();
+			if (connectionId != null) {
+				LeastRecentlyUsedCache<ConnectionId, Connection> stripe = getStripe(connectionId);
+				synchronized (stripe) {
+					stripe.update(connectionId);
+				}
+			}
+		}
+		return connection;
+	}
+
+	@Override
+	public void markAllAsResumptionRequired() {
+		Iterator<Connection> iterator = iterator();
+		while (iterator.hasNext()) {
+			Connection connection = iterator.next();
+			if (connection.getPeerAddress() != null && !connection.isResumptionRequired()) {
+				connection.setResumptionRequired(true);
+				LOG.debug("{}connection: mark for resumption {}!", tag, connection);
+			}
+		}
+	}
+
+	@Override
+	public int remainingCapacity() {
+		int remaining = 0;
+		for (LeastRecentlyUsedCache<ConnectionId, Connection> stripe : stripes) {
+			remaining += stripe.remainingCapacity();
+		}
+		LOG.debug("{}connection: size {}, remaining {}!", tag, capacity - remaining, remaining);
+		return remaining;
+	}
+
+	@Override
+	public Connection get(final InetSocketAddress peerAddress) {
+		Connection connection = connectionsByAddress.get(peerAddress);
+		if (connection == null) {
+			LOG.debug("{}connection: missing connection for {}!", tag, peerAddress);
+		} else {
+			InetSocketAddress address = connection.getPeerAddress();
+			if (address == null) {
+				LOG.warn("{}connection {} lost ip-address {}!", tag, connection.getConnectionId(), peerAddress);
+			} else if (!address.equals(peerAddress)) {
+				LOG.warn("{}connection {} changed ip-address {}!={}!", tag, connection.getConnectionId(), peerAddress,
+						address);
+			}
+		}
+		return connection;
+	}
+
+	@Override
+	public Connection get(final ConnectionId cid) {
+		if (cid == null) {
+			return null;
+		}
+		// lock-free, the stripes neither update nor evict on read access
+		Connection connection = getStripe(cid).get(cid);
+		if (connection == null) {
+			LOG.debug("{}connection: missing connection for {}!", tag, cid);
+		} else {
+			ConnectionId connectionId = connection.getConnectionId();
+			if (connectionId == null) {
+				LOG.warn("{}connection lost cid {}!", tag, cid);
+			} else if (!connectionId.equals(cid)) {
+				LOG.warn("{}connection changed cid {}!={}!", tag, connectionId, cid);
+			}
+		}
+		return connection;
+	}
+
+	@Override
+	public boolean remove(final Connection connection) {
+		return remove(connection, true);
+	}
+
+	@Override
+	public boolean remove(final Connection connection, final boolean removeFromSessionCache) {
+		ConnectionId connectionId = connection.getConnectionId();
+		if (connectionId == null) {
+			return false;
+		}
+		LeastRecentlyUsedCache<ConnectionId, Connection> stripe = getStripe(connectionId);
+		int size;
+		synchronized (stripe) {
+			if (stripe.remove(connectionId, connection) != connection) {
+				return false;
+			}
+			size = stripe.size();
+		}
+		List<Runnable> pendings = connection.getExecutor().shutdownNow();
+		if (LOG.isTraceEnabled()) {
+			LOG.trace("{}connection: remove {} (stripe size {}, left jobs: {})", tag, connection, size,
+					pendings.size(), new Throwable("connection removed!"));
+		} else if (pendings.isEmpty()) {
+			LOG.debug("{}connection: remove {} (stripe size {})", tag, connection, size);
+		} else {
+			LOG.debug("{}connection: remove {} (stripe size {}, left jobs: {})", tag, connection, size,
+					pendings.size());
+		}
+		if (removeFromSessionCache) {
+			removeSessionFromCache(connection);
+		}
+		removeFromEstablishedSessions(connection);
+		removeFromAddressConnections(connection);
+		ConnectionListener listener = connectionListener;
+		if (listener != null) {
+			listener.onConnectionRemoved(connection);
+		}
+		return true;
+	}
+
+	private void removeFromEstablishedSessions(Connection connection) {
+		DTLSSession establishedSession = connection.getEstablishedSession();
+		if (establishedSession != null) {
+			SessionId sessionId = establishedSession.getSessionIdentifier();
+			connectionsByEstablishedSession.remove(sessionId, connection);
+			SecretUtil.destroy(establishedSession);
+		}
+	}
+
+	private void removeFromAddressConnections(Connection connection) {
+		InetSocketAddress peerAddress = connection.getPeerAddress();
+		if (peerAddress != null) {
+			connectionsByAddress.remove(peerAddress, connection);
+			connection.updatePeerAddress(null);
+		}
+	}
+
+	private void removeSessionFromCache(final Connection connection) {
+		if (sessionCache != null) {
+			DTLSSession establishedSession = connection.getEstablishedSession();
+			if (establishedSession != null) {
+				SessionId sessionId = establishedSession.getSessionIdentifier();
+				sessionCache.remove(sessionId);
+			}
+		}
+	}
+
+	private void addToAddressConnections(Connection connection) {
+		final InetSocketAddress peerAddress = connection.getPeerAddress();
+		if (peerAddress != null) {
+			final Connection previous = connectionsByAddress.put(peerAddress, connection);
+			if (previous != null && previous != connection) {
+				Runnable removeAddress = new Runnable() {
+
+					@Override
+					public void run() {
+						if (previous.equalsPeerAddress(peerAddress)) {
+							previous.updatePeerAddress(null);
+						}
+					}
+				};
+				LOG.debug("{}connection: {} - {} added! {} removed from address.", tag, connection.getConnectionId(),
+						peerAddress, previous.getConnectionId());
+				if (previous.isExecuting()) {
+					previous.getExecutor().execute(removeAddress);
+				} else {
+					removeAddress.run();
+				}
+			} else {
+				LOG.debug("{}connection: {} - {} added!", tag, connection.getConnectionId(), peerAddress);
+			}
+		} else {
+			LOG.debug("{}connection: {} - missing address!", tag, connection.getConnectionId());
+		}
+	}
+
+	@Override
+	public final void clear() {
+		for (LeastRecentlyUsedCache<ConnectionId, Connection> stripe : stripes) {
+			synchronized (stripe) {
+				for (Connection connection : stripe.values()) {
+					SerialExecutor executor = connection.getExecutor();
+					if (executor != null) {
+						executor.shutdownNow();
+					}
+				}
+				stripe.clear();
+			}
+		}
+		connectionsByEstablishedSession.clear();
+		connectionsByAddress.clear();
+	}
+
+	@Override
+	public final void stop(List<Runnable> pending) {
+		Iterator<Connection> iterator = iterator();
+		while (iterator.hasNext()) {
+			SerialExecutor executor = iterator.next().getExecutor();
+			if (executor != null) {
+				executor.shutdownNow(pending);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Iterates the stripes one after the other.
+	 *
+	 * @see LeastRecentlyUsedCache#valuesIterator()
+	 */
+	@Override
+	public Iterator<Connection> iterator() {
+		return new Iterator<Connection>() {
+
+			private int index;
+			private Iterator<Connection> current = stripes[0].valuesIterator();
+
+			@Override
+			public boolean hasNext() {
+				while (!current.hasNext()) {
+					if (++index >= stripes.length) {
+						return false;
+					}
+					current = stripes[index].valuesIterator();
+				}
+				return true;
+			}
+
+			@Override
+			public Connection next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return current.next();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
@@ -35,16 +35,23 @@
  *    Achim Kraus (Bosch Software Innovations GmbH) - add connection id as primary 
  *                                                    lookup key. redesign to make 
  *                                                    the connection modifiable
+ *    Bosch.IO GmbH                                 - compact idle established
+ *                                                    sessions
  ******************************************************************************/
 package org.eclipse.californium.scandium.dtls;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
 import java.util.ConcurrentModificationException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.eclipse.californium.elements.util.Bytes;
 import org.eclipse.californium.elements.util.ClockUtil;
+import org.eclipse.californium.elements.util.DatagramReader;
+import org.eclipse.californium.elements.util.DatagramWriter;
 import org.eclipse.californium.elements.util.SerialExecutor;
 import org.eclipse.californium.elements.util.SerialExecutor.ExecutionListener;
 import org.eclipse.californium.elements.util.StringUtil;
@@ -88,6 +95,15 @@ public final class Connection {
 	private SessionId sessionId;
 
 	private volatile DTLSSession establishedSession;
+	/**
+	 * Compacted established session. Written state of the established
+	 * session, while the connection is idle. {@code null}, if the connection
+	 * is not compacted.
+	 * 
+	 * @see #compact(long)
+	 * @since 2.5
+	 */
+	private volatile byte[] compactedSession;
 	// Used to know when an abbreviated handshake should be initiated
 	private volatile boolean resumptionRequired; 
 
@@ -230,7 +246,7 @@ public final class Connection {
 	 *         contains a session ticket that it can be resumed from.
 	 */
 	public boolean isActive() {
-		return establishedSession != null || ticket != null;
+		return hasEstablishedSession() || ticket != null;
 	}
 
 	/**
@@ -319,6 +335,7 @@ public final class Connection {
 	 */
 	public void updatePeerAddress(InetSocketAddress peerAddress) {
 		if (!equalsPeerAddress(peerAddress)) {
+			DTLSSession establishedSession = getEstablishedSession();
 			if (establishedSession == null && peerAddress != null) {
 				throw new IllegalArgumentException("Address change without established sesson is not supported!");
 			}
@@ -363,16 +380,99 @@ public final class Connection {
 	 * @return the session or <code>null</code> if no session has been established (yet)
 	 */
 	public DTLSSession getEstablishedSession() {
-		return establishedSession;
+		DTLSSession session = establishedSession;
+		if (session == null && compactedSession != null) {
+			session = inflate();
+		}
+		return session;
 	}
 
 	/**
 	 * Checks whether a session has already been established with the peer.
 	 * 
+	 * A compacted session is not inflated by this check.
+	 * 
 	 * @return <code>true</code> if a session has been established
 	 */
 	public boolean hasEstablishedSession() {
-		return establishedSession != null;
+		return establishedSession != null || compactedSession != null;
+	}
+
+	/**
+	 * Checks whether the established session is compacted.
+	 * 
+	 * @return {@code true}, if the established session is compacted,
+	 *         {@code false}, otherwise.
+	 * @see #compact(long)
+	 * @since 2.5
+	 */
+	public boolean isCompacted() {
+		return compactedSession != null;
+	}
+
+	/**
+	 * Compact established session of idle connection.
+	 * 
+	 * Replaces the established session, including the read and write states
+	 * with their keys, by its written state. The session is inflated again on
+	 * the next access by {@link #getEstablishedSession()} or
+	 * {@link #getSession()}. Must be called within the serial execution of
+	 * this connection, that ensures, that the session is not used
+	 * concurrently.
+	 * 
+	 * @param idleNanos minimum idle time in nanoseconds since the last
+	 *            received message.
+	 * @return {@code true}, if the session is compacted, {@code false},
+	 *         if the connection is not idle, is not executed by the current
+	 *         thread, has an ongoing handshake, or the session can't be
+	 *         written.
+	 * @see DTLSSession#write(DatagramWriter)
+	 * @since 2.5
+	 */
+	public synchronized boolean compact(long idleNanos) {
+		DTLSSession session = establishedSession;
+		if (session == null || ongoingHandshake.get() != null) {
+			return false;
+		}
+		SerialExecutor executor = serialExecutor;
+		if (executor == null || !executor.checkOwner()) {
+			return false;
+		}
+		if (ClockUtil.nanoRealtime() - lastMessageNanos < idleNanos) {
+			return false;
+		}
+		DatagramWriter writer = new DatagramWriter(true);
+		try {
+			session.write(writer);
+			compactedSession = writer.toByteArray();
+			establishedSession = null;
+			LOGGER.trace("Session with [{}] compacted to {} bytes", peerAddress, compactedSession.length);
+			return true;
+		} catch (IllegalStateException ex) {
+			LOGGER.trace("Session with [{}] not compacted: {}", peerAddress, ex.getMessage());
+			return false;
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Inflate compacted session.
+	 * 
+	 * @return inflated session, or {@code null}, if not available.
+	 * @since 2.5
+	 */
+	private synchronized DTLSSession inflate() {
+		DTLSSession session = establishedSession;
+		byte[] data = compactedSession;
+		if (session == null && data != null) {
+			session = DTLSSession.fromReader(new DatagramReader(data, false), peerAddress);
+			establishedSession = session;
+			compactedSession = null;
+			Bytes.clear(data);
+			LOGGER.trace("Session with [{}] inflated", peerAddress);
+		}
+		return session;
 	}
 
 	/**
@@ -458,7 +558,7 @@ public final class Connection {
 	 *         matching read epoch
 	 */
 	public DTLSSession getSession(int readEpoch) {
-		DTLSSession session = establishedSession;
+		DTLSSession session = getEstablishedSession();
 		if (session != null && session.getReadEpoch() == readEpoch) {
 			return session;
 		}
@@ -482,7 +582,7 @@ public final class Connection {
 	 *         established session nor an ongoing handshake exists
 	 */
 	public DTLSSession getSession() {
-		DTLSSession session = establishedSession;
+		DTLSSession session = getEstablishedSession();
 		if (session == null) {
 			Handshaker handshaker = ongoingHandshake.get();
 			if (handshaker != null) {
@@ -502,10 +602,17 @@ public final class Connection {
 	 *             ticket is available
 	 */
 	public void resetSession() {
-		if (establishedSession == null && ticket == null) {
+		if (!hasEstablishedSession() && ticket == null) {
 			throw new IllegalStateException("No session established nor ticket available!");
 		}
-		establishedSession = null;
+		synchronized (this) {
+			establishedSession = null;
+			byte[] data = compactedSession;
+			if (data != null) {
+				compactedSession = null;
+				Bytes.clear(data);
+			}
+		}
 		sessionId = null;
 		ticket = null;
 		resumptionRequired = false;
@@ -534,7 +641,7 @@ public final class Connection {
 	 * @since 2.3
 	 */
 	public void close(Record record) {
-		DTLSSession session = establishedSession;
+		DTLSSession session = getEstablishedSession();
 		if (session != null) {
 			session.markCloseNotiy(record.getEpoch(), record.getSequenceNumber());
 		}
@@ -560,7 +667,7 @@ public final class Connection {
 	 *         expired without exchanging messages.
 	 */
 	public boolean isAutoResumptionRequired(Long autoResumptionTimeoutMillis) {
-		if (!resumptionRequired && autoResumptionTimeoutMillis != null && establishedSession != null) {
+		if (!resumptionRequired && autoResumptionTimeoutMillis != null && hasEstablishedSession()) {
 			long now = ClockUtil.nanoRealtime();
 			long expires = lastMessageNanos + TimeUnit.MILLISECONDS.toNanos(autoResumptionTimeoutMillis);
 			if ((now - expires) > 0) {
@@ -605,14 +712,17 @@ public final class Connection {
 					builder.append(StringUtil.byteArray2HexString(id.getBytes(), StringUtil.NO_SEPARATOR, 6));
 				}
 			}
+			DTLSSession session = establishedSession;
 			if (isResumptionRequired()) {
 				builder.append(", resumption required");
-			} else if (hasEstablishedSession()) {
+			} else if (session != null) {
 				builder.append(", session established ");
-				SessionId id = getEstablishedSession().getSessionIdentifier();
+				SessionId id = session.getSessionIdentifier();
 				if (id != null && !id.isEmpty()) {
 					builder.append(StringUtil.byteArray2HexString(id.getBytes(), StringUtil.NO_SEPARATOR, 6));
 				}
+			} else if (isCompacted()) {
+				builder.append(", session compacted");
 			}
 		}
 		if (sessionId != null) {
@@ -625,6 +735,71 @@ public final class Connection {
 		return builder.toString();
 	}
 
+	/**
+	 * Write established connection.
+	 * <p>
+	 * Writes the peer address, the connection id and the established session
+	 * with its current read and write state. Used to save the connection on a
+	 * graceful shutdown and to continue it after a restart using
+	 * {@link #fromReader(DatagramReader, SerialExecutor)}.
+	 * </p>
+	 * <b>Note:</b> the written state contains the keys of the session and
+	 * must be protected.
+	 * 
+	 * @param writer writer to write the connection to
+	 * @throws IllegalStateException if the connection has no established
+	 *             session, peer address or connection id.
+	 * @see DTLSSession#write(DatagramWriter)
+	 * @since 2.5
+	 */
+	public void write(DatagramWriter writer) {
+		DTLSSession session = getEstablishedSession();
+		InetSocketAddress address = peerAddress;
+		if (session == null) {
+			throw new IllegalStateException("connection has no established session!");
+		}
+		if (address == null) {
+			throw new IllegalStateException("connection has no peer address!");
+		}
+		if (cid == null) {
+			throw new IllegalStateException("connection has no connection id!");
+		}
+		byte[] ip = address.getAddress().getAddress();
+		writer.write(ip.length, Byte.SIZE);
+		writer.writeBytes(ip);
+		writer.write(address.getPort(), 16);
+		writer.write(cid.length(), Byte.SIZE);
+		writer.writeBytes(cid.getBytes());
+		writer.write(resumptionRequired ? 1 : 0, Byte.SIZE);
+		session.write(writer);
+	}
+
+	/**
+	 * Read connection written by {@link #write(DatagramWriter)}.
+	 * 
+	 * @param reader reader with the connection
+	 * @param serialExecutor serial executor of the connection.
+	 * @return restored connection with established session.
+	 * @throws IllegalArgumentException if the connection could not be read
+	 * @throws NullPointerException if the serial executor is {@code null}
+	 * @since 2.5
+	 */
+	public static Connection fromReader(DatagramReader reader, SerialExecutor serialExecutor) {
+		byte[] ip = reader.readBytes(reader.read(Byte.SIZE));
+		int port = reader.read(16);
+		InetSocketAddress address;
+		try {
+			address = new InetSocketAddress(InetAddress.getByAddress(ip), port);
+		} catch (UnknownHostException ex) {
+			throw new IllegalArgumentException("invalid peer address!", ex);
+		}
+		Connection connection = new Connection(address, serialExecutor);
+		connection.cid = new ConnectionId(reader.readBytes(reader.read(Byte.SIZE)));
+		connection.resumptionRequired = reader.read(Byte.SIZE) == 1;
+		connection.establishedSession = DTLSSession.fromReader(reader, address);
+		return connection;
+	}
+
 	private class ConnectionSessionListener implements SessionListener {
 		@Override
 		public void handshakeStarted(Handshaker handshaker)	throws HandshakeException {
@@ -634,7 +809,10 @@ public final class Connection {
 
 		@Override
 		public void sessionEstablished(Handshaker handshaker, DTLSSession session) throws HandshakeException {
-			establishedSession = session;
+			synchronized (Connection.this) {
+				establishedSession = session;
+				compactedSession = null;
+			}
 			LOGGER.debug("Session with [{}] has been established", session.getPeer());
 		}
 
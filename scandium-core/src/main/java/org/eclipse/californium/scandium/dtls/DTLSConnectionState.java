@@ -18,18 +18,24 @@
  *    Kai Hudalla (Bosch Software Innovations GmbH) - add toString()
  *    Kai Hudalla (Bosch Software Innovations GmbH) - improve JavaDocs, add method for retrieving
  *                                                    maximum ciphertext expansion of cipher suite
+ *    Bosch.IO GmbH                                 - add decrypt for slices
  ******************************************************************************/
 package org.eclipse.californium.scandium.dtls;
 
 import java.security.GeneralSecurityException;
+import java.util.Arrays;
 
 import javax.crypto.SecretKey;
 import javax.security.auth.DestroyFailedException;
 import javax.security.auth.Destroyable;
 
+import org.eclipse.californium.elements.util.Bytes;
+import org.eclipse.californium.elements.util.DatagramReader;
+import org.eclipse.californium.elements.util.DatagramWriter;
 import org.eclipse.californium.elements.util.StringUtil;
 import org.eclipse.californium.scandium.dtls.cipher.CipherSuite;
 import org.eclipse.californium.scandium.util.SecretIvParameterSpec;
+import org.eclipse.californium.scandium.util.SecretUtil;
 
 /**
  * A set of algorithms and corresponding security parameters that together
@@ -76,6 +82,10 @@ public abstract class DTLSConnectionState implements Destroyable {
 			return false;
 		}
 
+		@Override
+		void write(DatagramWriter writer) {
+		}
+
 	};
 
 	/**
@@ -105,6 +115,67 @@ public abstract class DTLSConnectionState implements Destroyable {
 			throw new IllegalArgumentException("cipher type " + cipherSuite.getCipherType() + " not supported!");
 		}
 	}
+
+	/**
+	 * Read connection state.
+	 * 
+	 * @param cipherSuite cipher suite of the state
+	 * @param compressionMethod compression method of the state
+	 * @param reader reader with the keys written by
+	 *            {@link #write(DatagramWriter)}.
+	 * @return connection state
+	 * @throws IllegalArgumentException if the reader doesn't contain the
+	 *             keys for the cipher suite
+	 * @since 2.5
+	 */
+	static DTLSConnectionState fromReader(CipherSuite cipherSuite, CompressionMethod compressionMethod,
+			DatagramReader reader) {
+		SecretKey encryptionKey = null;
+		SecretKey macKey = null;
+		SecretIvParameterSpec iv = null;
+		switch (cipherSuite.getCipherType()) {
+		case NULL:
+			return NULL;
+		case BLOCK:
+			encryptionKey = readKey(reader, cipherSuite.getEncKeyLength(), "AES");
+			macKey = readKey(reader, cipherSuite.getMacKeyLength(), "Mac");
+			break;
+		case AEAD:
+			encryptionKey = readKey(reader, cipherSuite.getEncKeyLength(), "AES");
+			byte[] data = reader.readBytes(cipherSuite.getFixedIvLength());
+			iv = SecretUtil.createIv(data, 0, data.length);
+			Bytes.clear(data);
+			break;
+		default:
+			throw new IllegalArgumentException("cipher type " + cipherSuite.getCipherType() + " not supported!");
+		}
+		DTLSConnectionState state = create(cipherSuite, compressionMethod, encryptionKey, iv, macKey);
+		SecretUtil.destroy(encryptionKey);
+		SecretUtil.destroy(macKey);
+		SecretUtil.destroy(iv);
+		return state;
+	}
+
+	private static SecretKey readKey(DatagramReader reader, int length, String algorithm) {
+		byte[] data = reader.readBytes(length);
+		SecretKey key = SecretUtil.create(data, algorithm);
+		Bytes.clear(data);
+		return key;
+	}
+
+	/**
+	 * Write key to writer.
+	 * 
+	 * @param writer writer
+	 * @param key key to write
+	 * @since 2.5
+	 */
+	protected static void writeKey(DatagramWriter writer, SecretKey key) {
+		byte[] data = key.getEncoded();
+		writer.writeBytes(data);
+		Bytes.clear(data);
+	}
+
 	// Members ////////////////////////////////////////////////////////
 
 	protected final CipherSuite cipherSuite;
@@ -162,6 +233,19 @@ public abstract class DTLSConnectionState implements Destroyable {
 	 */
 	public abstract byte[] encrypt(Record record, byte[] fragment) throws GeneralSecurityException;
 
+	/**
+	 * Write the keys of this state.
+	 * 
+	 * Cipher suite and compression method are not written, they must be
+	 * provided to {@link #fromReader(CipherSuite, CompressionMethod, DatagramReader)}.
+	 * 
+	 * <b>Note:</b> the written keys are secrets and must be protected.
+	 * 
+	 * @param writer writer to write the keys to.
+	 * @since 2.5
+	 */
+	abstract void write(DatagramWriter writer);
+
 	/**
 	 * Decrypt fragment for provided record.
 	 * 
@@ -172,6 +256,29 @@ public abstract class DTLSConnectionState implements Destroyable {
 	 */
 	public abstract byte[] decrypt(Record record, byte[] ciphertextFragment) throws GeneralSecurityException;
 
+	/**
+	 * Decrypt fragment slice for provided record.
+	 * 
+	 * This default implementation copies the slice, if it's not the complete
+	 * byte array, and calls {@link #decrypt(Record, byte[])}. Cipher states,
+	 * which are able to process the slice directly, override this method.
+	 * 
+	 * @param record record to decrypt fragment for
+	 * @param buffer buffer with encrypted fragment
+	 * @param offset offset of the encrypted fragment in the buffer
+	 * @param length length of the encrypted fragment
+	 * @return fragment. Not sharing the buffer, if the slice is not the
+	 *         complete byte array.
+	 * @throws GeneralSecurityException if an error occurred during decryption
+	 * @since 2.5
+	 */
+	public byte[] decrypt(Record record, byte[] buffer, int offset, int length) throws GeneralSecurityException {
+		if (offset == 0 && length == buffer.length) {
+			return decrypt(record, buffer);
+		}
+		return decrypt(record, Arrays.copyOfRange(buffer, offset, offset + length));
+	}
+
 	/**
 	 * Gets the algorithm used for reducing the size of <em>plaintext</em> data
 	 * to be exchanged with a peer by means of TLS <em>APPLICATION_DATA</em>
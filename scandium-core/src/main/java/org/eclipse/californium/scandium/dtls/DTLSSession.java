@@ -47,6 +47,7 @@
 package org.eclipse.californium.scandium.dtls;
 
 import java.net.InetSocketAddress;
+import java.security.GeneralSecurityException;
 import java.security.Principal;
 
 import javax.crypto.SecretKey;
@@ -55,7 +56,10 @@ import javax.security.auth.Destroyable;
 
 import org.eclipse.californium.elements.DtlsEndpointContext;
 import org.eclipse.californium.elements.util.Bytes;
+import org.eclipse.californium.elements.util.DatagramReader;
+import org.eclipse.californium.elements.util.DatagramWriter;
 import org.eclipse.californium.elements.util.StringUtil;
+import org.eclipse.californium.scandium.auth.PrincipalSerializer;
 import org.eclipse.californium.scandium.dtls.cipher.CipherSuite;
 import org.eclipse.californium.scandium.dtls.cipher.CipherSuite.KeyExchangeAlgorithm;
 import org.eclipse.californium.scandium.util.SecretUtil;
@@ -309,6 +313,21 @@ public final class DTLSSession implements Destroyable {
 		}
 	}
 
+	/**
+	 * Creates a session to restore the state written by
+	 * {@link #write(DatagramWriter)}.
+	 * 
+	 * @param peerAddress the IP address and port of the peer
+	 * @param creationTime creation time of session
+	 * @param handshakeTimeTag handshake time tag of session
+	 * @since 2.5
+	 */
+	private DTLSSession(InetSocketAddress peerAddress, long creationTime, String handshakeTimeTag) {
+		this.creationTime = creationTime;
+		this.handshakeTimeTag = handshakeTimeTag;
+		this.peer = peerAddress;
+	}
+
 	// Getters and Setters ////////////////////////////////////////////
 
 	@Override
@@ -1218,4 +1237,149 @@ public final class DTLSSession implements Destroyable {
 				getPeerIdentity(),
 				creationTime);
 	}
+
+	/**
+	 * Write the current state of this established session.
+	 * <p>
+	 * Writes the session id, the negotiated parameters including the signature
+	 * and hash algorithm, the current read and write states with their keys,
+	 * the write sequence number and the receive window. Used to save the
+	 * session on a graceful shutdown and to continue it after a restart using
+	 * {@link #fromReader(DatagramReader, InetSocketAddress)}.
+	 * </p>
+	 * <b>Note:</b> the written state contains the keys of the session and
+	 * must be protected. It must also be restored only once, otherwise
+	 * sequence numbers are reused with the same keys.
+	 * 
+	 * @param writer writer to write the session to
+	 * @throws IllegalStateException if the session is not established in
+	 *             epoch 1, or is marked as closed.
+	 * @since 2.5
+	 */
+	public void write(DatagramWriter writer) {
+		if (readEpoch != 1 || writeEpoch != 1) {
+			throw new IllegalStateException("session not established in epoch 1!");
+		}
+		if (markedAsclosed) {
+			throw new IllegalStateException("session is closed!");
+		}
+		writer.writeLong(creationTime, Long.SIZE);
+		writer.writeLong(Long.parseLong(handshakeTimeTag), Long.SIZE);
+		writer.write(sessionIdentifier.length(), Byte.SIZE);
+		writer.writeBytes(sessionIdentifier.getBytes());
+		writer.write(writeState.getCipherSuite().getCode(), CipherSuite.CIPHER_SUITE_BITS);
+		writer.write(writeState.getCompressionMethod().getCode(), CompressionMethod.COMPRESSION_METHOD_BITS);
+		if (masterSecret == null) {
+			writer.write(0, Byte.SIZE);
+		} else {
+			byte[] secret = masterSecret.getEncoded();
+			writer.write(secret.length, Byte.SIZE);
+			writer.writeBytes(secret);
+			Bytes.clear(secret);
+		}
+		PrincipalSerializer.serialize(peerIdentity, writer);
+		writer.write(recordSizeLimit == null ? 0 : recordSizeLimit, 16);
+		writer.write(maxFragmentLength, 16);
+		if (writeConnectionId == null) {
+			writer.write(0, Byte.SIZE);
+		} else {
+			writer.write(1, Byte.SIZE);
+			writer.write(writeConnectionId.length(), Byte.SIZE);
+			writer.writeBytes(writeConnectionId.getBytes());
+		}
+		writer.write(sendCertificateType.getCode(), Byte.SIZE);
+		writer.write(receiveCertificateType.getCode(), Byte.SIZE);
+		if (signatureAndHashAlgorithm == null) {
+			writer.write(0, Byte.SIZE);
+		} else {
+			writer.write(1, Byte.SIZE);
+			writer.write(signatureAndHashAlgorithm.getHash().getCode(), Byte.SIZE);
+			writer.write(signatureAndHashAlgorithm.getSignature().getCode(), Byte.SIZE);
+		}
+		writer.write(peerSupportsSni ? 1 : 0, Byte.SIZE);
+		writer.write(parameterAvailable ? 1 : 0, Byte.SIZE);
+		if (serverNames == null) {
+			writer.write(0, Byte.SIZE);
+		} else {
+			writer.write(1, Byte.SIZE);
+			serverNames.encode(writer);
+		}
+		readState.write(writer);
+		writeState.write(writer);
+		writer.writeLong(sequenceNumbers[writeEpoch], 48);
+		writer.writeLong(receiveWindowUpperCurrent, Long.SIZE);
+		writer.writeLong(receiveWindowLowerBoundary, Long.SIZE);
+		writer.writeLong(receivedRecordsVector, Long.SIZE);
+	}
+
+	/**
+	 * Read session state written by {@link #write(DatagramWriter)}.
+	 * 
+	 * The session continues with the restored read and write states, sequence
+	 * numbers and receive window in epoch 1.
+	 * 
+	 * @param reader reader with the session state
+	 * @param peerAddress address of the peer
+	 * @return restored session
+	 * @throws IllegalArgumentException if the session state could not be read
+	 * @since 2.5
+	 */
+	public static DTLSSession fromReader(DatagramReader reader, InetSocketAddress peerAddress) {
+		long creationTime = reader.readLong(Long.SIZE);
+		String handshakeTimeTag = Long.toString(reader.readLong(Long.SIZE));
+		DTLSSession session = new DTLSSession(peerAddress, creationTime, handshakeTimeTag);
+		session.sessionIdentifier = new SessionId(reader.readBytes(reader.read(Byte.SIZE)));
+		int code = reader.read(CipherSuite.CIPHER_SUITE_BITS);
+		CipherSuite cipherSuite = CipherSuite.getTypeByCode(code);
+		if (cipherSuite == null) {
+			throw new IllegalArgumentException("cipher suite " + code + " not supported!");
+		}
+		code = reader.read(CompressionMethod.COMPRESSION_METHOD_BITS);
+		CompressionMethod compressionMethod = CompressionMethod.getMethodByCode(code);
+		if (compressionMethod == null) {
+			throw new IllegalArgumentException("compression method " + code + " not supported!");
+		}
+		session.cipherSuite = cipherSuite;
+		session.compressionMethod = compressionMethod;
+		int length = reader.read(Byte.SIZE);
+		if (length > 0) {
+			byte[] secret = reader.readBytes(length);
+			session.masterSecret = SecretUtil.create(secret, "MAC");
+			Bytes.clear(secret);
+		}
+		try {
+			session.peerIdentity = PrincipalSerializer.deserialize(reader);
+		} catch (GeneralSecurityException ex) {
+			throw new IllegalArgumentException("peer identity not supported!", ex);
+		}
+		length = reader.read(16);
+		session.recordSizeLimit = length == 0 ? null : length;
+		session.maxFragmentLength = reader.read(16);
+		if (reader.read(Byte.SIZE) == 1) {
+			session.writeConnectionId = new ConnectionId(reader.readBytes(reader.read(Byte.SIZE)));
+		}
+		session.sendCertificateType = CertificateType.getTypeFromCode(reader.read(Byte.SIZE));
+		session.receiveCertificateType = CertificateType.getTypeFromCode(reader.read(Byte.SIZE));
+		if (reader.read(Byte.SIZE) == 1) {
+			int hashCode = reader.read(Byte.SIZE);
+			int signatureCode = reader.read(Byte.SIZE);
+			session.signatureAndHashAlgorithm = new SignatureAndHashAlgorithm(hashCode, signatureCode);
+		}
+		session.peerSupportsSni = reader.read(Byte.SIZE) == 1;
+		session.parameterAvailable = reader.read(Byte.SIZE) == 1;
+		if (reader.read(Byte.SIZE) == 1) {
+			ServerNames serverNames = ServerNames.newInstance();
+			serverNames.decode(reader);
+			session.setServerNames(serverNames);
+		}
+		session.readState = DTLSConnectionState.fromReader(cipherSuite, compressionMethod, reader);
+		session.writeState = DTLSConnectionState.fromReader(cipherSuite, compressionMethod, reader);
+		session.readEpoch = 1;
+		session.writeEpoch = 1;
+		session.sequenceNumbers[1] = reader.readLong(48);
+		session.receiveWindowUpperCurrent = reader.readLong(Long.SIZE);
+		session.receiveWindowLowerBoundary = reader.readLong(Long.SIZE);
+		session.receivedRecordsVector = reader.readLong(Long.SIZE);
+		return session;
+	}
 }
@@ -22,6 +22,7 @@ import javax.crypto.SecretKey;
 import javax.security.auth.DestroyFailedException;
 
 import org.eclipse.californium.elements.util.Bytes;
+import org.eclipse.californium.elements.util.DatagramWriter;
 import org.eclipse.californium.elements.util.StringUtil;
 import org.eclipse.californium.scandium.dtls.cipher.AeadBlockCipher;
 import org.eclipse.californium.scandium.dtls.cipher.CipherSuite;
@@ -65,6 +66,14 @@ public class DtlsAeadConnectionState extends DTLSConnectionState {
 		this.iv = SecretUtil.createIv(iv);
 	}
 
+	@Override
+	void write(DatagramWriter writer) {
+		writeKey(writer, encryptionKey);
+		byte[] data = iv.getIV();
+		writer.writeBytes(data);
+		Bytes.clear(data);
+	}
+
 	@Override
 	public void destroy() throws DestroyFailedException {
 		SecretUtil.destroy(encryptionKey);
@@ -126,7 +135,23 @@ public class DtlsAeadConnectionState extends DTLSConnectionState {
 	public byte[] decrypt(Record record, byte[] ciphertextFragment) throws GeneralSecurityException {
 		if (ciphertextFragment == null) {
 			throw new NullPointerException("Ciphertext must not be null");
-		} else if (ciphertextFragment.length < getRecordIvLength() + getMacLength()) {
+		}
+		return decrypt(record, ciphertextFragment, 0, ciphertextFragment.length);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Decrypts the slice directly without copying it.
+	 * 
+	 * @since 2.5
+	 */
+	@Override
+	public byte[] decrypt(Record record, byte[] ciphertextFragment, int offset, int length)
+			throws GeneralSecurityException {
+		if (ciphertextFragment == null) {
+			throw new NullPointerException("Ciphertext must not be null");
+		} else if (length < getRecordIvLength() + getMacLength()) {
 			throw new GeneralSecurityException("Ciphertext too short!");
 		}
 		/*
@@ -137,13 +162,12 @@ public class DtlsAeadConnectionState extends DTLSConnectionState {
 		 * The decrypted message is always 16/24 bytes shorter than the cipher
 		 * (8/16 for the authentication tag and 8 for the explicit nonce).
 		 */
-		int applicationDataLength = ciphertextFragment.length - cipherSuite.getRecordIvLength()
-				- cipherSuite.getMacLength();
+		int applicationDataLength = length - cipherSuite.getRecordIvLength() - cipherSuite.getMacLength();
 		byte[] additionalData = record.generateAdditionalData(applicationDataLength);
 
 		// retrieve actual explicit nonce as contained in GenericAEADCipher
 		// struct (8 bytes long)
-		byte[] nonce = iv.getIV(ciphertextFragment, 0, cipherSuite.getRecordIvLength());
+		byte[] nonce = iv.getIV(ciphertextFragment, offset, cipherSuite.getRecordIvLength());
 
 		if (LOGGER.isTraceEnabled()) {
 			LOGGER.trace("decrypt: {} bytes", applicationDataLength);
@@ -152,7 +176,8 @@ public class DtlsAeadConnectionState extends DTLSConnectionState {
 		}
 		if (LOGGER.isDebugEnabled() && AeadBlockCipher.AES_CCM.equals(cipherSuite.getTransformation())) {
 			// create explicit nonce from values provided in DTLS record
-			byte[] explicitNonceUsed = Arrays.copyOf(ciphertextFragment, cipherSuite.getRecordIvLength());
+			byte[] explicitNonceUsed = Arrays.copyOfRange(ciphertextFragment, offset,
+					offset + cipherSuite.getRecordIvLength());
 			// retrieve actual explicit nonce as contained in GenericAEADCipher
 			// struct (8 bytes long)
 			byte[] explicitNonce = record.generateExplicitNonce();
@@ -167,7 +192,7 @@ public class DtlsAeadConnectionState extends DTLSConnectionState {
 			}
 		}
 		byte[] payload = AeadBlockCipher.decrypt(cipherSuite, encryptionKey, nonce, additionalData, ciphertextFragment,
-				cipherSuite.getRecordIvLength(), ciphertextFragment.length - cipherSuite.getRecordIvLength());
+				offset + cipherSuite.getRecordIvLength(), length - cipherSuite.getRecordIvLength());
 		Bytes.clear(nonce);
 		return payload;
 	}
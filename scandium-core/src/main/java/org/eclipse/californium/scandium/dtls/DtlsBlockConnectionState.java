@@ -20,6 +20,7 @@ import java.security.GeneralSecurityException;
 import javax.crypto.SecretKey;
 import javax.security.auth.DestroyFailedException;
 
+import org.eclipse.californium.elements.util.DatagramWriter;
 import org.eclipse.californium.elements.util.StringUtil;
 import org.eclipse.californium.scandium.dtls.cipher.CbcBlockCipher;
 import org.eclipse.californium.scandium.dtls.cipher.CipherSuite;
@@ -58,6 +59,12 @@ public class DtlsBlockConnectionState extends DTLSConnectionState {
 		this.macKey = SecretUtil.create(macKey);
 	}
 
+	@Override
+	void write(DatagramWriter writer) {
+		writeKey(writer, encryptionKey);
+		writeKey(writer, macKey);
+	}
+
 	@Override
 	public void destroy() throws DestroyFailedException {
 		SecretUtil.destroy(encryptionKey);
@@ -55,6 +55,8 @@
  *    Achim Kraus (Bosch Software Innovations GmbH) - redesign DTLSFlight and RecordLayer
  *    Achim Kraus (Bosch Software Innovations GmbH) - remove copy of master secret
  *    Achim Kraus (Bosch Software Innovations GmbH) - redesign wrapMessage
+ *    Bosch.IO GmbH                                 - add ephemeral key pool
+ *    Bosch.IO GmbH                                 - offload crypto operations
  ******************************************************************************/
 package org.eclipse.californium.scandium.dtls;
 
@@ -77,6 +79,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -102,8 +105,11 @@ import org.eclipse.californium.scandium.auth.ApplicationLevelInfoSupplier;
 import org.eclipse.californium.scandium.config.DtlsConnectorConfig;
 import org.eclipse.californium.scandium.dtls.AlertMessage.AlertDescription;
 import org.eclipse.californium.scandium.dtls.AlertMessage.AlertLevel;
+import org.eclipse.californium.scandium.dtls.cipher.EphemeralKeyPool;
 import org.eclipse.californium.scandium.dtls.cipher.PseudoRandomFunction;
 import org.eclipse.californium.scandium.dtls.cipher.PseudoRandomFunction.Label;
+import org.eclipse.californium.scandium.dtls.cipher.XECDHECryptography;
+import org.eclipse.californium.scandium.dtls.cipher.XECDHECryptography.SupportedGroup;
 import org.eclipse.californium.scandium.dtls.pskstore.AdvancedPskStore;
 import org.eclipse.californium.scandium.dtls.x509.NewAdvancedCertificateVerifier;
 import org.eclipse.californium.scandium.util.SecretIvParameterSpec;
@@ -337,6 +343,31 @@ public abstract class Handshaker implements Destroyable {
 	 */
 	private SecretKey otherSecret;
 	private Throwable cause;
+	/**
+	 * Pool of precomputed ephemeral key pairs. {@code null}, if not used.
+	 * 
+	 * @since 2.5
+	 */
+	private EphemeralKeyPool ephemeralKeyPool;
+	/**
+	 * Executor for offloaded crypto operations. {@code null}, to execute
+	 * them by the serial executor of the connection.
+	 * 
+	 * @since 2.5
+	 */
+	private Executor cryptoExecutor;
+	/**
+	 * Handler for the results of offloaded crypto operations.
+	 * 
+	 * @since 2.5
+	 */
+	private HandshakeResultHandler cryptoResultHandler;
+	/**
+	 * Number of pending offloaded crypto operations.
+	 * 
+	 * @since 2.5
+	 */
+	private int pendingCryptoOperations;
 	/**
 	 * Custom argument for {@link AdvancedApplicationLevelInfoSupplier}.
 	 * 
@@ -527,6 +558,7 @@ public abstract class Handshaker implements Destroyable {
 					} else if (changeCipherSpec == null) {
 						// store message for later processing
 						LOGGER.debug("Change Cipher Spec is not expected and therefore kept for later processing!");
+						candidate.detach();
 						changeCipherSpec = candidate;
 						return null;
 					} else {
@@ -960,6 +992,18 @@ public abstract class Handshaker implements Destroyable {
 			if (changeCipherSuiteMessageExpected) {
 				processNextMessages(null);
 			}
+		} else if (handshakeResult instanceof CryptoResult) {
+			CryptoResult cryptoResult = (CryptoResult) handshakeResult;
+			if (cryptoResult.handshaker != this) {
+				// the handshaker, which started the operation, was replaced
+				LOGGER.debug("crypto result of other handshake dropped.");
+				SecretUtil.destroy(cryptoResult);
+				return;
+			}
+			processCryptoResult(cryptoResult);
+			if (changeCipherSuiteMessageExpected) {
+				processNextMessages(null);
+			}
 		}
 	}
 
@@ -1094,6 +1138,32 @@ public abstract class Handshaker implements Destroyable {
 		}
 	}
 
+	/**
+	 * Process result of offloaded crypto operation.
+	 * 
+	 * @param cryptoResult result of offloaded crypto operation
+	 * @throws HandshakeException if the crypto operation failed, or an error
+	 *             occurred during completion
+	 * @throws IllegalStateException if no crypto operation is pending, or
+	 *             the handshaker {@link #isDestroyed()}.
+	 * @since 2.5
+	 */
+	private void processCryptoResult(CryptoResult cryptoResult) throws HandshakeException {
+		if (pendingCryptoOperations == 0) {
+			SecretUtil.destroy(cryptoResult.secret);
+			throw new IllegalStateException("crypto operation not pending!");
+		}
+		--pendingCryptoOperations;
+		if (isDestroyed()) {
+			SecretUtil.destroy(cryptoResult.secret);
+		}
+		ensureUndestroyed();
+		if (cryptoResult.exception != null) {
+			throw cryptoResult.exception;
+		}
+		cryptoResult.operation.complete(cryptoResult.secret);
+	}
+
 	/**
 	 * Do the handshaker specific processing of successful verified certificates
 	 * 
@@ -1424,6 +1494,8 @@ public abstract class Handshaker implements Destroyable {
 		int size = incomingMessage.size();
 		if (deferredRecordsSize + size < maxDeferredProcessedIncomingRecordsSize) {
 			deferredRecordsSize += size;
+			// kept beyond the processing of the received datagram
+			incomingMessage.detach();
 			collection.add(incomingMessage);
 			return true;
 		} else {
@@ -1734,6 +1806,187 @@ public abstract class Handshaker implements Destroyable {
 		}
 	}
 
+	/**
+	 * Set pool of precomputed ephemeral key pairs.
+	 * 
+	 * @param pool pool of precomputed ephemeral key pairs. {@code null}, to
+	 *            generate the key pairs on demand.
+	 * @since 2.5
+	 */
+	public final void setEphemeralKeyPool(EphemeralKeyPool pool) {
+		this.ephemeralKeyPool = pool;
+	}
+
+	/**
+	 * Create ECDHE cryptography with ephemeral key pair.
+	 * 
+	 * Takes a precomputed key pair from the {@link EphemeralKeyPool}, if
+	 * available.
+	 * 
+	 * @param group supported group for the key exchange
+	 * @return ECDHE cryptography
+	 * @throws GeneralSecurityException if the key pair could not be generated
+	 * @since 2.5
+	 */
+	protected XECDHECryptography createEcdhe(SupportedGroup group) throws GeneralSecurityException {
+		EphemeralKeyPool pool = ephemeralKeyPool;
+		if (pool != null) {
+			return pool.take(group);
+		}
+		return new XECDHECryptography(group);
+	}
+
+	/**
+	 * Set executor for offloaded crypto operations.
+	 * 
+	 * @param executor executor for crypto operations. {@code null}, to
+	 *            execute them by the serial executor of the connection.
+	 * @param resultHandler handler for the results of the crypto operations.
+	 *            The handler must pass the results to
+	 *            {@link #processAsyncHandshakeResult(HandshakeResult)} using
+	 *            the serial executor of the connection.
+	 * @since 2.5
+	 */
+	public final void setCryptoExecutor(Executor executor, HandshakeResultHandler resultHandler) {
+		this.cryptoExecutor = executor;
+		this.cryptoResultHandler = resultHandler;
+	}
+
+	/**
+	 * Execute crypto operation.
+	 * 
+	 * If a crypto executor is available, the operation is executed by that
+	 * and completed by
+	 * {@link #processAsyncHandshakeResult(HandshakeResult)}. Otherwise, or if
+	 * the crypto executor rejects the operation, the operation is executed
+	 * and completed by the current thread.
+	 * 
+	 * @param operation crypto operation
+	 * @throws HandshakeException if the operation is executed by the current
+	 *             thread and fails
+	 * @throws GeneralSecurityException if the operation is executed by the
+	 *             current thread and fails
+	 * @since 2.5
+	 */
+	protected final void executeCryptoOperation(final CryptoOperation operation)
+			throws HandshakeException, GeneralSecurityException {
+		Executor executor = cryptoExecutor;
+		final HandshakeResultHandler handler = cryptoResultHandler;
+		if (executor != null && handler != null) {
+			final ConnectionId cid = connection.getConnectionId();
+			final InetSocketAddress peer = session.getPeer();
+			++pendingCryptoOperations;
+			try {
+				executor.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						CryptoResult result;
+						try {
+							result = new CryptoResult(cid, Handshaker.this, operation, operation.execute(), null);
+						} catch (HandshakeException e) {
+							result = new CryptoResult(cid, Handshaker.this, operation, null, e);
+						} catch (GeneralSecurityException e) {
+							result = new CryptoResult(cid, Handshaker.this, operation, null,
+									newCryptoException(peer, e));
+						} catch (RuntimeException e) {
+							result = new CryptoResult(cid, Handshaker.this, operation, null,
+									newCryptoException(peer, e));
+						}
+						handler.apply(result);
+					}
+				});
+				return;
+			} catch (RejectedExecutionException ex) {
+				--pendingCryptoOperations;
+				LOGGER.debug("crypto operation rejected, execute it inline.");
+			}
+		}
+		operation.complete(operation.execute());
+	}
+
+	/**
+	 * Create handshake exception for failed crypto operation.
+	 * 
+	 * @param peer address of the peer
+	 * @param cause cause of failure
+	 * @return handshake exception
+	 * @since 2.5
+	 */
+	private static HandshakeException newCryptoException(InetSocketAddress peer, Exception cause) {
+		AlertMessage alert = new AlertMessage(AlertLevel.FATAL, AlertDescription.INTERNAL_ERROR, peer);
+		return new HandshakeException("Cannot process handshake message, caused by " + cause.getMessage(), alert,
+				cause);
+	}
+
+	/**
+	 * Crypto operation, which may be offloaded to the crypto executor.
+	 * 
+	 * @see Handshaker#executeCryptoOperation(CryptoOperation)
+	 * @since 2.5
+	 */
+	protected abstract static class CryptoOperation {
+
+		/**
+		 * Execute the crypto operation.
+		 * 
+		 * May be called by a thread of the crypto executor. Therefore the
+		 * implementation must only use values, which are captured on creation
+		 * of the operation and not changed afterwards.
+		 * 
+		 * @return secret, or {@code null}, if the operation doesn't create a
+		 *         secret
+		 * @throws HandshakeException if the operation fails
+		 * @throws GeneralSecurityException if the operation fails
+		 */
+		protected abstract SecretKey execute() throws HandshakeException, GeneralSecurityException;
+
+		/**
+		 * Complete the crypto operation.
+		 * 
+		 * Called by the serial executor of the connection.
+		 * 
+		 * @param secret secret of {@link #execute()}
+		 * @throws HandshakeException if an error occurred during completion
+		 */
+		protected abstract void complete(SecretKey secret) throws HandshakeException;
+	}
+
+	/**
+	 * Result of offloaded crypto operation.
+	 * 
+	 * If the result is dropped without processing, it must be destroyed to
+	 * destroy the secret.
+	 * 
+	 * @since 2.5
+	 */
+	private static class CryptoResult extends HandshakeResult implements Destroyable {
+
+		private final Handshaker handshaker;
+		private final CryptoOperation operation;
+		private final SecretKey secret;
+		private final HandshakeException exception;
+
+		private CryptoResult(ConnectionId cid, Handshaker handshaker, CryptoOperation operation, SecretKey secret,
+				HandshakeException exception) {
+			super(cid, null);
+			this.handshaker = handshaker;
+			this.operation = operation;
+			this.secret = secret;
+			this.exception = exception;
+		}
+
+		@Override
+		public void destroy() throws DestroyFailedException {
+			SecretUtil.destroy(secret);
+		}
+
+		@Override
+		public boolean isDestroyed() {
+			return SecretUtil.isDestroyed(secret);
+		}
+	}
+
 	/**
 	 * Removes a listener from the list of listeners to be notified
 	 * about session life cycle events.
@@ -0,0 +1,480 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.scandium.dtls;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.elements.util.Bytes;
+import org.eclipse.californium.elements.util.DatagramReader;
+import org.eclipse.californium.elements.util.DatagramWriter;
+import org.eclipse.californium.scandium.util.SecretUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link SessionCache}, which stores the session tickets off-heap in a
+ * memory mapped file.
+ * <p>
+ * The file is organized as hash table with a fixed number of slots, each
+ * with a fixed size. The slots are grouped into buckets of
+ * {@link #BUCKET_SIZE} slots, a session id is mapped to one bucket. If a
+ * bucket is full, the session with the earliest expiration is replaced. The
+ * heap footprint is therefore independent of the number of cached sessions,
+ * and millions of sessions only require a large enough file.
+ * </p>
+ * <p>
+ * The tickets are stored as encoded by
+ * {@link SessionTicket#encode(DatagramWriter)} together with their expiration
+ * time. Expired tickets are not returned and their slots are reused. Tickets,
+ * which are too large for a slot, are not cached. The slot size must therefore
+ * be chosen according the used credentials, x509 certificate chains require
+ * larger slots than PSK or RPK.
+ * </p>
+ * <p>
+ * The file is reused on restart, if it has the same layout. Its content is
+ * then available without loading it, the operating system pages it in on
+ * demand. If the layout differs, the file is cleared.
+ * </p>
+ * <p>
+ * A {@link SessionCacheReplicator} may be set to replicate the tickets to the
+ * other nodes of a cluster.
+ * </p>
+ * <p>
+ * <b>Note:</b> the file contains the master secrets of the sessions. It must
+ * therefore be protected by the file permissions.
+ * </p>
+ *
+ * @since 2.5
+ */
+public class MappedSessionCache implements SessionCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MappedSessionCache.class);
+
+	/**
+	 * Number of slots per bucket.
+	 */
+	public static final int BUCKET_SIZE = 8;
+	/**
+	 * Default slot size in bytes.
+	 */
+	public static final int DEFAULT_SLOT_SIZE = 1024;
+	/**
+	 * Default time to live in seconds.
+	 */
+	public static final long DEFAULT_TIME_TO_LIVE = 36 * 60 * 60; // 36h
+	/**
+	 * Magic number of the file, "CFSC".
+	 */
+	private static final int MAGIC = 0x43465343;
+	private static final int VERSION = 1;
+	private static final int FILE_HEADER_SIZE = 64;
+	/**
+	 * Number of segments, if the capacity is large enough. Each segment has
+	 * its own lock.
+	 */
+	private static final int DEFAULT_SEGMENTS = 16;
+	/**
+	 * Maximum size of a single mapped segment.
+	 */
+	private static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+	// slot layout
+	private static final byte SLOT_FREE = 0;
+	private static final byte SLOT_USED = 1;
+	private static final int SLOT_STATE_OFFSET = 0;
+	private static final int SLOT_ID_LENGTH_OFFSET = 1;
+	private static final int SLOT_ID_OFFSET = 2;
+	private static final int SLOT_EXPIRES_OFFSET = SLOT_ID_OFFSET + 32;
+	private static final int SLOT_TICKET_LENGTH_OFFSET = SLOT_EXPIRES_OFFSET + 8;
+	private static final int SLOT_TICKET_OFFSET = SLOT_TICKET_LENGTH_OFFSET + 2;
+	/**
+	 * Minimum slot size.
+	 */
+	public static final int MIN_SLOT_SIZE = SLOT_TICKET_OFFSET + 64;
+	/**
+	 * Maximum slot size.
+	 */
+	public static final int MAX_SLOT_SIZE = SLOT_TICKET_OFFSET + 0xffff;
+
+	private final RandomAccessFile file;
+	private final Segment[] segments;
+	private final int slotSize;
+	private final int bucketsPerSegment;
+	private final long timeToLiveMillis;
+
+	private volatile SessionCacheReplicator replicator;
+	private volatile boolean closed;
+
+	/**
+	 * Creates a cache with {@link #DEFAULT_SLOT_SIZE} and
+	 * {@link #DEFAULT_TIME_TO_LIVE}.
+	 *
+	 * @param file file to map
+	 * @param capacity minimum number of sessions
+	 * @throws IOException if the file could not be mapped
+	 * @throws IllegalArgumentException if capacity is less than {@code 1}
+	 */
+	public MappedSessionCache(File file, int capacity) throws IOException {
+		this(file, capacity, DEFAULT_SLOT_SIZE, DEFAULT_TIME_TO_LIVE);
+	}
+
+	/**
+	 * Creates a cache.
+	 *
+	 * @param file file to map. If the file exists with the same layout, the
+	 *            contained session tickets are reused.
+	 * @param capacity minimum number of sessions. Rounded up to a multiple of
+	 *            the {@link #BUCKET_SIZE} and the number of segments.
+	 * @param slotSize size of a slot in bytes. Limits the size of the session
+	 *            tickets.
+	 * @param timeToLive time to live of the session tickets in seconds
+	 * @throws IOException if the file could not be mapped
+	 * @throws IllegalArgumentException if capacity or time to live is less
+	 *             than {@code 1}, or the slot size is not in range
+	 *             [{@link #MIN_SLOT_SIZE}...{@link #MAX_SLOT_SIZE}].
+	 */
+	public MappedSessionCache(File file, int capacity, int slotSize, long timeToLive) throws IOException {
+		if (file == null) {
+			throw new NullPointerException("file must not be null!");
+		}
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity " + capacity + " must be at least 1!");
+		}
+		if (slotSize < MIN_SLOT_SIZE || slotSize > MAX_SLOT_SIZE) {
+			throw new IllegalArgumentException(
+					"slot size " + slotSize + " must be in range [" + MIN_SLOT_SIZE + "..." + MAX_SLOT_SIZE + "]!");
+		}
+		if (timeToLive < 1) {
+			throw new IllegalArgumentException("time to live " + timeToLive + " must be at least 1!");
+		}
+		long bucketBytes = (long) slotSize * BUCKET_SIZE;
+		long buckets = (capacity + BUCKET_SIZE - 1) / BUCKET_SIZE;
+		int segmentCount = (int) Math.min(DEFAULT_SEGMENTS, buckets);
+		segmentCount = (int) Math.max(segmentCount, (buckets * bucketBytes + MAX_SEGMENT_SIZE - 1) / MAX_SEGMENT_SIZE);
+		this.bucketsPerSegment = (int) ((buckets + segmentCount - 1) / segmentCount);
+		this.slotSize = slotSize;
+		this.timeToLiveMillis = TimeUnit.SECONDS.toMillis(timeToLive);
+		this.segments = new Segment[segmentCount];
+
+		long segmentSize = bucketBytes * bucketsPerSegment;
+		long fileSize = FILE_HEADER_SIZE + segmentSize * segmentCount;
+		this.file = new RandomAccessFile(file, "rw");
+		try {
+			boolean reuse = false;
+			if (this.file.length() == fileSize) {
+				reuse = this.file.readInt() == MAGIC && this.file.readInt() == VERSION
+						&& this.file.readInt() == slotSize && this.file.readInt() == segmentCount
+						&& this.file.readInt() == bucketsPerSegment;
+			}
+			if (reuse) {
+				LOGGER.info("reuse session cache {}", file);
+			} else {
+				LOGGER.info("create session cache {}, {} bytes", file, fileSize);
+				this.file.setLength(0);
+				this.file.setLength(fileSize);
+			}
+			FileChannel channel = this.file.getChannel();
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_HEADER_SIZE);
+			for (int index = 0; index < segmentCount; ++index) {
+				segments[index] = new Segment(channel.map(FileChannel.MapMode.READ_WRITE,
+						FILE_HEADER_SIZE + segmentSize * index, segmentSize));
+			}
+			if (!reuse) {
+				header.putInt(4, VERSION);
+				header.putInt(8, slotSize);
+				header.putInt(12, segmentCount);
+				header.putInt(16, bucketsPerSegment);
+				header.putInt(0, MAGIC);
+				header.force();
+			}
+		} catch (IOException ex) {
+			this.file.close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Set replicator.
+	 *
+	 * @param replicator replicator. May be {@code null} to disable the
+	 *            replication.
+	 */
+	public void setReplicator(SessionCacheReplicator replicator) {
+		this.replicator = replicator;
+	}
+
+	/**
+	 * Get capacity.
+	 *
+	 * @return number of slots
+	 */
+	public int getCapacity() {
+		return segments.length * bucketsPerSegment * BUCKET_SIZE;
+	}
+
+	@Override
+	public void put(DTLSSession session) {
+		SessionTicket ticket;
+		if (session != null && !closed && (ticket = session.getSessionTicket()) != null) {
+			SessionId id = session.getSessionIdentifier();
+			if (!id.isEmpty()) {
+				DatagramWriter writer = new DatagramWriter(true);
+				ticket.encode(writer);
+				byte[] encoded = writer.toByteArray();
+				writer.close();
+				long expires = currentTimeMillis() + timeToLiveMillis;
+				SessionCacheReplicator replicator = this.replicator;
+				if (store(id, encoded, expires) && replicator != null) {
+					// the replicator takes over the ownership
+					replicator.put(id, encoded, expires);
+				} else {
+					Bytes.clear(encoded);
+				}
+			}
+			SecretUtil.destroy(ticket);
+		}
+	}
+
+	@Override
+	public SessionTicket get(SessionId id) {
+		if (id == null || closed) {
+			return null;
+		}
+		byte[] encoded = getSegment(id).load(id, getBucketOffset(id), currentTimeMillis());
+		if (encoded == null) {
+			return null;
+		}
+		SessionTicket ticket = null;
+		try {
+			ticket = SessionTicket.decode(new DatagramReader(encoded));
+		} catch (IllegalArgumentException ex) {
+			LOGGER.debug("session ticket {} corrupted!", id, ex);
+		}
+		Bytes.clear(encoded);
+		if (ticket == null) {
+			getSegment(id).remove(id, getBucketOffset(id));
+		}
+		return ticket;
+	}
+
+	@Override
+	public void remove(SessionId id) {
+		if (id != null && !closed) {
+			getSegment(id).remove(id, getBucketOffset(id));
+			SessionCacheReplicator replicator = this.replicator;
+			if (replicator != null) {
+				replicator.remove(id);
+			}
+		}
+	}
+
+	/**
+	 * Add replicated session ticket from an other node.
+	 *
+	 * @param id session id
+	 * @param ticket encoded session ticket
+	 * @param expires expiration time of the ticket in milliseconds since
+	 *            midnight, January 1, 1970 UTC.
+	 * @return {@code true}, if added, {@code false}, if already expired,
+	 *         too large, or the cache is closed.
+	 * @see SessionCacheReplicator#put(SessionId, byte[], long)
+	 */
+	public boolean putReplica(SessionId id, byte[] ticket, long expires) {
+		if (id == null || id.isEmpty() || closed || expires <= currentTimeMillis()) {
+			return false;
+		}
+		return store(id, ticket, expires);
+	}
+
+	/**
+	 * Remove replicated session from an other node.
+	 *
+	 * @param id session id
+	 * @see SessionCacheReplicator#remove(SessionId)
+	 */
+	public void removeReplica(SessionId id) {
+		if (id != null && !closed) {
+			getSegment(id).remove(id, getBucketOffset(id));
+		}
+	}
+
+	/**
+	 * Write the changes to the file.
+	 */
+	public void flush() {
+		for (Segment segment : segments) {
+			segment.flush();
+		}
+	}
+
+	/**
+	 * Flush and close the cache.
+	 *
+	 * A closed cache doesn't longer store nor return session tickets.
+	 *
+	 * @throws IOException if an error occurs closing the file
+	 */
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			flush();
+			file.close();
+		}
+	}
+
+	/**
+	 * Get current time in milliseconds since midnight, January 1, 1970 UTC.
+	 *
+	 * The expiration time of the tickets must be kept over restarts and
+	 * between nodes, therefore the wall clock is used.
+	 *
+	 * @return current time in milliseconds
+	 */
+	long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	private boolean store(SessionId id, byte[] ticket, long expires) {
+		if (ticket.length > slotSize - SLOT_TICKET_OFFSET) {
+			LOGGER.debug("session ticket {} with {} bytes exceeds slot size {}!", id, ticket.length, slotSize);
+			return false;
+		}
+		getSegment(id).store(id, getBucketOffset(id), ticket, expires, currentTimeMillis());
+		return true;
+	}
+
+	private long getBucket(SessionId id) {
+		long hash = (id.hashCode() * 0x9E3779B9) & 0xffffffffL;
+		return hash % ((long) segments.length * bucketsPerSegment);
+	}
+
+	private Segment getSegment(SessionId id) {
+		return segments[(int) (getBucket(id) / bucketsPerSegment)];
+	}
+
+	private int getBucketOffset(SessionId id) {
+		return (int) (getBucket(id) % bucketsPerSegment) * BUCKET_SIZE * slotSize;
+	}
+
+	/**
+	 * Mapped part of the file with its own lock.
+	 */
+	private class Segment {
+
+		private final MappedByteBuffer buffer;
+
+		private Segment(MappedByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		private synchronized byte[] load(SessionId id, int bucket, long now) {
+			int slot = find(id, bucket);
+			if (slot < 0) {
+				return null;
+			}
+			if (buffer.getLong(slot + SLOT_EXPIRES_OFFSET) <= now) {
+				buffer.put(slot + SLOT_STATE_OFFSET, SLOT_FREE);
+				return null;
+			}
+			byte[] ticket = new byte[buffer.getShort(slot + SLOT_TICKET_LENGTH_OFFSET) & 0xffff];
+			position(slot + SLOT_TICKET_OFFSET);
+			buffer.get(ticket);
+			return ticket;
+		}
+
+		private synchronized void store(SessionId id, int bucket, byte[] ticket, long expires, long now) {
+			int slot = find(id, bucket);
+			if (slot < 0) {
+				// free or expired slot, otherwise the one which expires first
+				long earliest = Long.MAX_VALUE;
+				for (int index = 0; index < BUCKET_SIZE; ++index) {
+					int offset = bucket + index * slotSize;
+					if (buffer.get(offset + SLOT_STATE_OFFSET) == SLOT_FREE) {
+						slot = offset;
+						break;
+					}
+					long slotExpires = buffer.getLong(offset + SLOT_EXPIRES_OFFSET);
+					if (slotExpires < earliest) {
+						earliest = slotExpires;
+						slot = offset;
+					}
+				}
+				if (earliest > now && earliest != Long.MAX_VALUE) {
+					LOGGER.trace("session cache bucket full, replace {}", id);
+				}
+			}
+			byte[] sessionId = id.getBytes();
+			// invalidate slot while writing
+			buffer.put(slot + SLOT_STATE_OFFSET, SLOT_FREE);
+			buffer.put(slot + SLOT_ID_LENGTH_OFFSET, (byte) sessionId.length);
+			position(slot + SLOT_ID_OFFSET);
+			buffer.put(sessionId);
+			buffer.putLong(slot + SLOT_EXPIRES_OFFSET, expires);
+			buffer.putShort(slot + SLOT_TICKET_LENGTH_OFFSET, (short) ticket.length);
+			position(slot + SLOT_TICKET_OFFSET);
+			buffer.put(ticket);
+			buffer.put(slot + SLOT_STATE_OFFSET, SLOT_USED);
+		}
+
+		private synchronized void remove(SessionId id, int bucket) {
+			int slot = find(id, bucket);
+			if (slot >= 0) {
+				buffer.put(slot + SLOT_STATE_OFFSET, SLOT_FREE);
+			}
+		}
+
+		/**
+		 * Set position of buffer.
+		 * 
+		 * Uses {@link Buffer} to be compatible with java 7, when compiled with
+		 * newer java versions.
+		 * 
+		 * @param position new position
+		 */
+		private void position(int position) {
+			((Buffer) buffer).position(position);
+		}
+
+		private synchronized void flush() {
+			buffer.force();
+		}
+
+		private int find(SessionId id, int bucket) {
+			byte[] sessionId = id.getBytes();
+			for (int index = 0; index < BUCKET_SIZE; ++index) {
+				int offset = bucket + index * slotSize;
+				if (buffer.get(offset + SLOT_STATE_OFFSET) == SLOT_USED
+						&& buffer.get(offset + SLOT_ID_LENGTH_OFFSET) == sessionId.length) {
+					int position = offset + SLOT_ID_OFFSET;
+					int pos = 0;
+					while (pos < sessionId.length && buffer.get(position + pos) == sessionId[pos]) {
+						++pos;
+					}
+					if (pos == sessionId.length) {
+						return offset;
+					}
+				}
+			}
+			return -1;
+		}
+	}
+}
@@ -23,6 +23,8 @@
  *                                                    generic handshake messages to
  *                                                    process reordered handshake messages
  *    Achim Kraus (Bosch Software Innovations GmbH) - cleanup
+ *    Bosch.IO GmbH                                 - add fragments as slices of
+ *                                                    pooled buffers
  ******************************************************************************/
 package org.eclipse.californium.scandium.dtls;
 
@@ -36,6 +38,7 @@ import java.util.List;
 import org.eclipse.californium.elements.util.ClockUtil;
 import org.eclipse.californium.elements.util.DatagramReader;
 import org.eclipse.californium.elements.util.DatagramWriter;
+import org.eclipse.californium.elements.util.PooledBuffer;
 import org.eclipse.californium.elements.util.StringUtil;
 import org.eclipse.californium.scandium.dtls.cipher.InvalidMacException;
 import org.slf4j.Logger;
@@ -119,9 +122,35 @@ public class Record {
 	 */
 	private DTLSMessage fragment;
 
-	/** The raw byte representation of the fragment. */
+	/**
+	 * The raw byte representation of the fragment. For received records
+	 * using a {@link #pooledBuffer}, that is the byte array of the buffer.
+	 */
 	private byte[] fragmentBytes;
 
+	/**
+	 * Offset of the fragment in {@link #fragmentBytes}.
+	 * 
+	 * @since 2.5
+	 */
+	private int fragmentOffset;
+
+	/**
+	 * Length of the fragment in {@link #fragmentBytes}.
+	 * 
+	 * @since 2.5
+	 */
+	private int fragmentLength;
+
+	/**
+	 * Pooled buffer, which contains the fragment. {@code null}, if the
+	 * fragment is not a slice of a pooled buffer or the buffer is already
+	 * released.
+	 * 
+	 * @since 2.5
+	 */
+	private PooledBuffer pooledBuffer;
+
 	/** The connection id. */
 	private ConnectionId connectionId;
 
@@ -166,7 +195,52 @@ public class Record {
 		}
 		this.type = type;
 		this.connectionId = connectionId;
-		this.fragmentBytes = fragmentBytes;
+		setFragmentBytes(fragmentBytes);
+	}
+
+	/**
+	 * Creates a record from a <em>DTLSCiphertext</em> struct received from
+	 * the network using a slice of a pooled buffer as fragment.
+	 * 
+	 * The pooled buffer is {@link PooledBuffer#retain()}ed and must be
+	 * {@link #release()}d, when the record processing completes.
+	 * 
+	 * @param type the content type. The new record type
+	 *            {@link ContentType#TLS12_CID} is directly supported.
+	 * @param version the version
+	 * @param epoch the epoch
+	 * @param sequenceNumber the sequence number
+	 * @param connectionId the connection id
+	 * @param buffer pooled buffer containing the encrypted data
+	 * @param offset offset of the encrypted data within the buffer
+	 * @param length length of the encrypted data
+	 * @param peerAddress peer address
+	 * @param receiveNanos uptime nanoseconds of receiving this record
+	 * @param followUpRecord record follows up other record in same datagram
+	 * @throws IllegalArgumentException if the given sequence number is longer
+	 *             than 48 bits or less than 0. Or the given epoch is less than
+	 *             0.
+	 * @throws NullPointerException if the given type, protocol version,
+	 *             buffer or peer address is {@code null}.
+	 * @since 2.5
+	 */
+	Record(ContentType type, ProtocolVersion version, int epoch, long sequenceNumber, ConnectionId connectionId,
+			PooledBuffer buffer, int offset, int length, InetSocketAddress peerAddress, long receiveNanos,
+			boolean followUpRecord) {
+		this(version, epoch, sequenceNumber, receiveNanos, peerAddress, followUpRecord);
+		if (type == null) {
+			throw new NullPointerException("Type must not be null");
+		} else if (buffer == null) {
+			throw new NullPointerException("Buffer must not be null");
+		} else if (peerAddress == null) {
+			throw new NullPointerException("Peer address must not be null");
+		}
+		this.type = type;
+		this.connectionId = connectionId;
+		this.pooledBuffer = buffer.retain();
+		this.fragmentBytes = buffer.getData();
+		this.fragmentOffset = offset;
+		this.fragmentLength = length;
 	}
 
 	/**
@@ -250,10 +324,11 @@ public class Record {
 		}
 		setType(type);
 		this.fragment = fragment;
-		this.fragmentBytes = fragment.toByteArray();
+		byte[] fragmentBytes = fragment.toByteArray();
 		if (fragmentBytes == null) {
 			throw new IllegalArgumentException("Fragment missing encoded bytes!");
 		}
+		setFragmentBytes(fragmentBytes);
 	}
 
 	private Record(ProtocolVersion version, int epoch, long sequenceNumber, long receiveNanos, InetSocketAddress peer, boolean followUpRecord) {
@@ -298,8 +373,8 @@ public class Record {
 		if (useConnectionId()) {
 			writer.writeBytes(connectionId.getBytes());
 		}
-		writer.write(fragmentBytes.length, LENGTH_BITS);
-		writer.writeBytes(fragmentBytes);
+		writer.write(fragmentLength, LENGTH_BITS);
+		writer.writeBytes(getFragmentBytes());
 
 		return writer.toByteArray();
 	}
@@ -352,6 +427,33 @@ public class Record {
 	 * @since 2.4
 	 */
 	public static List<Record> fromReader(DatagramReader reader, InetSocketAddress peerAddress, ConnectionIdGenerator cidGenerator, long receiveNanos) {
+		return fromReader(reader, null, peerAddress, cidGenerator, receiveNanos);
+	}
+
+	/**
+	 * Parses a sequence of <em>DTLSCiphertext</em> structures into {@code Record} instances.
+	 * 
+	 * The binary representation is expected to comply with the <em>DTLSCiphertext</em> structure
+	 * defined in <a href="http://tools.ietf.org/html/rfc6347#section-4.3.1">RFC6347, Section 4.3.1</a>.
+	 * 
+	 * If a pooled buffer is provided, the reader must be created on the
+	 * buffer's byte array without copying it. The fragments of the records are
+	 * then slices of that buffer instead of copies, and each record must be
+	 * {@link #release()}d, when its processing completes.
+	 * 
+	 * @param reader a reader with the raw binary representation containing one or more DTLSCiphertext structures
+	 * @param buffer pooled buffer of the reader. May be {@code null}, if the
+	 *            fragments are copied.
+	 * @param peerAddress the IP address and port of the peer from which the bytes have been
+	 *           received
+	 * @param cidGenerator the connection id generator. May be {@code null}.
+	 * @param receiveNanos uptime nanoseconds of receiving this record
+	 * @return the {@code Record} instances
+	 * @throws NullPointerException if either one of the reader or peer address is {@code null}
+	 * @since 2.5
+	 */
+	public static List<Record> fromReader(DatagramReader reader, PooledBuffer buffer, InetSocketAddress peerAddress,
+			ConnectionIdGenerator cidGenerator, long receiveNanos) {
 		if (reader == null) {
 			throw new NullPointerException("Reader must not be null");
 		} else if (peerAddress == null) {
@@ -408,9 +510,19 @@ public class Record {
 			}
 
 			// delay decryption/interpretation of fragment
+			ContentType contentType = ContentType.getTypeByValue(type);
+			if (buffer != null) {
+				int offset = reader.readSliceOffset(length);
+				if (contentType == null) {
+					LOGGER.debug("Received DTLS record of unsupported type [{}]. Discarding ...", type);
+				} else {
+					records.add(new Record(contentType, version, epoch, sequenceNumber, connectionId, buffer,
+							offset, length, peerAddress, receiveNanos, !records.isEmpty()));
+				}
+				continue;
+			}
 			byte[] fragmentBytes = reader.readBytes(length);
 
-			ContentType contentType = ContentType.getTypeByValue(type);
 			if (contentType == null) {
 				LOGGER.debug("Received DTLS record of unsupported type [{}]. Discarding ...", type);
 			} else {
@@ -511,10 +623,10 @@ public class Record {
 	 *         {@code false} otherwise.
 	 */
 	public boolean isNewClientHello() {
-		if (0 < epoch || type != ContentType.HANDSHAKE || 0 == fragmentBytes.length) {
+		if (0 < epoch || type != ContentType.HANDSHAKE || 0 == fragmentLength) {
 			return false;
 		}
-		HandshakeType handshakeType = HandshakeType.getTypeByCode(fragmentBytes[0]);
+		HandshakeType handshakeType = HandshakeType.getTypeByCode(fragmentBytes[fragmentOffset]);
 		return handshakeType == HandshakeType.CLIENT_HELLO;
 	}
 
@@ -554,7 +666,7 @@ public class Record {
 	 * @return the fragment length excluding record headers
 	 */
 	public int getFragmentLength() {
-		return fragmentBytes.length;
+		return fragmentLength;
 	}
 
 	/**
@@ -612,10 +724,75 @@ public class Record {
 	/**
 	 * Get fragment payload as byte array.
 	 * 
+	 * If the fragment is a slice of a pooled buffer, a copy of the slice is
+	 * returned.
+	 * 
 	 * @return fragments byte array.
 	 */
 	public byte[] getFragmentBytes() {
-		return fragmentBytes;
+		if (fragmentOffset == 0 && fragmentLength == fragmentBytes.length) {
+			return fragmentBytes;
+		}
+		return Arrays.copyOfRange(fragmentBytes, fragmentOffset, fragmentOffset + fragmentLength);
+	}
+
+	/**
+	 * Release the pooled buffer of the fragment.
+	 * 
+	 * Must be called, when the processing of a record created with a pooled
+	 * buffer completes. The fragment bytes must not be accessed afterwards. If
+	 * the record is kept for deferred processing, it's {@link #detach()}ed
+	 * before. Does nothing, if the record doesn't use a pooled buffer or is
+	 * already released or detached.
+	 * 
+	 * @see #fromReader(DatagramReader, PooledBuffer, InetSocketAddress,
+	 *      ConnectionIdGenerator, long)
+	 * @since 2.5
+	 */
+	public void release() {
+		PooledBuffer buffer;
+		synchronized (this) {
+			buffer = pooledBuffer;
+			pooledBuffer = null;
+		}
+		if (buffer != null) {
+			buffer.release();
+		}
+	}
+
+	/**
+	 * Detach the fragment from the pooled buffer.
+	 * 
+	 * Copies the slice of the pooled buffer and release it. Used for records,
+	 * which are kept for deferred processing.
+	 * 
+	 * @since 2.5
+	 */
+	void detach() {
+		PooledBuffer buffer;
+		synchronized (this) {
+			buffer = pooledBuffer;
+			pooledBuffer = null;
+			if (buffer != null) {
+				setFragmentBytes(getFragmentBytes());
+			}
+		}
+		if (buffer != null) {
+			buffer.release();
+		}
+	}
+
+	/**
+	 * Set fragment bytes.
+	 * 
+	 * @param fragmentBytes fragment bytes, using the complete array. May be
+	 *            {@code null}.
+	 * @since 2.5
+	 */
+	private void setFragmentBytes(byte[] fragmentBytes) {
+		this.fragmentBytes = fragmentBytes;
+		this.fragmentOffset = 0;
+		this.fragmentLength = fragmentBytes == null ? 0 : fragmentBytes.length;
 	}
 
 	/**
@@ -655,7 +832,7 @@ public class Record {
 			throws GeneralSecurityException, HandshakeException {
 		ContentType actualType = type;
 		// decide, which type of fragment need de-cryption
-		byte[] decryptedMessage = incomingReadState.decrypt(this, fragmentBytes);
+		byte[] decryptedMessage = incomingReadState.decrypt(this, fragmentBytes, fragmentOffset, fragmentLength);
 
 		if (ContentType.TLS12_CID == type) {
 			int index = decryptedMessage.length - 1;
@@ -733,7 +910,7 @@ public class Record {
 			byteArray = Arrays.copyOf(byteArray, index + 1 + padding);
 			byteArray[index] = (byte) type.getCode();
 		}
-		this.fragmentBytes = outgoingWriteState.encrypt(this, byteArray);
+		setFragmentBytes(outgoingWriteState.encrypt(this, byteArray));
 		this.fragment = fragment;
 	}
 
@@ -781,7 +958,7 @@ public class Record {
 		if (connectionId != null) {
 			sb.append(StringUtil.lineSeparator()).append("connection id: ").append(connectionId.getAsString());
 		}
-		sb.append(StringUtil.lineSeparator()).append("Length: ").append(fragmentBytes.length);
+		sb.append(StringUtil.lineSeparator()).append("Length: ").append(fragmentLength);
 		sb.append(StringUtil.lineSeparator()).append("Fragment:");
 		if (fragment != null) {
 			sb.append(StringUtil.lineSeparator()).append(fragment);
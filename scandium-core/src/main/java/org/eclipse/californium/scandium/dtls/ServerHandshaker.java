@@ -51,6 +51,8 @@
  *    Achim Kraus (Bosch Software Innovations GmbH) - add preSharedKeyIdentity to
  *                                                    support creating statistics.
  *    Achim Kraus (Bosch Software Innovations GmbH) - redesign DTLSFlight and RecordLayer
+ *    Bosch.IO GmbH                                 - offload ECDH agreement and
+ *                                                    CertificateVerify signature
  ******************************************************************************/
 package org.eclipse.californium.scandium.dtls;
 
@@ -249,8 +251,7 @@ public class ServerHandshaker extends Handshaker {
 				break;
 
 			case EC_DIFFIE_HELLMAN:
-				SecretKey masterSecret = receivedClientKeyExchange((ECDHClientKeyExchange) message);
-				processMasterSecret(masterSecret);
+				receivedClientKeyExchange((ECDHClientKeyExchange) message);
 				break;
 
 			default:
@@ -262,9 +263,6 @@ public class ServerHandshaker extends Handshaker {
 
 		case CERTIFICATE_VERIFY:
 			receivedCertificateVerify((CertificateVerify) message);
-			if (masterSecret != null && certificateVerfied) {
-				expectChangeCipherSpecMessage();
-			}
 			break;
 
 		case FINISHED:
@@ -282,7 +280,8 @@ public class ServerHandshaker extends Handshaker {
 	protected void processMasterSecret(SecretKey masterSecret) {
 		applyMasterSecret(masterSecret);
 		SecretUtil.destroy(masterSecret);
-		if (states == NO_CLIENT_CERTIFICATE || (states == EMPTY_CLIENT_CERTIFICATE && certificateVerfied)) {
+		if (states == NO_CLIENT_CERTIFICATE || (states == EMPTY_CLIENT_CERTIFICATE && certificateVerfied)
+				|| (certificateVerifyMessage != null && certificateVerfied)) {
 			expectChangeCipherSpecMessage();
 		}
 	}
@@ -332,25 +331,43 @@ public class ServerHandshaker extends Handshaker {
 	 * <p>
 	 * If verification succeeds, the session's <em>peerIdentity</em> property
 	 * contains a principal reflecting the client's authenticated identity.
+	 * The verification of the signature may be offloaded to the crypto
+	 * executor.
 	 * 
 	 * @param message The client's <em>CERTIFICATE_VERIFY</em> message.
 	 * @throws HandshakeException if verification of the signature fails.
+	 * @throws GeneralSecurityException if verification of the signature fails
 	 */
-	private void receivedCertificateVerify(CertificateVerify message) throws HandshakeException {
-		certificateVerifyMessage = message;
-		// remove last message - CertificateVerify itself
-		handshakeMessages.remove(handshakeMessages.size() - 1);
-		message.verifySignature(clientPublicKey, handshakeMessages);
-		// add CertificateVerify again
-		handshakeMessages.add(message);
-		// at this point we have successfully authenticated the client
-		if (certificateVerfied) {
-			if (peerCertPath != null) {
-				session.setPeerIdentity(new X509CertPath(peerCertPath));
-			} else {
-				session.setPeerIdentity(new RawPublicKeyIdentity(clientPublicKey));
+	private void receivedCertificateVerify(final CertificateVerify message)
+			throws HandshakeException, GeneralSecurityException {
+		// all handshake messages except the last one - CertificateVerify itself
+		final List<HandshakeMessage> messages = new ArrayList<HandshakeMessage>(
+				handshakeMessages.subList(0, handshakeMessages.size() - 1));
+		final PublicKey publicKey = clientPublicKey;
+		executeCryptoOperation(new CryptoOperation() {
+
+			@Override
+			protected SecretKey execute() throws HandshakeException {
+				message.verifySignature(publicKey, messages);
+				return null;
 			}
-		}
+
+			@Override
+			protected void complete(SecretKey secret) {
+				certificateVerifyMessage = message;
+				// at this point we have successfully authenticated the client
+				if (certificateVerfied) {
+					if (peerCertPath != null) {
+						session.setPeerIdentity(new X509CertPath(peerCertPath));
+					} else {
+						session.setPeerIdentity(new RawPublicKeyIdentity(clientPublicKey));
+					}
+					if (masterSecret != null) {
+						expectChangeCipherSpecMessage();
+					}
+				}
+			}
+		});
 	}
 
 	/**
@@ -523,7 +540,7 @@ public class ServerHandshaker extends Handshaker {
 		switch (session.getKeyExchange()) {
 		case EC_DIFFIE_HELLMAN:
 			try {
-				ecdhe = new XECDHECryptography(selectedCipherSuiteParameters.getSelectedSupportedGroup());
+				ecdhe = createEcdhe(selectedCipherSuiteParameters.getSelectedSupportedGroup());
 				serverKeyExchange = new EcdhEcdsaServerKeyExchange(session.getSignatureAndHashAlgorithm(), ecdhe, privateKey, clientRandom, serverRandom,
 						session.getPeer());
 				break;
@@ -546,7 +563,7 @@ public class ServerHandshaker extends Handshaker {
 		case ECDHE_PSK:
 
 			try {
-				ecdhe = new XECDHECryptography(selectedCipherSuiteParameters.getSelectedSupportedGroup());
+				ecdhe = createEcdhe(selectedCipherSuiteParameters.getSelectedSupportedGroup());
 				serverKeyExchange = new EcdhPskServerKeyExchange(PskPublicInformation.EMPTY, ecdhe, session.getPeer());
 				break;
 			} catch (GeneralSecurityException e) {
@@ -591,19 +608,35 @@ public class ServerHandshaker extends Handshaker {
 
 	/**
 	 * Generates the master secret by taking the client's public ecdhe key and
-	 * running the ECDHE key agreement.
+	 * running the ECDHE key agreement. The key agreement may be offloaded to
+	 * the crypto executor.
 	 * 
 	 * @param message the client's key exchange message.
-	 * @return the master secret.
-	 * @throws GeneralSecurityException
+	 * @throws HandshakeException if the key agreement fails
+	 * @throws GeneralSecurityException if the key agreement fails
 	 */
-	private SecretKey receivedClientKeyExchange(ECDHClientKeyExchange message) throws GeneralSecurityException {
-		SecretKey premasterSecret = ecdhe.generateSecret(message.getEncodedPoint());
-		SecretKey masterSecret = PseudoRandomFunction.generateMasterSecret(
-				session.getCipherSuite().getThreadLocalPseudoRandomFunctionMac(), premasterSecret,
-				generateRandomSeed());
-		SecretUtil.destroy(premasterSecret);
-		return masterSecret;
+	private void receivedClientKeyExchange(ECDHClientKeyExchange message)
+			throws HandshakeException, GeneralSecurityException {
+		final XECDHECryptography ecdhe = this.ecdhe;
+		final byte[] encodedPoint = message.getEncodedPoint();
+		final CipherSuite cipherSuite = session.getCipherSuite();
+		final byte[] seed = generateRandomSeed();
+		executeCryptoOperation(new CryptoOperation() {
+
+			@Override
+			protected SecretKey execute() throws GeneralSecurityException {
+				SecretKey premasterSecret = ecdhe.generateSecret(encodedPoint);
+				SecretKey masterSecret = PseudoRandomFunction.generateMasterSecret(
+						cipherSuite.getThreadLocalPseudoRandomFunctionMac(), premasterSecret, seed);
+				SecretUtil.destroy(premasterSecret);
+				return masterSecret;
+			}
+
+			@Override
+			protected void complete(SecretKey masterSecret) {
+				processMasterSecret(masterSecret);
+			}
+		});
 	}
 
 	/**
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.scandium.dtls;
+
+/**
+ * Replicates session tickets of a {@link MappedSessionCache} to other nodes of
+ * a cluster.
+ * <p>
+ * The cache calls the replicator for locally added and removed sessions. The
+ * replicator transfers that to the other nodes, which apply it using
+ * {@link MappedSessionCache#putReplica(SessionId, byte[], long)} and
+ * {@link MappedSessionCache#removeReplica(SessionId)}. Replicas are not
+ * replicated again.
+ * </p>
+ * <p>
+ * <b>Note:</b> the encoded session tickets contain the master secret of the
+ * session. The transfer must therefore be protected against eavesdropping and
+ * tampering.
+ * </p>
+ * <p>
+ * The methods are called from the threads of the connector, which added or
+ * removed the session. Implementations are required to be thread-safe and
+ * should not block.
+ * </p>
+ *
+ * @since 2.5
+ */
+public interface SessionCacheReplicator {
+
+	/**
+	 * Replicate added session ticket.
+	 *
+	 * The ownership of the encoded ticket is transferred to the replicator.
+	 * The cache doesn't access the array afterwards, so the replicator may
+	 * keep it or send it asynchronously. The replicator is responsible to
+	 * clear the array, when it's not longer used, e.g. using
+	 * {@link org.eclipse.californium.elements.util.Bytes#clear(byte[])}.
+	 *
+	 * @param id session id
+	 * @param ticket session ticket encoded with
+	 *            {@link SessionTicket#encode(org.eclipse.californium.elements.util.DatagramWriter)}
+	 * @param expires expiration time of the ticket in milliseconds since
+	 *            midnight, January 1, 1970 UTC.
+	 */
+	void put(SessionId id, byte[] ticket, long expires);
+
+	/**
+	 * Replicate removed session.
+	 *
+	 * @param id session id
+	 */
+	void remove(SessionId id);
+}
@@ -48,7 +48,7 @@ public class AeadBlockCipher {
 			// check, if java-vm supports transformation
 			Cipher cipher;
 			if (AES_CCM.equals(transformation)) {
-				cipher = CCMBlockCipher.CIPHER.current();
+				cipher = CCMBlockCipher.isSupported() ? CCMBlockCipher.CTR_CIPHER.current() : null;
 			} else {
 				cipher = Cipher.getInstance(transformation);
 			}
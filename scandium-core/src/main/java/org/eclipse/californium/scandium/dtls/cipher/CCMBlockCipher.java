@@ -18,6 +18,8 @@
  *    Achim Kraus (Bosch Software Innovations GmbH) - redesigned implementation
  *                                                    to improve performance
  *    Achim Kraus (Bosch Software Innovations GmbH) - use NoPadding for android support
+ *    Bosch.IO GmbH                                 - use CBC and CTR mode to process
+ *                                                    multiple blocks per cipher call
  ******************************************************************************/
 package org.eclipse.californium.scandium.dtls.cipher;
 
@@ -27,12 +29,16 @@ import java.util.Arrays;
 
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
-import javax.crypto.ShortBufferException;
+import javax.crypto.spec.IvParameterSpec;
 
 /**
  * A generic authenticated encryption block cipher mode which uses the 128-bit
  * block cipher AES. See <a href="http://tools.ietf.org/html/rfc3610">RFC
  * 3610</a> for details.
+ * 
+ * The CBC-MAC is calculated with {@link #MAC_CIPHER_NAME} and the encryption
+ * uses {@link #CTR_CIPHER_NAME}. Both process all blocks of a message with a
+ * single call, which enables the java-vm to use its AES intrinsics.
  */
 public class CCMBlockCipher {
 
@@ -41,6 +47,7 @@ public class CCMBlockCipher {
 	 * CCM is only defined for use with 128-bit block ciphers, such as AES
 	 * (http://tools.ietf.org/html/rfc3610).
 	 */
+	private static final int BLOCK_SIZE = 16;
 
 	/**
 	 * The underlying block cipher.
@@ -48,235 +55,241 @@ public class CCMBlockCipher {
 	public static final String CIPHER_NAME = "AES/ECB/NoPadding";
 	public static final ThreadLocalCipher CIPHER = new ThreadLocalCipher(CIPHER_NAME);
 
-	private static abstract class Block {
+	/**
+	 * The block cipher to calculate the CBC-MAC.
+	 * 
+	 * @since 2.5
+	 */
+	public static final String MAC_CIPHER_NAME = "AES/CBC/NoPadding";
+	/**
+	 * @since 2.5
+	 */
+	public static final ThreadLocalCipher MAC_CIPHER = new ThreadLocalCipher(MAC_CIPHER_NAME);
 
-		protected final int blockSize;
-		protected final byte[] block;
+	/**
+	 * The block cipher to en- and decrypt the message.
+	 * 
+	 * @since 2.5
+	 */
+	public static final String CTR_CIPHER_NAME = "AES/CTR/NoPadding";
+	/**
+	 * @since 2.5
+	 */
+	public static final ThreadLocalCipher CTR_CIPHER = new ThreadLocalCipher(CTR_CIPHER_NAME);
 
-		protected Block(int blockSize) {
-			this.blockSize = blockSize;
-			this.block = new byte[blockSize];
-		}
+	/**
+	 * Zero initial vector for the CBC-MAC.
+	 */
+	private static final IvParameterSpec ZERO_IV = new IvParameterSpec(new byte[BLOCK_SIZE]);
 
-		/**
-		 * Set integer at the end of the block.
-		 * 
-		 * Lowest byte at the end.
-		 * 
-		 * <pre>
-		 * block[end] = number & 0xff;
-		 * block[end - 1] = (number >>= 8) & 0xff;
-		 * block[end - 2] = (number >>= 8) & 0xff;
-		 * block[offset] = (number >>= 8) & 0xff;
-		 * </pre>
-		 * 
-		 * Return remaining bytes in number.
-		 * 
-		 * <pre>
-		 * blockSize = 16;
-		 * number = 0x20103
-		 * left = updateBlock(14, number); // write number to two bytes
-		 * left == 2 // highest third byte 0x2 will be left
-		 * </pre>
-		 * 
-		 * @param offset offset at which the number will be written, right
-		 *            padded with 0
-		 * @param number number to write
-		 * @return left bytes of the number, if number is too large, 0, if the
-		 *         complete number could be set.
-		 */
-		protected int setIntAtEnd(int offset, int number) {
-			int backOffset = blockSize;
-			while (backOffset > offset) {
-				block[--backOffset] = (byte) number;
-				number >>>= 8;
-			}
-			return number;
-		}
+	/**
+	 * Thread local buffer for the blocks of the CBC-MAC.
+	 */
+	private static final ThreadLocal<byte[]> MAC_BUFFER = new ThreadLocal<byte[]>();
 
+	/**
+	 * Test, if the ciphers for CCM are supported.
+	 * 
+	 * @return {@code true}, if supported, {@code false}, otherwise.
+	 * @since 2.5
+	 */
+	public static boolean isSupported() {
+		return MAC_CIPHER.isSupported() && CTR_CIPHER.isSupported();
 	}
 
-	private static class BlockCipher extends Block {
-
-		private final Cipher cipher;
-		private final byte[] xblock;
-		private final int nonceL;
-
-		private BlockCipher(Cipher cipher, byte[] nonce) {
-			super(cipher == null ? 0 : cipher.getBlockSize());
-			this.cipher = cipher;
-			this.nonceL = nonce.length;
-			int L = blockSize - 1 - nonceL;
-			if (L < 2 || L > 8) {
-				throw new IllegalArgumentException("Nonce length " + nonceL + " invalid for blocksize " + blockSize
-						+ " (valid length [" + (blockSize - 9) + "-" + (blockSize - 3) + "])");
-			}
-
-			xblock = new byte[blockSize];
-			// Octet Number Contents
-			// ------------ ---------
-			// 0 Flags
-			// 1 ... 15-L Nonce N
-			// 16-L ... 15 Counter i
-
-			// write the first byte: Flags
-			block[0] = (byte) (L - 1);
-			// the Nonce N
-			System.arraycopy(nonce, 0, block, 1, nonceL);
+	/**
+	 * Get length of L.
+	 * 
+	 * @param nonce the nonce
+	 * @return the length of L
+	 * @throws IllegalArgumentException if the nonce length is not supported
+	 */
+	private static int getL(byte[] nonce) {
+		int nonceL = nonce.length;
+		int L = BLOCK_SIZE - 1 - nonceL;
+		if (L < 2 || L > 8) {
+			throw new IllegalArgumentException("Nonce length " + nonceL + " invalid for blocksize " + BLOCK_SIZE
+					+ " (valid length [" + (BLOCK_SIZE - 9) + "-" + (BLOCK_SIZE - 3) + "])");
 		}
+		return L;
+	}
 
-		private byte[] updateBlock(int index) throws ShortBufferException {
-			// writer the Counter i (L bytes)
-			if (setIntAtEnd(nonceL + 1, index) != 0) {
-				throw new IllegalArgumentException("Index " + index + " too large for nonce " + nonceL
-						+ " and blocksize " + blockSize + " bytes.");
-			}
+	/**
+	 * Set integer at the end of the block.
+	 * 
+	 * Lowest byte at the end.
+	 * 
+	 * @param block block
+	 * @param offset offset at which the number will be written, right padded
+	 *            with 0
+	 * @param number number to write
+	 * @return left bytes of the number, if number is too large, 0, if the
+	 *         complete number could be set.
+	 */
+	private static int setIntAtEnd(byte[] block, int offset, int number) {
+		int backOffset = BLOCK_SIZE;
+		while (backOffset > offset) {
+			block[--backOffset] = (byte) number;
+			number >>>= 8;
+		}
+		return number;
+	}
 
-			cipher.update(block, 0, blockSize, xblock);
-			return xblock;
+	/**
+	 * Initialize cipher for the counter mode.
+	 * 
+	 * The counter starts with block {@code A_0}, which is used to encrypt the
+	 * authentication field. See
+	 * <a href="http://tools.ietf.org/html/rfc3610#section-2.3">RFC 3610 -
+	 * Encryption</a> for details.
+	 * 
+	 * @param key the encryption key K.
+	 * @param nonce the nonce N.
+	 * @param lengthM length of the message
+	 * @return initialized cipher
+	 * @throws GeneralSecurityException if the cipher could not be initialized
+	 * @throws IllegalArgumentException if the nonce length is not supported,
+	 *             or the message is too large for the nonce.
+	 */
+	private static Cipher initCounterMode(SecretKey key, byte[] nonce, int lengthM)
+			throws GeneralSecurityException {
+		int L = getL(nonce);
+		int blocks = (lengthM + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		if (L < 4 && (blocks >>> (L * 8)) != 0) {
+			throw new IllegalArgumentException("Index " + blocks + " too large for nonce " + nonce.length
+					+ " and blocksize " + BLOCK_SIZE + " bytes.");
 		}
+		// Octet Number Contents
+		// ------------ ---------
+		// 0 Flags
+		// 1 ... 15-L Nonce N
+		// 16-L ... 15 Counter i
+		byte[] a0 = new byte[BLOCK_SIZE];
+		a0[0] = (byte) (L - 1);
+		System.arraycopy(nonce, 0, a0, 1, nonce.length);
+		Cipher cipher = CTR_CIPHER.currentWithCause();
+		cipher.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(a0));
+		return cipher;
 	}
 
-	private static class MacCipher extends Block {
-
-		private final Cipher cipher;
-		private final byte[] mac;
-
-		/**
-		 * Computes CBC-MAC. See
-		 * <a href="http://tools.ietf.org/html/rfc3610#section-2.2">RFC 3610 -
-		 * Authentication</a> for details.
-		 * 
-		 * @param cipher the cipher.
-		 * @param nonce the nonce.
-		 * @param a the additional authenticated data.
-		 * @param m the message to authenticate and encrypt.
-		 * @param numAuthenticationBytes Number of octets in authentication
-		 *            field.
-		 * @throws ShortBufferException if cipher can not be realized.
-		 */
-		private MacCipher(Cipher cipher, byte[] nonce, byte[] a, byte[] m, int numAuthenticationBytes)
-				throws ShortBufferException {
-			super(cipher == null ? 0 : cipher.getBlockSize());
-			this.cipher = cipher;
-			int lengthM = m.length;
-			int lengthA = a.length;
-			int nonceL = nonce.length;
-			int L = blockSize - 1 - nonceL;
-
-			if (L < 2 || L > 8) {
-				throw new IllegalArgumentException("Nonce length " + nonceL + " invalid for blocksize " + blockSize
-						+ " (valid length [" + (blockSize - 9) + "-" + (blockSize - 3) + "])");
-			}
-
-			// build first block B_0
-
-			// Octet Number Contents
-			// ------------ ---------
-			// 0 Flags
-			// 1 ... 15-L Nonce N
-			// 16-L ... 15 l(m)
-
-			int adata = 0;
-			// The Adata bit is set to zero if l(a)=0, and set to one if l(a)>0
-			if (lengthA > 0) {
-				adata = 1;
-			}
-			// M' field is set to (M-2)/2
-			int mPrime = (numAuthenticationBytes - 2) / 2;
-			// L' = L-1 (the zero value is reserved)
-			int lPrime = L - 1;
-
-			// Bit Number Contents
-			// ---------- ----------------------
-			// 7 Reserved (always zero)
-			// 6 Adata
-			// 5 ... 3 M'
-			// 2 ... 0 L'
-
-			// Flags = 64*Adata + 8*M' + L'
-			block[0] = (byte) (64 * adata + 8 * mPrime + lPrime);
-
-			// 1 ... 15-L Nonce N
-			System.arraycopy(nonce, 0, block, 1, nonceL);
-
-			// writer the length (L bytes)
-			if (setIntAtEnd(nonceL + 1, lengthM) != 0) {
-				throw new IllegalArgumentException("Length " + lengthM + " too large for nonce " + nonceL
-						+ " and blocksize " + blockSize + " bytes.");
-			}
-
-			cipher.update(block, 0, blockSize, block);
-
-			// If l(a)>0 (as indicated by the Adata field), then one or more
-			// blocks
-			// of authentication data are added.
-			if (lengthA > 0) {
-
-				// First two octets Followed by Comment
-				// ----------------- ----------------
-				// -------------------------------
-				// 0x0000 Nothing Reserved
-				// 0x0001 ... 0xFEFF Nothing For 0 < l(a) < (2^16 - 2^8)
-				// 0xFF00 ... 0xFFFD Nothing Reserved
-				// 0xFFFE 4 octets of l(a) For (2^16 - 2^8) <= l(a) < 2^32
-				// 0xFFFF 8 octets of l(a) For 2^32 <= l(a) < 2^64
-
-				// 2^16 - 2^8
-				final int first = 65280;
-
-				final int offset;
-				/*
-				 * The blocks encoding a are formed by concatenating this string
-				 * that encodes l(a) with a itself, and splitting the result
-				 * into 16-octet blocks, and then padding the last block with
-				 * zeroes if necessary.
-				 */
-				if (lengthA > 0 && lengthA < first) {
-					// 2 bytes (0x0001 ... 0xFEFF)
-					xorInt(0, 2, lengthA);
-					offset = 2;
-				} else {
-					// 2 bytes (0xFFFE) + 4 octets of l(a)
-					xorInt(0, 2, 0xfffe);
-					xorInt(2, 6, lengthA);
-					offset = 6;
-				}
-
-				update(a, offset);
-			}
-			update(m, 0);
-			mac = Arrays.copyOf(block, numAuthenticationBytes);
+	/**
+	 * Computes CBC-MAC. See
+	 * <a href="http://tools.ietf.org/html/rfc3610#section-2.2">RFC 3610 -
+	 * Authentication</a> for details.
+	 * 
+	 * The blocks B_0 ... B_n are formatted into a thread local buffer and
+	 * processed with a single call of the CBC cipher. The last block of the
+	 * result is the CBC-MAC.
+	 * 
+	 * @param key the encryption key K.
+	 * @param nonce the nonce N.
+	 * @param a the additional authenticated data.
+	 * @param m the message to authenticate.
+	 * @param mOffset the offset of the message
+	 * @param lengthM the length of the message
+	 * @param numAuthenticationBytes Number of octets in authentication field.
+	 * @param mac buffer for the CBC-MAC. At least {@link #BLOCK_SIZE} bytes.
+	 * @throws GeneralSecurityException if the cipher could not be initialized
+	 * @throws IllegalArgumentException if the nonce length is not supported,
+	 *             or the message is too large for the nonce.
+	 */
+	private static void mac(SecretKey key, byte[] nonce, byte[] a, byte[] m, int mOffset, int lengthM,
+			int numAuthenticationBytes, byte[] mac) throws GeneralSecurityException {
+		int nonceL = nonce.length;
+		int L = getL(nonce);
+		int lengthA = a.length;
+		int lengthEncodedA = 0;
+		if (lengthA > 0) {
+			// First two octets Followed by Comment
+			// ----------------- ----------------
+			// -------------------------------
+			// 0x0000 Nothing Reserved
+			// 0x0001 ... 0xFEFF Nothing For 0 < l(a) < (2^16 - 2^8)
+			// 0xFF00 ... 0xFFFD Nothing Reserved
+			// 0xFFFE 4 octets of l(a) For (2^16 - 2^8) <= l(a) < 2^32
+			// 0xFFFF 8 octets of l(a) For 2^32 <= l(a) < 2^64
+			lengthEncodedA = lengthA < 65280 ? 2 : 6;
 		}
+		int offsetM = BLOCK_SIZE + padded(lengthEncodedA + lengthA);
+		int length = offsetM + padded(lengthM);
 
-		private void update(byte[] data, int initialBlockOffset) throws ShortBufferException {
-			int length = data.length;
-			for (int i = 0; i < length;) {
-				int blockEnd = i + blockSize - initialBlockOffset;
-				if (blockEnd > length) {
-					blockEnd = length;
-				}
-				for (int j = initialBlockOffset; i < blockEnd; ++i, ++j) {
-					block[j] ^= data[i];
-				}
-				initialBlockOffset = 0;
-				cipher.update(block, 0, blockSize, block);
-			}
+		byte[] blocks = MAC_BUFFER.get();
+		if (blocks == null || blocks.length < length) {
+			blocks = new byte[Math.max(length, 512)];
+			MAC_BUFFER.set(blocks);
 		}
 
-		private byte[] getMac() {
-			return mac;
+		// build first block B_0
+
+		// Octet Number Contents
+		// ------------ ---------
+		// 0 Flags
+		// 1 ... 15-L Nonce N
+		// 16-L ... 15 l(m)
+
+		// The Adata bit is set to zero if l(a)=0, and set to one if l(a)>0
+		int adata = lengthA > 0 ? 1 : 0;
+		// M' field is set to (M-2)/2
+		int mPrime = (numAuthenticationBytes - 2) / 2;
+		// L' = L-1 (the zero value is reserved)
+		int lPrime = L - 1;
+
+		// Bit Number Contents
+		// ---------- ----------------------
+		// 7 Reserved (always zero)
+		// 6 Adata
+		// 5 ... 3 M'
+		// 2 ... 0 L'
+
+		// Flags = 64*Adata + 8*M' + L'
+		blocks[0] = (byte) (64 * adata + 8 * mPrime + lPrime);
+		// 1 ... 15-L Nonce N
+		System.arraycopy(nonce, 0, blocks, 1, nonceL);
+		// writer the length (L bytes)
+		if (setIntAtEnd(blocks, nonceL + 1, lengthM) != 0) {
+			throw new IllegalArgumentException("Length " + lengthM + " too large for nonce " + nonceL
+					+ " and blocksize " + BLOCK_SIZE + " bytes.");
 		}
 
-		protected int xorInt(int offset, int end, int number) {
-			while (end > offset) {
-				block[--end] ^= (byte) number;
-				number >>>= 8;
-			}
-			return number;
+		/*
+		 * The blocks encoding a are formed by concatenating this string that
+		 * encodes l(a) with a itself, and splitting the result into 16-octet
+		 * blocks, and then padding the last block with zeroes if necessary.
+		 */
+		int index = BLOCK_SIZE;
+		if (lengthEncodedA == 2) {
+			blocks[index++] = (byte) (lengthA >>> 8);
+			blocks[index++] = (byte) lengthA;
+		} else if (lengthEncodedA == 6) {
+			blocks[index++] = (byte) 0xff;
+			blocks[index++] = (byte) 0xfe;
+			blocks[index++] = (byte) (lengthA >>> 24);
+			blocks[index++] = (byte) (lengthA >>> 16);
+			blocks[index++] = (byte) (lengthA >>> 8);
+			blocks[index++] = (byte) lengthA;
 		}
+		System.arraycopy(a, 0, blocks, index, lengthA);
+		index += lengthA;
+		Arrays.fill(blocks, index, offsetM, (byte) 0);
+		System.arraycopy(m, mOffset, blocks, offsetM, lengthM);
+		Arrays.fill(blocks, offsetM + lengthM, length, (byte) 0);
+
+		Cipher cipher = MAC_CIPHER.currentWithCause();
+		cipher.init(Cipher.ENCRYPT_MODE, key, ZERO_IV);
+		cipher.doFinal(blocks, 0, length, blocks, 0);
+		System.arraycopy(blocks, length - BLOCK_SIZE, mac, 0, BLOCK_SIZE);
+	}
 
+	/**
+	 * Get length padded to multiple of {@link #BLOCK_SIZE}.
+	 * 
+	 * @param length length
+	 * @return padded length
+	 */
+	private static int padded(int length) {
+		return (length + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE;
 	}
+
 	// Static methods /////////////////////////////////////////////////
 
 	/**
@@ -318,45 +331,59 @@ public class CCMBlockCipher {
 	 */
 	public final static byte[] decrypt(SecretKey key, byte[] nonce, byte[] additionalData, byte[] crypted,
 			int cryptedOffset, int cryptedLength, int numAuthenticationBytes) throws GeneralSecurityException {
+		byte[] decrypted = new byte[cryptedLength - numAuthenticationBytes];
+		decrypt(key, nonce, additionalData, crypted, cryptedOffset, cryptedLength, decrypted, 0,
+				numAuthenticationBytes);
+		return decrypted;
+	}
 
-		// instantiate the underlying block cipher
-		Cipher cipher = CIPHER.current();
-		cipher.init(Cipher.ENCRYPT_MODE, key);
+	/**
+	 * Decrypts into a provided buffer.
+	 * 
+	 * See <a href="http://tools.ietf.org/html/rfc3610#section-2.5">RFC 3610</a>
+	 * for details. The output may be the same array as crypted, if the output
+	 * offset is not larger than the crypted offset. That decrypts in place.
+	 * 
+	 * @param key the encryption key K.
+	 * @param nonce the nonce N.
+	 * @param additionalData the additional authenticated data a.
+	 * @param crypted the encrypted and authenticated message c.
+	 * @param cryptedOffset offset within crypted
+	 * @param cryptedLength length within crypted
+	 * @param output buffer for the decrypted message. If the message could
+	 *            not be authenticated, the range of the decrypted message is
+	 *            cleared.
+	 * @param outputOffset offset within output
+	 * @param numAuthenticationBytes Number of octets in authentication field.
+	 * @return length of the decrypted message
+	 * 
+	 * @throws GeneralSecurityException if the message could not be de-crypted,
+	 *             e.g. because the ciphertext's block size is not correct
+	 * @throws InvalidMacException if the message could not be authenticated
+	 * @since 2.5
+	 */
+	public final static int decrypt(SecretKey key, byte[] nonce, byte[] additionalData, byte[] crypted,
+			int cryptedOffset, int cryptedLength, byte[] output, int outputOffset, int numAuthenticationBytes)
+			throws GeneralSecurityException {
 
 		int lengthM = cryptedLength - numAuthenticationBytes;
-		int blockSize = cipher.getBlockSize();
-
-		// decrypted data without MAC
-		byte[] decrypted = new byte[lengthM];
-		// separate MAC
-		byte[] T = new byte[numAuthenticationBytes];
-
-		BlockCipher blockCiper = new BlockCipher(cipher, nonce);
-		// block 0 for MAC
-		int blockNo = 0;
-		byte[] block = blockCiper.updateBlock(blockNo++);
-		int tOffset = cryptedOffset + lengthM;
-		for (int i = 0; i < numAuthenticationBytes; ++i) {
-			T[i] = (byte) (crypted[tOffset + i] ^ block[i]);
+		if (lengthM < 0) {
+			throw new GeneralSecurityException("Ciphertext too short!");
 		}
 
-		for (int i = 0; i < lengthM;) {
-			block = blockCiper.updateBlock(blockNo++);
-			int blockEnd = i + blockSize;
-			if (blockEnd > lengthM) {
-				blockEnd = lengthM;
-			}
-			for (int j = 0; i < blockEnd; ++i, ++j) {
-				decrypted[i] = (byte) (crypted[cryptedOffset + i] ^ block[j]);
-			}
-		}
+		// separate MAC, decrypted by block A_0
+		byte[] T = new byte[BLOCK_SIZE];
+		System.arraycopy(crypted, cryptedOffset + lengthM, T, 0, numAuthenticationBytes);
+		Cipher cipher = initCounterMode(key, nonce, lengthM);
+		cipher.update(T, 0, BLOCK_SIZE, T, 0);
+		cipher.doFinal(crypted, cryptedOffset, lengthM, output, outputOffset);
 
 		/*
 		 * The message and additional authentication data is then used to
 		 * recompute the CBC-MAC value and check T.
 		 */
-		MacCipher macCipher = new MacCipher(cipher, nonce, additionalData, decrypted, numAuthenticationBytes);
-		byte[] mac = macCipher.getMac();
+		byte[] mac = new byte[BLOCK_SIZE];
+		mac(key, nonce, additionalData, output, outputOffset, lengthM, numAuthenticationBytes, mac);
 
 		/*
 		 * If the T value is not correct, the receiver MUST NOT reveal any
@@ -364,9 +391,12 @@ public class CCMBlockCipher {
 		 * MUST NOT reveal the decrypted message, the value T, or any other
 		 * information.
 		 */
+		mac = Arrays.copyOf(mac, numAuthenticationBytes);
+		T = Arrays.copyOf(T, numAuthenticationBytes);
 		if (MessageDigest.isEqual(T, mac)) {
-			return decrypted;
+			return lengthM;
 		} else {
+			Arrays.fill(output, outputOffset, outputOffset + lengthM, (byte) 0);
 			throw new InvalidMacException(mac, T);
 		}
 	}
@@ -406,44 +436,54 @@ public class CCMBlockCipher {
 	 */
 	public final static byte[] encrypt(int outputOffset, SecretKey key, byte[] nonce, byte[] additionalData, byte[] message,
 			int numAuthenticationBytes) throws GeneralSecurityException {
+		byte[] encrypted = new byte[outputOffset + message.length + numAuthenticationBytes];
+		encrypt(key, nonce, additionalData, message, 0, message.length, encrypted, outputOffset,
+				numAuthenticationBytes);
+		return encrypted;
+	}
 
-		// instantiate the cipher
-		Cipher cipher = CIPHER.current();
-		cipher.init(Cipher.ENCRYPT_MODE, key);
-		int blockSize = cipher.getBlockSize();
-		int lengthM = message.length;
+	/**
+	 * Encrypts into a provided buffer.
+	 * 
+	 * See <a href="http://tools.ietf.org/html/rfc3610#section-2.2">RFC 3610</a>
+	 * for details. The output may be the same array as the message, if the
+	 * output offset is not larger than the message offset. That encrypts in
+	 * place. The output must provide space for the message and the
+	 * authentication field.
+	 * 
+	 * @param key the encryption key K.
+	 * @param nonce the nonce N.
+	 * @param additionalData the additional authenticated data a.
+	 * @param message the message to authenticate and encrypt.
+	 * @param messageOffset offset within message
+	 * @param messageLength length within message
+	 * @param output buffer for the encrypted and authenticated message.
+	 * @param outputOffset offset within output
+	 * @param numAuthenticationBytes Number of octets in authentication field.
+	 * @return length of the encrypted and authenticated message.
+	 * @throws GeneralSecurityException if the data could not be encrypted, e.g.
+	 *             because the JVM does not support the AES cipher algorithm
+	 * @since 2.5
+	 */
+	public final static int encrypt(SecretKey key, byte[] nonce, byte[] additionalData, byte[] message,
+			int messageOffset, int messageLength, byte[] output, int outputOffset, int numAuthenticationBytes)
+			throws GeneralSecurityException {
 
 		/*
 		 * First, authentication: http://tools.ietf.org/html/rfc3610#section-2.2
 		 */
 		// compute the authentication field T
-		MacCipher macCipher = new MacCipher(cipher, nonce, additionalData, message, numAuthenticationBytes);
-		byte[] mac = macCipher.getMac();
+		byte[] mac = new byte[BLOCK_SIZE];
+		mac(key, nonce, additionalData, message, messageOffset, messageLength, numAuthenticationBytes, mac);
 
 		/*
 		 * Second, encryption http://tools.ietf.org/html/rfc3610#section-2.3
 		 */
-		// encrypted data with MAC
-		byte[] encrypted = new byte[outputOffset + lengthM + numAuthenticationBytes];
-		BlockCipher blockCiper = new BlockCipher(cipher, nonce);
-		// block 0 for MAC
-		int blockNo = 0;
-		byte[] block = blockCiper.updateBlock(blockNo++);
-		int tOffset = outputOffset + lengthM;
-		for (int i = 0; i < numAuthenticationBytes; ++i) {
-			encrypted[i + tOffset] = (byte) (mac[i] ^ block[i]);
-		}
-		for (int i = 0; i < lengthM;) {
-			block = blockCiper.updateBlock(blockNo++);
-			int blockEnd = i + blockSize;
-			if (blockEnd > lengthM) {
-				blockEnd = lengthM;
-			}
-			for (int j = 0; i < blockEnd; ++i, ++j) {
-				encrypted[i + outputOffset] = (byte) (message[i] ^ block[j]);
-			}
-		}
-
-		return encrypted;
+		// block A_0 for MAC, A_1 ... A_n for the message
+		Cipher cipher = initCounterMode(key, nonce, messageLength);
+		cipher.update(mac, 0, BLOCK_SIZE, mac, 0);
+		cipher.doFinal(message, messageOffset, messageLength, output, outputOffset);
+		System.arraycopy(mac, 0, output, outputOffset + messageLength, numAuthenticationBytes);
+		return messageLength + numAuthenticationBytes;
 	}
 }
@@ -0,0 +1,316 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.scandium.dtls.cipher;
+
+import java.security.GeneralSecurityException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.californium.elements.util.ClockUtil;
+import org.eclipse.californium.scandium.DtlsHealth;
+import org.eclipse.californium.scandium.DtlsHealthExtended;
+import org.eclipse.californium.scandium.dtls.cipher.XECDHECryptography.SupportedGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of precomputed ephemeral key pairs for the ECDHE key exchange.
+ *
+ * The generation of the ephemeral key pair is one of the most expensive
+ * operations of a handshake. Generating them in the background reduces the
+ * processing time of handshakes, especially, if many peers start handshakes at
+ * the same time, e.g. after a restart of the server.
+ *
+ * The pool keeps a queue of key pairs for each of the supported groups. The
+ * queues are refilled by the executor up to a target size. The target size
+ * starts with {@link #getMaximumSize()} to cover the burst of handshakes after
+ * a start and adapts to the rate the key pairs are taken: every
+ * {@link #ADAPTION_INTERVAL_NANOS} it's set to twice the number of key pairs
+ * taken within that interval. If a queue gets depleted, the target size is
+ * doubled immediately. The target size is kept in the range of
+ * {@link #getMinimumSize()} and {@link #getMaximumSize()}. If a queue is
+ * depleted, the key pair is generated by the caller and the depletion is
+ * reported to the {@link DtlsHealthExtended}, if available.
+ *
+ * @since 2.5
+ */
+public class EphemeralKeyPool {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(EphemeralKeyPool.class);
+
+	/**
+	 * Number of key pairs generated by one refill job. Limits the time a
+	 * thread of the executor is used, before the job is rescheduled.
+	 */
+	static final int REFILL_BATCH_SIZE = 16;
+	/**
+	 * Interval to adapt the target size to the rate of taken key pairs.
+	 */
+	static final long ADAPTION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * Executor for refill jobs.
+	 */
+	private final Executor executor;
+	/**
+	 * Health to report depletion. {@code null}, if not available.
+	 */
+	private final DtlsHealthExtended health;
+	/**
+	 * Minimum target size of the queues.
+	 */
+	private final int minimumSize;
+	/**
+	 * Maximum target size of the queues.
+	 */
+	private final int maximumSize;
+	/**
+	 * Map of pools per supported group.
+	 */
+	private final Map<SupportedGroup, GroupPool> pools;
+	/**
+	 * Indicates, that the pool is running and refills the queues.
+	 */
+	private volatile boolean running = true;
+
+	/**
+	 * Create pool of ephemeral key pairs.
+	 *
+	 * The queues are filled up to the maximum size on {@link #start()}.
+	 *
+	 * @param maximumSize maximum number of key pairs per supported group
+	 * @param groups supported groups to precompute key pairs. Unusable groups
+	 *            are ignored.
+	 * @param executor executor to generate the key pairs
+	 * @param health health to report depletion. If not implementing
+	 *            {@link DtlsHealthExtended} or {@code null}, depletion is not
+	 *            reported.
+	 * @throws NullPointerException if groups or executor is {@code null}
+	 * @throws IllegalArgumentException if maximum size is less than 1
+	 */
+	public EphemeralKeyPool(int maximumSize, Collection<SupportedGroup> groups, Executor executor,
+			DtlsHealth health) {
+		if (groups == null) {
+			throw new NullPointerException("groups must not be null!");
+		}
+		if (executor == null) {
+			throw new NullPointerException("executor must not be null!");
+		}
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("maximum size " + maximumSize + " must be at least 1!");
+		}
+		this.executor = executor;
+		this.health = health instanceof DtlsHealthExtended ? (DtlsHealthExtended) health : null;
+		this.maximumSize = maximumSize;
+		this.minimumSize = Math.max(1, maximumSize / 16);
+		Map<SupportedGroup, GroupPool> pools = new EnumMap<SupportedGroup, GroupPool>(SupportedGroup.class);
+		for (SupportedGroup group : groups) {
+			if (group.isUsable()) {
+				pools.put(group, new GroupPool(group));
+			}
+		}
+		this.pools = Collections.unmodifiableMap(pools);
+	}
+
+	/**
+	 * Get minimum target size of the queues.
+	 *
+	 * @return minimum target size
+	 */
+	public int getMinimumSize() {
+		return minimumSize;
+	}
+
+	/**
+	 * Get maximum target size of the queues.
+	 *
+	 * @return maximum target size
+	 */
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Get number of available key pairs for group.
+	 *
+	 * @param group supported group
+	 * @return number of available key pairs. {@code 0}, if group is not
+	 *         pooled.
+	 */
+	public int size(SupportedGroup group) {
+		GroupPool pool = pools.get(group);
+		return pool == null ? 0 : pool.size.get();
+	}
+
+	/**
+	 * Start to fill the queues.
+	 */
+	public void start() {
+		running = true;
+		for (GroupPool pool : pools.values()) {
+			pool.refill();
+		}
+	}
+
+	/**
+	 * Take ephemeral key pair for the supported group.
+	 *
+	 * If the queue of the group is depleted, or the group is not pooled, the
+	 * key pair is generated by the calling thread.
+	 *
+	 * @param group supported group
+	 * @return ECDHE cryptography with the ephemeral key pair
+	 * @throws GeneralSecurityException if the key pair could not be generated
+	 */
+	public XECDHECryptography take(SupportedGroup group) throws GeneralSecurityException {
+		GroupPool pool = pools.get(group);
+		if (pool == null) {
+			return new XECDHECryptography(group);
+		}
+		XECDHECryptography ecdhe = pool.keys.poll();
+		if (ecdhe != null) {
+			pool.size.decrementAndGet();
+		}
+		pool.taken.incrementAndGet();
+		if (health != null) {
+			health.takeEphemeralKey(ecdhe == null);
+		}
+		pool.refill();
+		if (ecdhe == null) {
+			LOGGER.debug("{} key pool depleted!", group.name());
+			ecdhe = new XECDHECryptography(group);
+		}
+		return ecdhe;
+	}
+
+	/**
+	 * Stop refilling and destroy all pooled key pairs.
+	 */
+	public void drain() {
+		running = false;
+		for (GroupPool pool : pools.values()) {
+			XECDHECryptography ecdhe;
+			while ((ecdhe = pool.keys.poll()) != null) {
+				pool.size.decrementAndGet();
+				ecdhe.destroy();
+			}
+		}
+	}
+
+	/**
+	 * Pool of key pairs of a supported group.
+	 */
+	private class GroupPool implements Runnable {
+
+		private final SupportedGroup group;
+		private final ConcurrentLinkedQueue<XECDHECryptography> keys = new ConcurrentLinkedQueue<XECDHECryptography>();
+		/**
+		 * Number of pooled key pairs. Maintained separately, because
+		 * {@link ConcurrentLinkedQueue#size()} is expensive.
+		 */
+		private final AtomicInteger size = new AtomicInteger();
+		/**
+		 * Number of key pairs taken since the last adaption of the target
+		 * size.
+		 */
+		private final AtomicInteger taken = new AtomicInteger();
+		/**
+		 * Indicates, that a refill job is pending.
+		 */
+		private final AtomicBoolean refilling = new AtomicBoolean();
+		/**
+		 * Target size of the queue. Initially the maximum size to cover the
+		 * burst of handshakes after a start.
+		 */
+		private volatile int target = maximumSize;
+		/**
+		 * Time of the last adaption of the target size. Only accessed by the
+		 * refill job. Value in nanoseconds.
+		 * 
+		 * @see ClockUtil#nanoRealtime()
+		 */
+		private long lastAdaption = ClockUtil.nanoRealtime();
+
+		private GroupPool(SupportedGroup group) {
+			this.group = group;
+		}
+
+		/**
+		 * Schedule refill job, if required and not already pending.
+		 */
+		private void refill() {
+			if (running && size.get() < target && refilling.compareAndSet(false, true)) {
+				try {
+					executor.execute(this);
+				} catch (RejectedExecutionException ex) {
+					refilling.set(false);
+					LOGGER.debug("{} key pool refill rejected!", group.name());
+				}
+			}
+		}
+
+		/**
+		 * Adapt the target size to the rate of taken key pairs.
+		 *
+		 * Only called by the refill job.
+		 */
+		private void adapt() {
+			int current = target;
+			int next = current;
+			long now = ClockUtil.nanoRealtime();
+			if (size.get() == 0) {
+				next = current * 2;
+			} else if (now - lastAdaption >= ADAPTION_INTERVAL_NANOS) {
+				next = taken.getAndSet(0) * 2;
+				lastAdaption = now;
+			}
+			next = Math.max(minimumSize, Math.min(maximumSize, next));
+			if (next != current) {
+				LOGGER.trace("{} key pool target {} => {}", group.name(), current, next);
+				target = next;
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				adapt();
+				for (int count = 0; count < REFILL_BATCH_SIZE && running && size.get() < target; ++count) {
+					keys.add(new XECDHECryptography(group));
+					size.incrementAndGet();
+				}
+			} catch (GeneralSecurityException ex) {
+				LOGGER.warn("{} key pool refill failed!", group.name(), ex);
+				return;
+			} finally {
+				refilling.set(false);
+			}
+			if (!running) {
+				drain();
+			} else {
+				refill();
+			}
+		}
+	}
+}
@@ -12,6 +12,7 @@
  * 
  * Contributors:
  *    Bosch.IO GmbH - initial creation
+ *    Bosch.IO GmbH - add validation cache
  ******************************************************************************/
 package org.eclipse.californium.scandium.dtls.x509;
 
@@ -167,7 +168,10 @@ public class AsyncNewAdvancedCertificateVerifier extends StaticNewAdvancedCertif
 	public static class Builder extends StaticNewAdvancedCertificateVerifier.Builder {
 
 		public AsyncNewAdvancedCertificateVerifier build() {
-			return new AsyncNewAdvancedCertificateVerifier(trustedCertificates, trustedRPKs, supportedCertificateTypes);
+			AsyncNewAdvancedCertificateVerifier verifier = new AsyncNewAdvancedCertificateVerifier(
+					trustedCertificates, trustedRPKs, supportedCertificateTypes);
+			applyValidationCache(verifier);
+			return verifier;
 		}
 	}
 }
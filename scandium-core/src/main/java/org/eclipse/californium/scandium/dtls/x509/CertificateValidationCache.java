@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.scandium.dtls.x509;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.cert.CertPath;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.elements.util.Bytes;
+import org.eclipse.californium.elements.util.ClockUtil;
+import org.eclipse.californium.elements.util.LeastRecentlyUsedCache;
+import org.eclipse.californium.scandium.dtls.cipher.ThreadLocalMessageDigest;
+
+/**
+ * Cache for results of successful certificate path validations.
+ *
+ * The results are stored using the fingerprint of the certificate path, the
+ * fingerprint of the trusted certificates and the truncation mode as key. A
+ * result expires after the time to live, or when the first certificate of the
+ * path expires, whatever comes first. If the cache is full, the least
+ * recently used entry is evicted.
+ *
+ * @since 2.5
+ */
+class CertificateValidationCache {
+
+	/**
+	 * Message digest for fingerprints.
+	 */
+	private static final ThreadLocalMessageDigest SHA256 = new ThreadLocalMessageDigest("SHA-256");
+
+	/**
+	 * Time to live in nanoseconds.
+	 */
+	private final long timeToLiveNanos;
+	/**
+	 * Cache of validated certificate paths.
+	 */
+	private final LeastRecentlyUsedCache<Bytes, Entry> cache;
+
+	/**
+	 * Create cache.
+	 *
+	 * @param size maximum number of cached validation results
+	 * @param timeToLive time to live of cached validation results
+	 * @param unit time unit of time to live
+	 * @throws IllegalArgumentException if size or time to live is less than 1
+	 */
+	CertificateValidationCache(int size, long timeToLive, TimeUnit unit) {
+		if (size < 1) {
+			throw new IllegalArgumentException("cache size " + size + " must be at least 1!");
+		}
+		if (timeToLive < 1) {
+			throw new IllegalArgumentException("time to live " + timeToLive + " must be at least 1!");
+		}
+		this.timeToLiveNanos = unit.toNanos(timeToLive);
+		// threshold 0, evict the least recently used entry, if full
+		this.cache = new LeastRecentlyUsedCache<Bytes, Entry>(size, 0);
+	}
+
+	/**
+	 * Get validated certificate path.
+	 *
+	 * @param key key of validation
+	 * @return validated certificate path, or {@code null}, if not cached or
+	 *         expired.
+	 */
+	CertPath get(Bytes key) {
+		synchronized (cache) {
+			Entry entry = cache.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (entry.expires - ClockUtil.nanoRealtime() <= 0) {
+				cache.remove(key);
+				return null;
+			}
+			return entry.certPath;
+		}
+	}
+
+	/**
+	 * Put validated certificate path.
+	 *
+	 * @param key key of validation
+	 * @param certPath validated certificate path. Used to calculate the
+	 *            expiration of the entry.
+	 */
+	void put(Bytes key, CertPath certPath) {
+		long now = ClockUtil.nanoRealtime();
+		long timeToLive = timeToLiveNanos;
+		long currentMillis = System.currentTimeMillis();
+		for (Certificate certificate : certPath.getCertificates()) {
+			if (certificate instanceof X509Certificate) {
+				long validMillis = ((X509Certificate) certificate).getNotAfter().getTime() - currentMillis;
+				timeToLive = Math.min(timeToLive, TimeUnit.MILLISECONDS.toNanos(validMillis));
+			}
+		}
+		if (timeToLive > 0) {
+			synchronized (cache) {
+				cache.put(key, new Entry(certPath, now + timeToLive));
+			}
+		}
+	}
+
+	/**
+	 * Remove all cached validation results.
+	 */
+	void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Get number of cached validation results.
+	 *
+	 * @return number of cached validation results
+	 */
+	int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	/**
+	 * Create fingerprint of certificates.
+	 *
+	 * @param certificates certificates
+	 * @return fingerprint
+	 * @throws GeneralSecurityException if the certificates could not be
+	 *             encoded, or the message digest is not supported.
+	 */
+	static byte[] fingerprint(Iterable<? extends Certificate> certificates) throws GeneralSecurityException {
+		MessageDigest md = SHA256.currentWithCause();
+		for (Certificate certificate : certificates) {
+			md.update(certificate.getEncoded());
+		}
+		return md.digest();
+	}
+
+	/**
+	 * Create key of validation.
+	 *
+	 * @param truncate {@code true}, if the certificate path is truncated on
+	 *            validation, {@code false}, otherwise.
+	 * @param certPath certificate path to validate
+	 * @param trustFingerprint fingerprint of the trusted certificates
+	 * @return key of validation
+	 * @throws GeneralSecurityException if the certificates could not be
+	 *             encoded, or the message digest is not supported.
+	 */
+	static Bytes createKey(boolean truncate, CertPath certPath, byte[] trustFingerprint)
+			throws GeneralSecurityException {
+		byte[] pathFingerprint = fingerprint(certPath.getCertificates());
+		byte[] key = new byte[pathFingerprint.length + trustFingerprint.length + 1];
+		System.arraycopy(pathFingerprint, 0, key, 0, pathFingerprint.length);
+		System.arraycopy(trustFingerprint, 0, key, pathFingerprint.length, trustFingerprint.length);
+		key[key.length - 1] = (byte) (truncate ? 1 : 0);
+		return new Bytes(key, key.length, false);
+	}
+
+	/**
+	 * Cached validation result.
+	 */
+	private static class Entry {
+
+		private final CertPath certPath;
+		private final long expires;
+
+		private Entry(CertPath certPath, long expires) {
+			this.certPath = certPath;
+			this.expires = expires;
+		}
+	}
+}
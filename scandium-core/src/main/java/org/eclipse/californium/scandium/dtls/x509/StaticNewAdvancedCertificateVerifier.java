@@ -12,6 +12,7 @@
  * 
  * Contributors:
  *    Bosch.IO GmbH - initial creation
+ *    Bosch.IO GmbH - add validation cache
  ******************************************************************************/
 package org.eclipse.californium.scandium.dtls.x509;
 
@@ -26,10 +27,14 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.californium.elements.auth.RawPublicKeyIdentity;
+import org.eclipse.californium.elements.util.Bytes;
 import org.eclipse.californium.elements.util.CertPathUtil;
 import org.eclipse.californium.elements.util.SslContextUtil;
+import org.eclipse.californium.scandium.DtlsHealth;
+import org.eclipse.californium.scandium.DtlsHealthExtended;
 import org.eclipse.californium.scandium.dtls.AlertMessage;
 import org.eclipse.californium.scandium.dtls.AlertMessage.AlertDescription;
 import org.eclipse.californium.scandium.dtls.AlertMessage.AlertLevel;
@@ -69,6 +74,30 @@ public class StaticNewAdvancedCertificateVerifier implements NewAdvancedCertific
 	 */
 	private final List<CertificateType> supportedCertificateTypes;
 
+	/**
+	 * Fingerprint of the trusted x509 certificates. Part of the key of the
+	 * {@link #validationCache}. {@code null}, if not available.
+	 * 
+	 * @since 2.5
+	 */
+	private final byte[] trustFingerprint;
+
+	/**
+	 * Cache for results of certificate path validations. {@code null}, if not
+	 * used.
+	 * 
+	 * @since 2.5
+	 */
+	private volatile CertificateValidationCache validationCache;
+
+	/**
+	 * Health to report hits and misses of the {@link #validationCache}.
+	 * {@code null}, if not available.
+	 * 
+	 * @since 2.5
+	 */
+	private volatile DtlsHealthExtended health;
+
 	/**
 	 * Create delegating certificate verifier for x509 and RPK.
 	 * 
@@ -109,6 +138,71 @@ public class StaticNewAdvancedCertificateVerifier implements NewAdvancedCertific
 				: Arrays.copyOf(trustedCertificates, trustedCertificates.length);
 		this.trustedRPKs = trustedRPKs == null ? null : new HashSet<>(Arrays.asList(trustedRPKs));
 		this.supportedCertificateTypes = Collections.unmodifiableList(supportedCertificateTypes);
+		byte[] fingerprint = null;
+		if (trustedCertificates != null) {
+			try {
+				fingerprint = CertificateValidationCache.fingerprint(Arrays.asList(this.trustedCertificates));
+			} catch (GeneralSecurityException e) {
+				LOGGER.warn("Fingerprint of trusted certificates not available, validation cache disabled!", e);
+			}
+		}
+		this.trustFingerprint = fingerprint;
+	}
+
+	/**
+	 * Set cache for results of certificate path validations.
+	 * 
+	 * Caches the successful validations of certificate paths. A result expires
+	 * after the time to live, or when a certificate of the path expires. If
+	 * the cache is full, the least recently used result is removed. The
+	 * cache is bound to the trusted certificates of this verifier, a new
+	 * verifier with reloaded trusted certificates starts with an empty
+	 * cache.
+	 * 
+	 * @param size maximum number of cached results. {@code 0} to disable the
+	 *            cache.
+	 * @param timeToLive time to live of cached results
+	 * @param unit time unit of the time to live
+	 * @return this verifier for command chaining
+	 * @throws IllegalArgumentException if size is negative or time to live is
+	 *             less than 1
+	 * @since 2.5
+	 */
+	public StaticNewAdvancedCertificateVerifier setValidationCache(int size, long timeToLive, TimeUnit unit) {
+		if (size < 0) {
+			throw new IllegalArgumentException("cache size " + size + " must not be negative!");
+		}
+		if (size == 0 || trustFingerprint == null) {
+			validationCache = null;
+		} else {
+			validationCache = new CertificateValidationCache(size, timeToLive, unit);
+		}
+		return this;
+	}
+
+	/**
+	 * Clear cache for results of certificate path validations.
+	 * 
+	 * Intended to be used, if a certificate is revoked.
+	 * 
+	 * @since 2.5
+	 */
+	public void clearValidationCache() {
+		CertificateValidationCache cache = validationCache;
+		if (cache != null) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Set health to report hits and misses of the validation cache.
+	 * 
+	 * @param health health. Only reported, if {@link DtlsHealthExtended} is
+	 *            implemented.
+	 * @since 2.5
+	 */
+	public void setHealthHandler(DtlsHealth health) {
+		this.health = health instanceof DtlsHealthExtended ? (DtlsHealthExtended) health : null;
 	}
 
 	@Override
@@ -157,8 +251,7 @@ public class StaticNewAdvancedCertificateVerifier implements NewAdvancedCertific
 							}
 						}
 					}
-					certChain = CertPathUtil.validateCertificatePath(truncateCertificatePath, certPath,
-							trustedCertificates);
+					certChain = validateCertificatePath(truncateCertificatePath, certPath);
 					return new CertificateVerificationResult(cid, certChain, null);
 				} catch (GeneralSecurityException e) {
 					if (LOGGER.isTraceEnabled()) {
@@ -177,6 +270,40 @@ public class StaticNewAdvancedCertificateVerifier implements NewAdvancedCertific
 		}
 	}
 
+	/**
+	 * Validate certificate path.
+	 * 
+	 * Use the validation cache, if available.
+	 * 
+	 * @param truncateCertificatePath truncate certificate path at trusted
+	 *            certificate
+	 * @param certPath certificate path
+	 * @return certificate path actually used certificate path for validation
+	 * @throws GeneralSecurityException if verification fails
+	 * @since 2.5
+	 */
+	private CertPath validateCertificatePath(boolean truncateCertificatePath, CertPath certPath)
+			throws GeneralSecurityException {
+		CertificateValidationCache cache = validationCache;
+		if (cache == null) {
+			return CertPathUtil.validateCertificatePath(truncateCertificatePath, certPath, trustedCertificates);
+		}
+		Bytes key = CertificateValidationCache.createKey(truncateCertificatePath, certPath, trustFingerprint);
+		CertPath validatedPath = cache.get(key);
+		DtlsHealthExtended health = this.health;
+		if (health != null) {
+			health.validatingCertificatePath(validatedPath != null);
+		}
+		if (validatedPath == null) {
+			validatedPath = CertPathUtil.validateCertificatePath(truncateCertificatePath, certPath,
+					trustedCertificates);
+			cache.put(key, validatedPath);
+		} else {
+			LOGGER.debug("Certificate validation cached.");
+		}
+		return validatedPath;
+	}
+
 	@Override
 	public List<X509Certificate> getAcceptedIssuers() {
 		return Arrays.asList(trustedCertificates);
@@ -205,6 +332,19 @@ public class StaticNewAdvancedCertificateVerifier implements NewAdvancedCertific
 		 * List of supported certificate type in order of preference.
 		 */
 		protected List<CertificateType> supportedCertificateTypes;
+		/**
+		 * Maximum number of cached validation results. {@code 0}, if the
+		 * cache is disabled.
+		 * 
+		 * @since 2.5
+		 */
+		protected int validationCacheSize;
+		/**
+		 * Time to live of cached validation results in seconds.
+		 * 
+		 * @since 2.5
+		 */
+		protected long validationCacheTimeToLive;
 
 		public Builder setTrustedCertificates(Certificate... trustedCertificates) {
 			if (trustedCertificates == null) {
@@ -240,13 +380,44 @@ public class StaticNewAdvancedCertificateVerifier implements NewAdvancedCertific
 			return this;
 		}
 
+		/**
+		 * Set cache for results of certificate path validations.
+		 * 
+		 * @param size maximum number of cached results. {@code 0} to disable
+		 *            the cache.
+		 * @param timeToLiveSeconds time to live of cached results in seconds
+		 * @return this builder for command chaining
+		 * @see StaticNewAdvancedCertificateVerifier#setValidationCache(int,
+		 *      long, TimeUnit)
+		 * @since 2.5
+		 */
+		public Builder setValidationCache(int size, long timeToLiveSeconds) {
+			this.validationCacheSize = size;
+			this.validationCacheTimeToLive = timeToLiveSeconds;
+			return this;
+		}
+
+		/**
+		 * Apply validation cache settings to verifier.
+		 * 
+		 * @param verifier verifier to apply the settings
+		 * @since 2.5
+		 */
+		protected void applyValidationCache(StaticNewAdvancedCertificateVerifier verifier) {
+			if (validationCacheSize > 0) {
+				verifier.setValidationCache(validationCacheSize, validationCacheTimeToLive, TimeUnit.SECONDS);
+			}
+		}
+
 		public boolean hasTrusts() {
 			return trustedCertificates != null || trustedRPKs != null;
 		}
 
 		public NewAdvancedCertificateVerifier build() {
-			return new StaticNewAdvancedCertificateVerifier(trustedCertificates, trustedRPKs,
-					supportedCertificateTypes);
+			StaticNewAdvancedCertificateVerifier verifier = new StaticNewAdvancedCertificateVerifier(
+					trustedCertificates, trustedRPKs, supportedCertificateTypes);
+			applyValidationCache(verifier);
+			return verifier;
 		}
 	}
 }
@@ -63,6 +63,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.californium.elements.AddressEndpointContext;
+import org.eclipse.californium.elements.BatchRawDataChannel;
 import org.eclipse.californium.elements.EndpointContext;
 import org.eclipse.californium.elements.RawData;
 import org.eclipse.californium.elements.RawDataChannel;
@@ -398,10 +399,12 @@ public class ConnectorHelper {
 		}
 	}
 
-	static class SimpleRawDataChannel extends LatchDecrementingRawDataChannel {
+	static class SimpleRawDataChannel extends LatchDecrementingRawDataChannel implements BatchRawDataChannel {
 
 		private RawDataProcessor processor;
 		private DTLSConnector connector;
+		private CountDownLatch batchLatch;
+		private List<RawData> lastBatch;
 
 		public SimpleRawDataChannel() {
 		}
@@ -414,6 +417,39 @@ public class ConnectorHelper {
 			setProcessor(processor);
 		}
 
+		public synchronized void setBatchLatchCount(int count) {
+			this.batchLatch = new CountDownLatch(count);
+			this.lastBatch = null;
+		}
+
+		public List<RawData> awaitBatch(long timeout, TimeUnit unit) throws InterruptedException {
+			CountDownLatch latch;
+			synchronized (this) {
+				latch = batchLatch;
+			}
+			if (latch != null && latch.await(timeout, unit)) {
+				synchronized (this) {
+					return lastBatch;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public void receiveData(List<RawData> raws) {
+			CountDownLatch latch;
+			synchronized (this) {
+				lastBatch = raws;
+				latch = batchLatch;
+			}
+			for (RawData raw : raws) {
+				receiveData(raw);
+			}
+			if (latch != null) {
+				latch.countDown();
+			}
+		}
+
 		public synchronized void setProcessor(RawDataProcessor processor) {
 			if (processor != null && connector == null) {
 				throw new IllegalStateException("connector must be provided when creating the instance!");
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.scandium;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.californium.elements.category.Medium;
+import org.eclipse.californium.elements.rule.ThreadsRule;
+import org.eclipse.californium.scandium.config.DtlsConnectorConfig;
+import org.eclipse.californium.scandium.dtls.SingleNodeConnectionIdGenerator;
+import org.eclipse.californium.scandium.rule.DtlsNetworkRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Verifies the pooled receive buffers of the {@link DTLSConnector}.
+ */
+@Category(Medium.class)
+public class DTLSConnectorBufferPoolTest {
+
+	private static final int POOL_SIZE = 4;
+
+	@ClassRule
+	public static DtlsNetworkRule network = new DtlsNetworkRule(DtlsNetworkRule.Mode.DIRECT,
+			DtlsNetworkRule.Mode.NATIVE);
+
+	@Rule
+	public ThreadsRule cleanup = new ThreadsRule();
+
+	ConnectorHelper serverHelper;
+	List<DTLSConnector> clients = new ArrayList<DTLSConnector>();
+
+	@Before
+	public void startServer() throws Exception {
+		serverHelper = new ConnectorHelper();
+		serverHelper.startServer(DtlsConnectorConfig.builder()
+				.setReceiveBufferPoolSize(POOL_SIZE)
+				.setConnectionIdGenerator(new SingleNodeConnectionIdGenerator(4)));
+	}
+
+	@After
+	public void cleanUp() {
+		for (DTLSConnector client : clients) {
+			client.destroy();
+		}
+		if (serverHelper != null) {
+			serverHelper.destroyServer();
+		}
+	}
+
+	@Test
+	public void testPooledServerEstablishesSessions() throws Exception {
+		for (int index = 0; index < ConnectorHelper.SERVER_CONNECTION_STORE_CAPACITY; ++index) {
+			InetSocketAddress clientEndpoint = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+			DtlsConnectorConfig clientConfig = serverHelper.newStandardClientConfigBuilder(clientEndpoint)
+					.setReceiveBufferPoolSize(POOL_SIZE)
+					.setConnectionIdGenerator(new SingleNodeConnectionIdGenerator(0))
+					.build();
+			DTLSConnector client = new DTLSConnector(clientConfig);
+			clients.add(client);
+			serverHelper.givenAnEstablishedSession(client, false);
+		}
+	}
+}
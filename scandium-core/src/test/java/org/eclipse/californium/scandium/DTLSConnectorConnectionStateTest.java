@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.scandium;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.elements.AddressEndpointContext;
+import org.eclipse.californium.elements.RawData;
+import org.eclipse.californium.elements.category.Medium;
+import org.eclipse.californium.elements.rule.ThreadsRule;
+import org.eclipse.californium.scandium.ConnectorHelper.LatchDecrementingRawDataChannel;
+import org.eclipse.californium.scandium.config.DtlsConnectorConfig;
+import org.eclipse.californium.scandium.dtls.Connection;
+import org.eclipse.californium.scandium.dtls.SessionId;
+import org.eclipse.californium.scandium.dtls.SingleNodeConnectionIdGenerator;
+import org.eclipse.californium.scandium.rule.DtlsNetworkRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Verifies, that the {@link DTLSConnector} saves the established connections
+ * on stop and restores them on start.
+ */
+@Category(Medium.class)
+public class DTLSConnectorConnectionStateTest {
+
+	@ClassRule
+	public static DtlsNetworkRule network = new DtlsNetworkRule(DtlsNetworkRule.Mode.DIRECT,
+			DtlsNetworkRule.Mode.NATIVE);
+
+	@Rule
+	public ThreadsRule cleanup = new ThreadsRule();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	ConnectorHelper serverHelper;
+	DTLSConnector client;
+	File file;
+
+	@Before
+	public void startServer() throws Exception {
+		file = new File(folder.getRoot(), "connections.bin");
+		serverHelper = new ConnectorHelper();
+		serverHelper.startServer(DtlsConnectorConfig.builder()
+				.setConnectionStateFile(file)
+				.setConnectionIdGenerator(new SingleNodeConnectionIdGenerator(4)));
+	}
+
+	@After
+	public void cleanUp() {
+		if (client != null) {
+			client.destroy();
+		}
+		if (serverHelper != null) {
+			serverHelper.destroyServer();
+		}
+	}
+
+	@Test
+	public void testConnectionIsRestoredAfterRestart() throws Exception {
+		InetSocketAddress clientEndpoint = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+		DtlsConnectorConfig clientConfig = serverHelper.newStandardClientConfigBuilder(clientEndpoint)
+				.setConnectionIdGenerator(new SingleNodeConnectionIdGenerator(0))
+				.build();
+		client = new DTLSConnector(clientConfig);
+		LatchDecrementingRawDataChannel clientChannel = serverHelper.givenAnEstablishedSession(client, false);
+		SessionId sessionId = serverHelper.establishedServerSession.getSessionIdentifier();
+
+		serverHelper.server.stop();
+		assertTrue("connections not saved", file.exists());
+
+		// simulate a new process
+		serverHelper.serverConnectionStore.clear();
+		serverHelper.server.restart();
+		assertThat(file.exists(), is(false));
+
+		Connection connection = serverHelper.serverConnectionStore.get(client.getAddress());
+		assertThat(connection, is(notNullValue()));
+		assertThat(connection.getEstablishedSession().getSessionIdentifier(), is(sessionId));
+
+		// the client continues to use the session without handshake
+		clientChannel.setLatchCount(1);
+		client.send(RawData.outbound("Hello again".getBytes(), new AddressEndpointContext(serverHelper.serverEndpoint),
+				null, false));
+		assertTrue("no response after restart",
+				clientChannel.await(ConnectorHelper.MAX_TIME_TO_WAIT_SECS, TimeUnit.SECONDS));
+		assertThat(serverHelper.serverConnectionStore.get(client.getAddress()), is(connection));
+		assertThat(connection.getEstablishedSession().getSessionIdentifier(), is(sessionId));
+	}
+
+	@Test
+	public void testExistingConnectionIsNotReplaced() throws Exception {
+		InetSocketAddress clientEndpoint = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+		client = new DTLSConnector(serverHelper.newStandardClientConfig(clientEndpoint));
+		serverHelper.givenAnEstablishedSession(client, false);
+		Connection connection = serverHelper.serverConnectionStore.get(client.getAddress());
+
+		serverHelper.server.stop();
+		assertTrue("connections not saved", file.exists());
+		serverHelper.server.restart();
+
+		// the file is consumed, but the kept connection is not replaced
+		assertThat(file.exists(), is(false));
+		assertThat(serverHelper.serverConnectionStore.get(client.getAddress()), is(connection));
+	}
+}
@@ -277,6 +277,17 @@ public class DTLSConnectorHandshakeTest {
 					((AsyncNewAdvancedCertificateVerifier) verifier).setDelay(1);
 				}
 			}
+		}, new BuilderSetup() {
+
+			@Override
+			public String toString() {
+				return "async-crypto";
+			}
+
+			@Override
+			public void setup(Builder builder) {
+				builder.setCryptoThreadCount(2);
+			}
 		});
 
 		List<BuilderSetup[]> combinations = new ArrayList<>();
@@ -308,6 +319,11 @@ public class DTLSConnectorHandshakeTest {
 			client.add(sizeModes.get(0));
 			client.add(syncModes.get(1));
 			combinations.add(new BuilderSetup[] { server, client });
+			server = new BuilderSetups();
+			server.add(syncModes.get(2));
+			client = new BuilderSetups();
+			client.add(syncModes.get(0));
+			combinations.add(new BuilderSetup[] { server, client });
 		}
 		return combinations;
 	}
@@ -64,6 +64,7 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.net.DatagramPacket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.security.GeneralSecurityException;
@@ -79,6 +80,7 @@ import org.eclipse.californium.elements.auth.RawPublicKeyIdentity;
 import org.eclipse.californium.elements.category.Medium;
 import org.eclipse.californium.elements.rule.TestNameLoggerRule;
 import org.eclipse.californium.elements.rule.ThreadsRule;
+import org.eclipse.californium.elements.util.Bytes;
 import org.eclipse.californium.elements.util.ExecutorsUtil;
 import org.eclipse.californium.elements.util.SerialExecutor;
 import org.eclipse.californium.elements.util.SimpleMessageCallback;
@@ -86,9 +88,11 @@ import org.eclipse.californium.elements.util.TestThreadFactory;
 import org.eclipse.californium.scandium.ConnectorHelper.LatchDecrementingRawDataChannel;
 import org.eclipse.californium.scandium.ConnectorHelper.LatchSessionListener;
 import org.eclipse.californium.scandium.ConnectorHelper.RecordCollectorDataHandler;
+import org.eclipse.californium.scandium.ConnectorHelper.SimpleRawDataChannel;
 import org.eclipse.californium.scandium.ConnectorHelper.UdpConnector;
 import org.eclipse.californium.scandium.config.DtlsConnectorConfig;
 import org.eclipse.californium.scandium.dtls.AlertMessage;
+import org.eclipse.californium.scandium.dtls.ApplicationMessage;
 import org.eclipse.californium.scandium.dtls.AlertMessage.AlertDescription;
 import org.eclipse.californium.scandium.dtls.AlertMessage.AlertLevel;
 import org.eclipse.californium.scandium.dtls.CertificateType;
@@ -992,6 +996,31 @@ public class DTLSConnectorTest {
 		assertThat(callback.isConnecting(), is(false));
 	}
 
+	@Test
+	public void testMultipleApplicationRecordsAreDeliveredAsBatch() throws Exception {
+		givenAnEstablishedSession(false);
+		SimpleRawDataChannel channel = serverHelper.serverRawDataChannel;
+		channel.setBatchLatchCount(1);
+		// send two APPLICATION_DATA records within one datagram
+		Record record1 = new Record(ContentType.APPLICATION_DATA, establishedClientSession.getWriteEpoch(),
+				establishedClientSession.getSequenceNumber(),
+				new ApplicationMessage("first".getBytes(), serverHelper.serverEndpoint), establishedClientSession,
+				false, 0);
+		Record record2 = new Record(ContentType.APPLICATION_DATA, establishedClientSession.getWriteEpoch(),
+				establishedClientSession.getSequenceNumber(),
+				new ApplicationMessage("second".getBytes(), serverHelper.serverEndpoint), establishedClientSession,
+				false, 0);
+		byte[] data = Bytes.concatenate(record1.toByteArray(), record2.toByteArray());
+		client.sendNextDatagramOverNetwork(new DatagramPacket(data, data.length, serverHelper.serverEndpoint));
+
+		// ensure the server forwards both messages in one batch
+		List<RawData> batch = channel.awaitBatch(MAX_TIME_TO_WAIT_SECS, TimeUnit.SECONDS);
+		assertNotNull("server does not receive batch", batch);
+		assertThat(batch.size(), is(2));
+		assertArrayEquals("first".getBytes(), batch.get(0).getBytes());
+		assertArrayEquals("second".getBytes(), batch.get(1).getBytes());
+	}
+
 	private ClientHello createClientHello(CipherSuite... cipherSuites) {
 		List<CipherSuite> list = clientConfig.getSupportedCipherSuites();
 		if (cipherSuites != null && cipherSuites.length > 0) {
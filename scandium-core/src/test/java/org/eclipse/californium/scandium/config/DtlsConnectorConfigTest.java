@@ -78,6 +78,27 @@ public class DtlsConnectorConfigTest {
 		builder = DtlsConnectorConfig.builder().setAddress(endpoint);
 	}
 
+	@Test
+	public void testSetReusePortShardCountRejectsZero() {
+		exception.expect(IllegalArgumentException.class);
+		exception.expectMessage(containsString("must be at least 1"));
+		builder.setReusePortShardCount(0);
+	}
+
+	@Test
+	public void testSetReceiveBufferPoolSizeRejectsNegative() {
+		exception.expect(IllegalArgumentException.class);
+		exception.expectMessage(containsString("must not be negative"));
+		builder.setReceiveBufferPoolSize(-1);
+	}
+
+	@Test
+	public void testSetConnectionStoreStripesRejectsZero() {
+		exception.expect(IllegalArgumentException.class);
+		exception.expectMessage(containsString("must be at least 1"));
+		builder.setConnectionStoreStripes(0);
+	}
+
 	@Test
 	public void testSetSupportedCiphersRejectsNullCipher() {
 		exception.expect(IllegalArgumentException.class);
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.scandium.dtls;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.californium.elements.category.Small;
+import org.eclipse.californium.elements.rule.TestTimeRule;
+import org.eclipse.californium.elements.util.SerialExecutor;
+import org.eclipse.californium.scandium.dtls.cipher.CipherSuite;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(Small.class)
+public class ConnectionTest {
+
+	private static final InetSocketAddress PEER_ADDRESS = new InetSocketAddress(InetAddress.getLoopbackAddress(), 5684);
+	private static final long IDLE_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+	@Rule
+	public TestTimeRule time = new TestTimeRule();
+
+	private Connection connection;
+	private DTLSSession session;
+
+	@Before
+	public void setUp() throws HandshakeException {
+		connection = new Connection(PEER_ADDRESS, new SerialExecutor(new Executor() {
+
+			@Override
+			public void execute(Runnable command) {
+				command.run();
+			}
+		}));
+		session = DTLSSessionTest.newEstablishedServerSession(PEER_ADDRESS,
+				CipherSuite.TLS_ECDHE_ECDSA_WITH_AES_128_CCM_8, true);
+		connection.getSessionListener().sessionEstablished(null, session);
+	}
+
+	@Test
+	public void testCompactIdleConnection() {
+		long sequenceNumber = session.getSequenceNumber();
+		session.markRecordAsRead(1, 5);
+		session.setSignatureAndHashAlgorithm(SignatureAndHashAlgorithm.SHA256_WITH_ECDSA);
+		time.addTestTimeShift(IDLE_NANOS, TimeUnit.NANOSECONDS);
+		assertThat(compact(), is(true));
+		assertThat(connection.isCompacted(), is(true));
+		assertThat(connection.hasEstablishedSession(), is(true));
+		assertThat(connection.isActive(), is(true));
+
+		DTLSSession inflated = connection.getEstablishedSession();
+		assertThat(inflated, is(notNullValue()));
+		assertThat(inflated, is(not(sameInstance(session))));
+		assertThat(connection.isCompacted(), is(false));
+		assertThat(connection.getEstablishedSession(), is(sameInstance(inflated)));
+		assertThat(inflated.getSessionIdentifier(), is(session.getSessionIdentifier()));
+		assertThat(inflated.getPeer(), is(PEER_ADDRESS));
+		assertThat(inflated.getSignatureAndHashAlgorithm(), is(SignatureAndHashAlgorithm.SHA256_WITH_ECDSA));
+		assertThat(inflated.getSequenceNumber(), is(sequenceNumber + 1));
+		assertThat(inflated.isRecordProcessable(1, 5, false), is(false));
+	}
+
+	@Test
+	public void testNotCompactActiveConnection() {
+		time.addTestTimeShift(IDLE_NANOS / 2, TimeUnit.NANOSECONDS);
+		assertThat(compact(), is(false));
+		assertThat(connection.isCompacted(), is(false));
+		assertThat(connection.getEstablishedSession(), is(sameInstance(session)));
+	}
+
+	@Test
+	public void testNotCompactOutsideOfSerialExecution() {
+		time.addTestTimeShift(IDLE_NANOS, TimeUnit.NANOSECONDS);
+		assertThat(connection.compact(IDLE_NANOS), is(false));
+		assertThat(connection.isCompacted(), is(false));
+	}
+
+	@Test
+	public void testResetCompactedSession() {
+		time.addTestTimeShift(IDLE_NANOS, TimeUnit.NANOSECONDS);
+		assertThat(compact(), is(true));
+		connection.resetSession();
+		assertThat(connection.isCompacted(), is(false));
+		assertThat(connection.hasEstablishedSession(), is(false));
+	}
+
+	private boolean compact() {
+		final AtomicBoolean result = new AtomicBoolean();
+		connection.getExecutor().execute(new Runnable() {
+
+			@Override
+			public void run() {
+				result.set(connection.compact(IDLE_NANOS));
+			}
+		});
+		return result.get();
+	}
+}
@@ -260,6 +260,44 @@ public class DTLSSessionTest {
 		assertThatSessionsHaveSameRelevantPropertiesForResumption(sessionToResume, session);
 	}
 
+	@Test
+	public void testSessionCanBeRestoredFromWrittenState() throws GeneralSecurityException {
+		// GIVEN an established server session with some exchanged records
+		session = newEstablishedServerSession(PEER_ADDRESS, CipherSuite.TLS_ECDHE_ECDSA_WITH_AES_128_CCM_8, true);
+		session.setHostName("test");
+		session.getSequenceNumber();
+		session.getSequenceNumber();
+		session.markRecordAsRead(1, 5);
+		DatagramWriter writer = new DatagramWriter(true);
+		session.write(writer);
+
+		// WHEN restoring the session from the written state
+		byte[] state = writer.toByteArray();
+		DTLSSession restored = DTLSSession.fromReader(new DatagramReader(state), PEER_ADDRESS);
+
+		// THEN the restored session continues the established session
+		writer = new DatagramWriter(true);
+		restored.write(writer);
+		assertThat(writer.toByteArray(), is(state));
+		assertThat(restored.getSessionIdentifier(), is(session.getSessionIdentifier()));
+		assertThat(restored.getWriteState().getCipherSuite(), is(session.getWriteState().getCipherSuite()));
+		assertThat(restored.getMasterSecret(), is(session.getMasterSecret()));
+		assertThat(restored.getPeerIdentity(), is(session.getPeerIdentity()));
+		assertThat(restored.getServerNames(), is(session.getServerNames()));
+		assertThat(restored.getCreationTime(), is(session.getCreationTime()));
+		assertThat(restored.getReadEpoch(), is(1));
+		assertThat(restored.getWriteEpoch(), is(1));
+		assertThat(restored.getSequenceNumber(), is(session.getSequenceNumber()));
+		assertFalse(restored.isRecordProcessable(1, 5, 0));
+		assertTrue(restored.isRecordProcessable(1, 6, 0));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testWriteEnforcesEstablishedSession() {
+		session = new DTLSSession(PEER_ADDRESS);
+		session.write(new DatagramWriter());
+	}
+
 	public static void assertThatSessionsHaveSameRelevantPropertiesForResumption(DTLSSession sessionToResume, DTLSSession establishedSession) {
 		assertThat(sessionToResume.getSessionIdentifier(), is(establishedSession.getSessionIdentifier()));
 		assertThat(sessionToResume.getCipherSuite(), is(establishedSession.getWriteState().getCipherSuite()));
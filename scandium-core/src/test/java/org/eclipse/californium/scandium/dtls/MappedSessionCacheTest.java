@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.scandium.dtls;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.elements.category.Small;
+import org.eclipse.californium.scandium.dtls.cipher.CipherSuite;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+@Category(Small.class)
+public class MappedSessionCacheTest {
+
+	private static final int CAPACITY = 1000;
+	private static final long TIME_TO_LIVE = 60;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	File file;
+	long time;
+	MappedSessionCache cache;
+
+	@Before
+	public void setUp() throws IOException {
+		file = new File(folder.getRoot(), "sessions.bin");
+		time = System.currentTimeMillis();
+		cache = newCache(MappedSessionCache.DEFAULT_SLOT_SIZE);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		cache.close();
+	}
+
+	@Test
+	public void testPutAndGetSession() {
+		DTLSSession session = newSession();
+		cache.put(session);
+		assertTicket(cache.get(session.getSessionIdentifier()), session);
+	}
+
+	@Test
+	public void testGetUnknownSession() {
+		cache.put(newSession());
+		assertThat(cache.get(new SessionId()), is(nullValue()));
+	}
+
+	@Test
+	public void testRemoveSession() {
+		DTLSSession session = newSession();
+		cache.put(session);
+		cache.remove(session.getSessionIdentifier());
+		assertThat(cache.get(session.getSessionIdentifier()), is(nullValue()));
+	}
+
+	@Test
+	public void testSessionExpires() {
+		DTLSSession session = newSession();
+		cache.put(session);
+		time += TimeUnit.SECONDS.toMillis(TIME_TO_LIVE) - 1;
+		assertThat(cache.get(session.getSessionIdentifier()), is(notNullValue()));
+		time += 1;
+		assertThat(cache.get(session.getSessionIdentifier()), is(nullValue()));
+	}
+
+	@Test
+	public void testSessionsAreKeptOnRestart() throws IOException {
+		List<DTLSSession> sessions = new ArrayList<>();
+		for (int index = 0; index < 100; ++index) {
+			DTLSSession session = newSession();
+			sessions.add(session);
+			cache.put(session);
+		}
+		cache.close();
+		cache = newCache(MappedSessionCache.DEFAULT_SLOT_SIZE);
+		for (DTLSSession session : sessions) {
+			assertTicket(cache.get(session.getSessionIdentifier()), session);
+		}
+	}
+
+	@Test
+	public void testChangedLayoutClearsSessions() throws IOException {
+		DTLSSession session = newSession();
+		cache.put(session);
+		cache.close();
+		cache = newCache(MappedSessionCache.DEFAULT_SLOT_SIZE * 2);
+		assertThat(cache.get(session.getSessionIdentifier()), is(nullValue()));
+	}
+
+	@Test
+	public void testTooLargeTicketIsNotCached() throws IOException {
+		cache.close();
+		cache = newCache(MappedSessionCache.MIN_SLOT_SIZE);
+		DTLSSession session = newSession();
+		cache.put(session);
+		assertThat(cache.get(session.getSessionIdentifier()), is(nullValue()));
+	}
+
+	@Test
+	public void testFullBucketReplacesEarliestExpiringSession() throws IOException {
+		cache.close();
+		file.delete();
+		cache = new MappedSessionCache(file, MappedSessionCache.BUCKET_SIZE, MappedSessionCache.DEFAULT_SLOT_SIZE,
+				TIME_TO_LIVE) {
+
+			@Override
+			long currentTimeMillis() {
+				return time;
+			}
+		};
+		assertThat(cache.getCapacity(), is(MappedSessionCache.BUCKET_SIZE));
+		List<DTLSSession> sessions = new ArrayList<>();
+		for (int index = 0; index <= MappedSessionCache.BUCKET_SIZE; ++index) {
+			DTLSSession session = newSession();
+			sessions.add(session);
+			cache.put(session);
+			time += 1000;
+		}
+		assertThat(cache.get(sessions.get(0).getSessionIdentifier()), is(nullValue()));
+		for (int index = 1; index <= MappedSessionCache.BUCKET_SIZE; ++index) {
+			assertThat(cache.get(sessions.get(index).getSessionIdentifier()), is(notNullValue()));
+		}
+	}
+
+	@Test
+	public void testReplication() throws IOException {
+		final List<SessionId> puts = new ArrayList<>();
+		final List<SessionId> removes = new ArrayList<>();
+		final List<byte[]> tickets = new ArrayList<>();
+		final List<Long> expires = new ArrayList<>();
+		cache.setReplicator(new SessionCacheReplicator() {
+
+			@Override
+			public void put(SessionId id, byte[] ticket, long expire) {
+				puts.add(id);
+				// the replicator owns the ticket, no copy required
+				tickets.add(ticket);
+				expires.add(expire);
+			}
+
+			@Override
+			public void remove(SessionId id) {
+				removes.add(id);
+			}
+		});
+		DTLSSession session = newSession();
+		SessionId id = session.getSessionIdentifier();
+		cache.put(session);
+		assertThat(puts.size(), is(1));
+		assertThat(puts.get(0), is(id));
+
+		MappedSessionCache other = new MappedSessionCache(new File(folder.getRoot(), "other.bin"), CAPACITY);
+		try {
+			assertThat(other.putReplica(id, tickets.get(0), expires.get(0)), is(true));
+			assertTicket(other.get(id), session);
+			other.removeReplica(id);
+			assertThat(other.get(id), is(nullValue()));
+			assertThat(other.putReplica(id, tickets.get(0), System.currentTimeMillis() - 1), is(false));
+		} finally {
+			other.close();
+		}
+
+		// replicas are not replicated again
+		DTLSSession replica = newSession();
+		cache.putReplica(replica.getSessionIdentifier(), tickets.get(0), expires.get(0));
+		cache.removeReplica(replica.getSessionIdentifier());
+		assertThat(puts.size(), is(1));
+		assertThat(removes.size(), is(0));
+
+		cache.remove(id);
+		assertThat(removes.size(), is(1));
+	}
+
+	private static void assertTicket(SessionTicket ticket, DTLSSession session) {
+		assertThat(ticket, is(notNullValue()));
+		assertThat(ticket.getCipherSuite(), is(session.getWriteState().getCipherSuite()));
+		assertThat(ticket.getMasterSecret(), is(session.getMasterSecret()));
+		assertThat(ticket.getClientIdentity(), is(session.getPeerIdentity()));
+	}
+
+	private MappedSessionCache newCache(int slotSize) throws IOException {
+		return new MappedSessionCache(file, CAPACITY, slotSize, TIME_TO_LIVE) {
+
+			@Override
+			long currentTimeMillis() {
+				return time;
+			}
+		};
+	}
+
+	private static DTLSSession newSession() {
+		return DTLSSessionTest.newEstablishedServerSession(new InetSocketAddress(5684),
+				CipherSuite.TLS_ECDHE_ECDSA_WITH_AES_128_CCM_8, true);
+	}
+}
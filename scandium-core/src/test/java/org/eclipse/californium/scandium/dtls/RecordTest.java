@@ -16,10 +16,13 @@
  *    Kai Hudalla (Bosch Software Innovations GmbH) - add test cases for verifying sequence number handling
  *    Achim Kraus (Bosch Software Innovations GmbH) - Replace getLocalHost() by
  *                                                    getLoopbackAddress()
+ *    Bosch.IO GmbH                                 - add test for pooled buffer
  ******************************************************************************/
 package org.eclipse.californium.scandium.dtls;
 
+import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 import java.net.InetAddress;
@@ -32,8 +35,11 @@ import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 
 import org.eclipse.californium.elements.category.Small;
+import org.eclipse.californium.elements.util.BufferPool;
 import org.eclipse.californium.elements.util.Bytes;
 import org.eclipse.californium.elements.util.ClockUtil;
+import org.eclipse.californium.elements.util.DatagramReader;
+import org.eclipse.californium.elements.util.PooledBuffer;
 import org.eclipse.californium.scandium.dtls.cipher.CCMBlockCipher;
 import org.eclipse.californium.scandium.dtls.cipher.CipherSuite;
 import org.eclipse.californium.scandium.util.SecretIvParameterSpec;
@@ -144,6 +150,33 @@ public class RecordTest {
 		assertTrue(Arrays.equals(decryptedData, payloadData));
 	}
 
+	@Test
+	public void testDecryptAEADFromPooledBuffer() throws Exception {
+		BufferPool pool = new BufferPool(512, 1);
+		PooledBuffer buffer = pool.acquire();
+		byte[] applicationRecord = DtlsTestTools.newDTLSRecord(TYPE_APPL_DATA, EPOCH, SEQUENCE_NO,
+				newGenericAEADCipherFragment());
+		byte[] datagram = Bytes.concatenate(applicationRecord, applicationRecord);
+		System.arraycopy(datagram, 0, buffer.getData(), 0, datagram.length);
+		DatagramReader reader = new DatagramReader(buffer.getData(), 0, datagram.length);
+
+		List<Record> recordList = Record.fromReader(reader, buffer, session.getPeer(), null,
+				ClockUtil.nanoRealtime());
+		assertEquals(2, recordList.size());
+		buffer.release();
+		assertThat(buffer.getReferences(), is(2));
+
+		for (Record record : recordList) {
+			record.applySession(session);
+			assertTrue(Arrays.equals(record.getFragment().toByteArray(), payloadData));
+			record.release();
+			// release is idempotent
+			record.release();
+		}
+		assertThat(buffer.getReferences(), is(0));
+		assertThat(pool.getPooledBuffers(), is(1));
+	}
+
 	byte[] newGenericAEADCipherFragment() throws GeneralSecurityException {
 		// 64bit sequence number, consisting of 16bit epoch (0) + 48bit sequence number (5)
 		byte[] seq_num = new byte[]{0x00, (byte) EPOCH, 0x00, 0x00, 0x00, 0x00, 0x00, (byte) SEQUENCE_NO};
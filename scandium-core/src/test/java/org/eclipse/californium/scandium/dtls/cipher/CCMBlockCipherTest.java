@@ -12,9 +12,13 @@
  * 
  * Contributors:
  *    Bosch Software Innovations GmbH - initial test, derived from RecordTest
+ *    Bosch.IO GmbH                   - add tests for RFC 3610 vector and
+ *                                      en- and decryption in place
  ******************************************************************************/
 package org.eclipse.californium.scandium.dtls.cipher;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeTrue;
 
@@ -29,6 +33,7 @@ import javax.crypto.spec.SecretKeySpec;
 
 import org.eclipse.californium.elements.category.Small;
 import org.eclipse.californium.elements.util.Bytes;
+import org.eclipse.californium.elements.util.StringUtil;
 import org.eclipse.californium.scandium.dtls.ProtocolVersion;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -211,6 +216,57 @@ public class CCMBlockCipherTest {
 		CCMBlockCipher.decrypt(new SecretKeySpec(aesKey2, "AES"), nonce, aesKey2, encryptedData, 8);
 	}
 
+	/**
+	 * Test packet vector #1 of
+	 * <a href="https://tools.ietf.org/html/rfc3610#section-8">RFC 3610, Test
+	 * Vectors</a>.
+	 */
+	@Test
+	public void testRfc3610PacketVector1() throws Exception {
+		SecretKey key = new SecretKeySpec(StringUtil.hex2ByteArray("C0C1C2C3C4C5C6C7C8C9CACBCCCDCECF"), "AES");
+		byte[] nonce = StringUtil.hex2ByteArray("00000003020100A0A1A2A3A4A5");
+		byte[] a = StringUtil.hex2ByteArray("0001020304050607");
+		byte[] m = StringUtil.hex2ByteArray("08090A0B0C0D0E0F101112131415161718191A1B1C1D1E");
+		byte[] c = StringUtil.hex2ByteArray("588C979A61C663D2F066D0C2C0F989806D5F6B61DAC38417E8D12CFDF926E0");
+
+		byte[] encryptedData = CCMBlockCipher.encrypt(key, nonce, a, m, 8);
+		assertArrayEquals(c, encryptedData);
+		byte[] decryptedData = CCMBlockCipher.decrypt(key, nonce, a, c, 8);
+		assertArrayEquals(m, decryptedData);
+	}
+
+	@Test
+	public void testAES128CCMCryptionInPlace() throws Exception {
+		int offset = 13;
+		byte[] buffer = new byte[offset + payloadLength + 16];
+		System.arraycopy(payloadData, 0, buffer, offset, payloadLength);
+
+		int length = CCMBlockCipher.encrypt(aesKey, nonce, additionalData, buffer, offset, payloadLength, buffer,
+				offset, 16);
+		assertEquals(payloadLength + 16, length);
+		byte[] encryptedData = CCMBlockCipher.encrypt(aesKey, nonce, additionalData, payloadData, 16);
+		assertArrayEquals(encryptedData, Arrays.copyOfRange(buffer, offset, offset + length));
+
+		length = CCMBlockCipher.decrypt(aesKey, nonce, additionalData, buffer, offset, length, buffer, offset, 16);
+		assertEquals(payloadLength, length);
+		assertArrayEquals(payloadData, Arrays.copyOfRange(buffer, offset, offset + length));
+	}
+
+	@Test
+	public void testDecryptInPlaceFailsAndClearsOutput() throws Exception {
+		assumeTrue("requires payload", payloadLength > 0);
+		byte[] encryptedData = CCMBlockCipher.encrypt(aesKey, nonce, additionalData, payloadData, 8);
+		encryptedData[encryptedData.length - 1] ^= 0x55;
+		try {
+			CCMBlockCipher.decrypt(aesKey, nonce, additionalData, encryptedData, 0, encryptedData.length,
+					encryptedData, 0, 8);
+		} catch (InvalidMacException ex) {
+			assertArrayEquals(new byte[payloadLength], Arrays.copyOf(encryptedData, payloadLength));
+			return;
+		}
+		throw new AssertionError("missing InvalidMacException");
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void testTooShortNonce() throws Exception {
 		nonce = Arrays.copyOf(nonce, 6);
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.scandium.dtls.cipher;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.eclipse.californium.elements.category.Small;
+import org.eclipse.californium.scandium.DtlsHealthExtended;
+import org.eclipse.californium.scandium.dtls.cipher.XECDHECryptography.SupportedGroup;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(Small.class)
+public class EphemeralKeyPoolTest {
+
+	private static final SupportedGroup GROUP = SupportedGroup.secp256r1;
+
+	private static final int SIZE = 4;
+
+	private QueueExecutor executor;
+	private Health health;
+	private EphemeralKeyPool pool;
+
+	@Before
+	public void setUp() {
+		executor = new QueueExecutor();
+		health = new Health();
+		pool = new EphemeralKeyPool(SIZE, Arrays.asList(GROUP), executor, health);
+	}
+
+	@Test
+	public void testStartFillsPool() {
+		pool.start();
+		executor.runAll();
+		assertThat(pool.size(GROUP), is(SIZE));
+	}
+
+	@Test
+	public void testTakePooledKey() throws GeneralSecurityException {
+		pool.start();
+		executor.runAll();
+		XECDHECryptography ecdhe = pool.take(GROUP);
+		assertThat(ecdhe.getEncodedPoint(), is(notNullValue()));
+		assertThat(pool.size(GROUP), is(SIZE - 1));
+		assertThat(health.pooled, is(1));
+		assertThat(health.depleted, is(0));
+		executor.runAll();
+		assertThat(pool.size(GROUP), is(not(0)));
+	}
+
+	@Test
+	public void testTakeFromDepletedPool() throws GeneralSecurityException {
+		XECDHECryptography ecdhe = pool.take(GROUP);
+		assertThat(ecdhe.getEncodedPoint(), is(notNullValue()));
+		assertThat(health.pooled, is(0));
+		assertThat(health.depleted, is(1));
+	}
+
+	@Test
+	public void testTakeNotPooledGroup() throws GeneralSecurityException {
+		XECDHECryptography ecdhe = pool.take(SupportedGroup.secp384r1);
+		assertThat(ecdhe.getSupportedGroup(), is(SupportedGroup.secp384r1));
+		assertThat(health.pooled + health.depleted, is(0));
+	}
+
+	@Test
+	public void testDrain() throws GeneralSecurityException {
+		pool.start();
+		executor.runAll();
+		pool.drain();
+		assertThat(pool.size(GROUP), is(0));
+		pool.take(GROUP);
+		executor.runAll();
+		assertThat(pool.size(GROUP), is(0));
+	}
+
+	private static class QueueExecutor implements Executor {
+
+		private final List<Runnable> jobs = new LinkedList<Runnable>();
+
+		@Override
+		public void execute(Runnable command) {
+			jobs.add(command);
+		}
+
+		private void runAll() {
+			while (!jobs.isEmpty()) {
+				jobs.remove(0).run();
+			}
+		}
+	}
+
+	private static class Health implements DtlsHealthExtended {
+
+		private int pooled;
+		private int depleted;
+
+		@Override
+		public void dump(String tag, int maxConnections, int remainingCapacity, int pendingWithoutVerify) {
+		}
+
+		@Override
+		public boolean isEnabled() {
+			return true;
+		}
+
+		@Override
+		public void startHandshake() {
+		}
+
+		@Override
+		public void endHandshake(boolean success) {
+		}
+
+		@Override
+		public void receivingRecord(boolean drop) {
+		}
+
+		@Override
+		public void sendingRecord(boolean drop) {
+		}
+
+		@Override
+		public void takeEphemeralKey(boolean depleted) {
+			if (depleted) {
+				++this.depleted;
+			} else {
+				++this.pooled;
+			}
+		}
+
+		@Override
+		public void validatingCertificatePath(boolean cached) {
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Bosch.IO GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    Bosch.IO GmbH - initial creation
+ ******************************************************************************/
+package org.eclipse.californium.scandium.dtls.x509;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.cert.CertPath;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.elements.category.Small;
+import org.eclipse.californium.elements.rule.TestTimeRule;
+import org.eclipse.californium.elements.util.Bytes;
+import org.eclipse.californium.elements.util.CertPathUtil;
+import org.eclipse.californium.elements.util.TestCertificatesTools;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(Small.class)
+public class CertificateValidationCacheTest {
+
+	private static final int SIZE = 2;
+	private static final long TIME_TO_LIVE_SECONDS = 60;
+	private static final byte[] TRUST = new byte[] { 1, 2, 3, 4 };
+
+	@Rule
+	public TestTimeRule time = new TestTimeRule();
+
+	private CertificateValidationCache cache;
+
+	@Before
+	public void setUp() {
+		cache = new CertificateValidationCache(SIZE, TIME_TO_LIVE_SECONDS, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testPutAndGet() throws GeneralSecurityException {
+		CertPath path = newPath(1);
+		Bytes key = CertificateValidationCache.createKey(false, path, TRUST);
+		assertThat(cache.get(key), is(nullValue()));
+		cache.put(key, path);
+		assertThat(cache.get(key), is(sameInstance(path)));
+		assertThat(cache.get(CertificateValidationCache.createKey(false, newPath(1), TRUST)),
+				is(sameInstance(path)));
+	}
+
+	@Test
+	public void testKey() throws GeneralSecurityException {
+		CertPath path = newPath(1);
+		Bytes key = CertificateValidationCache.createKey(false, path, TRUST);
+		assertThat(CertificateValidationCache.createKey(true, path, TRUST), is(not(key)));
+		assertThat(CertificateValidationCache.createKey(false, path, new byte[] { 1, 2, 3, 5 }), is(not(key)));
+		assertThat(CertificateValidationCache.createKey(false, newPath(2), TRUST), is(not(key)));
+	}
+
+	@Test
+	public void testEvictLeastRecentlyUsed() throws GeneralSecurityException {
+		CertPath path1 = newPath(1);
+		CertPath path2 = newPath(2);
+		CertPath path3 = newPath(3);
+		Bytes key1 = CertificateValidationCache.createKey(false, path1, TRUST);
+		Bytes key2 = CertificateValidationCache.createKey(false, path2, TRUST);
+		Bytes key3 = CertificateValidationCache.createKey(false, path3, TRUST);
+		cache.put(key1, path1);
+		cache.put(key2, path2);
+		// access key1, key2 becomes the least recently used
+		assertThat(cache.get(key1), is(notNullValue()));
+		cache.put(key3, path3);
+		assertThat(cache.size(), is(SIZE));
+		assertThat(cache.get(key2), is(nullValue()));
+		assertThat(cache.get(key1), is(sameInstance(path1)));
+		assertThat(cache.get(key3), is(sameInstance(path3)));
+	}
+
+	@Test
+	public void testTimeToLive() throws GeneralSecurityException {
+		CertPath path = newPath(1);
+		Bytes key = CertificateValidationCache.createKey(false, path, TRUST);
+		cache.put(key, path);
+		time.addTestTimeShift(TIME_TO_LIVE_SECONDS - 1, TimeUnit.SECONDS);
+		assertThat(cache.get(key), is(sameInstance(path)));
+		time.addTestTimeShift(2, TimeUnit.SECONDS);
+		assertThat(cache.get(key), is(nullValue()));
+		assertThat(cache.size(), is(0));
+	}
+
+	@Test
+	public void testCertificateValidity() throws GeneralSecurityException {
+		X509Certificate[] chain = TestCertificatesTools.getServerCertificateChain();
+		CertPath path = CertPathUtil.generateCertPath(Arrays.asList(chain));
+		Bytes key = CertificateValidationCache.createKey(false, path, TRUST);
+		cache.put(key, path);
+		boolean expired = false;
+		for (X509Certificate certificate : chain) {
+			if (certificate.getNotAfter().getTime() - System.currentTimeMillis() <= 0) {
+				expired = true;
+			}
+		}
+		// results with expired certificates are not cached
+		assertThat(cache.get(key) == null, is(expired));
+	}
+
+	@Test
+	public void testClear() throws GeneralSecurityException {
+		CertPath path = newPath(1);
+		Bytes key = CertificateValidationCache.createKey(false, path, TRUST);
+		cache.put(key, path);
+		cache.clear();
+		assertThat(cache.get(key), is(nullValue()));
+	}
+
+	private static CertPath newPath(int id) {
+		return new TestCertPath(new TestCertificate(id));
+	}
+
+	/**
+	 * Certificate without validity.
+	 */
+	private static class TestCertificate extends Certificate {
+
+		private static final long serialVersionUID = 1L;
+
+		private final byte[] encoded;
+
+		private TestCertificate(int id) {
+			super("test");
+			this.encoded = new byte[] { (byte) id };
+		}
+
+		@Override
+		public byte[] getEncoded() throws CertificateEncodingException {
+			return encoded.clone();
+		}
+
+		@Override
+		public void verify(PublicKey key) {
+		}
+
+		@Override
+		public void verify(PublicKey key, String sigProvider) {
+		}
+
+		@Override
+		public String toString() {
+			return "test-" + encoded[0];
+		}
+
+		@Override
+		public PublicKey getPublicKey() {
+			return null;
+		}
+	}
+
+	private static class TestCertPath extends CertPath {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<Certificate> certificates;
+
+		private TestCertPath(Certificate certificate) {
+			super("test");
+			this.certificates = Collections.singletonList(certificate);
+		}
+
+		@Override
+		public Iterator<String> getEncodings() {
+			return Collections.<String> emptyList().iterator();
+		}
+
+		@Override
+		public byte[] getEncoded() throws CertificateEncodingException {
+			return certificates.get(0).getEncoded();
+		}
+
+		@Override
+		public byte[] getEncoded(String encoding) throws CertificateEncodingException {
+			return getEncoded();
+		}
+
+		@Override
+		public List<? extends Certificate> getCertificates() {
+			return certificates;
+		}
+	}
+}